@@ -209,6 +209,45 @@ def call_openai_text(prompt: str, timeout: float, max_retry: int = 4, temperatur
             back = min(3.0, (0.2 * (2 ** attempt))) + random.uniform(0, 0.2)
             _t.sleep(back)
 
+def call_openai_text_stream(prompt: str, timeout: float, temperature: float = 0.2):
+    """
+    Gọi OpenAI Responses API với stream=true, yield từng đoạn text (response.output_text.delta).
+    Không retry: khi đã gửi token cho client thì không thể gửi lại từ đầu.
+    """
+    if not OPENAI_API_KEY:
+        raise RuntimeError("Missing OPENAI_API_KEY")
+    url = "https://api.openai.com/v1/responses"
+    headers = {
+        "Authorization": f"Bearer {OPENAI_API_KEY}",
+        "Content-Type": "application/json",
+    }
+    payload = {
+        "model": OPENAI_CHAT_MODEL,
+        "input": prompt,
+        "temperature": float(temperature),
+        "max_output_tokens": int(OPENAI_MAX_OUTPUT_TOKENS),
+        "stream": True,
+    }
+    with httpx.Client(timeout=timeout) as client:
+        with client.stream("POST", url, headers=headers, json=payload) as r:
+            r.raise_for_status()
+            for line in r.iter_lines():
+                if not line or not line.startswith("data:"):
+                    continue
+                data = line[5:].strip()
+                if data == "[DONE]":
+                    break
+                try:
+                    event = json.loads(data)
+                except ValueError:
+                    continue
+                if event.get("type") == "response.output_text.delta":
+                    delta = event.get("delta") or ""
+                    if delta:
+                        yield delta
+                elif event.get("type") in ("response.failed", "error"):
+                    raise RuntimeError(f"OpenAI stream error: {event}")
+
 OPENAI_SENTI_MODEL = os.getenv("OPENAI_SENTI_MODEL", OPENAI_CHAT_MODEL)
 OPENAI_SENTI_MAX_OUTPUT_TOKENS = int(os.getenv("OPENAI_SENTI_MAX_OUTPUT_TOKENS", "80"))
 
@@ -255,9 +294,7 @@ def call_openai_json_schema(prompt: str, schema: dict, timeout: float, max_retry
             back = min(3.0, (0.2 * (2 ** attempt))) + random.uniform(0, 0.2)
             _t.sleep(back)
 
-def _gen_answer_from_ctx(question: str, contexts: list[str], history: str = "") -> str:
-    if not contexts:
-        return "Chưa đủ ngữ cảnh để trả lời."
+def _build_rag_prompt(question: str, contexts: list[str], history: str = "") -> str:
     max_chars = int(os.getenv("RAG_MAX_CTX_CHARS","5000"))
 
     # Gộp & cắt context theo giới hạn ký tự
@@ -284,6 +321,12 @@ def _gen_answer_from_ctx(question: str, contexts: list[str], history: str = "")
         "[CURRENT QUESTION]\n"
         f"{question}"
     )
+    return prompt
+
+def _gen_answer_from_ctx(question: str, contexts: list[str], history: str = "") -> str:
+    if not contexts:
+        return "Chưa đủ ngữ cảnh để trả lời."
+    prompt = _build_rag_prompt(question, contexts, history)
 
     try:
         txt = call_openai_text(
@@ -1113,64 +1156,73 @@ def answer_count_query(db: Session, survey_id: int, question_text: str) -> Optio
             return f"Có {count} câu trả lời chứa \"{kw}\" trong survey {survey_id}."
     return None
 
-@app.post("/ai/chat", response_model=ChatResponse, tags=["Chat AI/RAG"])
-def ai_chat(req: ChatRequest, db: Session = Depends(get_db)):
-    try:
-        user_id = int(req.user_id) if req.user_id is not None else 0
-        q_raw = req.question_text or ""
-        q_norm = norm_text(q_raw)
-
-        # (A) Với câu hỏi dạng thống kê rule-based, vẫn ưu tiên như cũ
-        stat_ans = _answer_stat_query(db, req.survey_id, q_norm)
-        if stat_ans:
-            answer, topk_ctx = stat_ans, []
-        else:
-            # (B) Truy xuất ngữ cảnh top-k như cũ (Chroma → TF-IDF fallback)
-            collection = get_chroma_collection()
-            if collection is None:
-                raise HTTPException(status_code=503, detail="Vector store chưa sẵn sàng (ChromaDB).")
-
-            vec_q = _embed_vi(q_norm)
-            env_topk = int(os.getenv("RAG_TOP_K", "5"))
-            topk = max(1, min(int(req.top_k or env_topk), 20))
-            min_sim = float(os.getenv("RAG_MIN_SIM", "0.25"))
-
-            topk_ctx: list[str] = []
-            if vec_q:
+def _prepare_chat(db: Session, req: ChatRequest):
+    """
+    Phần chung của /ai/chat và /ai/chat/stream.
+    Trả về (q_norm, answer, topk_ctx, history): answer != None nghĩa là đã có câu trả lời
+    không cần gọi LLM (thống kê rule-based hoặc fallback TF-IDF); ngược lại cần sinh từ CONTEXT + HISTORY.
+    """
+    user_id = int(req.user_id) if req.user_id is not None else 0
+    q_raw = req.question_text or ""
+    q_norm = norm_text(q_raw)
+
+    # (A) Với câu hỏi dạng thống kê rule-based, vẫn ưu tiên như cũ
+    stat_ans = _answer_stat_query(db, req.survey_id, q_norm)
+    if stat_ans:
+        return q_norm, stat_ans, [], ""
+
+    # (B) Truy xuất ngữ cảnh top-k như cũ (Chroma → TF-IDF fallback)
+    collection = get_chroma_collection()
+    if collection is None:
+        raise HTTPException(status_code=503, detail="Vector store chưa sẵn sàng (ChromaDB).")
+
+    vec_q = _embed_vi(q_norm)
+    env_topk = int(os.getenv("RAG_TOP_K", "5"))
+    topk = max(1, min(int(req.top_k or env_topk), 20))
+    min_sim = float(os.getenv("RAG_MIN_SIM", "0.25"))
+
+    topk_ctx: list[str] = []
+    if vec_q:
+        try:
+            res = collection.query(
+                query_embeddings=[vec_q],
+                n_results=topk * 3,
+                where={"survey_id": int(req.survey_id)},
+                include=["documents", "distances", "metadatas"],
+            )
+            docs = (res.get("documents") or [[]])[0]
+            dists = (res.get("distances") or [[]])[0]
+            items = []
+            for d, doc in zip(dists, docs):
                 try:
-                    res = collection.query(
-                        query_embeddings=[vec_q],
-                        n_results=topk * 3,
-                        where={"survey_id": int(req.survey_id)},
-                        include=["documents", "distances", "metadatas"],
-                    )
-                    docs = (res.get("documents") or [[]])[0]
-                    dists = (res.get("distances") or [[]])[0]
-                    items = []
-                    for d, doc in zip(dists, docs):
-                        try:
-                            sim = 1.0 - float(d)  # cosine similarity
-                        except Exception:
-                            sim = 0.0
-                        items.append((sim, doc))
-                    items.sort(key=lambda x: x[0], reverse=True)
-                    items = [(s, t) for (s, t) in items if s >= min_sim]
-                    topk_ctx = [t for _, t in items[:topk]]
-                except Exception as e:
-                    print(f"[ai_chat] chroma query error: {e}")
+                    sim = 1.0 - float(d)  # cosine similarity
+                except Exception:
+                    sim = 0.0
+                items.append((sim, doc))
+            items.sort(key=lambda x: x[0], reverse=True)
+            items = [(s, t) for (s, t) in items if s >= min_sim]
+            topk_ctx = [t for _, t in items[:topk]]
+        except Exception as e:
+            print(f"[ai_chat] chroma query error: {e}")
 
-            # (C) Lấy lịch sử hội thoại từ DB (tối đa 12 cặp Q/A)
-            history = get_chat_history(db, user_id=user_id, survey_id=req.survey_id, limit=12)
+    if not topk_ctx:
+        # Fallback TF-IDF nếu vecto rỗng hoặc Chroma fail
+        texts = [r.answer_text for r in fetch_answer_rows(db, req.survey_id)]
+        topk_ctx = retrieve_topk(texts, q_norm, req.top_k)
+        # craft_answer là local — không cần history
+        return q_norm, craft_answer(q_norm, topk_ctx), topk_ctx, ""
 
-            if topk_ctx:
-                # Gọi Open AI với cả CONTEXT + HISTORY
-                answer = _gen_answer_from_ctx(q_norm, topk_ctx, history=history)
-            else:
-                # Fallback TF-IDF nếu vecto rỗng hoặc Chroma fail
-                texts = [r.answer_text for r in fetch_answer_rows(db, req.survey_id)]
-                topk_ctx = retrieve_topk(texts, q_norm, req.top_k)
-                # craft_answer là local — không cần history
-                answer = craft_answer(q_norm, topk_ctx)
+    # (C) Lấy lịch sử hội thoại từ DB (tối đa 12 cặp Q/A)
+    history = get_chat_history(db, user_id=user_id, survey_id=req.survey_id, limit=12)
+    return q_norm, None, topk_ctx, history
+
+@app.post("/ai/chat", response_model=ChatResponse, tags=["Chat AI/RAG"])
+def ai_chat(req: ChatRequest, db: Session = Depends(get_db)):
+    try:
+        q_norm, answer, topk_ctx, history = _prepare_chat(db, req)
+        if answer is None:
+            # Gọi Open AI với cả CONTEXT + HISTORY
+            answer = _gen_answer_from_ctx(q_norm, topk_ctx, history=history)
 
         # (D) Trả kết quả - KHÔNG lưu DB ở đây, để Backend Java service lưu
         now = datetime.utcnow()
@@ -1198,6 +1250,67 @@ def ai_chat(req: ChatRequest, db: Session = Depends(get_db)):
         db.commit()
         raise HTTPException(status_code=500, detail=f"Lỗi xử lý AI chat: {e}")
 
+from fastapi.responses import StreamingResponse
+
+@app.post("/ai/chat/stream", tags=["Chat AI/RAG"])
+def ai_chat_stream(req: ChatRequest, db: Session = Depends(get_db)):
+    """
+    Giống /ai/chat nhưng trả câu trả lời theo từng đoạn (NDJSON, mỗi dòng 1 JSON):
+        {"type": "context", "context": [...], "top_k": k}
+        {"type": "delta", "text": "..."}        (lặp lại)
+        {"type": "done"}  hoặc  {"type": "error", "message": "..."}
+    Truy xuất ngữ cảnh + ghi activity log xong trước khi stream (session DB đóng khi handler trả về).
+    Client ngắt kết nối thì generator bị đóng và lời gọi OpenAI đang stream cũng bị hủy.
+    KHÔNG lưu chat log ở đây, Backend Java lưu sau khi stream xong.
+    """
+    try:
+        q_norm, answer, topk_ctx, history = _prepare_chat(db, req)
+        db.add(ActivityLog(
+            user_id=req.user_id, action_type="ai_query",
+            target_id=None, target_table="ai_chat_logs",
+            description=f"AI chat (stream) for survey_id={req.survey_id}",
+        ))
+        db.commit()
+    except Exception as e:
+        db.rollback()
+        db.add(ActivityLog(
+            user_id=req.user_id, action_type="ai_query_error",
+            target_id=None, target_table="ai_chat_logs",
+            description=f"Error: {e}",
+        ))
+        db.commit()
+        raise HTTPException(status_code=500, detail=f"Lỗi xử lý AI chat: {e}")
+
+    def _line(obj: dict) -> str:
+        return json.dumps(obj, ensure_ascii=False) + "\n"
+
+    def _events():
+        yield _line({"type": "context", "context": topk_ctx, "top_k": req.top_k})
+        if answer is not None:
+            yield _line({"type": "delta", "text": answer})
+        else:
+            sent = False
+            try:
+                prompt = _build_rag_prompt(q_norm, topk_ctx, history)
+                for delta in call_openai_text_stream(
+                    prompt,
+                    timeout=float(os.getenv("EXT_SENTI_TIMEOUT", "12.0")),
+                    temperature=0.2,
+                ):
+                    sent = True
+                    yield _line({"type": "delta", "text": delta})
+            except Exception as e:
+                print(f"[ai_chat_stream] openai stream error: {e}")
+                if sent:
+                    yield _line({"type": "error", "message": "Luồng trả lời bị gián đoạn"})
+                    return
+            if not sent:
+                # Giống /ai/chat: lỗi hoặc không có output thì trả lời mặc định
+                yield _line({"type": "delta", "text": "Chưa đủ thông tin."})
+        yield _line({"type": "done"})
+
+    return StreamingResponse(_events(), media_type="application/x-ndjson")
+
 print("[startup] EXT_SENTI_URL =", os.getenv("EXT_SENTI_URL"))
 print("[startup] EXT_SENTI_KEY set? ", bool(os.getenv("EXT_SENTI_KEY")))
 # ============================ Conversational Memory ============================
@@ -44,6 +44,8 @@ dependencies {
     implementation("org.thymeleaf.extras:thymeleaf-extras-springsecurity6")
 
     implementation("com.turkraft.springfilter:jpa:3.1.7")
+    // Pool kết nối HTTP cho client gọi dịch vụ AI (phiên bản theo Spring Boot)
+    implementation("org.apache.httpcomponents.client5:httpclient5")
     // Excel export
     implementation("org.apache.poi:poi-ooxml:5.3.0")
     // PDF export
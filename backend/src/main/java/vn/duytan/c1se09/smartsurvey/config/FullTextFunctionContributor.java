@@ -0,0 +1,22 @@
+package vn.duytan.c1se09.smartsurvey.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Đăng ký hàm fulltext_match(cột, truy vấn) cho JPQL, sinh ra
+ * MATCH(cột) AGAINST(truy vấn IN BOOLEAN MODE) của MySQL.
+ * Được Hibernate nạp qua META-INF/services/org.hibernate.boot.model.FunctionContributor
+ */
+public class FullTextFunctionContributor implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                "fulltext_match",
+                "match(?1) against(?2 in boolean mode)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.DOUBLE));
+    }
+}
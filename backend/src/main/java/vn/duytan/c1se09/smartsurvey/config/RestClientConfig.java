@@ -1,17 +1,42 @@
 package vn.duytan.c1se09.smartsurvey.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.core.env.Environment;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiEndpoint;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiServiceClient;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Configuration for REST clients
+ * - AiServiceClient: client dùng chung cho dịch vụ AI, mỗi endpoint đọc cấu hình ai.&lt;key&gt;.*
+ *   (base-url, connect-timeout, timeout = read timeout, max-concurrent)
  */
 @Configuration
 public class RestClientConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public AiServiceClient aiServiceClient(Environment env, MeterRegistry meterRegistry) {
+        AiServiceClient.PoolSettings pool = new AiServiceClient.PoolSettings(
+                env.getProperty("ai.client.pool.max-total", Integer.class, 50),
+                env.getProperty("ai.client.pool.max-per-route", Integer.class, 20));
+        AiServiceClient.BreakerSettings breaker = new AiServiceClient.BreakerSettings(
+                env.getProperty("ai.client.circuit-breaker.failure-threshold", Integer.class, 5),
+                Duration.ofMillis(env.getProperty("ai.client.circuit-breaker.open-duration-ms", Long.class, 30000L)));
+
+        Map<AiEndpoint, AiServiceClient.EndpointSettings> endpoints = new EnumMap<>(AiEndpoint.class);
+        for (AiEndpoint endpoint : AiEndpoint.values()) {
+            String prefix = "ai." + endpoint.getKey() + ".";
+            endpoints.put(endpoint, new AiServiceClient.EndpointSettings(
+                    env.getProperty(prefix + "base-url", "http://localhost:8000"),
+                    Duration.ofMillis(env.getProperty(prefix + "connect-timeout", Long.class, 3000L)),
+                    Duration.ofMillis(env.getProperty(prefix + "timeout", Long.class, 30000L)),
+                    env.getProperty(prefix + "max-concurrent", Integer.class, 10)));
+        }
+        return new AiServiceClient(pool, breaker, endpoints, meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package vn.duytan.c1se09.smartsurvey.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật các job chạy định kỳ (@Scheduled)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
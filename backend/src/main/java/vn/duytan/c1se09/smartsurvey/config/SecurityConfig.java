@@ -1,5 +1,6 @@
 package vn.duytan.c1se09.smartsurvey.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -99,12 +100,16 @@ public class SecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        // Async dispatch của response stream (SSE): request gốc đã được xác thực
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints FIRST (order matters!)
                         .requestMatchers("/auth/login", "/auth/register", "/auth/forgot-password").permitAll()
                         .requestMatchers("/surveys/{id}/public", "/surveys/{id}/status").permitAll()
                         .requestMatchers(HttpMethod.POST, "/responses").permitAll()
                         .requestMatchers(HttpMethod.POST, "/responses/with-files").permitAll()
                         .requestMatchers("/api/public/**").permitAll() // This should be before specific /api rules
+                        // Trạng thái dịch vụ AI / circuit breaker là thông tin nội bộ
+                        .requestMatchers("/actuator/aihealth", "/actuator/aihealth/**").hasRole("ADMIN")
                         .requestMatchers("/actuator/**").permitAll()
                         
                         // Admin endpoints - CHỈ ADMIN MỚI TRUY CẬP ĐƯỢC
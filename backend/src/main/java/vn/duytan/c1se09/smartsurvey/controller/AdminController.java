@@ -7,6 +7,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import vn.duytan.c1se09.smartsurvey.domain.response.UserResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.admin.*;
+import vn.duytan.c1se09.smartsurvey.domain.response.purge.PurgeJobResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.request.UserRequestDTO;
 import vn.duytan.c1se09.smartsurvey.service.AdminService;
 import vn.duytan.c1se09.smartsurvey.util.annotation.ApiMessage;
@@ -102,9 +103,9 @@ public class AdminController {
      */
     @DeleteMapping("/users/{userId}")
     @ApiMessage("Delete user")
-    public ResponseEntity<Void> deleteUser(@PathVariable("userId") Long userId) throws IdInvalidException {
-        adminService.deleteUser(userId);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<PurgeJobResponseDTO> deleteUser(@PathVariable("userId") Long userId) throws IdInvalidException {
+        // User bị vô hiệu hóa ngay, dữ liệu được xóa nền; theo dõi tiến độ qua /purge-jobs/{jobId}
+        return ResponseEntity.ok(adminService.deleteUser(userId));
     }
 
     /**
@@ -153,9 +154,28 @@ public class AdminController {
      */
     @DeleteMapping("/surveys/{surveyId}")
     @ApiMessage("Delete survey")
-    public ResponseEntity<Void> deleteSurvey(@PathVariable("surveyId") Long surveyId) throws IdInvalidException {
-        adminService.deleteSurvey(surveyId);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<PurgeJobResponseDTO> deleteSurvey(@PathVariable("surveyId") Long surveyId) throws IdInvalidException {
+        return ResponseEntity.ok(adminService.deleteSurvey(surveyId));
+    }
+
+    /**
+     * Tiến độ job xóa survey / user
+     * Endpoint: GET /api/admin/purge-jobs/{jobId}
+     */
+    @GetMapping("/purge-jobs/{jobId}")
+    @ApiMessage("Get purge job status")
+    public ResponseEntity<PurgeJobResponseDTO> getPurgeJob(@PathVariable("jobId") Long jobId) throws IdInvalidException {
+        return ResponseEntity.ok(adminService.getPurgeJob(jobId));
+    }
+
+    /**
+     * Chạy lại job xóa đã thất bại (làm việc trực tiếp trên purge_jobs.target_id, không cần survey còn hiển thị)
+     * Endpoint: POST /api/admin/purge-jobs/{jobId}/retry
+     */
+    @PostMapping("/purge-jobs/{jobId}/retry")
+    @ApiMessage("Retry purge job")
+    public ResponseEntity<PurgeJobResponseDTO> retryPurgeJob(@PathVariable("jobId") Long jobId) throws IdInvalidException {
+        return ResponseEntity.ok(adminService.retryPurgeJob(jobId));
     }
 
     /**
@@ -0,0 +1,127 @@
+package vn.duytan.c1se09.smartsurvey.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import vn.duytan.c1se09.smartsurvey.domain.request.response.ResponseFilterRequestDTO;
+import vn.duytan.c1se09.smartsurvey.domain.response.export.ExportJobResponseDTO;
+import vn.duytan.c1se09.smartsurvey.service.ExportJobService;
+import vn.duytan.c1se09.smartsurvey.util.annotation.ApiMessage;
+import vn.duytan.c1se09.smartsurvey.util.error.BusinessException;
+import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller cho export chạy nền: tạo job, xem tiến độ và tải file kết quả
+ * Chỉ OWNER và ANALYST mới có quyền export (kiểm tra trong ExportJobService)
+ */
+@RestController
+@RequestMapping("/api/surveys")
+@RequiredArgsConstructor
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    /**
+     * Tạo job export responses CSV/Excel
+     * POST /api/surveys/{surveyId}/exports/responses?format=csv|xlsx&includeAnswers=true
+     */
+    @PostMapping("/{surveyId}/exports/responses")
+    @ApiMessage("Tạo job export responses")
+    public ResponseEntity<?> submitResponsesExport(
+            @PathVariable("surveyId") Long surveyId,
+            @RequestParam(name = "format", defaultValue = "csv") String format,
+            @RequestParam(name = "includeAnswers", defaultValue = "true") boolean includeAnswers,
+            @ModelAttribute ResponseFilterRequestDTO filter) {
+        try {
+            ExportJobResponseDTO job = exportJobService.submitResponsesExport(surveyId, filter, format, includeAnswers);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IdInvalidException e) {
+            return errorResponse(e);
+        } catch (BusinessException e) {
+            return messageResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (Exception e) {
+            return messageResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tạo job xuất báo cáo PDF
+     * POST /api/surveys/{surveyId}/exports/report-pdf
+     */
+    @PostMapping("/{surveyId}/exports/report-pdf")
+    @ApiMessage("Tạo job xuất báo cáo PDF")
+    public ResponseEntity<?> submitReportPdfExport(@PathVariable("surveyId") Long surveyId) {
+        try {
+            ExportJobResponseDTO job = exportJobService.submitReportPdfExport(surveyId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IdInvalidException e) {
+            return errorResponse(e);
+        } catch (BusinessException e) {
+            return messageResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (Exception e) {
+            return messageResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Xem trạng thái và tiến độ job
+     * GET /api/surveys/{surveyId}/exports/{jobId}
+     */
+    @GetMapping("/{surveyId}/exports/{jobId}")
+    @ApiMessage("Lấy trạng thái job export")
+    public ResponseEntity<?> getJob(@PathVariable("surveyId") Long surveyId, @PathVariable("jobId") Long jobId) {
+        try {
+            return ResponseEntity.ok(exportJobService.getJob(surveyId, jobId));
+        } catch (IdInvalidException e) {
+            return errorResponse(e);
+        } catch (Exception e) {
+            return messageResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tải file kết quả của job đã hoàn thành
+     * GET /api/surveys/{surveyId}/exports/{jobId}/download
+     */
+    @GetMapping("/{surveyId}/exports/{jobId}/download")
+    @ApiMessage("Tải file export")
+    public ResponseEntity<?> download(@PathVariable("surveyId") Long surveyId, @PathVariable("jobId") Long jobId) {
+        try {
+            ExportJobService.ExportArtifact artifact = exportJobService.getArtifact(surveyId, jobId);
+            String filename = artifact.getFileName();
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"" + filename + "\"; filename*=UTF-8''"
+                                    + URLEncoder.encode(filename, StandardCharsets.UTF_8))
+                    .contentType(MediaType.parseMediaType(artifact.getContentType()))
+                    .body(new FileSystemResource(artifact.getPath()));
+        } catch (IdInvalidException e) {
+            return errorResponse(e);
+        } catch (Exception e) {
+            return messageResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> errorResponse(IdInvalidException e) {
+        // Kiểm tra nếu lỗi liên quan đến quyền truy cập
+        if (e.getMessage() != null && e.getMessage().contains("quyền")) {
+            return messageResponse(HttpStatus.FORBIDDEN, e.getMessage());
+        }
+        return messageResponse(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+
+    private ResponseEntity<?> messageResponse(HttpStatus status, String message) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("message", message);
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+}
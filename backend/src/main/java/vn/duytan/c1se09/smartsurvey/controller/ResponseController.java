@@ -1,5 +1,6 @@
 package vn.duytan.c1se09.smartsurvey.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -9,11 +10,13 @@ import vn.duytan.c1se09.smartsurvey.domain.request.response.ResponseSubmitReques
 import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponseWithAnswersDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponseSummaryDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponsePageDTO;
+import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponseCursorPageDTO;
 import vn.duytan.c1se09.smartsurvey.domain.request.response.ResponseFilterRequestDTO;
 import vn.duytan.c1se09.smartsurvey.service.ResponseService;
 import vn.duytan.c1se09.smartsurvey.util.annotation.ApiMessage;
 import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -78,6 +81,17 @@ public class ResponseController {
 		return ResponseEntity.ok(responseService.listResponses(surveyId, filter));
 	}
 
+	/**
+	 * List responses theo cursor (keyset), dùng nextCursor của trang trước để lấy trang tiếp theo
+	 */
+	@GetMapping("/api/surveys/{surveyId}/responses/cursor")
+	@ApiMessage("List responses (cursor)")
+	public ResponseEntity<ResponseCursorPageDTO<ResponseSummaryDTO>> listResponsesByCursor(
+			@PathVariable Long surveyId,
+			ResponseFilterRequestDTO filter) throws IdInvalidException {
+		return ResponseEntity.ok(responseService.listResponsesByCursor(surveyId, filter));
+	}
+
 	/**
 	 * Get response detail with all answers
 	 */
@@ -93,13 +107,14 @@ public class ResponseController {
 	 */
 	@GetMapping("/api/surveys/{surveyId}/responses/export")
 	@ApiMessage("Export responses CSV/Excel")
-	public ResponseEntity<byte[]> exportResponses(
+	public void exportResponses(
 			@PathVariable ("surveyId") Long surveyId,
 			@RequestParam(name = "format", defaultValue = "csv") String format,
 			@RequestParam(name = "includeAnswers", defaultValue = "true") boolean includeAnswers,
-			@ModelAttribute ResponseFilterRequestDTO filter
-		) throws IdInvalidException {
-		return responseService.exportResponses(surveyId, filter, format, includeAnswers);
+			@ModelAttribute ResponseFilterRequestDTO filter,
+			HttpServletResponse response
+		) throws IdInvalidException, IOException {
+		responseService.exportResponses(surveyId, filter, format, includeAnswers, response);
 	}
 
 	/**
@@ -9,6 +9,7 @@ import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyTimelineRes
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyChartsResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyTextAnalysisResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveySentimentResponseDTO;
+import vn.duytan.c1se09.smartsurvey.service.PdfReportCacheService;
 import vn.duytan.c1se09.smartsurvey.service.StatisticsService;
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyQuestionCountsDTO;
 import vn.duytan.c1se09.smartsurvey.util.annotation.ApiMessage;
@@ -25,6 +26,7 @@ import java.util.Map;
 public class StatisticsController {
 
     private final StatisticsService statisticsService;
+    private final PdfReportCacheService pdfReportCacheService;
 
     /**
      * Lấy thống kê tổng quan của survey
@@ -192,13 +194,14 @@ public class StatisticsController {
     /**
      * Xuất báo cáo PDF với biểu đồ cho survey
      * GET /api/surveys/{surveyId}/results/export-pdf
-     * Chỉ OWNER và ANALYST mới có quyền xem báo cáo (kiểm tra trong StatisticsService)
+     * Chỉ OWNER và ANALYST mới có quyền xem báo cáo (kiểm tra trong PdfReportCacheService)
+     * Báo cáo của survey không có dữ liệu mới được trả từ cache
      */
     @GetMapping("/{surveyId}/results/export-pdf")
     @ApiMessage("Xuất báo cáo PDF với biểu đồ cho survey")
     public ResponseEntity<?> exportSurveyReportPDF(@PathVariable("surveyId") Long surveyId) {
         try {
-            byte[] pdfBytes = statisticsService.exportSurveyReportPDF(surveyId);
+            byte[] pdfBytes = pdfReportCacheService.getSurveyReportPdf(surveyId);
             
             // Tạo filename với timestamp
             String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
@@ -228,4 +231,34 @@ public class StatisticsController {
         }
     }
 
+    /**
+     * Dựng lại rollup thống kê của survey từ dữ liệu gốc (dùng cho dữ liệu cũ hoặc khi nghi ngờ lệch số liệu)
+     * POST /api/surveys/{surveyId}/results/rollup/rebuild
+     * Chỉ OWNER và ANALYST mới có quyền (kiểm tra trong StatisticsService)
+     */
+    @PostMapping("/{surveyId}/results/rollup/rebuild")
+    @ApiMessage("Dựng lại rollup thống kê của survey")
+    public ResponseEntity<?> rebuildStatsRollup(@PathVariable("surveyId") Long surveyId) {
+        try {
+            statisticsService.rebuildStatsRollup(surveyId);
+            Map<String, Object> result = new HashMap<>();
+            result.put("surveyId", surveyId);
+            result.put("message", "Đã dựng lại rollup thống kê");
+            return ResponseEntity.ok(result);
+        } catch (IdInvalidException e) {
+            // Kiểm tra nếu lỗi liên quan đến quyền truy cập
+            Map<String, String> errorResponse = new HashMap<>();
+            if (e.getMessage() != null && e.getMessage().contains("quyền")) {
+                errorResponse.put("message", e.getMessage());
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
+            }
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("message", "Lỗi hệ thống: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
 }
@@ -22,6 +22,8 @@ import vn.duytan.c1se09.smartsurvey.domain.response.survey.SurveyPermissionRespo
 import vn.duytan.c1se09.smartsurvey.service.SurveyService;
 import vn.duytan.c1se09.smartsurvey.service.SurveyPermissionService;
 import vn.duytan.c1se09.smartsurvey.service.AuthService;
+import vn.duytan.c1se09.smartsurvey.service.PurgeService;
+import vn.duytan.c1se09.smartsurvey.domain.response.purge.PurgeJobResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.User;
 import vn.duytan.c1se09.smartsurvey.domain.Survey;
 
@@ -38,6 +40,7 @@ public class SurveyController {
     private final SurveyViewService surveyViewService;
     private final SurveyPermissionService surveyPermissionService;
     private final AuthService authService;
+    private final PurgeService purgeService;
 
     // Endpoint hợp nhất: luôn trả về danh sách phân trang
     @GetMapping
@@ -89,12 +92,21 @@ public class SurveyController {
     @DeleteMapping("/{id}")
     @ApiMessage("Delete survey")
     public ResponseEntity<SurveyDeleteResponseDTO> deleteSurvey(@PathVariable("id") Long id) throws IdInvalidException {
-        surveyService.deleteSurvey(id);
-        SurveyDeleteResponseDTO response = new SurveyDeleteResponseDTO(id, "Xóa khảo sát thành công");
+        PurgeJobResponseDTO purgeJob = surveyService.deleteSurvey(id);
+        SurveyDeleteResponseDTO response = new SurveyDeleteResponseDTO(id, "Xóa khảo sát thành công", purgeJob);
         // Activity log đã được ghi trong SurveyService.deleteSurvey()
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Tiến độ xóa dữ liệu nền của khảo sát đã xóa (người yêu cầu xóa)
+     */
+    @GetMapping("/purge-jobs/{jobId}")
+    @ApiMessage("Get purge job status")
+    public ResponseEntity<PurgeJobResponseDTO> getPurgeJob(@PathVariable("jobId") Long jobId) throws IdInvalidException {
+        return ResponseEntity.ok(purgeService.getJob(jobId));
+    }
+
     /**
      * API 1: Get Survey Public - Lấy thông tin survey để người dùng trả lời (không
      * cần authentication)
@@ -110,9 +122,7 @@ public class SurveyController {
                 String userAgent = request.getHeader("User-Agent");
                 if (userAgent == null) userAgent = "Unknown";
                 
-                System.out.println("DEBUG: Tracking view for survey " + id + " from IP " + ipAddress);
                 surveyViewService.trackView(id, ipAddress, userAgent);
-                System.out.println("DEBUG: Successfully tracked view for survey " + id);
             } catch (Exception e) {
                 // Log error nhưng không fail việc lấy survey
                 System.err.println("ERROR: Failed to track view for survey " + id + ": " + e.getMessage());
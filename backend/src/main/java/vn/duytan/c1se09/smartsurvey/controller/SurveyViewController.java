@@ -44,12 +44,13 @@ public class SurveyViewController {
             // Track view
             SurveyView view = surveyViewService.trackView(surveyId, ipAddress, userAgent);
             
+            // View được ghi theo lô nên chưa có viewId; queued=false khi hàng đợi đầy và view bị bỏ
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "View tracked successfully");
-            response.put("viewId", view.getViewId());
+            response.put("message", view != null ? "View tracked successfully" : "View dropped (server busy)");
+            response.put("queued", view != null);
             response.put("surveyId", surveyId);
-            response.put("viewedAt", view.getViewedAt());
+            response.put("viewedAt", view != null ? view.getViewedAt() : null);
             
             return ResponseEntity.ok(response);
             
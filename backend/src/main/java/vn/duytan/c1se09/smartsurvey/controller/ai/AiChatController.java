@@ -5,8 +5,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import vn.duytan.c1se09.smartsurvey.domain.AiChatLog;
 import vn.duytan.c1se09.smartsurvey.domain.request.ai.AiChatRequestDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.ai.AiChatResponseDTO;
@@ -64,6 +66,24 @@ public class AiChatController {
         }
     }
 
+    /**
+     * Chat với AI dạng stream (Server-Sent Events): câu trả lời được gửi dần theo từng đoạn
+     * (event context, delta, done hoặc error). Dịch vụ AI quá tải / không khả dụng trả về 503.
+     *
+     * @param request   Chat request with question and survey context
+     * @param principal User principal from JWT
+     * @return SseEmitter relay các đoạn câu trả lời
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChat(
+            @Valid @RequestBody AiChatRequestDTO request,
+            Principal principal) throws Exception {
+
+        log.info("Received streaming AI chat request for survey: {}", request.getSurveyId());
+        String username = principal != null ? principal.getName() : null;
+        return aiChatService.streamChat(request, username);
+    }
+
     /**
      * Get chat history for a survey
      * 
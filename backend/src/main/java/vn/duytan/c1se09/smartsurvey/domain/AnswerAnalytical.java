@@ -0,0 +1,57 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Entity đại diện cho bảng answers_analytical (read model cho thống kê)
+ * Bảng được partition theo survey_id; dữ liệu được ghi bằng native query trong AnswerAnalyticalRepository
+ */
+@Entity
+@Table(name = "answers_analytical")
+@IdClass(AnswerAnalytical.Key.class)
+@Getter
+@Setter
+public class AnswerAnalytical {
+
+    @Id
+    @Column(name = "survey_id")
+    private Long surveyId;
+
+    @Id
+    @Column(name = "answer_id")
+    private Long answerId;
+
+    @Column(name = "response_id", nullable = false)
+    private Long responseId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+
+    @Column(name = "option_id")
+    private Long optionId;
+
+    @Column(name = "answer_text", columnDefinition = "TEXT")
+    private String answerText;
+
+    @Column(name = "answer_value", precision = 9, scale = 3)
+    private BigDecimal answerValue;
+
+    /**
+     * Khóa chính (survey_id, answer_id)
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long surveyId;
+        private Long answerId;
+    }
+}
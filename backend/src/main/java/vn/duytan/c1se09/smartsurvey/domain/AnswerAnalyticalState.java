@@ -0,0 +1,37 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho bảng answers_analytical_state
+ * Đánh dấu survey nào đã được đồng bộ đầy đủ sang answers_analytical
+ */
+@Entity
+@Table(name = "answers_analytical_state")
+@Getter
+@Setter
+public class AnswerAnalyticalState {
+
+    @Id
+    @Column(name = "survey_id")
+    private Long surveyId;
+
+    @Column(name = "is_fresh", nullable = false)
+    private Boolean isFresh = false;
+
+    @Column(name = "refreshed_at")
+    private LocalDateTime refreshedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
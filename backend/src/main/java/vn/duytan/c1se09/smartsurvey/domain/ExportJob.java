@@ -0,0 +1,100 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho bảng export_jobs
+ * Lưu trạng thái, tiến độ và file kết quả của các job export chạy nền
+ */
+@Entity
+@Table(name = "export_jobs")
+@Getter
+@Setter
+public class ExportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "survey_id", nullable = false)
+    private Survey survey;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "requested_by")
+    private User requestedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false)
+    private Format format;
+
+    @Column(name = "include_answers", nullable = false)
+    private Boolean includeAnswers = true;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    /**
+     * Bằng requestHash khi job đang pending/running, null khi đã kết thúc (UNIQUE)
+     */
+    @Column(name = "active_hash", length = 64)
+    private String activeHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status = Status.pending;
+
+    @Column(name = "progress", nullable = false)
+    private Integer progress = 0;
+
+    @Column(name = "file_path", length = 500)
+    private String filePath;
+
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Format {
+        csv, xlsx, pdf
+    }
+
+    public enum Status {
+        pending, running, completed, failed, expired
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,40 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho bảng option_stats_rollup
+ * Số lượt chọn của từng option
+ */
+@Entity
+@Table(name = "option_stats_rollup")
+@Getter
+@Setter
+public class OptionStatsRollup {
+
+    @Id
+    @Column(name = "option_id")
+    private Long optionId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+
+    @Column(name = "survey_id", nullable = false)
+    private Long surveyId;
+
+    @Column(name = "select_count", nullable = false)
+    private Long selectCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,99 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho bảng purge_jobs
+ * Lưu trạng thái và tiến độ của các job xóa survey / user chạy nền
+ */
+@Entity
+@Table(name = "purge_jobs")
+@Getter
+@Setter
+public class PurgeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_type", nullable = false)
+    private TargetType targetType;
+
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    /**
+     * Tiêu đề survey / email user tại thời điểm yêu cầu xóa (để hiển thị sau khi đã xóa)
+     */
+    @Column(name = "target_label", length = 255)
+    private String targetLabel;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "requested_by")
+    private User requestedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status = Status.pending;
+
+    @Column(name = "current_step", length = 50)
+    private String currentStep;
+
+    @Column(name = "progress", nullable = false)
+    private Integer progress = 0;
+
+    @Column(name = "rows_deleted", nullable = false)
+    private Long rowsDeleted = 0L;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    /**
+     * Số lần chạy đã thất bại
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * Thời điểm job thất bại được tự động thử lại; null nếu đã hết số lần thử
+     */
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum TargetType {
+        survey, user
+    }
+
+    public enum Status {
+        pending, running, completed, failed
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,98 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho bảng question_stats_rollup
+ * Bộ đếm theo câu hỏi: số response, số answer, tổng/histogram rating, đếm đúng/sai
+ */
+@Entity
+@Table(name = "question_stats_rollup")
+@Getter
+@Setter
+public class QuestionStatsRollup {
+
+    @Id
+    @Column(name = "question_id")
+    private Long questionId;
+
+    @Column(name = "survey_id", nullable = false)
+    private Long surveyId;
+
+    @Column(name = "response_count", nullable = false)
+    private Long responseCount = 0L;
+
+    @Column(name = "answer_count", nullable = false)
+    private Long answerCount = 0L;
+
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount = 0L;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_1_count", nullable = false)
+    private Long rating1Count = 0L;
+
+    @Column(name = "rating_2_count", nullable = false)
+    private Long rating2Count = 0L;
+
+    @Column(name = "rating_3_count", nullable = false)
+    private Long rating3Count = 0L;
+
+    @Column(name = "rating_4_count", nullable = false)
+    private Long rating4Count = 0L;
+
+    @Column(name = "rating_5_count", nullable = false)
+    private Long rating5Count = 0L;
+
+    @Column(name = "true_count", nullable = false)
+    private Long trueCount = 0L;
+
+    @Column(name = "false_count", nullable = false)
+    private Long falseCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Cộng delta vào histogram rating (thang 1-5)
+     */
+    public void addRating(int rating, long delta) {
+        ratingCount += delta;
+        ratingSum += rating * delta;
+        switch (rating) {
+            case 1 -> rating1Count += delta;
+            case 2 -> rating2Count += delta;
+            case 3 -> rating3Count += delta;
+            case 4 -> rating4Count += delta;
+            case 5 -> rating5Count += delta;
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Lấy số lượt chọn một mức rating (thang 1-5)
+     */
+    public long getRatingCount(int rating) {
+        return switch (rating) {
+            case 1 -> rating1Count;
+            case 2 -> rating2Count;
+            case 3 -> rating3Count;
+            case 4 -> rating4Count;
+            case 5 -> rating5Count;
+            default -> 0L;
+        };
+    }
+}
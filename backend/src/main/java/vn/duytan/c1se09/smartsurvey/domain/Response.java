@@ -3,6 +3,7 @@ package vn.duytan.c1se09.smartsurvey.domain;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
 
 import java.time.LocalDateTime;
 
@@ -38,6 +39,19 @@ public class Response {
     @Column(name = "duration_seconds")
     private Integer durationSeconds;
 
+    /**
+     * Trạng thái hoàn thành, tính khi submit và tính lại hàng loạt khi tập câu required của survey thay đổi
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "completion_status", nullable = false)
+    private CompletionStatusEnum completionStatus = CompletionStatusEnum.dropped;
+
+    /**
+     * Số câu required (phân biệt) đã được trả lời
+     */
+    @Column(name = "answered_required_count", nullable = false)
+    private Integer answeredRequiredCount = 0;
+
     @PrePersist
     protected void onCreate() {
         submittedAt = LocalDateTime.now();
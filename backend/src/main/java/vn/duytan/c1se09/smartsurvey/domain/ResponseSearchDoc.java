@@ -0,0 +1,33 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho bảng response_search_docs
+ * Document tìm kiếm toàn văn (FULLTEXT ngram) của một response, ghi bằng ResponseSearchRepository;
+ * entity chỉ dùng trong subquery của bộ lọc search
+ */
+@Entity
+@Table(name = "response_search_docs")
+@Getter
+@Setter
+public class ResponseSearchDoc {
+
+    @Id
+    @Column(name = "response_id")
+    private Long responseId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "survey_id", nullable = false)
+    private Survey survey;
+
+    @Column(name = "search_text", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String searchText;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
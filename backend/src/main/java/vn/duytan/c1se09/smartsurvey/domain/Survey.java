@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.SQLRestriction;
 import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
 
 import java.time.LocalDateTime;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "surveys")
+@SQLRestriction("purge_requested_at IS NULL")
 @Getter
 @Setter
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
@@ -57,6 +59,13 @@ public class Survey {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Thời điểm yêu cầu xóa; khác null = survey đang được PurgeService xóa nền và bị ẩn khỏi mọi truy vấn.
+     * Chỉ ghi bằng PurgeBatchRepository để save() entity cũ không xóa mất đánh dấu
+     */
+    @Column(name = "purge_requested_at", insertable = false, updatable = false)
+    private LocalDateTime purgeRequestedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
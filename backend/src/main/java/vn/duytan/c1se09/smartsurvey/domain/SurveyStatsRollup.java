@@ -0,0 +1,49 @@
+package vn.duytan.c1se09.smartsurvey.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho bảng survey_stats_rollup
+ * Bộ đếm tổng hợp theo survey, cập nhật tăng dần khi submit/xóa response
+ */
+@Entity
+@Table(name = "survey_stats_rollup")
+@Getter
+@Setter
+public class SurveyStatsRollup {
+
+    @Id
+    @Column(name = "survey_id")
+    private Long surveyId;
+
+    @Column(name = "response_count", nullable = false)
+    private Long responseCount = 0L;
+
+    @Column(name = "duration_sum", nullable = false)
+    private Long durationSum = 0L;
+
+    @Column(name = "duration_count", nullable = false)
+    private Long durationCount = 0L;
+
+    @Column(name = "last_response_at")
+    private LocalDateTime lastResponseAt;
+
+    /**
+     * false = rollup chưa được dựng từ dữ liệu gốc (hoặc đã bị đánh dấu stale)
+     */
+    @Column(name = "initialized", nullable = false)
+    private Boolean initialized = false;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -19,6 +19,10 @@ public class ResponseFilterRequestDTO {
 
     private String search; // search in answers
 
+    // Danh sách theo cursor: cursor nhận từ trang trước, includeTotal = có đếm tổng số hay không
+    private String cursor;
+    private Boolean includeTotal = false;
+
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
     private LocalDateTime from;
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
@@ -0,0 +1,23 @@
+package vn.duytan.c1se09.smartsurvey.domain.response.export;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class ExportJobResponseDTO {
+    private Long jobId;
+    private Long surveyId;
+    private String format; // csv | xlsx | pdf
+    private String status; // pending | running | completed | failed | expired
+    private Integer progress; // 0..100
+    private String fileName;
+    private Long fileSize;
+    private String errorMessage;
+    private String downloadUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime expiresAt;
+}
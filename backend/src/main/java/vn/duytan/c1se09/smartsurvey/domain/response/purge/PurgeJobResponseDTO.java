@@ -0,0 +1,25 @@
+package vn.duytan.c1se09.smartsurvey.domain.response.purge;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class PurgeJobResponseDTO {
+    private Long jobId;
+    private String targetType; // survey | user
+    private Long targetId;
+    private String targetLabel;
+    private String status; // pending | running | completed | failed
+    private String currentStep;
+    private Integer progress; // 0..100
+    private Long rowsDeleted;
+    private String errorMessage;
+    private Integer attempts;
+    private LocalDateTime nextAttemptAt; // null nếu không còn tự thử lại
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+}
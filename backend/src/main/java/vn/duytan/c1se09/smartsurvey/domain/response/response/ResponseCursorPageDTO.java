@@ -0,0 +1,18 @@
+package vn.duytan.c1se09.smartsurvey.domain.response.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Một trang danh sách theo cursor; nextCursor = null khi đã hết dữ liệu.
+ * total chỉ có giá trị khi request yêu cầu includeTotal.
+ */
+@Data
+public class ResponseCursorPageDTO<T> {
+    private List<T> result;
+    private int pageSize;
+    private boolean hasMore;
+    private String nextCursor;
+    private Long total;
+}
@@ -3,6 +3,7 @@ package vn.duytan.c1se09.smartsurvey.domain.response.survey;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import vn.duytan.c1se09.smartsurvey.domain.response.purge.PurgeJobResponseDTO;
 
 @Data
 @AllArgsConstructor
@@ -10,4 +11,6 @@ import lombok.NoArgsConstructor;
 public class SurveyDeleteResponseDTO {
     private Long id;
     private String message;
+    // Job xóa dữ liệu nền (survey đã bị ẩn ngay)
+    private PurgeJobResponseDTO purgeJob;
 }
@@ -23,6 +23,8 @@ public interface ActivityLogRepository extends JpaRepository<ActivityLog, Long>
 
     List<ActivityLog> findByUserOrderByCreatedAtDesc(User user);
 
+    List<ActivityLog> findTop10ByUserOrderByCreatedAtDesc(User user);
+
     List<ActivityLog> findByActionTypeOrderByCreatedAtDesc(ActivityLog.ActionType actionType);
 
     @Query("SELECT a FROM ActivityLog a WHERE a.createdAt BETWEEN :startDate AND :endDate")
@@ -0,0 +1,146 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.duytan.c1se09.smartsurvey.domain.AnswerAnalytical;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository cho answers_analytical (read model thống kê).
+ * Mọi truy vấn đều lọc theo survey_id để MySQL chỉ quét partition của survey đó.
+ */
+@Repository
+public interface AnswerAnalyticalRepository extends JpaRepository<AnswerAnalytical, AnswerAnalytical.Key> {
+
+    /**
+     * Số lượng answers theo (câu hỏi, giá trị hiển thị)
+     */
+    interface ValueCount {
+        Long getQuestionId();
+
+        String getAnswerValue();
+
+        Number getTotal();
+    }
+
+    /**
+     * Số lần được xếp hạng và tổng điểm có trọng số của một option
+     */
+    interface OptionScore {
+        Long getOptionId();
+
+        Number getTotal();
+
+        Number getScore();
+    }
+
+    /**
+     * Đồng bộ answers của một response sang read model (gọi ngay sau khi submit)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        INSERT IGNORE INTO answers_analytical
+            (survey_id, answer_id, response_id, question_id, option_id, answer_text, answer_value)
+        SELECT r.survey_id, a.answer_id, a.response_id, a.question_id, a.option_id, a.answer_text,
+               CASE
+                   WHEN TRIM(a.answer_text) REGEXP '^-?[0-9]{1,6}([.][0-9]{1,3})?$' THEN CAST(TRIM(a.answer_text) AS DECIMAL(9,3))
+                   ELSE NULL
+               END
+        FROM answers a
+        JOIN responses r ON r.response_id = a.response_id
+        WHERE a.response_id = :responseId
+        """, nativeQuery = true)
+    int insertForResponse(@Param("responseId") Long responseId);
+
+    @Modifying
+    @Query(value = "DELETE FROM answers_analytical WHERE survey_id = :surveyId AND response_id IN (:responseIds)",
+            nativeQuery = true)
+    int deleteByResponses(@Param("surveyId") Long surveyId, @Param("responseIds") Collection<Long> responseIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM answers_analytical WHERE survey_id = :surveyId", nativeQuery = true)
+    int deleteBySurvey(@Param("surveyId") Long surveyId);
+
+    /**
+     * Nạp lại toàn bộ dữ liệu analytical của survey (procedure tạo ở V50)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "CALL sp_refresh_answers(:surveyId)", nativeQuery = true)
+    void refreshSurvey(@Param("surveyId") Long surveyId);
+
+    /**
+     * Đếm answers theo giá trị hiển thị (answer_text, nếu trống thì option_text) cho các câu hỏi chỉ định
+     */
+    @Query(value = """
+        SELECT aa.question_id AS questionId,
+               CASE WHEN TRIM(aa.answer_text) <> '' THEN aa.answer_text ELSE o.option_text END AS answerValue,
+               COUNT(*) AS total
+        FROM answers_analytical aa
+        LEFT JOIN options o ON o.option_id = aa.option_id
+        WHERE aa.survey_id = :surveyId
+          AND aa.question_id IN (:questionIds)
+        GROUP BY aa.question_id, answerValue
+        """, nativeQuery = true)
+    List<ValueCount> countValuesByQuestions(@Param("surveyId") Long surveyId,
+            @Param("questionIds") Collection<Long> questionIds);
+
+    /**
+     * Số dòng ranking kiểu cũ (không có option_id) - cần map theo thứ tự nên không tính được bằng SQL
+     */
+    @Query(value = """
+        SELECT COUNT(*) FROM answers_analytical aa
+        WHERE aa.survey_id = :surveyId AND aa.question_id = :questionId AND aa.option_id IS NULL
+        """, nativeQuery = true)
+    long countRankingRowsWithoutOption(@Param("surveyId") Long surveyId, @Param("questionId") Long questionId);
+
+    /**
+     * Số response xếp hạng hợp lệ: đủ optionCount dòng, hạng là số nguyên 1..n và không trùng
+     */
+    @Query(value = """
+        SELECT COUNT(*) FROM (
+            SELECT aa.response_id
+            FROM answers_analytical aa
+            WHERE aa.survey_id = :surveyId AND aa.question_id = :questionId
+            GROUP BY aa.response_id
+            HAVING COUNT(*) = :optionCount
+               AND COUNT(aa.answer_value) = :optionCount
+               AND COUNT(DISTINCT aa.answer_value) = :optionCount
+               AND MIN(aa.answer_value) >= 1
+               AND MAX(aa.answer_value) <= :optionCount
+               AND SUM(aa.answer_value <> FLOOR(aa.answer_value)) = 0
+        ) valid_responses
+        """, nativeQuery = true)
+    long countValidRankingResponses(@Param("surveyId") Long surveyId, @Param("questionId") Long questionId,
+            @Param("optionCount") int optionCount);
+
+    /**
+     * Điểm có trọng số (n - rank + 1) theo option, chỉ tính trên các response xếp hạng hợp lệ
+     */
+    @Query(value = """
+        SELECT aa.option_id AS optionId,
+               COUNT(*) AS total,
+               SUM(:optionCount - aa.answer_value + 1) AS score
+        FROM answers_analytical aa
+        JOIN (
+            SELECT v.response_id
+            FROM answers_analytical v
+            WHERE v.survey_id = :surveyId AND v.question_id = :questionId
+            GROUP BY v.response_id
+            HAVING COUNT(*) = :optionCount
+               AND COUNT(v.answer_value) = :optionCount
+               AND COUNT(DISTINCT v.answer_value) = :optionCount
+               AND MIN(v.answer_value) >= 1
+               AND MAX(v.answer_value) <= :optionCount
+               AND SUM(v.answer_value <> FLOOR(v.answer_value)) = 0
+        ) valid_responses ON valid_responses.response_id = aa.response_id
+        WHERE aa.survey_id = :surveyId AND aa.question_id = :questionId
+        GROUP BY aa.option_id
+        """, nativeQuery = true)
+    List<OptionScore> findRankingScores(@Param("surveyId") Long surveyId, @Param("questionId") Long questionId,
+            @Param("optionCount") int optionCount);
+}
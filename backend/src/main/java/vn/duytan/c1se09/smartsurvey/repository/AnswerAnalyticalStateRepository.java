@@ -0,0 +1,48 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.duytan.c1se09.smartsurvey.domain.AnswerAnalyticalState;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository cho AnswerAnalyticalState entity
+ */
+@Repository
+public interface AnswerAnalyticalStateRepository extends JpaRepository<AnswerAnalyticalState, Long> {
+
+    boolean existsBySurveyIdAndIsFreshTrue(Long surveyId);
+
+    /**
+     * Đánh dấu survey đã đồng bộ đầy đủ
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO answers_analytical_state (survey_id, is_fresh, refreshed_at, updated_at)
+        VALUES (:surveyId, true, NOW(), NOW())
+        ON DUPLICATE KEY UPDATE is_fresh = true, refreshed_at = NOW(), updated_at = NOW()
+        """, nativeQuery = true)
+    int markFresh(@Param("surveyId") Long surveyId);
+
+    @Modifying
+    @Query("update AnswerAnalyticalState s set s.isFresh = false where s.surveyId in :surveyIds")
+    int markStale(@Param("surveyIds") Collection<Long> surveyIds);
+
+    /**
+     * Các survey chưa có dữ liệu analytical đầy đủ (chưa từng đồng bộ hoặc đã bị đánh dấu stale)
+     */
+    @Query("""
+        select s.surveyId from Survey s
+        where not exists (
+            select st from AnswerAnalyticalState st where st.surveyId = s.surveyId and st.isFresh = true
+        )
+        order by s.surveyId
+        """)
+    List<Long> findSurveyIdsNeedingRefresh(Pageable pageable);
+}
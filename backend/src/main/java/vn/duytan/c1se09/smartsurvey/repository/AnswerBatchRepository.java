@@ -0,0 +1,110 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import com.mysql.cj.conf.PropertyKey;
+import com.mysql.cj.jdbc.JdbcConnection;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import vn.duytan.c1se09.smartsurvey.domain.Answer;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ghi answers theo lô bằng JDBC batch.
+ * Answer dùng IDENTITY nên Hibernate không batch insert được; ở đây toàn bộ answers của
+ * một response được gửi trong 1 batch (1 round trip khi bật rewriteBatchedStatements; Connector/J tự tách
+ * câu INSERT nhiều dòng nếu vượt max_allowed_packet). Không đi qua Hibernate nên hibernate.jdbc.batch_size
+ * không ảnh hưởng. Chạy trên cùng connection/transaction với JPA.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO answers (response_id, question_id, option_id, answer_text, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Kiểm tra driver MySQL thực sự bật rewriteBatchedStatements (URL hoặc data-source-properties có thể bị
+     * ghi đè theo môi trường); nếu không, mỗi answer vẫn là 1 round trip dù được gửi theo batch
+     */
+    @PostConstruct
+    void checkBatchRewrite() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            if (con.isWrapperFor(JdbcConnection.class)) {
+                boolean rewrite = con.unwrap(JdbcConnection.class).getPropertySet()
+                        .getBooleanProperty(PropertyKey.rewriteBatchedStatements).getValue();
+                if (!rewrite) {
+                    log.warn("rewriteBatchedStatements is disabled on the MySQL connection: answer batches "
+                            + "are sent one row per round trip");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Insert các answers mới và gán lại answerId/createdAt/updatedAt cho từng entity.
+     * Entity trả về không được persistence context quản lý.
+     */
+    public List<Answer> insertAll(List<Answer> answers) {
+        if (answers.isEmpty()) {
+            return answers;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Answer answer = answers.get(i);
+                        ps.setLong(1, answer.getResponse().getResponseId());
+                        ps.setLong(2, answer.getQuestion().getQuestionId());
+                        if (answer.getOption() != null) {
+                            ps.setLong(3, answer.getOption().getOptionId());
+                        } else {
+                            ps.setNull(3, Types.BIGINT);
+                        }
+                        ps.setString(4, answer.getAnswerText());
+                        ps.setTimestamp(5, timestamp);
+                        ps.setTimestamp(6, timestamp);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return answers.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < answers.size(); i++) {
+            Answer answer = answers.get(i);
+            if (i < keys.size()) {
+                Object key = keys.get(i).values().iterator().next();
+                answer.setAnswerId(((Number) key).longValue());
+            }
+            answer.setCreatedAt(now);
+            answer.setUpdatedAt(now);
+        }
+        return answers;
+    }
+}
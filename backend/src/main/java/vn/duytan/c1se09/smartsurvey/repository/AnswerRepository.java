@@ -1,11 +1,16 @@
 package vn.duytan.c1se09.smartsurvey.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.duytan.c1se09.smartsurvey.domain.Answer;
 import vn.duytan.c1se09.smartsurvey.domain.Response;
 import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,4 +27,55 @@ public interface AnswerRepository extends JpaRepository<Answer, Long> {
     long countByQuestion(Question question);
 
     long countByResponse(Response response);
-}
\ No newline at end of file
+
+    /**
+     * Lấy toàn bộ answers của một nhóm câu hỏi trong 1 query (kèm option)
+     */
+    @Query("select a from Answer a left join fetch a.option where a.question.questionId in :questionIds")
+    List<Answer> findByQuestionIdsWithOption(@Param("questionIds") Collection<Long> questionIds);
+
+    /**
+     * Lấy answers của một nhóm response trong 1 query (kèm question và option), dùng cho export theo chunk
+     */
+    @Query("select a from Answer a join fetch a.question left join fetch a.option where a.response.responseId in :responseIds order by a.answerId")
+    List<Answer> findByResponseIdsWithQuestionAndOption(@Param("responseIds") Collection<Long> responseIds);
+
+    /**
+     * Số response đã trả lời và số answers theo từng câu hỏi của survey: các dòng [questionId, responseCount, answerCount]
+     */
+    @Query("select a.question.questionId, count(distinct a.response.responseId), count(a) from Answer a "
+            + "where a.question.survey = :survey group by a.question.questionId")
+    List<Object[]> countByQuestionForSurvey(@Param("survey") Survey survey);
+
+    /**
+     * Số lượt chọn theo từng option của survey: các dòng [questionId, optionId, optionText, count]
+     */
+    @Query("select a.question.questionId, o.optionId, o.optionText, count(a) from Answer a join a.option o "
+            + "where a.question.survey = :survey group by a.question.questionId, o.optionId, o.optionText")
+    List<Object[]> countByOptionForSurvey(@Param("survey") Survey survey);
+
+    /**
+     * Đếm các giá trị văn bản ngắn (đủ dài cho rating / đúng-sai) theo câu hỏi của survey:
+     * các dòng [questionId, answerText, count, countWithoutOption]. Văn bản dài hơn maxLength không được trả về
+     */
+    @Query("select a.question.questionId, a.answerText, count(a), sum(case when a.option is null then 1 else 0 end) "
+            + "from Answer a where a.question.survey = :survey and a.answerText is not null "
+            + "and length(a.answerText) <= :maxLength group by a.question.questionId, a.answerText")
+    List<Object[]> countShortAnswerTextsForSurvey(@Param("survey") Survey survey, @Param("maxLength") int maxLength);
+
+    /**
+     * Số câu trả lời văn bản có nội dung và độ dài trung bình của chúng cho một loại câu hỏi trong survey.
+     * Luôn trả về đúng 1 dòng [count, avgLength]
+     */
+    @Query("select count(a), coalesce(avg(length(a.answerText)), 0) from Answer a "
+            + "where a.question.survey = :survey and a.question.questionType = :type "
+            + "and a.answerText is not null and trim(a.answerText) <> ''")
+    List<Object[]> summarizeTextAnswers(@Param("survey") Survey survey, @Param("type") QuestionTypeEnum type);
+
+    /**
+     * Dấu vân tay tập câu trả lời của một loại câu hỏi trong survey: 1 dòng [count, maxAnswerId]
+     */
+    @Query("select count(a), coalesce(max(a.answerId), 0) from Answer a "
+            + "where a.question.survey.surveyId = :surveyId and a.question.questionType = :type")
+    List<Object[]> fingerprintAnswers(@Param("surveyId") Long surveyId, @Param("type") QuestionTypeEnum type);
+}
@@ -0,0 +1,41 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import vn.duytan.c1se09.smartsurvey.domain.ExportJob;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository cho ExportJob entity
+ */
+@Repository
+public interface ExportJobRepository extends JpaRepository<ExportJob, Long> {
+
+    /**
+     * Job đang pending/running có cùng yêu cầu export
+     */
+    Optional<ExportJob> findByActiveHash(String activeHash);
+
+    Optional<ExportJob> findByJobIdAndSurvey_SurveyId(Long jobId, Long surveyId);
+
+    List<ExportJob> findByStatusAndExpiresAtBefore(ExportJob.Status status, LocalDateTime time);
+
+    List<ExportJob> findByStatusInAndUpdatedAtBefore(Collection<ExportJob.Status> statuses, LocalDateTime time);
+
+    /**
+     * Cập nhật tiến độ trong transaction riêng để client poll thấy ngay khi job còn đang chạy
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("update ExportJob j set j.progress = :progress, j.updatedAt = CURRENT_TIMESTAMP where j.jobId = :jobId")
+    int updateProgress(@Param("jobId") Long jobId, @Param("progress") int progress);
+}
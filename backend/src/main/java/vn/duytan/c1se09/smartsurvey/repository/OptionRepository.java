@@ -1,9 +1,12 @@
 package vn.duytan.c1se09.smartsurvey.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.duytan.c1se09.smartsurvey.domain.Option;
 import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
 
 import java.util.List;
 
@@ -17,4 +20,10 @@ public interface OptionRepository extends JpaRepository<Option, Long> {
     List<Option> findByQuestionOrderByCreatedAt(Question question);
 
     long countByQuestion(Question question);
+
+    /**
+     * Lấy options của mọi câu hỏi trong survey bằng 1 query
+     */
+    @Query("select o from Option o where o.question.survey = :survey order by o.createdAt, o.optionId")
+    List<Option> findBySurveyOrderByCreatedAt(@Param("survey") Survey survey);
 }
\ No newline at end of file
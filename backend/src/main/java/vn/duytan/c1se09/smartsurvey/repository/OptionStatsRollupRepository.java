@@ -0,0 +1,34 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.duytan.c1se09.smartsurvey.domain.OptionStatsRollup;
+
+import java.util.List;
+
+/**
+ * Repository cho OptionStatsRollup entity
+ */
+@Repository
+public interface OptionStatsRollupRepository extends JpaRepository<OptionStatsRollup, Long> {
+    List<OptionStatsRollup> findBySurveyId(Long surveyId);
+
+    /**
+     * Cộng delta số lượt chọn vào dòng rollup của option (chỉ khi rollup của survey đã initialized)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO option_stats_rollup (option_id, question_id, survey_id, select_count, updated_at)
+        SELECT :optionId, :questionId, :surveyId, :delta, NOW()
+        FROM survey_stats_rollup s
+        WHERE s.survey_id = :surveyId AND s.initialized = true
+        ON DUPLICATE KEY UPDATE
+            option_stats_rollup.select_count = option_stats_rollup.select_count + :delta,
+            option_stats_rollup.updated_at = NOW()
+        """, nativeQuery = true)
+    int applyDelta(@Param("optionId") Long optionId, @Param("questionId") Long questionId,
+            @Param("surveyId") Long surveyId, @Param("delta") long delta);
+}
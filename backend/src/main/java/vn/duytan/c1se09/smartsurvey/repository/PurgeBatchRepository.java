@@ -0,0 +1,122 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Các câu DELETE theo lô (set-based, có LIMIT) cho PurgeService bằng JDBC.
+ * Mỗi lời gọi xóa tối đa limit dòng để transaction ngắn và không khóa bảng lâu.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PurgeBatchRepository {
+
+    /**
+     * Các bảng con có cột survey_id được xóa theo lô
+     */
+    private static final Set<String> SURVEY_CHILD_TABLES = Set.of(
+            "questions", "survey_views", "survey_permissions", "ai_sentiment", "ai_analysis",
+            "ai_chat_logs", "answers_analytical", "ai_embed");
+
+    /**
+     * Các bảng con có cột user_id được xóa theo lô
+     */
+    private static final Set<String> USER_CHILD_TABLES = Set.of("activity_log", "ai_chat_logs");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record ResponseRef(Long responseId, Long surveyId) {
+    }
+
+    public int markSurveyPurgeRequested(Long surveyId) {
+        return jdbcTemplate.update(
+                "UPDATE surveys SET purge_requested_at = NOW() WHERE survey_id = ? AND purge_requested_at IS NULL",
+                surveyId);
+    }
+
+    public int markUserSurveysPurgeRequested(Long userId) {
+        return jdbcTemplate.update(
+                "UPDATE surveys SET purge_requested_at = NOW() WHERE user_id = ? AND purge_requested_at IS NULL",
+                userId);
+    }
+
+    /**
+     * Tất cả survey của user, kể cả survey đang chờ xóa
+     */
+    public List<Long> findSurveyIdsByUser(Long userId) {
+        return jdbcTemplate.queryForList("SELECT survey_id FROM surveys WHERE user_id = ? ORDER BY survey_id",
+                Long.class, userId);
+    }
+
+    public List<Long> findResponseIdsBySurvey(Long surveyId, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT response_id FROM responses WHERE survey_id = ? ORDER BY response_id LIMIT ?",
+                Long.class, surveyId, limit);
+    }
+
+    public List<ResponseRef> findResponsesByUser(Long userId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT response_id, survey_id FROM responses WHERE user_id = ? ORDER BY response_id LIMIT ?",
+                (rs, i) -> new ResponseRef(rs.getLong(1), rs.getLong(2)), userId, limit);
+    }
+
+    /**
+     * Xóa answers của các response (answer_selected_options, file_uploads xóa theo ON DELETE CASCADE)
+     */
+    public int deleteAnswersByResponses(Collection<Long> responseIds) {
+        return deleteByIds("answers", "response_id", responseIds);
+    }
+
+    public int deleteResponses(Collection<Long> responseIds) {
+        return deleteByIds("responses", "response_id", responseIds);
+    }
+
+    public int deleteOptionsBySurvey(Long surveyId, int limit) {
+        return jdbcTemplate.update(
+                "DELETE FROM options WHERE question_id IN (SELECT question_id FROM questions WHERE survey_id = ?) LIMIT ?",
+                surveyId, limit);
+    }
+
+    public int deleteBySurvey(String table, Long surveyId, int limit) {
+        if (!SURVEY_CHILD_TABLES.contains(table)) {
+            throw new IllegalArgumentException("Bảng không được phép purge theo survey: " + table);
+        }
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE survey_id = ? LIMIT ?", surveyId, limit);
+    }
+
+    public int deleteByUser(String table, Long userId, int limit) {
+        if (!USER_CHILD_TABLES.contains(table)) {
+            throw new IllegalArgumentException("Bảng không được phép purge theo user: " + table);
+        }
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE user_id = ? LIMIT ?", userId, limit);
+    }
+
+    /**
+     * Xóa dòng survey; các bảng còn lại (rollup, export_jobs, survey_view_daily...) xóa theo ON DELETE CASCADE
+     */
+    public int deleteSurvey(Long surveyId) {
+        return jdbcTemplate.update("DELETE FROM surveys WHERE survey_id = ?", surveyId);
+    }
+
+    /**
+     * Xóa dòng user; notifications, user_profiles, teams, survey_permissions... xóa theo ON DELETE CASCADE
+     */
+    public int deleteUser(Long userId) {
+        return jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", userId);
+    }
+
+    private int deleteByIds(String table, String column, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE " + column + " IN (" + placeholders + ")",
+                ids.toArray());
+    }
+}
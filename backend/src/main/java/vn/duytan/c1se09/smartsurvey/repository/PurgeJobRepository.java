@@ -0,0 +1,67 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import vn.duytan.c1se09.smartsurvey.domain.PurgeJob;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository cho PurgeJob entity
+ */
+@Repository
+public interface PurgeJobRepository extends JpaRepository<PurgeJob, Long> {
+
+    Optional<PurgeJob> findFirstByTargetTypeAndTargetIdAndStatusIn(PurgeJob.TargetType targetType, Long targetId,
+            Collection<PurgeJob.Status> statuses);
+
+    @Query("select j.jobId from PurgeJob j where j.status = :status order by j.jobId")
+    List<Long> findIdsByStatus(@Param("status") PurgeJob.Status status);
+
+    /**
+     * Nhận job pending để chạy; trả về 0 nếu worker/instance khác đã nhận
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("update PurgeJob j set j.status = :running, j.startedAt = coalesce(j.startedAt, CURRENT_TIMESTAMP), "
+            + "j.updatedAt = CURRENT_TIMESTAMP where j.jobId = :jobId and j.status = :pending")
+    int claim(@Param("jobId") Long jobId, @Param("pending") PurgeJob.Status pending,
+            @Param("running") PurgeJob.Status running);
+
+    /**
+     * Cập nhật tiến độ trong transaction riêng để client poll thấy ngay khi job còn đang chạy
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("update PurgeJob j set j.currentStep = :step, j.progress = :progress, j.rowsDeleted = :rowsDeleted, "
+            + "j.updatedAt = CURRENT_TIMESTAMP where j.jobId = :jobId")
+    int updateProgress(@Param("jobId") Long jobId, @Param("step") String step, @Param("progress") int progress,
+            @Param("rowsDeleted") long rowsDeleted);
+
+    /**
+     * Trả job running không còn cập nhật (instance bị tắt giữa chừng) về pending để chạy tiếp
+     */
+    @Modifying
+    @Transactional
+    @Query("update PurgeJob j set j.status = :pending where j.status = :running and j.updatedAt < :cutoff")
+    int resetStuck(@Param("cutoff") LocalDateTime cutoff, @Param("pending") PurgeJob.Status pending,
+            @Param("running") PurgeJob.Status running);
+
+    /**
+     * Đưa job thất bại đã đến hạn thử lại về pending (các bước xóa idempotent nên chạy lại từ đầu)
+     */
+    @Modifying
+    @Transactional
+    @Query("update PurgeJob j set j.status = :pending, j.nextAttemptAt = null, j.completedAt = null, "
+            + "j.updatedAt = CURRENT_TIMESTAMP where j.status = :failed and j.nextAttemptAt <= :now")
+    int retryDue(@Param("now") LocalDateTime now, @Param("failed") PurgeJob.Status failed,
+            @Param("pending") PurgeJob.Status pending);
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import vn.duytan.c1se09.smartsurvey.domain.Question;
 import vn.duytan.c1se09.smartsurvey.domain.Survey;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,10 +21,18 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
 
     long countBySurvey(Survey survey);
 
+    /**
+     * Số câu hỏi theo survey: [surveyId, count]
+     */
+    @Query("SELECT q.survey.surveyId, COUNT(q) FROM Question q WHERE q.survey.surveyId IN :surveyIds GROUP BY q.survey.surveyId")
+    List<Object[]> countBySurveyIds(@Param("surveyIds") Collection<Long> surveyIds);
+
     List<Question> findBySurveyOrderByDisplayOrderAsc(Survey survey);
 
     @Query("SELECT COALESCE(MAX(q.displayOrder), 0) FROM Question q WHERE q.survey = :survey")
     int findMaxDisplayOrderBySurvey(@Param("survey") Survey survey);
     
     List<Question> findBySurveyAndIsRequiredTrue(Survey survey);
+
+    long countBySurveyAndIsRequiredTrue(Survey survey);
 }
\ No newline at end of file
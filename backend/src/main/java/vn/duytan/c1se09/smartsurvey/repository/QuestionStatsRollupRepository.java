@@ -0,0 +1,48 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.duytan.c1se09.smartsurvey.domain.QuestionStatsRollup;
+
+import java.util.List;
+
+/**
+ * Repository cho QuestionStatsRollup entity
+ */
+@Repository
+public interface QuestionStatsRollupRepository extends JpaRepository<QuestionStatsRollup, Long> {
+    List<QuestionStatsRollup> findBySurveyId(Long surveyId);
+
+    /**
+     * Cộng delta (các bộ đếm của d) vào dòng rollup của câu hỏi bằng một câu lệnh nguyên tử.
+     * Chỉ ghi khi rollup của survey đã initialized; nếu chưa thì job nền dựng lại từ dữ liệu gốc.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO question_stats_rollup (question_id, survey_id, response_count, answer_count, rating_count,
+            rating_sum, rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count,
+            true_count, false_count, updated_at)
+        SELECT :#{#d.questionId}, :#{#d.surveyId}, :#{#d.responseCount}, :#{#d.answerCount}, :#{#d.ratingCount},
+            :#{#d.ratingSum}, :#{#d.rating1Count}, :#{#d.rating2Count}, :#{#d.rating3Count}, :#{#d.rating4Count},
+            :#{#d.rating5Count}, :#{#d.trueCount}, :#{#d.falseCount}, NOW()
+        FROM survey_stats_rollup s
+        WHERE s.survey_id = :#{#d.surveyId} AND s.initialized = true
+        ON DUPLICATE KEY UPDATE
+            question_stats_rollup.response_count = question_stats_rollup.response_count + :#{#d.responseCount},
+            question_stats_rollup.answer_count = question_stats_rollup.answer_count + :#{#d.answerCount},
+            question_stats_rollup.rating_count = question_stats_rollup.rating_count + :#{#d.ratingCount},
+            question_stats_rollup.rating_sum = question_stats_rollup.rating_sum + :#{#d.ratingSum},
+            question_stats_rollup.rating_1_count = question_stats_rollup.rating_1_count + :#{#d.rating1Count},
+            question_stats_rollup.rating_2_count = question_stats_rollup.rating_2_count + :#{#d.rating2Count},
+            question_stats_rollup.rating_3_count = question_stats_rollup.rating_3_count + :#{#d.rating3Count},
+            question_stats_rollup.rating_4_count = question_stats_rollup.rating_4_count + :#{#d.rating4Count},
+            question_stats_rollup.rating_5_count = question_stats_rollup.rating_5_count + :#{#d.rating5Count},
+            question_stats_rollup.true_count = question_stats_rollup.true_count + :#{#d.trueCount},
+            question_stats_rollup.false_count = question_stats_rollup.false_count + :#{#d.falseCount},
+            question_stats_rollup.updated_at = NOW()
+        """, nativeQuery = true)
+    int applyDelta(@Param("d") QuestionStatsRollup delta);
+}
@@ -3,13 +3,16 @@ package vn.duytan.c1se09.smartsurvey.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.duytan.c1se09.smartsurvey.domain.Response;
 import vn.duytan.c1se09.smartsurvey.domain.Survey;
 import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -20,6 +23,68 @@ import java.time.LocalDateTime;
 @Repository
 public interface ResponseRepository extends JpaRepository<Response, Long> {
     List<Response> findBySurvey(Survey survey);
+
+    long countBySurvey(Survey survey);
+
+    long countByUser(User user);
+
+    /**
+     * Số response theo survey cho một trang danh sách: [surveyId, count].
+     * Dùng bộ đếm survey_stats_rollup khi đã dựng, chỉ đếm bảng responses cho survey chưa có rollup
+     */
+    @Query(value = """
+        SELECT s.survey_id,
+               CASE WHEN ro.initialized THEN ro.response_count
+                    ELSE (SELECT COUNT(*) FROM responses r WHERE r.survey_id = s.survey_id) END
+        FROM surveys s
+        LEFT JOIN survey_stats_rollup ro ON ro.survey_id = s.survey_id
+        WHERE s.survey_id IN (:surveyIds)
+        """, nativeQuery = true)
+    List<Object[]> countBySurveyIds(@Param("surveyIds") Collection<Long> surveyIds);
+
+    /**
+     * Tổng thời lượng (giây) của các response có duration_seconds > 0
+     */
+    @Query("select coalesce(sum(r.durationSeconds), 0) from Response r where r.survey = :survey and r.durationSeconds > 0")
+    Long sumPositiveDurationSecondsBySurvey(@Param("survey") Survey survey);
+
+    long countBySurveyAndDurationSecondsGreaterThan(Survey survey, Integer durationSeconds);
+
+    /**
+     * Thời điểm submit của response mới nhất
+     */
+    @Query("select max(r.submittedAt) from Response r where r.survey = :survey")
+    LocalDateTime findLastSubmittedAtBySurvey(@Param("survey") Survey survey);
+
+    /**
+     * Số response theo trạng thái hoàn thành (index survey_id, completion_status): [status, count]
+     */
+    @Query("select r.completionStatus, count(r) from Response r where r.survey = :survey group by r.completionStatus")
+    List<Object[]> countBySurveyGroupByCompletionStatus(@Param("survey") Survey survey);
+
+    /**
+     * Tính lại answered_required_count và completion_status của mọi response trong survey
+     * (khi câu hỏi required được thêm / xóa / đổi cờ isRequired)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE responses r
+        LEFT JOIN (
+            SELECT a.response_id, COUNT(DISTINCT a.question_id) AS cnt
+            FROM answers a
+            JOIN questions q ON q.question_id = a.question_id
+            WHERE q.survey_id = :surveyId AND q.is_required = TRUE
+            GROUP BY a.response_id
+        ) req ON req.response_id = r.response_id
+        SET r.answered_required_count = COALESCE(req.cnt, 0),
+            r.completion_status = CASE
+                WHEN NOT EXISTS (SELECT 1 FROM answers a2 WHERE a2.response_id = r.response_id) THEN 'dropped'
+                WHEN COALESCE(req.cnt, 0) >= :requiredCount THEN 'completed'
+                ELSE 'partial'
+            END
+        WHERE r.survey_id = :surveyId
+        """, nativeQuery = true)
+    int recomputeCompletionBySurvey(@Param("surveyId") Long surveyId, @Param("requiredCount") long requiredCount);
     
     // removed filtering APIs per request
 
@@ -33,49 +98,174 @@ public interface ResponseRepository extends JpaRepository<Response, Long> {
 
     boolean existsByRequestToken(String requestToken);
 
+    /**
+     * Trang response theo bộ lọc. search (tham số lấy từ ResponseSearchService.prepare) khớp khi:
+     * - answer_text chứa chuỗi: FULLTEXT ngram trên response_search_docs, lọc lại bằng LIKE trên các document ứng viên
+     * - hoặc response có answer cho câu hỏi / lựa chọn có nội dung chứa chuỗi
+     */
     @Query("""
-        select distinct r from Response r
-        left join Answer a on a.response = r
-        left join Option o on a.option = o
-        left join Question q on a.question = q
+        select r from Response r
         where r.survey = :survey
           and (:from is null or r.submittedAt >= :from)
           and (:to is null or r.submittedAt <= :to)
           and (:userId is null or (r.user is not null and r.user.userId = :userId))
           and (:requestToken is null or r.requestToken like concat('%', :requestToken, '%'))
           and (
-               :search is null or (
-                   (a.answerText is not null and a.answerText like concat('%', :search, '%'))
-                   or (o.optionText is not null and o.optionText like concat('%', :search, '%'))
-                   or (q.questionText is not null and q.questionText like concat('%', :search, '%'))
+               :search is null
+               or r.responseId in (
+                   select d.responseId from ResponseSearchDoc d
+                   where d.survey = :survey
+                     and fulltext_match(d.searchText, :searchQuery) > 0
+                     and d.searchText like concat('%', :search, '%')
+               )
+               or r.responseId in (
+                   select a.response.responseId from Answer a
+                   where a.question.questionId in :searchQuestionIds or a.option.optionId in :searchOptionIds
                )
           )
+          and (:status is null or r.completionStatus = :status)
+        """)
+    Page<Response> findPageBySurveyWithFilters(
+            @Param("survey") Survey survey,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("userId") Long userId,
+            @Param("requestToken") String requestToken,
+            @Param("search") String search,
+            @Param("searchQuery") String searchQuery,
+            @Param("searchQuestionIds") Collection<Long> searchQuestionIds,
+            @Param("searchOptionIds") Collection<Long> searchOptionIds,
+            @Param("status") CompletionStatusEnum completionStatus,
+            Pageable pageable);
+
+    /**
+     * Keyset pagination tăng dần theo (submittedAt, responseId) với cùng bộ lọc như findPageBySurveyWithFilters:
+     * lấy các response đứng sau vị trí (afterSubmittedAt, afterId) (afterId = null: từ đầu).
+     * Số dòng lấy từ pageable (sort submittedAt, responseId tăng dần, page 0). Mỗi chiều có query riêng
+     * với điều kiện keyset đơn giản để MySQL dùng range scan trên index (survey_id, submitted_at, response_id),
+     * chi phí mỗi trang không phụ thuộc vị trí.
+     */
+    @Query("""
+        select r from Response r
+        where r.survey = :survey
+          and (:from is null or r.submittedAt >= :from)
+          and (:to is null or r.submittedAt <= :to)
+          and (:userId is null or (r.user is not null and r.user.userId = :userId))
+          and (:requestToken is null or r.requestToken like concat('%', :requestToken, '%'))
           and (
-               :status is null or (
-                   :status = 'completed' and (
-                       (select count(distinct q.questionId) from Question q where q.survey = r.survey and q.isRequired = true)
-                       =
-                       (select count(distinct a2.question.questionId) from Answer a2 where a2.response = r and a2.question.isRequired = true)
-                   )
-               ) or (
-                   :status = 'dropped' and not exists (select a3 from Answer a3 where a3.response = r)
-               ) or (
-                   :status = 'partial' and exists (select a4 from Answer a4 where a4.response = r)
-                       and (
-                           (select count(distinct q2.questionId) from Question q2 where q2.survey = r.survey and q2.isRequired = true)
-                           <>
-                           (select count(distinct a5.question.questionId) from Answer a5 where a5.response = r and a5.question.isRequired = true)
-                       )
+               :search is null
+               or r.responseId in (
+                   select d.responseId from ResponseSearchDoc d
+                   where d.survey = :survey
+                     and fulltext_match(d.searchText, :searchQuery) > 0
+                     and d.searchText like concat('%', :search, '%')
+               )
+               or r.responseId in (
+                   select a.response.responseId from Answer a
+                   where a.question.questionId in :searchQuestionIds or a.option.optionId in :searchOptionIds
                )
           )
+          and (:status is null or r.completionStatus = :status)
+          and (
+               :afterId is null
+               or r.submittedAt > :afterSubmittedAt
+               or (r.submittedAt = :afterSubmittedAt and r.responseId > :afterId)
+          )
         """)
-    Page<Response> findPageBySurveyWithFilters(
+    List<Response> findSliceBySurveyWithFiltersAscAfter(
+            @Param("survey") Survey survey,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("userId") Long userId,
+            @Param("requestToken") String requestToken,
+            @Param("search") String search,
+            @Param("searchQuery") String searchQuery,
+            @Param("searchQuestionIds") Collection<Long> searchQuestionIds,
+            @Param("searchOptionIds") Collection<Long> searchOptionIds,
+            @Param("status") CompletionStatusEnum completionStatus,
+            @Param("afterSubmittedAt") LocalDateTime afterSubmittedAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    /**
+     * Như findSliceBySurveyWithFiltersAscAfter theo chiều giảm dần (sort submittedAt, responseId giảm dần)
+     */
+    @Query("""
+        select r from Response r
+        where r.survey = :survey
+          and (:from is null or r.submittedAt >= :from)
+          and (:to is null or r.submittedAt <= :to)
+          and (:userId is null or (r.user is not null and r.user.userId = :userId))
+          and (:requestToken is null or r.requestToken like concat('%', :requestToken, '%'))
+          and (
+               :search is null
+               or r.responseId in (
+                   select d.responseId from ResponseSearchDoc d
+                   where d.survey = :survey
+                     and fulltext_match(d.searchText, :searchQuery) > 0
+                     and d.searchText like concat('%', :search, '%')
+               )
+               or r.responseId in (
+                   select a.response.responseId from Answer a
+                   where a.question.questionId in :searchQuestionIds or a.option.optionId in :searchOptionIds
+               )
+          )
+          and (:status is null or r.completionStatus = :status)
+          and (
+               :afterId is null
+               or r.submittedAt < :afterSubmittedAt
+               or (r.submittedAt = :afterSubmittedAt and r.responseId < :afterId)
+          )
+        """)
+    List<Response> findSliceBySurveyWithFiltersDescAfter(
             @Param("survey") Survey survey,
             @Param("from") LocalDateTime from,
             @Param("to") LocalDateTime to,
             @Param("userId") Long userId,
             @Param("requestToken") String requestToken,
             @Param("search") String search,
-            @Param("status") String completionStatus,
+            @Param("searchQuery") String searchQuery,
+            @Param("searchQuestionIds") Collection<Long> searchQuestionIds,
+            @Param("searchOptionIds") Collection<Long> searchOptionIds,
+            @Param("status") CompletionStatusEnum completionStatus,
+            @Param("afterSubmittedAt") LocalDateTime afterSubmittedAt,
+            @Param("afterId") Long afterId,
             Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Số response khớp bộ lọc (cùng điều kiện như findSliceBySurveyWithFiltersAscAfter)
+     */
+    @Query("""
+        select count(r) from Response r
+        where r.survey = :survey
+          and (:from is null or r.submittedAt >= :from)
+          and (:to is null or r.submittedAt <= :to)
+          and (:userId is null or (r.user is not null and r.user.userId = :userId))
+          and (:requestToken is null or r.requestToken like concat('%', :requestToken, '%'))
+          and (
+               :search is null
+               or r.responseId in (
+                   select d.responseId from ResponseSearchDoc d
+                   where d.survey = :survey
+                     and fulltext_match(d.searchText, :searchQuery) > 0
+                     and d.searchText like concat('%', :search, '%')
+               )
+               or r.responseId in (
+                   select a.response.responseId from Answer a
+                   where a.question.questionId in :searchQuestionIds or a.option.optionId in :searchOptionIds
+               )
+          )
+          and (:status is null or r.completionStatus = :status)
+        """)
+    long countBySurveyWithFilters(
+            @Param("survey") Survey survey,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("userId") Long userId,
+            @Param("requestToken") String requestToken,
+            @Param("search") String search,
+            @Param("searchQuery") String searchQuery,
+            @Param("searchQuestionIds") Collection<Long> searchQuestionIds,
+            @Param("searchOptionIds") Collection<Long> searchOptionIds,
+            @Param("status") CompletionStatusEnum completionStatus);
+}
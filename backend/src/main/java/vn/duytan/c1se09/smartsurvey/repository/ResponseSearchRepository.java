@@ -0,0 +1,28 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Ghi document tìm kiếm của response (bảng response_search_docs) bằng JDBC.
+ * Chạy trên cùng connection/transaction với JPA; việc đọc nằm trong subquery của ResponseRepository.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ResponseSearchRepository {
+
+    private static final String UPSERT_SQL = "INSERT INTO response_search_docs (response_id, survey_id, search_text, updated_at) "
+            + "VALUES (?, ?, ?, NOW()) "
+            + "ON DUPLICATE KEY UPDATE search_text = VALUES(search_text), updated_at = NOW()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void upsert(Long responseId, Long surveyId, String searchText) {
+        jdbcTemplate.update(UPSERT_SQL, responseId, surveyId, searchText);
+    }
+
+    public int delete(Long responseId) {
+        return jdbcTemplate.update("DELETE FROM response_search_docs WHERE response_id = ?", responseId);
+    }
+}
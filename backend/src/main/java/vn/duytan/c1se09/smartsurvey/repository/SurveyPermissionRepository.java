@@ -9,6 +9,7 @@ import vn.duytan.c1se09.smartsurvey.domain.SurveyPermission;
 import vn.duytan.c1se09.smartsurvey.domain.Team;
 import vn.duytan.c1se09.smartsurvey.domain.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +42,28 @@ public interface SurveyPermissionRepository extends JpaRepository<SurveyPermissi
     @Query("SELECT s FROM Survey s WHERE s.user = :user OR EXISTS (SELECT sp FROM SurveyPermission sp WHERE sp.survey = s AND sp.user = :user) OR EXISTS (SELECT sp FROM SurveyPermission sp WHERE sp.survey = s AND sp.restrictedTeam IS NOT NULL AND EXISTS (SELECT tm FROM TeamMember tm WHERE tm.team = sp.restrictedTeam AND tm.user = :user))")
     List<Survey> findSurveysAccessibleByUser(@Param("user") User user);
 
+    /**
+     * Quyền hiệu lực (không tính owner) của user trên nhiều survey trong 1 truy vấn:
+     * [surveyId, permission]; bỏ qua quyền ràng buộc team nếu user không còn là owner/member của team
+     */
+    @Query("SELECT sp.survey.surveyId, sp.permission FROM SurveyPermission sp LEFT JOIN sp.restrictedTeam rt " +
+           "WHERE sp.user = :user AND sp.survey.surveyId IN :surveyIds " +
+           "AND (sp.restrictedTeam IS NULL OR rt.owner = :user " +
+           "OR EXISTS (SELECT tm FROM TeamMember tm WHERE tm.team = rt AND tm.user = :user))")
+    List<Object[]> findEffectivePermissions(@Param("user") User user, @Param("surveyIds") Collection<Long> surveyIds);
+
+    /**
+     * Các survey được share trực tiếp cho user (không phải owner), 1 dòng/survey:
+     * [surveyId, title, status, permission, effective]; effective = false nếu quyền ràng buộc team
+     * mà user không còn là owner/member của team
+     */
+    @Query("SELECT s.surveyId, s.title, s.status, sp.permission, " +
+           "CASE WHEN (sp.restrictedTeam IS NULL OR rt.owner = :user " +
+           "OR EXISTS (SELECT tm FROM TeamMember tm WHERE tm.team = rt AND tm.user = :user)) THEN true ELSE false END " +
+           "FROM SurveyPermission sp JOIN sp.survey s LEFT JOIN sp.restrictedTeam rt " +
+           "WHERE sp.user = :user AND s.user <> :user ORDER BY s.createdAt DESC")
+    List<Object[]> findSharedSurveyRows(@Param("user") User user);
+
     void deleteByUserAndRestrictedTeam(User user, Team restrictedTeam);
     
     /**
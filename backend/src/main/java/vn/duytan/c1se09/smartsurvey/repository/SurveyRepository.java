@@ -12,6 +12,7 @@ import vn.duytan.c1se09.smartsurvey.domain.Category;
 import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository cho Survey entity
@@ -30,8 +31,29 @@ public interface SurveyRepository extends JpaRepository<Survey, Long> {
 
     long countByUser(User user);
 
+    @Query("SELECT s.surveyId FROM Survey s WHERE s.user = :user")
+    List<Long> findIdsByUser(@Param("user") User user);
+
+    /**
+     * Chỉ đọc cột status (dùng để kiểm tra lại trạng thái khi định nghĩa survey lấy từ cache)
+     */
+    @Query("SELECT s.status FROM Survey s WHERE s.surveyId = :surveyId")
+    Optional<SurveyStatusEnum> findStatusById(@Param("surveyId") Long surveyId);
+
+    /**
+     * Số survey của user theo trạng thái: [status, count]
+     */
+    @Query("SELECT s.status, COUNT(s) FROM Survey s WHERE s.user = :user GROUP BY s.status")
+    List<Object[]> countByUserGroupByStatus(@Param("user") User user);
+
     long countByStatus(SurveyStatusEnum status);
 
+    /**
+     * Số survey theo trạng thái trên toàn hệ thống: [status, count]
+     */
+    @Query("SELECT s.status, COUNT(s) FROM Survey s GROUP BY s.status")
+    List<Object[]> countGroupByStatus();
+
     @Query("SELECT s FROM Survey s WHERE LOWER(s.title) LIKE LOWER(CONCAT('%', :title, '%'))")
     List<Survey> findByTitleContainingIgnoreCase(@Param("title") String title);
 
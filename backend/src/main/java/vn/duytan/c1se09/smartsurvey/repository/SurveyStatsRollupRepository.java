@@ -0,0 +1,92 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.duytan.c1se09.smartsurvey.domain.SurveyStatsRollup;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository cho SurveyStatsRollup entity
+ */
+@Repository
+public interface SurveyStatsRollupRepository extends JpaRepository<SurveyStatsRollup, Long> {
+
+    /**
+     * Tạo dòng rollup rỗng nếu chưa có (an toàn khi nhiều request chạy đồng thời)
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO survey_stats_rollup (survey_id, response_count, duration_sum, duration_count, initialized) "
+            + "VALUES (:surveyId, 0, 0, 0, false)", nativeQuery = true)
+    int insertIfMissing(@Param("surveyId") Long surveyId);
+
+    /**
+     * Khóa dòng rollup của survey để cập nhật tuần tự
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from SurveyStatsRollup r where r.surveyId = :surveyId")
+    Optional<SurveyStatsRollup> findForUpdate(@Param("surveyId") Long surveyId);
+
+    /**
+     * Cộng delta của một response vào rollup bằng một câu lệnh nguyên tử (không đọc trước, không khóa đọc).
+     * Dòng chưa có hoặc chưa initialized chỉ được tạo / giữ nguyên, job nền sẽ dựng lại từ dữ liệu gốc.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO survey_stats_rollup (survey_id, response_count, duration_sum, duration_count, initialized, updated_at)
+        VALUES (:surveyId, 0, 0, 0, false, NOW())
+        ON DUPLICATE KEY UPDATE
+            response_count = CASE WHEN initialized THEN response_count + :responseDelta ELSE response_count END,
+            duration_sum = CASE WHEN initialized THEN duration_sum + :durationSumDelta ELSE duration_sum END,
+            duration_count = CASE WHEN initialized THEN duration_count + :durationCountDelta ELSE duration_count END,
+            last_response_at = CASE
+                WHEN initialized AND (last_response_at IS NULL OR last_response_at < :submittedAt) THEN :submittedAt
+                ELSE last_response_at END,
+            updated_at = NOW()
+        """, nativeQuery = true)
+    int applyDelta(@Param("surveyId") Long surveyId,
+            @Param("responseDelta") long responseDelta,
+            @Param("durationSumDelta") long durationSumDelta,
+            @Param("durationCountDelta") long durationCountDelta,
+            @Param("submittedAt") LocalDateTime submittedAt);
+
+    /**
+     * Tính lại thời điểm response cuối sau khi xóa response
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE survey_stats_rollup
+        SET last_response_at = (SELECT MAX(r.submitted_at) FROM responses r WHERE r.survey_id = :surveyId),
+            updated_at = NOW()
+        WHERE survey_id = :surveyId AND initialized = true
+        """, nativeQuery = true)
+    int refreshLastResponseAt(@Param("surveyId") Long surveyId);
+
+    /**
+     * Đánh dấu rollup cần job nền dựng lại
+     */
+    @Modifying
+    @Query("update SurveyStatsRollup r set r.initialized = false where r.surveyId in :surveyIds")
+    int markStale(@Param("surveyIds") Collection<Long> surveyIds);
+
+    /**
+     * Các survey chưa có rollup đầy đủ (chưa từng dựng hoặc đã bị đánh dấu stale)
+     */
+    @Query("""
+        select s.surveyId from Survey s
+        where not exists (
+            select r from SurveyStatsRollup r where r.surveyId = s.surveyId and r.initialized = true
+        )
+        order by s.surveyId
+        """)
+    List<Long> findSurveyIdsNeedingRebuild(Pageable pageable);
+}
@@ -0,0 +1,37 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import vn.duytan.c1se09.smartsurvey.domain.SurveyView;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Ghi survey_views theo lô bằng JDBC batch (gộp thành multi-row INSERT khi bật rewriteBatchedStatements).
+ * Không cần viewId sinh ra nên không lấy generated keys.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SurveyViewBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO survey_views (survey_id, ip_address, user_agent, session_id, viewed_at, is_unique_view) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<SurveyView> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, views, views.size(), (ps, view) -> {
+            ps.setLong(1, view.getSurvey().getSurveyId());
+            ps.setString(2, view.getIpAddress());
+            ps.setString(3, view.getUserAgent());
+            ps.setString(4, view.getSessionId());
+            ps.setTimestamp(5, Timestamp.valueOf(view.getViewedAt()));
+            ps.setBoolean(6, !Boolean.FALSE.equals(view.getIsUniqueView()));
+        });
+    }
+}
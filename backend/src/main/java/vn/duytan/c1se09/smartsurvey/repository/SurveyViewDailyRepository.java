@@ -0,0 +1,157 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Truy cập bảng survey_view_daily (tổng lượt xem + HyperLogLog theo survey / ngày) bằng JDBC.
+ * hll_registers = NULL nghĩa là sketch chưa được dựng từ survey_views.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SurveyViewDailyRepository {
+
+    private static final String UPSERT_SQL = "INSERT INTO survey_view_daily (survey_id, view_date, view_count, hll_registers) "
+            + "VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count), "
+            + "hll_registers = IF(hll_registers IS NULL, NULL, VALUES(hll_registers))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record DayKey(Long surveyId, LocalDate viewDate) {
+    }
+
+    public record DailyRow(LocalDate viewDate, long viewCount, byte[] registers) {
+    }
+
+    public record DailyDelta(DayKey key, long viewCount, byte[] registers) {
+    }
+
+    /**
+     * Các ngày của survey trong khoảng [from, to] (null = không giới hạn)
+     */
+    public List<DailyRow> findRange(Long surveyId, LocalDate from, LocalDate to) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT view_date, view_count, hll_registers FROM survey_view_daily WHERE survey_id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(surveyId);
+        if (from != null) {
+            sql.append(" AND view_date >= ?");
+            args.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND view_date <= ?");
+            args.add(Date.valueOf(to));
+        }
+        return jdbcTemplate.query(sql.toString(),
+                (rs, i) -> new DailyRow(rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getBytes(3)),
+                args.toArray());
+    }
+
+    public long sumViewCount(Long surveyId) {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(view_count), 0) FROM survey_view_daily WHERE survey_id = ?", Long.class, surveyId);
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * Tổng lượt xem của nhiều survey trong một query (survey không có lượt xem không có trong map)
+     */
+    public Map<Long, Long> sumViewCounts(Collection<Long> surveyIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (surveyIds.isEmpty()) {
+            return result;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(surveyIds.size(), "?"));
+        jdbcTemplate.query("SELECT survey_id, SUM(view_count) FROM survey_view_daily WHERE survey_id IN ("
+                + placeholders + ") GROUP BY survey_id", rs -> {
+                    result.put(rs.getLong(1), rs.getLong(2));
+                }, surveyIds.toArray());
+        return result;
+    }
+
+    /**
+     * Khóa (FOR UPDATE) và đọc registers hiện có của các ngày; ngày đã có dòng nhưng registers NULL
+     * vẫn có mặt trong map với value null. Phải gọi trong transaction.
+     */
+    public Map<DayKey, byte[]> lockRegisters(Collection<DayKey> keys) {
+        Map<DayKey, byte[]> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        StringBuilder sql = new StringBuilder(
+                "SELECT survey_id, view_date, hll_registers FROM survey_view_daily WHERE (survey_id, view_date) IN (");
+        List<Object> args = new ArrayList<>(keys.size() * 2);
+        for (DayKey key : keys) {
+            sql.append(args.isEmpty() ? "(?, ?)" : ", (?, ?)");
+            args.add(key.surveyId());
+            args.add(Date.valueOf(key.viewDate()));
+        }
+        sql.append(") FOR UPDATE");
+        jdbcTemplate.query(sql.toString(), rs -> {
+            result.put(new DayKey(rs.getLong(1), rs.getDate(2).toLocalDate()), rs.getBytes(3));
+        }, args.toArray());
+        return result;
+    }
+
+    /**
+     * Cộng lượt xem và ghi registers đã gộp; registers của dòng đang chờ dựng (NULL) được giữ NULL
+     */
+    public void upsertAll(List<DailyDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.key().surveyId());
+            ps.setDate(2, Date.valueOf(delta.key().viewDate()));
+            ps.setLong(3, delta.viewCount());
+            if (delta.registers() != null) {
+                ps.setBytes(4, delta.registers());
+            } else {
+                ps.setNull(4, Types.BLOB);
+            }
+        });
+    }
+
+    /**
+     * Các ngày chưa có sketch (cần dựng từ survey_views)
+     */
+    public List<DayKey> findPendingSketches(int limit) {
+        return jdbcTemplate.query(
+                "SELECT survey_id, view_date FROM survey_view_daily WHERE hll_registers IS NULL LIMIT ?",
+                (rs, i) -> new DayKey(rs.getLong(1), rs.getDate(2).toLocalDate()), limit);
+    }
+
+    /**
+     * Duyệt IP của các lượt xem trong 1 ngày (streaming, không nạp hết vào bộ nhớ)
+     */
+    public void forEachIpAddress(DayKey key, Consumer<String> consumer) {
+        jdbcTemplate.query(
+                "SELECT ip_address FROM survey_views WHERE survey_id = ? AND viewed_at >= ? AND viewed_at < ?",
+                rs -> {
+                    consumer.accept(rs.getString(1));
+                },
+                key.surveyId(),
+                Timestamp.valueOf(key.viewDate().atStartOfDay()),
+                Timestamp.valueOf(key.viewDate().plusDays(1).atStartOfDay()));
+    }
+
+    public int setRegistersIfPending(DayKey key, byte[] registers) {
+        return jdbcTemplate.update(
+                "UPDATE survey_view_daily SET hll_registers = ? WHERE survey_id = ? AND view_date = ? AND hll_registers IS NULL",
+                registers, key.surveyId(), Date.valueOf(key.viewDate()));
+    }
+}
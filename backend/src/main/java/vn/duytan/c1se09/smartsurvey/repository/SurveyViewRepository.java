@@ -33,6 +33,14 @@ public interface SurveyViewRepository extends JpaRepository<SurveyView, Long> {
     @Query("SELECT COUNT(DISTINCT sv.ipAddress) FROM SurveyView sv WHERE sv.survey = :survey AND sv.viewedAt >= :startDate")
     long countDistinctViewsBySurveySince(@Param("survey") Survey survey, @Param("startDate") LocalDateTime startDate);
     
+    /**
+     * Đếm chính xác số IP xem survey trong [start, end) (null = không giới hạn)
+     */
+    @Query("SELECT COUNT(DISTINCT sv.ipAddress) FROM SurveyView sv WHERE sv.survey.surveyId = :surveyId " +
+           "AND (:start IS NULL OR sv.viewedAt >= :start) AND (:end IS NULL OR sv.viewedAt < :end)")
+    long countDistinctViewsBySurveyBetween(@Param("surveyId") Long surveyId,
+            @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
     /**
      * Lấy danh sách views của một survey
      */
@@ -23,6 +23,9 @@ public interface TeamRepository extends JpaRepository<Team, Long> {
     @Query("SELECT t FROM Team t WHERE t.owner = :owner OR EXISTS (SELECT tm FROM TeamMember tm WHERE tm.team = t AND tm.user = :user)")
     List<Team> findTeamsByOwnerOrMember(@Param("owner") User owner, @Param("user") User user);
     
+    @Query("SELECT COUNT(t) FROM Team t WHERE t.owner = :user OR EXISTS (SELECT tm FROM TeamMember tm WHERE tm.team = t AND tm.user = :user)")
+    long countTeamsByOwnerOrMember(@Param("user") User user);
+    
     boolean existsByInviteCode(String inviteCode);
 }
 
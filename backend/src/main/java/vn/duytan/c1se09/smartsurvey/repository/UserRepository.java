@@ -31,6 +31,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     long countByRole(RoleEnum role);
 
+    /**
+     * Số user theo vai trò và trạng thái: [role, isActive, count]
+     */
+    @Query("SELECT u.role, u.isActive, COUNT(u) FROM User u GROUP BY u.role, u.isActive")
+    List<Object[]> countGroupByRoleAndActive();
+
     @Query("SELECT u FROM User u WHERE LOWER(u.fullName) LIKE LOWER(CONCAT('%', :fullName, '%'))")
     List<User> findByFullNameContainingIgnoreCase(@Param("fullName") String fullName);
 
@@ -1,5 +1,6 @@
 package vn.duytan.c1se09.smartsurvey.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,18 +9,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import vn.duytan.c1se09.smartsurvey.service.UserAuthCache;
 
 import java.io.IOException;
 
 /**
- * Filter để xử lý JWT token trong mỗi request
+ * Filter để xử lý JWT token trong mỗi request.
+ * Token được parse/verify đúng 1 lần; principal dựng từ claims và thông tin user đã cache,
+ * không load UserDetails từ DB ở mỗi request.
  */
 @Slf4j
 @Component
@@ -28,63 +29,49 @@ import java.io.IOException;
 public class AuthTokenFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsService userDetailsService;
+    private final UserAuthCache userAuthCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
             FilterChain filterChain) throws ServletException, IOException {
         String path = request.getServletPath();
-        log.info("Processing request to path: {}", path);
 
         // Chỉ bỏ qua kiểm tra JWT cho các endpoint public và auth không cần xác thực
         if (path.equals("/auth/login") || path.equals("/auth/register") || path.equals("/auth/forgot-password")
                 || path.startsWith("/api/public/") || path.startsWith("/actuator/")) {
-            log.info("Skipping JWT validation for public path: {}", path);
             filterChain.doFilter(request, response);
             return;
         }
 
         try {
             String jwt = parseJwt(request);
-            log.info("JWT token found: {}", jwt != null ? "Yes" : "No");
-            log.info("Authorization header: {}", request.getHeader("Authorization"));
+            Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
 
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                String role = jwtUtils.getRoleFromJwtToken(jwt);
-                log.info("JWT token valid for user: {} with role: {}", username, role);
-                System.out.println("=== AuthTokenFilter: JWT token valid ===");
-                System.out.println("Username: " + username);
-                System.out.println("Role from token: " + role);
-                System.out.println("Path: " + path);
+            if (claims != null) {
+                String username = claims.getSubject();
+                UserAuthCache.CachedUser user = userAuthCache.get(username);
+                Long tokenUserId = JwtUtils.getUserId(claims);
 
-                try {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                if (user == null) {
+                    log.warn("User not found for JWT subject: {}", username);
+                } else if (tokenUserId != null && !tokenUserId.equals(user.getUserId())) {
+                    log.warn("JWT user id does not match account for: {}", username);
+                } else if (!user.isActive()) {
+                    // Tài khoản bị vô hiệu hóa sau khi token được phát hành
+                    log.warn("JWT rejected for disabled user: {}", username);
+                } else {
+                    JwtUserPrincipal principal = new JwtUserPrincipal(user.getUserId(), user.getEmail(),
+                            user.getRole(), true);
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
+                            principal, null, principal.getAuthorities());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                     SecurityContextHolder.getContext().setAuthentication(authentication);
-                    log.info("Authentication set for user: {} with authorities: {}", username, userDetails.getAuthorities());
-                    System.out.println("Authentication set successfully for: " + username);
-                    System.out.println("Authorities: " + userDetails.getAuthorities());
-                } catch (UsernameNotFoundException e) {
-                    log.error("User not found: {}", username, e);
-                    System.out.println("ERROR: User not found: " + username);
-                    e.printStackTrace();
-                    // Không set authentication nếu user không tồn tại
-                } catch (Exception e) {
-                    log.error("Error loading user details for user: {}", username, e);
-                    System.out.println("ERROR loading user details for: " + username);
-                    System.out.println("Exception: " + e.getMessage());
-                    e.printStackTrace();
-                    // Không set authentication nếu có lỗi
+                    log.debug("Authentication set for user: {} with authorities: {}", username,
+                            principal.getAuthorities());
                 }
-            } else {
+            } else if (jwt != null) {
                 log.warn("JWT token validation failed for path: {}", path);
-                System.out.println("=== AuthTokenFilter: JWT token validation failed ===");
-                System.out.println("Path: " + path);
-                System.out.println("JWT token: " + (jwt != null ? "exists" : "null"));
             }
         } catch (Exception e) {
             log.error("Cannot set user authentication: {}", e.getMessage(), e);
@@ -0,0 +1,37 @@
+package vn.duytan.c1se09.smartsurvey.security;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+
+/**
+ * Giữ User hiện tại trong phạm vi một HTTP request, để AuthService.getCurrentUser()
+ * chỉ truy vấn bảng users tối đa 1 lần mỗi request.
+ * Ngoài request (worker chạy nền) thì không giữ gì.
+ */
+public final class CurrentUserHolder {
+
+    private static final String ATTRIBUTE = CurrentUserHolder.class.getName() + ".user";
+
+    private CurrentUserHolder() {
+    }
+
+    public static User get(Long userId) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object user = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user instanceof User cached && cached.getUserId().equals(userId)) {
+            return cached;
+        }
+        return null;
+    }
+
+    public static void set(User user) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null && user != null) {
+            attributes.setAttribute(ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
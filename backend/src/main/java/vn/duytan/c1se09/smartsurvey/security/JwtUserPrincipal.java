@@ -0,0 +1,53 @@
+package vn.duytan.c1se09.smartsurvey.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import vn.duytan.c1se09.smartsurvey.util.constant.RoleEnum;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal dựng từ JWT claims + thông tin user đã cache (không cần load UserDetails từ DB)
+ */
+@Getter
+public class JwtUserPrincipal implements UserDetails {
+
+    private final Long userId;
+    private final String email;
+    private final RoleEnum role;
+    private final boolean active;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtUserPrincipal(Long userId, String email, RoleEnum role, boolean active) {
+        this.userId = userId;
+        this.email = email;
+        this.role = role;
+        this.active = active;
+        // Spring Security yêu cầu uppercase: ROLE_ADMIN, ROLE_CREATOR, ROLE_RESPONDENT
+        String authority = role != null ? "ROLE_" + role.name().toUpperCase() : "ROLE_CREATOR";
+        this.authorities = List.of(new SimpleGrantedAuthority(authority));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return active;
+    }
+}
@@ -1,8 +1,12 @@
 package vn.duytan.c1se09.smartsurvey.security;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.MalformedJwtException;
@@ -21,46 +25,47 @@ import java.util.Date;
 @Component
 public class JwtUtils {
 
+    /**
+     * Claim chứa userId (token cũ không có claim này)
+     */
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
-    // Tạo JWT token với claim 'role'
-    public String generateJwtToken(Authentication authentication, String role) {
+    // Key HMAC và parser được tạo 1 lần (JwtParser thread-safe)
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    // Tạo JWT token với claim 'role' và 'uid'
+    public String generateJwtToken(Authentication authentication, Long userId, String role) {
         var userPrincipal = (org.springframework.security.core.userdetails.User) authentication.getPrincipal();
         return Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
-                .claim("role", role)
+                .claim(CLAIM_ROLE, role)
+                .claim(CLAIM_USER_ID, userId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
-
-    // Lấy role từ JWT token
-    public String getRoleFromJwtToken(String token) {
-        return (String) Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().get("role");
-    }
-
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Xác thực chữ ký + hạn dùng và trả về claims trong 1 lần parse; null nếu token không hợp lệ
+     */
+    public Claims parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key())
-                    .build()
-                    .parse(authToken);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -69,11 +74,30 @@ public class JwtUtils {
             log.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.error("Invalid JWT signature: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    public String getUserNameFromJwtToken(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    // Lấy role từ JWT token
+    public String getRoleFromJwtToken(String token) {
+        return (String) parser.parseClaimsJws(token).getBody().get(CLAIM_ROLE);
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    /**
+     * userId trong claims (null với token phát hành trước khi có claim 'uid')
+     */
+    public static Long getUserId(Claims claims) {
+        Object value = claims.get(CLAIM_USER_ID);
+        return value instanceof Number number ? number.longValue() : null;
     }
 }
@@ -0,0 +1,106 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.ResponseRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewDailyRepository;
+import vn.duytan.c1se09.smartsurvey.repository.UserRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.RoleEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Số liệu cho màn hình admin, số query cố định không phụ thuộc kích thước dữ liệu.
+ * - Thống kê user / survey: một query GROUP BY thay vì nạp cả bảng
+ * - Số response: bộ đếm survey_stats_rollup (dựng lại từ bảng responses nếu chưa có)
+ * - Số lượt xem: tổng từ survey_view_daily
+ * - Trang danh sách: response / question / view của mọi survey trong trang, mỗi loại một query
+ */
+@Service
+@RequiredArgsConstructor
+@SuppressWarnings("null")
+public class AdminMetricsService {
+
+    private final UserRepository userRepository;
+    private final SurveyRepository surveyRepository;
+    private final ResponseRepository responseRepository;
+    private final QuestionRepository questionRepository;
+    private final SurveyViewDailyRepository surveyViewDailyRepository;
+
+    public record UserCounts(long total, long active, Map<RoleEnum, Long> byRole) {
+        public long role(RoleEnum role) {
+            return byRole.getOrDefault(role, 0L);
+        }
+    }
+
+    public record SurveyCounts(long responseCount, long questionCount, long viewCount) {
+        static final SurveyCounts EMPTY = new SurveyCounts(0L, 0L, 0L);
+    }
+
+    public UserCounts getUserCounts() {
+        long total = 0L;
+        long active = 0L;
+        Map<RoleEnum, Long> byRole = new EnumMap<>(RoleEnum.class);
+        for (Object[] row : userRepository.countGroupByRoleAndActive()) {
+            long count = ((Number) row[2]).longValue();
+            total += count;
+            if (Boolean.TRUE.equals(row[1])) {
+                active += count;
+            }
+            byRole.merge((RoleEnum) row[0], count, Long::sum);
+        }
+        return new UserCounts(total, active, byRole);
+    }
+
+    public Map<SurveyStatusEnum, Long> getSurveyStatusCounts() {
+        Map<SurveyStatusEnum, Long> result = new EnumMap<>(SurveyStatusEnum.class);
+        for (Object[] row : surveyRepository.countGroupByStatus()) {
+            result.put((SurveyStatusEnum) row[0], ((Number) row[1]).longValue());
+        }
+        return result;
+    }
+
+    public long countUserResponses(User user) {
+        return responseRepository.countByUser(user);
+    }
+
+    /**
+     * Số response / question / view của các survey (3 query cho cả danh sách)
+     */
+    public Map<Long, SurveyCounts> getSurveyCounts(Collection<Long> surveyIds) {
+        Map<Long, SurveyCounts> result = new HashMap<>();
+        if (surveyIds.isEmpty()) {
+            return result;
+        }
+        Map<Long, Long> responses = toCountMap(responseRepository.countBySurveyIds(surveyIds));
+        Map<Long, Long> questions = toCountMap(questionRepository.countBySurveyIds(surveyIds));
+        Map<Long, Long> views = surveyViewDailyRepository.sumViewCounts(surveyIds);
+        for (Long surveyId : surveyIds) {
+            result.put(surveyId, new SurveyCounts(
+                    responses.getOrDefault(surveyId, 0L),
+                    questions.getOrDefault(surveyId, 0L),
+                    views.getOrDefault(surveyId, 0L)));
+        }
+        return result;
+    }
+
+    public SurveyCounts getSurveyCounts(Long surveyId) {
+        return getSurveyCounts(List.of(surveyId)).getOrDefault(surveyId, SurveyCounts.EMPTY);
+    }
+
+    private Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return result;
+    }
+}
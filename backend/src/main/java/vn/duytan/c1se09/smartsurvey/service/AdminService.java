@@ -11,6 +11,7 @@ import vn.duytan.c1se09.smartsurvey.domain.*;
 import vn.duytan.c1se09.smartsurvey.domain.request.UserRequestDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.UserResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.admin.*;
+import vn.duytan.c1se09.smartsurvey.domain.response.purge.PurgeJobResponseDTO;
 import vn.duytan.c1se09.smartsurvey.repository.*;
 import vn.duytan.c1se09.smartsurvey.util.constant.RoleEnum;
 import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
@@ -19,7 +20,9 @@ import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -37,14 +40,11 @@ public class AdminService {
     private final CategoryRepository categoryRepository;
     private final NotificationRepository notificationRepository;
     private final ActivityLogRepository activityLogRepository;
-    private final SurveyViewRepository surveyViewRepository;
-    private final SurveyPermissionRepository surveyPermissionRepository;
-    private final OptionRepository optionRepository;
-    private final AnswerRepository answerRepository;
-    private final AiSentimentRepository aiSentimentRepository;
-    private final AiAnalysisRepository aiAnalysisRepository;
-    private final AiChatLogRepository aiChatLogRepository;
     private final ActivityLogService activityLogService;
+    private final SurveyDefinitionCache surveyDefinitionCache;
+    private final UserAuthCache userAuthCache;
+    private final AdminMetricsService adminMetricsService;
+    private final PurgeService purgeService;
     private final AuthService authService;
     private final PasswordEncoder passwordEncoder;
 
@@ -64,20 +64,20 @@ public class AdminService {
     public AdminDashboardDTO getDashboard() throws IdInvalidException {
         validateAdminRole();
         
-        // User statistics
-        long totalUsers = userRepository.count();
-        long totalAdmins = userRepository.countByRole(RoleEnum.admin);
-        long totalCreators = userRepository.countByRole(RoleEnum.creator);
-        long totalRespondents = userRepository.countByRole(RoleEnum.respondent);
-        long activeUsers = userRepository.findAll().stream()
-                .filter(User::getIsActive)
-                .count();
-        
-        // Survey statistics
-        long totalSurveys = surveyRepository.count();
-        long draftSurveys = surveyRepository.countByStatus(SurveyStatusEnum.draft);
-        long publishedSurveys = surveyRepository.countByStatus(SurveyStatusEnum.published);
-        long archivedSurveys = surveyRepository.countByStatus(SurveyStatusEnum.archived);
+        // User statistics (1 query GROUP BY role, is_active)
+        AdminMetricsService.UserCounts userCounts = adminMetricsService.getUserCounts();
+        long totalUsers = userCounts.total();
+        long totalAdmins = userCounts.role(RoleEnum.admin);
+        long totalCreators = userCounts.role(RoleEnum.creator);
+        long totalRespondents = userCounts.role(RoleEnum.respondent);
+        long activeUsers = userCounts.active();
+        
+        // Survey statistics (1 query GROUP BY status)
+        Map<SurveyStatusEnum, Long> surveyStatusCounts = adminMetricsService.getSurveyStatusCounts();
+        long totalSurveys = surveyStatusCounts.values().stream().mapToLong(Long::longValue).sum();
+        long draftSurveys = surveyStatusCounts.getOrDefault(SurveyStatusEnum.draft, 0L);
+        long publishedSurveys = surveyStatusCounts.getOrDefault(SurveyStatusEnum.published, 0L);
+        long archivedSurveys = surveyStatusCounts.getOrDefault(SurveyStatusEnum.archived, 0L);
         
         // Other statistics
         long totalResponses = responseRepository.count();
@@ -97,6 +97,14 @@ public class AdminService {
             PageRequest.of(0, 10)
         );
         
+        // Nạp các user bị thao tác trong 1 query
+        Set<Long> targetUserIds = adminActivityLogs.getContent().stream()
+                .filter(log -> log.getTargetId() != null && "users".equals(log.getTargetTable()))
+                .map(ActivityLog::getTargetId)
+                .collect(Collectors.toSet());
+        Map<Long, User> targetUsers = userRepository.findAllById(targetUserIds).stream()
+                .collect(Collectors.toMap(User::getUserId, u -> u));
+        
         List<AdminDashboardDTO.AdminActivityDTO> recentActivities = adminActivityLogs.getContent().stream()
                 .map(log -> {
                     // Lấy thông tin admin (user thực hiện hành động)
@@ -108,9 +116,8 @@ public class AdminService {
                     String targetUserName = null;
                     String targetUserEmail = null;
                     if (targetUserId != null && log.getTargetTable() != null && log.getTargetTable().equals("users")) {
-                        Optional<User> targetUser = userRepository.findById(targetUserId);
-                        if (targetUser.isPresent()) {
-                            User u = targetUser.get();
+                        User u = targetUsers.get(targetUserId);
+                        if (u != null) {
                             targetUserName = u.getFullName();
                             targetUserEmail = u.getEmail();
                         }
@@ -212,7 +219,7 @@ public class AdminService {
         
         // Statistics
         long surveysCount = surveyRepository.countByUser(user);
-        long responsesCount = responseRepository.findByUser(user).size();
+        long responsesCount = adminMetricsService.countUserResponses(user);
         
         // Lần đăng nhập cuối
         List<ActivityLog> loginLogs = activityLogRepository.findByUserAndActionTypeOrderByCreatedAtDesc(
@@ -381,6 +388,7 @@ public class AdminService {
         }
         
         User saved = userRepository.save(user);
+        userAuthCache.evict(saved.getEmail());
         
         return UserResponseDTO.builder()
                 .userId(saved.getUserId())
@@ -407,6 +415,7 @@ public class AdminService {
         
         user.setIsActive(isActive);
         User saved = userRepository.save(user);
+        userAuthCache.evict(saved.getEmail());
         
         // Log activity vào ActivityLog
         if (isActive) {
@@ -439,11 +448,10 @@ public class AdminService {
     }
 
     /**
-     * Xóa user
-     * Lưu ý: Phải xóa tất cả related data trước vì một số bảng không có ON DELETE CASCADE
+     * Xóa user: vô hiệu hóa và ẩn survey của user ngay, xóa dữ liệu nền theo lô (PurgeService)
      */
     @Transactional
-    public void deleteUser(Long userId) throws IdInvalidException {
+    public PurgeJobResponseDTO deleteUser(Long userId) throws IdInvalidException {
         validateAdminRole();
         
         User user = userRepository.findById(userId)
@@ -464,94 +472,11 @@ public class AdminService {
             String.format("Admin %s đã xóa tài khoản: %s", currentAdmin.getFullName(), userInfo)
         );
         
-        // BƯỚC 1: Xóa tất cả surveys của user (và tất cả data liên quan)
-        List<Survey> userSurveys = surveyRepository.findByUser(user);
-        for (Survey survey : userSurveys) {
-            // Xóa tất cả Answers trước
-            List<Response> responses = responseRepository.findBySurvey(survey);
-            for (Response response : responses) {
-                List<Answer> answers = answerRepository.findByResponse(response);
-                if (!answers.isEmpty()) {
-                    answerRepository.deleteAll(answers);
-                }
-            }
-            
-            // Xóa tất cả Responses
-            if (!responses.isEmpty()) {
-                responseRepository.deleteAll(responses);
-            }
-            
-            // Xóa tất cả Options và Questions
-            List<Question> questions = questionRepository.findBySurvey(survey);
-            for (Question question : questions) {
-                List<Option> options = optionRepository.findByQuestion(question);
-                if (!options.isEmpty()) {
-                    optionRepository.deleteAll(options);
-                }
-            }
-            if (!questions.isEmpty()) {
-                questionRepository.deleteAll(questions);
-            }
-            
-            // Xóa SurveyPermission, SurveyView, AI data
-            List<SurveyPermission> permissions = surveyPermissionRepository.findBySurvey(survey);
-            if (!permissions.isEmpty()) {
-                surveyPermissionRepository.deleteAll(permissions);
-            }
-            
-            List<SurveyView> views = surveyViewRepository.findBySurveyOrderByViewedAtDesc(survey);
-            if (!views.isEmpty()) {
-                surveyViewRepository.deleteAll(views);
-            }
-            
-            List<AiSentiment> sentiments = aiSentimentRepository.findBySurvey(survey);
-            if (!sentiments.isEmpty()) {
-                aiSentimentRepository.deleteAll(sentiments);
-            }
-            
-            List<AiAnalysis> analyses = aiAnalysisRepository.findBySurvey(survey);
-            if (!analyses.isEmpty()) {
-                aiAnalysisRepository.deleteAll(analyses);
-            }
-            
-            List<AiChatLog> chatLogs = aiChatLogRepository.findBySurvey(survey);
-            if (!chatLogs.isEmpty()) {
-                aiChatLogRepository.deleteAll(chatLogs);
-            }
-        }
-        // Xóa tất cả surveys của user
-        if (!userSurveys.isEmpty()) {
-            surveyRepository.deleteAll(userSurveys);
-        }
-        
-        // BƯỚC 2: Xóa tất cả Responses của user (nếu có)
-        List<Response> userResponses = responseRepository.findByUser(user);
-        for (Response response : userResponses) {
-            List<Answer> answers = answerRepository.findByResponse(response);
-            if (!answers.isEmpty()) {
-                answerRepository.deleteAll(answers);
-            }
-        }
-        if (!userResponses.isEmpty()) {
-            responseRepository.deleteAll(userResponses);
-        }
-        
-        // BƯỚC 3: Xóa tất cả ActivityLogs của user
-        List<ActivityLog> userActivityLogs = activityLogRepository.findByUser(user);
-        if (!userActivityLogs.isEmpty()) {
-            activityLogRepository.deleteAll(userActivityLogs);
-        }
-        
-        // BƯỚC 4: Xóa tất cả AiChatLogs của user (cho surveys của user khác nếu có)
-        List<AiChatLog> userChatLogs = aiChatLogRepository.findByUserId(userId);
-        if (!userChatLogs.isEmpty()) {
-            aiChatLogRepository.deleteAll(userChatLogs);
-        }
-        
-        // BƯỚC 5: Cuối cùng xóa user
-        // Các bảng có ON DELETE CASCADE sẽ tự động xóa:
-        // - notifications, user_profiles, team_members, team_invitations, survey_permissions (user_id)
-        userRepository.delete(user);
+        // Vô hiệu hóa ngay (JWT filter từ chối), dữ liệu được PurgeService xóa nền theo lô
+        user.setIsActive(false);
+        userRepository.save(user);
+        userAuthCache.evict(user.getEmail());
+        return purgeService.requestUserPurge(user, currentAdmin);
     }
 
     /**
@@ -576,12 +501,15 @@ public class AdminService {
             search, statusEnum, userId, categoryId, dateFrom, dateTo, pageable
         );
         
+        // Đếm response / question của cả trang (mỗi loại 1 query)
+        Map<Long, AdminMetricsService.SurveyCounts> pageCounts = adminMetricsService.getSurveyCounts(
+                surveyPage.getContent().stream().map(Survey::getSurveyId).collect(Collectors.toList()));
+        
         List<AdminSurveyPageDTO.SurveyDTO> surveyDTOs = surveyPage.getContent().stream()
                 .map(survey -> {
-                    // Count responses
-                    long responseCount = responseRepository.findBySurvey(survey).size();
-                    // Count questions
-                    long questionCount = questionRepository.countBySurvey(survey);
+                    AdminMetricsService.SurveyCounts counts = pageCounts.get(survey.getSurveyId());
+                    long responseCount = counts.responseCount();
+                    long questionCount = counts.questionCount();
                     
                     return AdminSurveyPageDTO.SurveyDTO.builder()
                             .surveyId(survey.getSurveyId())
@@ -620,9 +548,10 @@ public class AdminService {
                 .orElseThrow(() -> new IdInvalidException("Không tìm thấy survey"));
         
         // Statistics
-        long questionCount = questionRepository.countBySurvey(survey);
-        long responseCount = responseRepository.findBySurvey(survey).size();
-        long viewCount = surveyViewRepository.countBySurvey(survey);
+        AdminMetricsService.SurveyCounts counts = adminMetricsService.getSurveyCounts(surveyId);
+        long questionCount = counts.questionCount();
+        long responseCount = counts.responseCount();
+        long viewCount = counts.viewCount();
         
         return AdminSurveyDetailDTO.builder()
                 .surveyId(survey.getSurveyId())
@@ -666,6 +595,7 @@ public class AdminService {
         // Chuyển trạng thái
         survey.setStatus(newStatus);
         Survey savedSurvey = surveyRepository.save(survey);
+        surveyDefinitionCache.evict(surveyId);
         
         // Log activity
         User currentAdmin = authService.getCurrentUser();
@@ -678,9 +608,10 @@ public class AdminService {
         );
         
         // Trả về survey detail
-        long questionCount = questionRepository.countBySurvey(savedSurvey);
-        long responseCount = responseRepository.findBySurvey(savedSurvey).size();
-        long viewCount = surveyViewRepository.countBySurvey(savedSurvey);
+        AdminMetricsService.SurveyCounts counts = adminMetricsService.getSurveyCounts(surveyId);
+        long questionCount = counts.questionCount();
+        long responseCount = counts.responseCount();
+        long viewCount = counts.viewCount();
         
         return AdminSurveyDetailDTO.builder()
                 .surveyId(savedSurvey.getSurveyId())
@@ -701,10 +632,10 @@ public class AdminService {
     }
 
     /**
-     * Xóa survey (admin có quyền xóa bất kỳ survey nào)
+     * Xóa survey (admin có quyền xóa bất kỳ survey nào): ẩn ngay, xóa dữ liệu nền theo lô
      */
     @Transactional
-    public void deleteSurvey(Long surveyId) throws IdInvalidException {
+    public PurgeJobResponseDTO deleteSurvey(Long surveyId) throws IdInvalidException {
         validateAdminRole();
         
         Survey survey = surveyRepository.findById(surveyId)
@@ -713,67 +644,7 @@ public class AdminService {
         User currentAdmin = authService.getCurrentUser();
         String surveyTitle = survey.getTitle(); // Lưu title trước khi xóa để dùng trong log
         
-        // BƯỚC 1: Xóa tất cả Answers trước (tham chiếu Response và Question)
-        List<Response> responses = responseRepository.findBySurvey(survey);
-        for (Response response : responses) {
-            List<Answer> answers = answerRepository.findByResponse(response);
-            if (!answers.isEmpty()) {
-                answerRepository.deleteAll(answers);
-            }
-        }
-        
-        // BƯỚC 2: Xóa tất cả Responses (tham chiếu Survey)
-        if (!responses.isEmpty()) {
-            responseRepository.deleteAll(responses);
-        }
-        
-        // BƯỚC 3: Xóa tất cả Options và Questions
-        List<Question> questions = questionRepository.findBySurvey(survey);
-        for (Question question : questions) {
-            // Xóa tất cả options của question này
-            List<Option> options = optionRepository.findByQuestion(question);
-            if (!options.isEmpty()) {
-                optionRepository.deleteAll(options);
-            }
-        }
-        
-        // Xóa tất cả questions
-        if (!questions.isEmpty()) {
-            questionRepository.deleteAll(questions);
-        }
-        
-        // BƯỚC 4: Xóa SurveyPermission (tham chiếu Survey)
-        List<SurveyPermission> permissions = surveyPermissionRepository.findBySurvey(survey);
-        if (!permissions.isEmpty()) {
-            surveyPermissionRepository.deleteAll(permissions);
-        }
-        
-        // BƯỚC 5: Xóa SurveyView (tham chiếu Survey)
-        List<SurveyView> views = surveyViewRepository.findBySurveyOrderByViewedAtDesc(survey);
-        if (!views.isEmpty()) {
-            surveyViewRepository.deleteAll(views);
-        }
-        
-        // BƯỚC 6: Xóa AiSentiment (tham chiếu Survey)
-        List<AiSentiment> sentiments = aiSentimentRepository.findBySurvey(survey);
-        if (!sentiments.isEmpty()) {
-            aiSentimentRepository.deleteAll(sentiments);
-        }
-        
-        // BƯỚC 7: Xóa AiAnalysis (tham chiếu Survey)
-        List<AiAnalysis> analyses = aiAnalysisRepository.findBySurvey(survey);
-        if (!analyses.isEmpty()) {
-            aiAnalysisRepository.deleteAll(analyses);
-        }
-        
-        // BƯỚC 8: Xóa AiChatLogs (tham chiếu Survey)
-        List<AiChatLog> chatLogs = aiChatLogRepository.findBySurvey(survey);
-        if (!chatLogs.isEmpty()) {
-            aiChatLogRepository.deleteAll(chatLogs);
-        }
-        
-        // BƯỚC 9: Cuối cùng xóa survey
-        surveyRepository.delete(survey);
+        PurgeJobResponseDTO purgeJob = purgeService.requestSurveyPurge(survey, currentAdmin);
         
         // Log activity (sử dụng title đã lưu)
         activityLogService.log(
@@ -782,6 +653,23 @@ public class AdminService {
             "surveys",
             String.format("Admin %s đã xóa khảo sát: %s", currentAdmin.getFullName(), surveyTitle)
         );
+        return purgeJob;
+    }
+
+    /**
+     * Trạng thái job xóa survey / user
+     */
+    public PurgeJobResponseDTO getPurgeJob(Long jobId) throws IdInvalidException {
+        validateAdminRole();
+        return purgeService.getJob(jobId);
+    }
+
+    /**
+     * Chạy lại job xóa đã thất bại
+     */
+    public PurgeJobResponseDTO retryPurgeJob(Long jobId) throws IdInvalidException {
+        validateAdminRole();
+        return purgeService.retryJob(jobId);
     }
 
     /**
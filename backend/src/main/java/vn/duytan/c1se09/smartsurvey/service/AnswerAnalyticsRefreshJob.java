@@ -0,0 +1,42 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Job định kỳ nạp lại answers_analytical cho các survey chưa đồng bộ hoặc đã stale
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerAnalyticsRefreshJob {
+
+    private final AnswerAnalyticsService answerAnalyticsService;
+
+    @Value("${app.analytics.refresh-batch-size:20}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${app.analytics.refresh-initial-delay-ms:60000}",
+            fixedDelayString = "${app.analytics.refresh-interval-ms:300000}")
+    public void refreshStaleSurveys() {
+        List<Long> surveyIds = answerAnalyticsService.findSurveyIdsNeedingRefresh(batchSize);
+        if (surveyIds.isEmpty()) {
+            return;
+        }
+        int refreshed = 0;
+        for (Long surveyId : surveyIds) {
+            try {
+                answerAnalyticsService.refreshSurvey(surveyId);
+                refreshed++;
+            } catch (Exception e) {
+                log.warn("Không thể nạp lại answers_analytical cho survey {}: {}", surveyId, e.getMessage());
+            }
+        }
+        log.info("Refreshed answers_analytical for {}/{} surveys", refreshed, surveyIds.size());
+    }
+}
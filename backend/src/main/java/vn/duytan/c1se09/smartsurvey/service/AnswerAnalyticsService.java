@@ -0,0 +1,153 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerAnalyticalRepository;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerAnalyticalStateRepository;
+
+import java.util.*;
+
+/**
+ * Service quản lý read model answers_analytical.
+ * - Submit/xóa response: đồng bộ ngay trong cùng transaction
+ * - Survey chưa đồng bộ hoặc bị đánh dấu stale: AnswerAnalyticsRefreshJob nạp lại định kỳ
+ * - Tầng thống kê chỉ đọc read model khi survey đang fresh, ngược lại fallback về bảng answers
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class AnswerAnalyticsService {
+
+    private final AnswerAnalyticalRepository answerAnalyticalRepository;
+    private final AnswerAnalyticalStateRepository answerAnalyticalStateRepository;
+
+    /**
+     * Read model của survey có đang đầy đủ để đọc không
+     */
+    @Transactional(readOnly = true)
+    public boolean isFresh(Long surveyId) {
+        return answerAnalyticalStateRepository.existsBySurveyIdAndIsFreshTrue(surveyId);
+    }
+
+    /**
+     * Đồng bộ answers của response vừa submit (gọi sau khi answers đã được lưu)
+     */
+    @Transactional
+    public void onResponseSubmitted(Long responseId) {
+        answerAnalyticalRepository.insertForResponse(responseId);
+    }
+
+    /**
+     * Xóa dữ liệu analytical của các response đã bị xóa
+     */
+    @Transactional
+    public void onResponsesDeleted(Long surveyId, Collection<Long> responseIds) {
+        if (responseIds == null || responseIds.isEmpty()) {
+            return;
+        }
+        answerAnalyticalRepository.deleteByResponses(surveyId, responseIds);
+    }
+
+    /**
+     * Đánh dấu các survey cần nạp lại (dữ liệu gốc bị sửa ngoài luồng submit/xóa thông thường)
+     */
+    @Transactional
+    public void markStale(Collection<Long> surveyIds) {
+        if (surveyIds == null || surveyIds.isEmpty()) {
+            return;
+        }
+        answerAnalyticalStateRepository.markStale(surveyIds);
+    }
+
+    /**
+     * Xóa toàn bộ dữ liệu analytical khi survey bị xóa (bảng partition không có FK cascade)
+     */
+    @Transactional
+    public void purgeSurvey(Long surveyId) {
+        answerAnalyticalRepository.deleteBySurvey(surveyId);
+    }
+
+    /**
+     * Nạp lại dữ liệu analytical của survey và đánh dấu fresh
+     */
+    @Transactional
+    public void refreshSurvey(Long surveyId) {
+        long startedAt = System.currentTimeMillis();
+        answerAnalyticalRepository.refreshSurvey(surveyId);
+        answerAnalyticalStateRepository.markFresh(surveyId);
+        log.debug("Refreshed answers_analytical for survey {} in {} ms", surveyId,
+                System.currentTimeMillis() - startedAt);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findSurveyIdsNeedingRefresh(int limit) {
+        return answerAnalyticalStateRepository.findSurveyIdsNeedingRefresh(PageRequest.of(0, limit));
+    }
+
+    /**
+     * Đếm answers theo giá trị hiển thị cho các câu hỏi; trả về null nếu read model đang stale
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<String, Long>> countValuesByQuestions(Long surveyId, Collection<Long> questionIds) {
+        if (!isFresh(surveyId)) {
+            return null;
+        }
+        Map<Long, Map<String, Long>> result = new HashMap<>();
+        if (questionIds.isEmpty()) {
+            return result;
+        }
+        for (AnswerAnalyticalRepository.ValueCount row : answerAnalyticalRepository.countValuesByQuestions(surveyId,
+                questionIds)) {
+            if (row.getAnswerValue() == null) {
+                continue;
+            }
+            result.computeIfAbsent(row.getQuestionId(), k -> new HashMap<>())
+                    .merge(row.getAnswerValue(), row.getTotal().longValue(), Long::sum);
+        }
+        return result;
+    }
+
+    /**
+     * Kết quả xếp hạng có trọng số tính bằng SQL
+     */
+    @Getter
+    public static class RankingScores {
+        private final long validResponses;
+        private final Map<Long, Long> countsByOption;
+        private final Map<Long, Double> scoresByOption;
+
+        RankingScores(long validResponses, Map<Long, Long> countsByOption, Map<Long, Double> scoresByOption) {
+            this.validResponses = validResponses;
+            this.countsByOption = countsByOption;
+            this.scoresByOption = scoresByOption;
+        }
+    }
+
+    /**
+     * Tính điểm ranking từ read model; trả về null nếu stale hoặc có dữ liệu ranking kiểu cũ (không có option_id)
+     */
+    @Transactional(readOnly = true)
+    public RankingScores computeRankingScores(Long surveyId, Long questionId, int optionCount) {
+        if (!isFresh(surveyId)
+                || answerAnalyticalRepository.countRankingRowsWithoutOption(surveyId, questionId) > 0) {
+            return null;
+        }
+        long validResponses = answerAnalyticalRepository.countValidRankingResponses(surveyId, questionId,
+                optionCount);
+        Map<Long, Long> counts = new HashMap<>();
+        Map<Long, Double> scores = new HashMap<>();
+        if (validResponses > 0) {
+            for (AnswerAnalyticalRepository.OptionScore row : answerAnalyticalRepository.findRankingScores(surveyId,
+                    questionId, optionCount)) {
+                counts.put(row.getOptionId(), row.getTotal().longValue());
+                scores.put(row.getOptionId(), row.getScore().doubleValue());
+            }
+        }
+        return new RankingScores(validResponses, counts, scores);
+    }
+}
@@ -14,6 +14,8 @@ import lombok.RequiredArgsConstructor;
 import vn.duytan.c1se09.smartsurvey.domain.User;
 import vn.duytan.c1se09.smartsurvey.domain.response.auth.AuthResponseDTO;
 import vn.duytan.c1se09.smartsurvey.repository.UserRepository;
+import vn.duytan.c1se09.smartsurvey.security.CurrentUserHolder;
+import vn.duytan.c1se09.smartsurvey.security.JwtUserPrincipal;
 import vn.duytan.c1se09.smartsurvey.security.JwtUtils;
 import vn.duytan.c1se09.smartsurvey.util.constant.RoleEnum;
 import vn.duytan.c1se09.smartsurvey.domain.request.auth.LoginRequestDTO;
@@ -63,7 +65,7 @@ public class AuthService {
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         // Tạo JWT token với role
-        String jwt = jwtUtils.generateJwtToken(authentication, savedUser.getRole().name());
+        String jwt = jwtUtils.generateJwtToken(authentication, savedUser.getUserId(), savedUser.getRole().name());
 
         // Trả về response
         return new AuthResponseDTO(
@@ -115,7 +117,7 @@ public class AuthService {
         var springUser = (org.springframework.security.core.userdetails.User) userDetails;
 
         // Tạo JWT token với role
-        String jwt = jwtUtils.generateJwtToken(authentication, user.getRole().name());
+        String jwt = jwtUtils.generateJwtToken(authentication, user.getUserId(), user.getRole().name());
 
         // Trả về response
         return new AuthResponseDTO(
@@ -127,36 +129,44 @@ public class AuthService {
                 user.getIsActive());
     }
 
+    /**
+     * User hiện tại của request. Với principal dựng từ JWT, tra theo userId và giữ lại trong
+     * phạm vi request nên bảng users chỉ bị truy vấn tối đa 1 lần mỗi request.
+     */
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        System.out.println("=== getCurrentUser called ===");
-        System.out.println("Authentication: " + (authentication != null ? authentication.getName() : "null"));
-        System.out
-                .println("Is authenticated: " + (authentication != null ? authentication.isAuthenticated() : "false"));
-
         if (authentication == null || !authentication.isAuthenticated()) {
-            System.out.println("No authentication found");
             return null;
         }
 
-        String email = authentication.getName();
-        System.out.println("Email from authentication: " + email);
-        User user = userRepository.findByEmail(email).orElse(null);
-        System.out.println("User found: " + (user != null ? user.getEmail() : "null"));
-        return user;
+        if (authentication.getPrincipal() instanceof JwtUserPrincipal principal) {
+            User cached = CurrentUserHolder.get(principal.getUserId());
+            if (cached != null) {
+                return cached;
+            }
+            User user = userRepository.findById(principal.getUserId()).orElse(null);
+            CurrentUserHolder.set(user);
+            return user;
+        }
+
+        // Principal khác (vd: ngay sau login/register) -> tra theo email
+        return userRepository.findByEmail(authentication.getName()).orElse(null);
     }
 
     public boolean hasRole(RoleEnum role) {
+        // Role đã có sẵn trong principal, không cần truy vấn DB
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtUserPrincipal principal) {
+            return principal.getRole() == role;
+        }
         User currentUser = getCurrentUser();
         return currentUser != null && currentUser.getRole() == role;
     }
 
     @Transactional
     public void changePassword(ChangePasswordRequestDTO changePasswordRequest) {
-        System.out.println("=== AuthService.changePassword called ===");
         // Lấy user hiện tại
         User currentUser = getCurrentUser();
-        System.out.println("Current user: " + (currentUser != null ? currentUser.getEmail() : "null"));
         if (currentUser == null) {
             throw new BusinessException("Không tìm thấy thông tin user");
         }
@@ -1,9 +1,10 @@
 package vn.duytan.c1se09.smartsurvey.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import vn.duytan.c1se09.smartsurvey.domain.User;
-import vn.duytan.c1se09.smartsurvey.domain.Survey;
 import vn.duytan.c1se09.smartsurvey.domain.ActivityLog;
 import vn.duytan.c1se09.smartsurvey.domain.response.dashboard.UserDashboardResponseDTO;
 import vn.duytan.c1se09.smartsurvey.repository.*;
@@ -11,13 +12,21 @@ import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
 import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
 import vn.duytan.c1se09.smartsurvey.util.constant.SurveyPermissionRole;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service để tính toán dashboard overview cho user
+ * - Số query cố định (đếm gộp bằng GROUP BY / COUNT), không phụ thuộc số survey/response
+ * - Kết quả được cache ngắn hạn theo user; xóa khi user tạo/xóa survey
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 @SuppressWarnings("null")
 public class DashboardService {
 
@@ -27,7 +36,22 @@ public class DashboardService {
     private final SurveyPermissionRepository surveyPermissionRepository;
     private final ActivityLogRepository activityLogRepository;
     private final AuthService authService;
-    private final SurveyPermissionService surveyPermissionService;
+
+    @Value("${app.dashboard.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.dashboard.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private record CachedDashboard(UserDashboardResponseDTO dashboard, long loadedAtMillis) {
+    }
+
+    private final LinkedHashMap<Long, CachedDashboard> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedDashboard> eldest) {
+            return size() > maxEntries;
+        }
+    };
 
     /**
      * Lấy tổng quan dashboard cho user hiện tại
@@ -39,95 +63,103 @@ public class DashboardService {
             throw new IdInvalidException("Người dùng chưa xác thực");
         }
 
-        // 1. Đếm surveys mà user sở hữu
-        long ownedSurveys = surveyRepository.countByUser(currentUser);
-
-        // 2. Lấy danh sách surveys mà user có quyền truy cập (owned + shared)
-        var accessiblePage = surveyRepository
-                .findAccessibleSurveysByUser(currentUser, org.springframework.data.domain.Pageable.unpaged());
-        List<Survey> accessibleSurveys = accessiblePage.getContent();
-        List<Long> accessibleSurveyIds = accessibleSurveys.stream()
-                .map(Survey::getSurveyId)
-                .toList();
-
-        // 3. Đếm active surveys (published) mà user có quyền truy cập
-        long activeSurveys = accessibleSurveys.stream()
-                .filter(s -> s.getStatus() == SurveyStatusEnum.published)
-                .count();
-
-        // 3b. Chi tiết survey được share (chỉ hiển thị survey có permission, không null)
-        List<UserDashboardResponseDTO.SharedSurveyDTO> sharedDetails = accessibleSurveys.stream()
-                .filter(s -> !s.getUser().getUserId().equals(currentUser.getUserId()))
-                .map(s -> {
-                    SurveyPermissionRole permission = surveyPermissionService.getUserPermission(s, currentUser);
-                    boolean sharedDirect = surveyPermissionRepository.findBySurveyAndUser(s, currentUser).isPresent();
-                    String sharedVia = sharedDirect ? "user" : "team";
-                    return UserDashboardResponseDTO.SharedSurveyDTO.builder()
-                            .surveyId(s.getSurveyId())
-                            .title(s.getTitle())
-                            .permission(permission != null ? permission.name() : null)
-                            .sharedVia(sharedVia)
-                            .build();
-                })
-                .filter(detail -> detail.getPermission() != null) // Chỉ giữ lại survey có permission (không null)
-                .toList();
+        synchronized (cache) {
+            CachedDashboard cached = cache.get(currentUser.getUserId());
+            if (cached != null && System.currentTimeMillis() - cached.loadedAtMillis() <= ttlSeconds * 1000L) {
+                return cached.dashboard();
+            }
+        }
+
+        UserDashboardResponseDTO dashboard = buildDashboard(currentUser);
+        synchronized (cache) {
+            cache.put(currentUser.getUserId(), new CachedDashboard(dashboard, System.currentTimeMillis()));
+        }
+        return dashboard;
+    }
+
+    /**
+     * Xóa dashboard đã cache của user
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+
+    private UserDashboardResponseDTO buildDashboard(User currentUser) {
+        // 1. Surveys mà user sở hữu, đếm theo trạng thái
+        long ownedSurveys = 0;
+        long activeSurveys = 0;
+        for (Object[] row : surveyRepository.countByUserGroupByStatus(currentUser)) {
+            long count = ((Number) row[1]).longValue();
+            ownedSurveys += count;
+            if (row[0] == SurveyStatusEnum.published) {
+                activeSurveys += count;
+            }
+        }
+
+        // 2. Surveys được share trực tiếp cho user (1 dòng/survey, kèm quyền hiệu lực)
+        List<UserDashboardResponseDTO.SharedSurveyDTO> sharedDetails = new ArrayList<>();
+        for (Object[] row : surveyPermissionRepository.findSharedSurveyRows(currentUser)) {
+            // 3. Active surveys (published) tính trên mọi survey user truy cập được
+            if (row[2] == SurveyStatusEnum.published) {
+                activeSurveys++;
+            }
+            // Chi tiết survey được share: chỉ giữ survey có quyền hiệu lực
+            if (Boolean.TRUE.equals(row[4])) {
+                SurveyPermissionRole permission = (SurveyPermissionRole) row[3];
+                sharedDetails.add(UserDashboardResponseDTO.SharedSurveyDTO.builder()
+                        .surveyId((Long) row[0])
+                        .title((String) row[1])
+                        .permission(permission.name())
+                        // Chỉ còn permission trực tiếp (user_id), nên survey được share qua user
+                        .sharedVia("user")
+                        .build());
+            }
+        }
 
         // Đếm số shared surveys (chỉ tính những survey có permission, không null)
         long sharedSurveys = sharedDetails.size();
 
-        // 4. Đếm tổng số responses của tất cả surveys mà user có quyền xem
-        long totalResponses = accessibleSurveyIds.stream()
-                .mapToLong(surveyId -> {
-                    try {
-                        var survey = surveyRepository.findById(surveyId);
-                        return survey.map(s -> (long) responseRepository.findBySurvey(s).size()).orElse(0L);
-                    } catch (Exception e) {
-                        return 0L;
-                    }
-                })
-                .sum();
+        // 4. Tổng số responses của survey sở hữu + survey được share có quyền hiệu lực,
+        // cộng từ bộ đếm rollup theo survey (không quét bảng responses)
+        Set<Long> accessibleSurveyIds = new LinkedHashSet<>(surveyRepository.findIdsByUser(currentUser));
+        sharedDetails.forEach(shared -> accessibleSurveyIds.add(shared.getSurveyId()));
+        long totalResponses = 0;
+        if (!accessibleSurveyIds.isEmpty()) {
+            for (Object[] row : responseRepository.countBySurveyIds(accessibleSurveyIds)) {
+                totalResponses += ((Number) row[1]).longValue();
+            }
+        }
 
         // 5. Đếm teams mà user là owner hoặc member
-        long totalTeams = teamRepository.findTeamsByOwnerOrMember(currentUser, currentUser).size();
+        long totalTeams = teamRepository.countTeamsByOwnerOrMember(currentUser);
 
         // 6. Lấy recent activity (10 hoạt động gần nhất)
         // Xử lý exception khi load activities (có thể có action_type không hợp lệ trong DB)
-        System.out.println("Getting recent activities...");
-        List<UserDashboardResponseDTO.ActivityDTO> activityDTOs = new java.util.ArrayList<>();
+        List<UserDashboardResponseDTO.ActivityDTO> activityDTOs = new ArrayList<>();
         try {
-            List<ActivityLog> recentActivities = activityLogRepository
-                    .findByUserOrderByCreatedAtDesc(currentUser)
-                    .stream()
-                    .limit(10)
-                    .toList();
+            List<ActivityLog> recentActivities = activityLogRepository.findTop10ByUserOrderByCreatedAtDesc(currentUser);
             
             activityDTOs = recentActivities.stream()
                     .filter(activity -> activity != null && activity.getActionType() != null)
-                    .map(activity -> {
-                        try {
-                            return UserDashboardResponseDTO.ActivityDTO.builder()
-                                    .actionType(activity.getActionType().name())
-                                    .description(activity.getDescription())
-                                    .targetId(activity.getTargetId())
-                                    .targetTable(activity.getTargetTable())
-                                    .createdAt(activity.getCreatedAt())
-                                    .build();
-                        } catch (Exception e) {
-                            System.out.println("ERROR mapping activity: " + e.getMessage());
-                            return null;
-                        }
-                    })
-                    .filter(dto -> dto != null)
+                    .map(activity -> UserDashboardResponseDTO.ActivityDTO.builder()
+                            .actionType(activity.getActionType().name())
+                            .description(activity.getDescription())
+                            .targetId(activity.getTargetId())
+                            .targetTable(activity.getTargetTable())
+                            .createdAt(activity.getCreatedAt())
+                            .build())
                     .toList();
         } catch (Exception e) {
-            System.out.println("ERROR loading activities: " + e.getMessage());
-            System.out.println("Exception type: " + e.getClass().getName());
+            log.warn("Không thể tải hoạt động gần đây của user {}: {}", currentUser.getUserId(), e.getMessage());
             // Nếu có lỗi khi load activities, trả về danh sách rỗng thay vì fail toàn bộ request
-            activityDTOs = new java.util.ArrayList<>();
+            activityDTOs = new ArrayList<>();
         }
-        System.out.println("Recent activities count: " + activityDTOs.size());
 
-        System.out.println("Building response DTO...");
         return UserDashboardResponseDTO.builder()
                 .ownedSurveys(ownedSurveys)
                 .sharedSurveys(sharedSurveys)
@@ -140,4 +172,3 @@ public class DashboardService {
                 .build();
     }
 }
-
@@ -0,0 +1,27 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Job định kỳ xóa file export đã hết hạn (TTL) và đóng các export job bị gián đoạn
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExportJobCleanupJob {
+
+    private final ExportJobService exportJobService;
+
+    @Scheduled(initialDelayString = "${app.export.cleanup-initial-delay-ms:60000}",
+            fixedDelayString = "${app.export.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        try {
+            exportJobService.cleanupJobs();
+        } catch (Exception e) {
+            log.warn("Dọn export job thất bại: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.duytan.c1se09.smartsurvey.domain.ExportJob;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.domain.request.response.ResponseFilterRequestDTO;
+import vn.duytan.c1se09.smartsurvey.domain.response.export.ExportJobResponseDTO;
+import vn.duytan.c1se09.smartsurvey.repository.ExportJobRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.util.error.BusinessException;
+import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Service quản lý export chạy nền: nhận yêu cầu, gộp các yêu cầu giống nhau đang chạy,
+ * thực thi trên pool worker giới hạn và ghi file kết quả vào {app.upload.dir}/exports
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class ExportJobService {
+
+    private final ExportJobRepository exportJobRepository;
+    private final SurveyRepository surveyRepository;
+    private final AuthService authService;
+    private final SurveyPermissionService surveyPermissionService;
+    private final ResponseService responseService;
+    private final PdfReportCacheService pdfReportCacheService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.export.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${app.export.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${app.export.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${app.export.stuck-timeout-minutes:60}")
+    private long stuckTimeoutMinutes;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Nội dung export được ghi vào output stream; progress nhận phần trăm 0..100
+     */
+    @FunctionalInterface
+    private interface ExportTask {
+        void write(OutputStream out, IntConsumer progress) throws Exception;
+    }
+
+    /**
+     * File kết quả của một job đã hoàn thành
+     */
+    @Getter
+    public static class ExportArtifact {
+        private final Path path;
+        private final String fileName;
+        private final String contentType;
+
+        private ExportArtifact(Path path, String fileName, String contentType) {
+            this.path = path;
+            this.fileName = fileName;
+            this.contentType = contentType;
+        }
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        AtomicInteger threadSeq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "export-worker-" + threadSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tạo job export responses (csv/xlsx) theo bộ lọc
+     */
+    public ExportJobResponseDTO submitResponsesExport(Long surveyId, ResponseFilterRequestDTO filter, String format,
+            boolean includeAnswers) throws IdInvalidException {
+        User currentUser = authService.getCurrentUser();
+        Survey survey = findSurveyForExport(surveyId, currentUser);
+
+        ExportJob.Format jobFormat = "xlsx".equalsIgnoreCase(format) ? ExportJob.Format.xlsx : ExportJob.Format.csv;
+        ResponseFilterRequestDTO jobFilter = filter != null ? filter : new ResponseFilterRequestDTO();
+        String hash = requestHash(String.valueOf(surveyId), jobFormat.name(), String.valueOf(includeAnswers),
+                String.valueOf(jobFilter.getFrom()), String.valueOf(jobFilter.getTo()), String.valueOf(jobFilter.getUserId()),
+                normalize(jobFilter.getRequestToken()), normalize(jobFilter.getSearch()),
+                normalize(jobFilter.getCompletionStatus()));
+
+        return submit(survey, currentUser, jobFormat, includeAnswers, hash,
+                (out, progress) -> responseService.exportResponses(surveyId, jobFilter, jobFormat.name(), includeAnswers,
+                        out, progress));
+    }
+
+    /**
+     * Tạo job xuất báo cáo PDF của survey
+     */
+    public ExportJobResponseDTO submitReportPdfExport(Long surveyId) throws IdInvalidException {
+        User currentUser = authService.getCurrentUser();
+        Survey survey = findSurveyForExport(surveyId, currentUser);
+        String hash = requestHash(String.valueOf(surveyId), ExportJob.Format.pdf.name());
+
+        return submit(survey, currentUser, ExportJob.Format.pdf, false, hash, (out, progress) -> {
+            // Giữ session Hibernate mở trong suốt quá trình dựng báo cáo (worker không có open-in-view)
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            byte[] pdf = transactionTemplate.execute(status -> {
+                try {
+                    return pdfReportCacheService.getSurveyReportPdf(surveyId);
+                } catch (IdInvalidException e) {
+                    throw new BusinessException(e.getMessage(), e);
+                }
+            });
+            out.write(pdf);
+        });
+    }
+
+    /**
+     * Trạng thái và tiến độ của job
+     */
+    public ExportJobResponseDTO getJob(Long surveyId, Long jobId) throws IdInvalidException {
+        return toDTO(findJob(surveyId, jobId), surveyId);
+    }
+
+    /**
+     * File kết quả của job đã hoàn thành
+     */
+    public ExportArtifact getArtifact(Long surveyId, Long jobId) throws IdInvalidException {
+        ExportJob job = findJob(surveyId, jobId);
+        if (job.getStatus() == ExportJob.Status.expired) {
+            throw new IdInvalidException("File export đã hết hạn, vui lòng tạo yêu cầu export mới");
+        }
+        if (job.getStatus() != ExportJob.Status.completed || job.getFilePath() == null) {
+            throw new IdInvalidException("Job export chưa hoàn thành");
+        }
+        Path path = Paths.get(job.getFilePath());
+        if (!Files.exists(path)) {
+            throw new IdInvalidException("Không tìm thấy file export");
+        }
+        return new ExportArtifact(path, job.getFileName(), contentType(job.getFormat()));
+    }
+
+    /**
+     * Xóa file của các job đã hết hạn và đánh dấu failed các job bị gián đoạn (vd. pod restart)
+     */
+    public void cleanupJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ExportJob> expired = exportJobRepository.findByStatusAndExpiresAtBefore(ExportJob.Status.completed, now);
+        for (ExportJob job : expired) {
+            deleteQuietly(job.getFilePath());
+            job.setStatus(ExportJob.Status.expired);
+            job.setFilePath(null);
+            exportJobRepository.save(job);
+        }
+
+        List<ExportJob> stuck = exportJobRepository.findByStatusInAndUpdatedAtBefore(
+                List.of(ExportJob.Status.pending, ExportJob.Status.running), now.minusMinutes(stuckTimeoutMinutes));
+        for (ExportJob job : stuck) {
+            job.setStatus(ExportJob.Status.failed);
+            job.setActiveHash(null);
+            job.setErrorMessage("Job export bị gián đoạn, vui lòng thử lại");
+            job.setCompletedAt(now);
+            exportJobRepository.save(job);
+        }
+
+        if (!expired.isEmpty() || !stuck.isEmpty()) {
+            log.info("Export job cleanup: {} expired, {} interrupted", expired.size(), stuck.size());
+        }
+    }
+
+    private ExportJobResponseDTO submit(Survey survey, User currentUser, ExportJob.Format format, boolean includeAnswers,
+            String hash, ExportTask task) {
+        // Gộp với job giống hệt đang pending/running
+        Optional<ExportJob> inFlight = exportJobRepository.findByActiveHash(hash);
+        if (inFlight.isPresent()) {
+            return toDTO(inFlight.get(), survey.getSurveyId());
+        }
+
+        ExportJob job = new ExportJob();
+        job.setSurvey(survey);
+        job.setRequestedBy(currentUser);
+        job.setFormat(format);
+        job.setIncludeAnswers(includeAnswers);
+        job.setRequestHash(hash);
+        job.setActiveHash(hash);
+        try {
+            job = exportJobRepository.saveAndFlush(job);
+        } catch (DataIntegrityViolationException e) {
+            // Request khác vừa tạo job cùng yêu cầu (UNIQUE active_hash)
+            return exportJobRepository.findByActiveHash(hash)
+                    .map(existing -> toDTO(existing, survey.getSurveyId()))
+                    .orElseThrow(() -> e);
+        }
+
+        Long jobId = job.getJobId();
+        Long surveyId = survey.getSurveyId();
+        // Worker chạy với quyền của người tạo job
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        try {
+            executor.execute(new DelegatingSecurityContextRunnable(() -> runJob(jobId, surveyId, task), context));
+        } catch (RejectedExecutionException e) {
+            markFailed(jobId, "Hàng đợi export đang đầy");
+            throw new BusinessException("Hệ thống đang xử lý quá nhiều yêu cầu export, vui lòng thử lại sau");
+        }
+        return toDTO(job, surveyId);
+    }
+
+    private void runJob(Long jobId, Long surveyId, ExportTask task) {
+        ExportJob job = exportJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != ExportJob.Status.pending) {
+            return;
+        }
+        job.setStatus(ExportJob.Status.running);
+        job.setStartedAt(LocalDateTime.now());
+        job = exportJobRepository.save(job);
+
+        String extension = job.getFormat().name();
+        Path dir = Paths.get(uploadDir, "exports");
+        Path target = dir.resolve("job_" + jobId + "." + extension);
+        Path partial = dir.resolve("job_" + jobId + "." + extension + ".part");
+        try {
+            Files.createDirectories(dir);
+            AtomicInteger lastProgress = new AtomicInteger();
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                task.write(out, percent -> {
+                    // Chỉ ghi DB khi tiến độ thay đổi
+                    if (percent > lastProgress.get()) {
+                        lastProgress.set(percent);
+                        exportJobRepository.updateProgress(jobId, percent);
+                    }
+                });
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+
+            LocalDateTime now = LocalDateTime.now();
+            String timestamp = now.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            String prefix = job.getFormat() == ExportJob.Format.pdf ? "survey_report_" : "responses_";
+            job.setStatus(ExportJob.Status.completed);
+            job.setProgress(100);
+            job.setFilePath(target.toString());
+            job.setFileName(prefix + surveyId + "_" + timestamp + "." + extension);
+            job.setFileSize(Files.size(target));
+            job.setCompletedAt(now);
+            job.setExpiresAt(now.plusMinutes(ttlMinutes));
+            job.setActiveHash(null);
+            exportJobRepository.save(job);
+            log.info("Export job {} ({}) for survey {} completed", jobId, extension, surveyId);
+        } catch (Exception e) {
+            log.warn("Export job {} for survey {} failed: {}", jobId, surveyId, e.getMessage());
+            deleteQuietly(partial.toString());
+            markFailed(jobId, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private void markFailed(Long jobId, String message) {
+        exportJobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(ExportJob.Status.failed);
+            job.setActiveHash(null);
+            job.setErrorMessage(message);
+            job.setCompletedAt(LocalDateTime.now());
+            exportJobRepository.save(job);
+        });
+    }
+
+    private Survey findSurveyForExport(Long surveyId, User currentUser) throws IdInvalidException {
+        Survey survey = surveyRepository.findById(surveyId)
+                .orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
+        if (!surveyPermissionService.canViewResults(survey, currentUser)) {
+            throw new IdInvalidException("Bạn không có quyền export dữ liệu của khảo sát này");
+        }
+        return survey;
+    }
+
+    private ExportJob findJob(Long surveyId, Long jobId) throws IdInvalidException {
+        findSurveyForExport(surveyId, authService.getCurrentUser());
+        return exportJobRepository.findByJobIdAndSurvey_SurveyId(jobId, surveyId)
+                .orElseThrow(() -> new IdInvalidException("Không tìm thấy job export"));
+    }
+
+    private ExportJobResponseDTO toDTO(ExportJob job, Long surveyId) {
+        return ExportJobResponseDTO.builder()
+                .jobId(job.getJobId())
+                .surveyId(surveyId)
+                .format(job.getFormat().name())
+                .status(job.getStatus().name())
+                .progress(job.getProgress())
+                .fileName(job.getFileName())
+                .fileSize(job.getFileSize())
+                .errorMessage(job.getErrorMessage())
+                .downloadUrl(job.getStatus() == ExportJob.Status.completed
+                        ? "/api/surveys/" + surveyId + "/exports/" + job.getJobId() + "/download"
+                        : null)
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .expiresAt(job.getExpiresAt())
+                .build();
+    }
+
+    private String contentType(ExportJob.Format format) {
+        switch (format) {
+            case xlsx:
+                return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+            case pdf:
+                return "application/pdf";
+            default:
+                return "text/csv; charset=UTF-8";
+        }
+    }
+
+    private String requestHash(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.join("|", parts).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    private String normalize(String value) {
+        return value != null && !value.isBlank() ? value.trim() : "";
+    }
+
+    private void deleteQuietly(String path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(path));
+        } catch (Exception e) {
+            log.warn("Không thể xóa file export {}: {}", path, e.getMessage());
+        }
+    }
+}
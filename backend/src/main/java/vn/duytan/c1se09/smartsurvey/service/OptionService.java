@@ -26,6 +26,8 @@ public class OptionService {
     private final AuthService authService;
     private final ActivityLogService activityLogService;
     private final SurveyPermissionService surveyPermissionService;
+    private final SurveyDefinitionCache surveyDefinitionCache;
+    private final PdfReportCacheService pdfReportCacheService;
 
     public Option getOptionEntityById(Long optionId) throws IdInvalidException {
         return optionRepository.findById(optionId)
@@ -95,6 +97,8 @@ public class OptionService {
        
 
         Option saved = optionRepository.save(option);
+        surveyDefinitionCache.evict(question.getSurvey().getSurveyId());
+        pdfReportCacheService.evict(question.getSurvey().getSurveyId());
 
         activityLogService.log(
                 ActivityLog.ActionType.add_option,
@@ -167,6 +171,8 @@ public class OptionService {
       
 
         Option saved = optionRepository.save(option);
+        surveyDefinitionCache.evict(option.getQuestion().getSurvey().getSurveyId());
+        pdfReportCacheService.evict(option.getQuestion().getSurvey().getSurveyId());
 
         activityLogService.log(
                 ActivityLog.ActionType.edit_option,
@@ -209,6 +215,8 @@ public class OptionService {
         validateEditPermission(option.getQuestion());
 
         optionRepository.delete(option);
+        surveyDefinitionCache.evict(option.getQuestion().getSurvey().getSurveyId());
+        pdfReportCacheService.evict(option.getQuestion().getSurvey().getSurveyId());
 
         activityLogService.log(
                 ActivityLog.ActionType.delete_option,
@@ -0,0 +1,256 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.SurveyStatsRollup;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyStatsRollupRepository;
+import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache báo cáo PDF theo (survey, phiên bản dữ liệu).
+ * - Phiên bản dữ liệu lấy từ rollup thống kê (số response + thời điểm cập nhật) và thời điểm sửa survey,
+ *   nên response mới/bị xóa tự động làm entry cũ không còn khớp
+ * - Sửa câu hỏi / option không đổi phiên bản dữ liệu nên QuestionService / OptionService gọi evict
+ * - Bộ nhớ: LRU giới hạn theo tổng số byte; mỗi survey chỉ giữ phiên bản mới nhất
+ * - Đĩa (tùy chọn): {app.upload.dir}/report-cache, dùng khi entry đã bị đẩy khỏi bộ nhớ hoặc sau khi restart
+ * - Cache hit không gọi StatisticsService
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class PdfReportCacheService {
+
+    private final SurveyRepository surveyRepository;
+    private final SurveyStatsRollupRepository surveyStatsRollupRepository;
+    private final AuthService authService;
+    private final SurveyPermissionService surveyPermissionService;
+    private final StatisticsService statisticsService;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.report.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.report.cache.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${app.report.cache.disk-enabled:false}")
+    private boolean diskEnabled;
+
+    private static final class CachedReport {
+        private final String version;
+        private final byte[] pdf;
+        private final long createdAtMillis;
+
+        private CachedReport(String version, byte[] pdf, long createdAtMillis) {
+            this.version = version;
+            this.pdf = pdf;
+            this.createdAtMillis = createdAtMillis;
+        }
+    }
+
+    /**
+     * surveyId -> báo cáo của phiên bản mới nhất, theo thứ tự truy cập (LRU)
+     */
+    private final LinkedHashMap<Long, CachedReport> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    /**
+     * Báo cáo PDF của survey; dựng mới qua StatisticsService khi chưa có trong cache
+     */
+    public byte[] getSurveyReportPdf(Long surveyId) throws IdInvalidException {
+        Survey survey = surveyRepository.findById(surveyId)
+                .orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
+
+        // Quyền được kiểm tra ở mọi lần tải, kể cả khi báo cáo đã có trong cache
+        User currentUser = authService.getCurrentUser();
+        if (!surveyPermissionService.canViewResults(survey, currentUser)) {
+            throw new IdInvalidException("Bạn không có quyền xem thống kê khảo sát này. Chỉ chủ sở hữu (OWNER) và phân tích viên (ANALYST) mới có quyền xem báo cáo.");
+        }
+
+        String version = dataVersion(survey);
+        if (version != null) {
+            byte[] cached = lookup(surveyId, version);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        byte[] pdf = statisticsService.exportSurveyReportPDF(surveyId);
+
+        // Rollup có thể vừa được dựng lại trong lúc tạo báo cáo; đọc lại phiên bản trước khi lưu.
+        // Nếu dữ liệu thay đổi trong lúc dựng thì không lưu để tránh gắn báo cáo cũ với phiên bản mới.
+        String versionAfter = dataVersion(survey);
+        if (versionAfter != null && (version == null || version.equals(versionAfter))) {
+            store(surveyId, versionAfter, pdf);
+        }
+        return pdf;
+    }
+
+    /**
+     * Bỏ báo cáo đã cache của survey (gọi khi có response mới / bị xóa, hoặc câu hỏi / option thay đổi).
+     * Bỏ thêm lần nữa sau khi transaction kết thúc để báo cáo dựng từ dữ liệu cũ trong lúc chờ commit không ở lại cache
+     */
+    public void evict(Long surveyId) {
+        remove(surveyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(surveyId);
+                }
+            });
+        }
+    }
+
+    private void remove(Long surveyId) {
+        synchronized (memory) {
+            CachedReport removed = memory.remove(surveyId);
+            if (removed != null) {
+                memoryBytes -= removed.pdf.length;
+            }
+        }
+        if (diskEnabled) {
+            deleteDiskEntries(surveyId);
+        }
+    }
+
+    /**
+     * Phiên bản dữ liệu của survey; null nếu rollup chưa được dựng (khi đó không dùng cache)
+     */
+    private String dataVersion(Survey survey) {
+        SurveyStatsRollup rollup = surveyStatsRollupRepository.findById(survey.getSurveyId())
+                .filter(r -> Boolean.TRUE.equals(r.getInitialized()))
+                .orElse(null);
+        if (rollup == null) {
+            return null;
+        }
+        return rollup.getResponseCount() + "-" + epochMillis(rollup.getUpdatedAt()) + "-" + epochMillis(survey.getUpdatedAt());
+    }
+
+    private byte[] lookup(Long surveyId, String version) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            CachedReport entry = memory.get(surveyId);
+            if (entry != null) {
+                if (entry.version.equals(version) && !isExpired(entry.createdAtMillis, now)) {
+                    return entry.pdf;
+                }
+                memory.remove(surveyId);
+                memoryBytes -= entry.pdf.length;
+            }
+        }
+        if (!diskEnabled) {
+            return null;
+        }
+
+        Path file = diskPath(surveyId, version);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            if (isExpired(Files.getLastModifiedTime(file).toMillis(), now)) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            byte[] pdf = Files.readAllBytes(file);
+            putInMemory(surveyId, new CachedReport(version, pdf, Files.getLastModifiedTime(file).toMillis()));
+            return pdf;
+        } catch (IOException e) {
+            log.warn("Could not read cached report {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(Long surveyId, String version, byte[] pdf) {
+        putInMemory(surveyId, new CachedReport(version, pdf, System.currentTimeMillis()));
+        if (!diskEnabled) {
+            return;
+        }
+        try {
+            deleteDiskEntries(surveyId);
+            Path file = diskPath(surveyId, version);
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".part");
+            Files.write(tmp, pdf);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write cached report for survey {}: {}", surveyId, e.getMessage());
+        }
+    }
+
+    private void putInMemory(Long surveyId, CachedReport entry) {
+        if (entry.pdf.length > maxBytes) {
+            return;
+        }
+        synchronized (memory) {
+            CachedReport previous = memory.put(surveyId, entry);
+            if (previous != null) {
+                memoryBytes -= previous.pdf.length;
+            }
+            memoryBytes += entry.pdf.length;
+
+            // Đẩy các báo cáo ít dùng nhất ra cho đến khi về dưới giới hạn
+            Iterator<Map.Entry<Long, CachedReport>> it = memory.entrySet().iterator();
+            while (memoryBytes > maxBytes && it.hasNext()) {
+                Map.Entry<Long, CachedReport> eldest = it.next();
+                if (eldest.getKey().equals(surveyId)) {
+                    continue;
+                }
+                memoryBytes -= eldest.getValue().pdf.length;
+                it.remove();
+            }
+        }
+    }
+
+    private boolean isExpired(long createdAtMillis, long now) {
+        return ttlMinutes > 0 && now - createdAtMillis > ttlMinutes * 60_000L;
+    }
+
+    private Path diskDir() {
+        return Paths.get(uploadDir, "report-cache");
+    }
+
+    private Path diskPath(Long surveyId, String version) {
+        return diskDir().resolve("survey_" + surveyId + "_" + version + ".pdf");
+    }
+
+    private void deleteDiskEntries(Long surveyId) {
+        Path dir = diskDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "survey_" + surveyId + "_*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not clear cached reports for survey {}: {}", surveyId, e.getMessage());
+        }
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+    }
+}
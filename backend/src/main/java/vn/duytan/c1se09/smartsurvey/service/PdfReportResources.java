@@ -0,0 +1,216 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Tài nguyên dùng chung cho việc dựng báo cáo PDF:
+ * font program được nạp 1 lần, PNG của biểu đồ được vẽ song song trên pool giới hạn
+ */
+@Component
+@Slf4j
+public class PdfReportResources {
+
+    static {
+        // Phải đặt trước khi AWT khởi tạo (server không có display)
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    @Value("${app.report.chart-threads:4}")
+    private int chartThreads;
+
+    @Value("${app.report.chart-timeout-seconds:30}")
+    private long chartTimeoutSeconds;
+
+    private FontProgram regularFontProgram;
+    private FontProgram boldFontProgram;
+    private ThreadPoolExecutor chartExecutor;
+
+    /**
+     * Thread của pool vẽ biểu đồ, giữ ảnh nền tái sử dụng (các biểu đồ trong báo cáo cùng kích thước).
+     * Ảnh gắn với thread của pool chứ không dùng ThreadLocal: với CallerRunsPolicy biểu đồ có thể được vẽ
+     * trên thread Tomcat, ảnh đó không được giữ lại sau khi vẽ xong
+     */
+    private static final class ChartThread extends Thread {
+        private java.awt.image.BufferedImage canvas;
+
+        private ChartThread(Runnable task, String name) {
+            super(task, name);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        // Không dùng file cache tạm của ImageIO khi ghi PNG vào bộ nhớ
+        javax.imageio.ImageIO.setUseCache(false);
+        loadFontPrograms();
+
+        AtomicInteger threadSeq = new AtomicInteger();
+        chartExecutor = new ThreadPoolExecutor(chartThreads, chartThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256),
+                r -> {
+                    Thread t = new ChartThread(r, "report-chart-" + threadSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                // Khi pool quá tải thì thread gọi tự vẽ, không bỏ biểu đồ
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        chartExecutor.shutdownNow();
+    }
+
+    /**
+     * Font thường cho một PdfDocument mới (PdfFont gắn với từng document nên không dùng chung)
+     */
+    public PdfFont createRegularFont() throws IOException {
+        if (regularFontProgram != null) {
+            return PdfFontFactory.createFont(regularFontProgram, PdfEncodings.IDENTITY_H);
+        }
+        return PdfFontFactory.createFont(StandardFonts.HELVETICA);
+    }
+
+    /**
+     * Font đậm cho một PdfDocument mới
+     */
+    public PdfFont createBoldFont() throws IOException {
+        if (boldFontProgram != null) {
+            return PdfFontFactory.createFont(boldFontProgram, PdfEncodings.IDENTITY_H);
+        }
+        if (regularFontProgram != null) {
+            // Dùng font thường nếu không có bold
+            return PdfFontFactory.createFont(regularFontProgram, PdfEncodings.IDENTITY_H);
+        }
+        return PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+    }
+
+    /**
+     * Vẽ JFreeChart thành PNG, dùng lại BufferedImage nếu đang chạy trên thread của pool vẽ biểu đồ
+     */
+    public byte[] renderPng(org.jfree.chart.JFreeChart chart, int width, int height) throws IOException {
+        ChartThread chartThread = Thread.currentThread() instanceof ChartThread t ? t : null;
+        java.awt.image.BufferedImage image = chartThread != null ? chartThread.canvas : null;
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new java.awt.image.BufferedImage(width, height, java.awt.image.BufferedImage.TYPE_INT_RGB);
+            if (chartThread != null) {
+                chartThread.canvas = image;
+            }
+        }
+        java.awt.Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setColor(java.awt.Color.WHITE);
+            g2.fillRect(0, 0, width, height);
+            // Set rendering hints để có chất lượng tốt hơn
+            g2.setRenderingHint(java.awt.RenderingHints.KEY_ANTIALIASING,
+                    java.awt.RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(java.awt.RenderingHints.KEY_TEXT_ANTIALIASING,
+                    java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            chart.draw(g2, new java.awt.geom.Rectangle2D.Double(0, 0, width, height));
+        } finally {
+            g2.dispose();
+        }
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream(64 * 1024);
+        javax.imageio.ImageIO.write(image, "PNG", baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Vẽ song song các biểu đồ; key được so sánh theo identity.
+     * Biểu đồ lỗi hoặc quá thời gian sẽ có giá trị null (bị bỏ qua trong báo cáo như trước).
+     */
+    public <K> Map<K, byte[]> renderAll(Map<K, Supplier<byte[]>> tasks) {
+        Map<K, Future<byte[]>> futures = new IdentityHashMap<>();
+        for (Map.Entry<K, Supplier<byte[]>> entry : tasks.entrySet()) {
+            Supplier<byte[]> task = entry.getValue();
+            futures.put(entry.getKey(), chartExecutor.submit(task::get));
+        }
+
+        Map<K, byte[]> images = new IdentityHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(chartTimeoutSeconds);
+        List<K> failed = new ArrayList<>();
+        for (Map.Entry<K, Future<byte[]>> entry : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                images.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                failed.add(entry.getKey());
+            } catch (ExecutionException | TimeoutException e) {
+                entry.getValue().cancel(true);
+                failed.add(entry.getKey());
+            }
+        }
+        if (!failed.isEmpty()) {
+            log.warn("{}/{} report charts could not be rendered", failed.size(), tasks.size());
+        }
+        return images;
+    }
+
+    private void loadFontPrograms() {
+        // Ưu tiên sử dụng Arial (hỗ trợ tiếng Việt tốt), Linux dùng DejaVu Sans
+        String osName = System.getProperty("os.name", "").toLowerCase();
+        String regularPath;
+        String boldPath;
+        if (osName.contains("win")) {
+            regularPath = "C:/Windows/Fonts/arial.ttf";
+            boldPath = "C:/Windows/Fonts/arialbd.ttf";
+        } else if (osName.contains("mac")) {
+            regularPath = "/System/Library/Fonts/Supplemental/Arial.ttf";
+            boldPath = "/System/Library/Fonts/Supplemental/Arial Bold.ttf";
+        } else {
+            regularPath = "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf";
+            boldPath = "/usr/share/fonts/truetype/dejavu/DejaVuSans-Bold.ttf";
+        }
+
+        regularFontProgram = loadFontProgram(regularPath);
+        if (regularFontProgram != null) {
+            boldFontProgram = loadFontProgram(boldPath);
+        } else {
+            log.warn("No Unicode font found, using StandardFonts (may lose Vietnamese characters)");
+        }
+    }
+
+    private FontProgram loadFontProgram(String path) {
+        try {
+            Path fontPath = Paths.get(path);
+            if (!Files.exists(fontPath)) {
+                return null;
+            }
+            FontProgram program = FontProgramFactory.createFont(Files.readAllBytes(fontPath));
+            log.info("Loaded report font from: {}", path);
+            return program;
+        } catch (Exception e) {
+            log.warn("Could not load font {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Job định kỳ chạy lại các purge job còn pending hoặc bị gián đoạn (vd. pod restart giữa chừng)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PurgeJobResumeJob {
+
+    private final PurgeService purgeService;
+
+    @Scheduled(initialDelayString = "${app.purge.resume-initial-delay-ms:30000}",
+            fixedDelayString = "${app.purge.resume-interval-ms:60000}")
+    public void resume() {
+        try {
+            purgeService.resumeJobs();
+        } catch (Exception e) {
+            log.warn("Không thể chạy lại purge job: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.duytan.c1se09.smartsurvey.domain.PurgeJob;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.domain.response.purge.PurgeJobResponseDTO;
+import vn.duytan.c1se09.smartsurvey.repository.PurgeBatchRepository;
+import vn.duytan.c1se09.smartsurvey.repository.PurgeBatchRepository.ResponseRef;
+import vn.duytan.c1se09.smartsurvey.repository.PurgeJobRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.RoleEnum;
+import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Xóa survey / user chạy nền bằng các câu DELETE theo lô, theo thứ tự phụ thuộc khóa ngoại.
+ * - Yêu cầu xóa: đánh dấu survey (ẩn ngay khỏi mọi truy vấn JPA), tạo purge job rồi trả về
+ * - Worker xóa từng lô chunk-size dòng, mỗi lô một transaction ngắn (O(số lô) round trip thay vì O(số dòng))
+ * - Tiến độ (bước hiện tại, số dòng đã xóa, %) ghi vào purge_jobs sau mỗi lô
+ * - Mọi bước đều idempotent: job bị gián đoạn được PurgeJobResumeJob đưa về pending và chạy lại từ đầu
+ * - Job lỗi được tự thử lại tối đa max-attempts lần với thời gian chờ tăng dần; hết lượt thì admin thử lại thủ công
+ *   (survey đã bị ẩn khỏi JPA nên không thể yêu cầu xóa lại qua deleteSurvey)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class PurgeService {
+
+    /**
+     * Bảng con xóa theo survey_id sau responses / options / questions
+     */
+    private static final List<String> SURVEY_CHILD_STEPS = List.of(
+            "survey_views", "survey_permissions", "ai_sentiment", "ai_analysis", "ai_chat_logs",
+            "answers_analytical", "ai_embed");
+
+    /**
+     * responses + options + questions + bảng con + dòng survey
+     */
+    private static final int STEPS_PER_SURVEY = 3 + SURVEY_CHILD_STEPS.size() + 1;
+
+    /**
+     * responses của user + activity_log + ai_chat_logs + dòng user
+     */
+    private static final int USER_OWN_STEPS = 4;
+
+    private final PurgeJobRepository purgeJobRepository;
+    private final PurgeBatchRepository purgeBatchRepository;
+    private final AuthService authService;
+    private final SurveyStatsRollupService surveyStatsRollupService;
+    private final AnswerAnalyticsService answerAnalyticsService;
+    private final SurveyDefinitionCache surveyDefinitionCache;
+    private final SurveyPermissionCache surveyPermissionCache;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.purge.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.purge.stuck-timeout-minutes:10}")
+    private long stuckTimeoutMinutes;
+
+    @Value("${app.purge.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.purge.retry-base-delay-seconds:60}")
+    private long retryBaseDelaySeconds;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Một lần DELETE theo lô; trả về số dòng của tập bị giới hạn (để biết còn lô tiếp theo hay không)
+     */
+    @FunctionalInterface
+    private interface ChunkDelete {
+        int deleteChunk(int limit);
+    }
+
+    /**
+     * Tiến độ của job đang chạy
+     */
+    private class JobProgress {
+        private final Long jobId;
+        private final int totalSteps;
+        private int completedSteps;
+        private long rowsDeleted;
+        private String step;
+
+        JobProgress(Long jobId, int totalSteps) {
+            this.jobId = jobId;
+            this.totalSteps = Math.max(totalSteps, 1);
+        }
+
+        void add(long rows) {
+            rowsDeleted += rows;
+        }
+
+        void report() {
+            int percent = Math.min(99, completedSteps * 100 / totalSteps);
+            purgeJobRepository.updateProgress(jobId, step, percent, rowsDeleted);
+        }
+    }
+
+    @PostConstruct
+    void startWorker() {
+        // Một worker: các job xóa chạy tuần tự để không tranh khóa với nhau
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "purge-worker");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stopWorker() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ẩn survey và tạo job xóa; gọi trong transaction của request (job chạy sau khi commit)
+     */
+    public PurgeJobResponseDTO requestSurveyPurge(Survey survey, User requestedBy) {
+        Long surveyId = survey.getSurveyId();
+        purgeBatchRepository.markSurveyPurgeRequested(surveyId);
+        surveyDefinitionCache.evict(surveyId);
+        surveyPermissionCache.evictSurvey(surveyId);
+        return createJob(PurgeJob.TargetType.survey, surveyId, survey.getTitle(), requestedBy);
+    }
+
+    /**
+     * Ẩn toàn bộ survey của user và tạo job xóa user; user cần được vô hiệu hóa trước trong cùng transaction
+     */
+    public PurgeJobResponseDTO requestUserPurge(User user, User requestedBy) {
+        Long userId = user.getUserId();
+        purgeBatchRepository.markUserSurveysPurgeRequested(userId);
+        for (Long surveyId : purgeBatchRepository.findSurveyIdsByUser(userId)) {
+            surveyDefinitionCache.evict(surveyId);
+            surveyPermissionCache.evictSurvey(surveyId);
+        }
+        surveyPermissionCache.evictUser(userId);
+        return createJob(PurgeJob.TargetType.user, userId, user.getEmail(), requestedBy);
+    }
+
+    /**
+     * Trạng thái job; chỉ admin hoặc người yêu cầu xóa được xem
+     */
+    @Transactional(readOnly = true)
+    public PurgeJobResponseDTO getJob(Long jobId) throws IdInvalidException {
+        PurgeJob job = purgeJobRepository.findById(jobId)
+                .orElseThrow(() -> new IdInvalidException("Không tìm thấy job xóa"));
+        User currentUser = authService.getCurrentUser();
+        boolean isRequester = job.getRequestedBy() != null && currentUser != null
+                && job.getRequestedBy().getUserId().equals(currentUser.getUserId());
+        if (!isRequester && (currentUser == null || currentUser.getRole() != RoleEnum.admin)) {
+            throw new IdInvalidException("Bạn không có quyền xem job xóa này");
+        }
+        return toDTO(job);
+    }
+
+    /**
+     * Đưa các job bị gián đoạn và các job lỗi đã đến hạn thử lại về pending,
+     * rồi chạy các job pending (sau restart hoặc khi hàng đợi từng đầy)
+     */
+    public void resumeJobs() {
+        int reset = purgeJobRepository.resetStuck(LocalDateTime.now().minusMinutes(stuckTimeoutMinutes),
+                PurgeJob.Status.pending, PurgeJob.Status.running);
+        if (reset > 0) {
+            log.info("Reset {} interrupted purge jobs to pending", reset);
+        }
+        int retried = purgeJobRepository.retryDue(LocalDateTime.now(), PurgeJob.Status.failed, PurgeJob.Status.pending);
+        if (retried > 0) {
+            log.info("Retrying {} failed purge jobs", retried);
+        }
+        for (Long jobId : purgeJobRepository.findIdsByStatus(PurgeJob.Status.pending)) {
+            if (!dispatch(jobId)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Admin chạy lại job đã thất bại (kể cả khi đã hết số lần tự thử lại); số lần thử được đếm lại từ đầu
+     */
+    @Transactional
+    public PurgeJobResponseDTO retryJob(Long jobId) throws IdInvalidException {
+        PurgeJob job = purgeJobRepository.findById(jobId)
+                .orElseThrow(() -> new IdInvalidException("Không tìm thấy job xóa"));
+        if (job.getStatus() != PurgeJob.Status.failed) {
+            throw new IdInvalidException("Chỉ có thể chạy lại job xóa đã thất bại");
+        }
+        job.setStatus(PurgeJob.Status.pending);
+        job.setAttempts(0);
+        job.setNextAttemptAt(null);
+        job.setCompletedAt(null);
+        job = purgeJobRepository.save(job);
+        dispatchAfterCommit(jobId);
+        return toDTO(job);
+    }
+
+    private PurgeJobResponseDTO createJob(PurgeJob.TargetType targetType, Long targetId, String label, User requestedBy) {
+        PurgeJob inFlight = purgeJobRepository.findFirstByTargetTypeAndTargetIdAndStatusIn(targetType, targetId,
+                List.of(PurgeJob.Status.pending, PurgeJob.Status.running)).orElse(null);
+        if (inFlight != null) {
+            return toDTO(inFlight);
+        }
+        PurgeJob job = new PurgeJob();
+        job.setTargetType(targetType);
+        job.setTargetId(targetId);
+        job.setTargetLabel(label != null && label.length() > 255 ? label.substring(0, 255) : label);
+        job.setRequestedBy(requestedBy);
+        job = purgeJobRepository.save(job);
+
+        dispatchAfterCommit(job.getJobId());
+        return toDTO(job);
+    }
+
+    private void dispatchAfterCommit(Long jobId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Worker chỉ chạy khi đánh dấu + job đã commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(jobId);
+                }
+            });
+        } else {
+            dispatch(jobId);
+        }
+    }
+
+    /**
+     * false nếu hàng đợi đầy (job vẫn pending, lần resume sau sẽ chạy)
+     */
+    private boolean dispatch(Long jobId) {
+        try {
+            executor.execute(() -> runJob(jobId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Purge queue full, job {} stays pending", jobId);
+            return false;
+        }
+    }
+
+    private void runJob(Long jobId) {
+        if (purgeJobRepository.claim(jobId, PurgeJob.Status.pending, PurgeJob.Status.running) == 0) {
+            return;
+        }
+        PurgeJob job = purgeJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            JobProgress progress;
+            if (job.getTargetType() == PurgeJob.TargetType.survey) {
+                progress = new JobProgress(jobId, STEPS_PER_SURVEY);
+                purgeSurvey(job.getTargetId(), progress);
+            } else {
+                List<Long> surveyIds = purgeBatchRepository.findSurveyIdsByUser(job.getTargetId());
+                progress = new JobProgress(jobId, surveyIds.size() * STEPS_PER_SURVEY + USER_OWN_STEPS);
+                for (Long surveyId : surveyIds) {
+                    purgeSurvey(surveyId, progress);
+                }
+                purgeUser(job.getTargetId(), progress);
+            }
+
+            job = purgeJobRepository.findById(jobId).orElse(job);
+            job.setStatus(PurgeJob.Status.completed);
+            job.setProgress(100);
+            job.setCurrentStep(null);
+            job.setRowsDeleted(progress.rowsDeleted);
+            job.setErrorMessage(null);
+            job.setNextAttemptAt(null);
+            job.setCompletedAt(LocalDateTime.now());
+            purgeJobRepository.save(job);
+            log.info("Purge job {} ({} {}) completed: {} rows in {} ms", jobId, job.getTargetType(),
+                    job.getTargetId(), progress.rowsDeleted, System.currentTimeMillis() - startedAt);
+        } catch (Exception e) {
+            purgeJobRepository.findById(jobId).ifPresent(failed -> {
+                int attempts = failed.getAttempts() + 1;
+                failed.setStatus(PurgeJob.Status.failed);
+                failed.setAttempts(attempts);
+                failed.setErrorMessage(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                failed.setCompletedAt(LocalDateTime.now());
+                if (attempts < maxAttempts) {
+                    // Chờ tăng gấp đôi sau mỗi lần lỗi (tối đa 64 lần thời gian chờ gốc)
+                    long delaySeconds = retryBaseDelaySeconds << Math.min(attempts - 1, 6);
+                    failed.setNextAttemptAt(LocalDateTime.now().plusSeconds(delaySeconds));
+                    log.warn("Purge job {} failed (attempt {}/{}), retrying in {} s: {}", jobId, attempts, maxAttempts,
+                            delaySeconds, e.getMessage());
+                } else {
+                    failed.setNextAttemptAt(null);
+                    log.error("Purge job {} failed after {} attempts, needs manual retry: {}", jobId, attempts,
+                            e.getMessage());
+                }
+                purgeJobRepository.save(failed);
+            });
+        }
+    }
+
+    /**
+     * Xóa survey theo thứ tự khóa ngoại: answers + responses -> options -> questions -> bảng con -> survey
+     */
+    private void purgeSurvey(Long surveyId, JobProgress progress) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        runStep(progress, "responses", limit -> {
+            List<Long> responseIds = purgeBatchRepository.findResponseIdsBySurvey(surveyId, limit);
+            if (responseIds.isEmpty()) {
+                return 0;
+            }
+            Integer rows = transactionTemplate.execute(status -> purgeBatchRepository.deleteAnswersByResponses(responseIds)
+                    + purgeBatchRepository.deleteResponses(responseIds));
+            progress.add(rows != null ? rows : 0);
+            return responseIds.size();
+        });
+        runStep(progress, "options", limit -> countRows(progress, purgeBatchRepository.deleteOptionsBySurvey(surveyId, limit)));
+        runStep(progress, "questions", limit -> countRows(progress, purgeBatchRepository.deleteBySurvey("questions", surveyId, limit)));
+        for (String table : SURVEY_CHILD_STEPS) {
+            runStep(progress, table, limit -> countRows(progress, purgeBatchRepository.deleteBySurvey(table, surveyId, limit)));
+        }
+        runSingle(progress, "survey", () -> purgeBatchRepository.deleteSurvey(surveyId));
+        surveyDefinitionCache.evict(surveyId);
+        surveyPermissionCache.evictSurvey(surveyId);
+    }
+
+    /**
+     * Xóa dữ liệu của user trên survey của người khác rồi xóa user
+     */
+    private void purgeUser(Long userId, JobProgress progress) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Set<Long> affectedSurveyIds = new HashSet<>();
+        runStep(progress, "user_responses", limit -> {
+            List<ResponseRef> refs = purgeBatchRepository.findResponsesByUser(userId, limit);
+            if (refs.isEmpty()) {
+                return 0;
+            }
+            List<Long> responseIds = refs.stream().map(ResponseRef::responseId).collect(Collectors.toList());
+            Integer rows = transactionTemplate.execute(status -> purgeBatchRepository.deleteAnswersByResponses(responseIds)
+                    + purgeBatchRepository.deleteResponses(responseIds));
+            progress.add(rows != null ? rows : 0);
+            refs.forEach(ref -> affectedSurveyIds.add(ref.surveyId()));
+            return refs.size();
+        });
+        if (!affectedSurveyIds.isEmpty()) {
+            // Responses thuộc survey của người khác -> rollup thống kê của các survey đó cần dựng lại
+            surveyStatsRollupService.markStale(affectedSurveyIds);
+            answerAnalyticsService.markStale(affectedSurveyIds);
+        }
+        runStep(progress, "activity_log", limit -> countRows(progress, purgeBatchRepository.deleteByUser("activity_log", userId, limit)));
+        runStep(progress, "user_chat_logs", limit -> countRows(progress, purgeBatchRepository.deleteByUser("ai_chat_logs", userId, limit)));
+        runSingle(progress, "user", () -> purgeBatchRepository.deleteUser(userId));
+        surveyPermissionCache.evictUser(userId);
+    }
+
+    /**
+     * Lặp DELETE theo lô đến khi lô cuối không đầy; mỗi lô tự commit (transaction ngắn)
+     */
+    private void runStep(JobProgress progress, String step, ChunkDelete chunk) {
+        progress.step = step;
+        progress.report();
+        int deleted;
+        do {
+            deleted = chunk.deleteChunk(chunkSize);
+            if (deleted > 0) {
+                progress.report();
+            }
+        } while (deleted >= chunkSize);
+        progress.completedSteps++;
+    }
+
+    /**
+     * Bước chỉ có một câu DELETE (dòng gốc survey / user, phần còn lại xóa theo ON DELETE CASCADE)
+     */
+    private void runSingle(JobProgress progress, String step, IntSupplier delete) {
+        progress.step = step;
+        progress.report();
+        progress.add(delete.getAsInt());
+        progress.completedSteps++;
+    }
+
+    private int countRows(JobProgress progress, int rows) {
+        progress.add(rows);
+        return rows;
+    }
+
+    private PurgeJobResponseDTO toDTO(PurgeJob job) {
+        return PurgeJobResponseDTO.builder()
+                .jobId(job.getJobId())
+                .targetType(job.getTargetType().name())
+                .targetId(job.getTargetId())
+                .targetLabel(job.getTargetLabel())
+                .status(job.getStatus().name())
+                .currentStep(job.getCurrentStep())
+                .progress(job.getProgress())
+                .rowsDeleted(job.getRowsDeleted())
+                .errorMessage(job.getErrorMessage())
+                .attempts(job.getAttempts())
+                .nextAttemptAt(job.getNextAttemptAt())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+}
@@ -27,9 +27,14 @@ public class QuestionService {
     private final SurveyRepository surveyRepository;
     private final OptionRepository optionRepository;
     private final AnswerRepository answerRepository;
+    private final ResponseRepository responseRepository;
+    private final ResponseSearchService responseSearchService;
+    private final ResponseKeysetReader responseKeysetReader;
     private final AuthService authService;
     private final ActivityLogService activityLogService;
     private final SurveyPermissionService surveyPermissionService;
+    private final SurveyDefinitionCache surveyDefinitionCache;
+    private final PdfReportCacheService pdfReportCacheService;
 
     // lấy thông tin câu hỏi
     public Question getQuestionEntityById(Long questionId) throws IdInvalidException {
@@ -125,6 +130,11 @@ public class QuestionService {
         question.setDisplayOrder(maxOrder + 1);
 
         Question saved = questionRepository.save(question);
+        surveyDefinitionCache.evict(surveyId);
+        pdfReportCacheService.evict(surveyId);
+        if (Boolean.TRUE.equals(saved.getIsRequired())) {
+            recomputeCompletionStatus(survey);
+        }
 
         // Log activity
         activityLogService.log(
@@ -211,6 +221,9 @@ public class QuestionService {
             }
         }
 
+        surveyDefinitionCache.evict(surveyId);
+        pdfReportCacheService.evict(surveyId);
+
         activityLogService.log(
                 ActivityLog.ActionType.edit_question,
                 surveyId,
@@ -242,11 +255,18 @@ public class QuestionService {
             // Note: Using simplified approach without complex configurations
         }
 
+        boolean requiredChanged = false;
         if (request.getIsRequired() != null) {
+            requiredChanged = !request.getIsRequired().equals(question.getIsRequired());
             question.setIsRequired(request.getIsRequired());
         }
 
         Question saved = questionRepository.save(question);
+        surveyDefinitionCache.evict(saved.getSurvey().getSurveyId());
+        pdfReportCacheService.evict(saved.getSurvey().getSurveyId());
+        if (requiredChanged) {
+            recomputeCompletionStatus(saved.getSurvey());
+        }
 
         activityLogService.log(
                 ActivityLog.ActionType.edit_question,
@@ -294,6 +314,11 @@ public class QuestionService {
 
         // Xóa tất cả answers của câu hỏi (nếu có)
         List<Answer> answers = answerRepository.findByQuestion(question);
+        List<Long> textResponseIds = answers.stream()
+                .filter(a -> a.getAnswerText() != null && !a.getAnswerText().isBlank())
+                .map(a -> a.getResponse().getResponseId())
+                .distinct()
+                .toList();
         if (!answers.isEmpty()) {
             answerRepository.deleteAll(answers);
         }
@@ -306,6 +331,8 @@ public class QuestionService {
 
         // Xóa câu hỏi
         questionRepository.delete(question);
+        surveyDefinitionCache.evict(survey.getSurveyId());
+        pdfReportCacheService.evict(survey.getSurveyId());
 
         activityLogService.log(
                 ActivityLog.ActionType.delete_question,
@@ -321,6 +348,19 @@ public class QuestionService {
         if (!remaining.isEmpty()) {
             questionRepository.saveAll(remaining);
         }
+
+        // Answers của câu hỏi đã bị xóa nên trạng thái hoàn thành và document tìm kiếm của response có thể thay đổi
+        recomputeCompletionStatus(survey);
+        responseSearchService.reindexResponses(survey.getSurveyId(), textResponseIds);
+    }
+
+    /**
+     * Tính lại trạng thái hoàn thành đã lưu trên các response của survey (một câu UPDATE cho cả survey)
+     */
+    private void recomputeCompletionStatus(Survey survey) {
+        long requiredCount = questionRepository.countBySurveyAndIsRequiredTrue(survey);
+        responseRepository.recomputeCompletionBySurvey(survey.getSurveyId(), requiredCount);
+        responseKeysetReader.evictCounts(survey.getSurveyId());
     }
 
     // Tổng số câu hỏi trong hệ thống
@@ -0,0 +1,212 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.duytan.c1se09.smartsurvey.domain.Response;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.request.response.ResponseFilterRequestDTO;
+import vn.duytan.c1se09.smartsurvey.repository.ResponseRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Đọc response theo keyset (submittedAt, responseId) thay vì offset, dùng cho API danh sách theo cursor
+ * và cho export đọc theo chunk.
+ * - Cursor là chuỗi mờ (base64url) chứa chiều sắp xếp và vị trí dòng cuối của trang trước
+ * - Tổng số response khớp bộ lọc chỉ đếm khi được yêu cầu và được cache ngắn hạn theo survey + bộ lọc;
+ *   xóa khi survey có response mới / bị xóa hoặc trạng thái hoàn thành được tính lại
+ */
+@Service
+@RequiredArgsConstructor
+@SuppressWarnings("null")
+public class ResponseKeysetReader {
+
+    private final ResponseRepository responseRepository;
+    private final ResponseSearchService responseSearchService;
+
+    @Value("${app.response-count-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.response-count-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    /**
+     * Bộ lọc đã chuẩn hóa (chuỗi rỗng = null, trạng thái đã parse, search đã chuẩn bị)
+     */
+    public record ResponseQuery(Survey survey, LocalDateTime from, LocalDateTime to, Long userId,
+            String requestToken, ResponseSearchService.AnswerSearch search, CompletionStatusEnum status) {
+    }
+
+    /**
+     * Vị trí trong thứ tự (submittedAt, responseId); null = đầu danh sách
+     */
+    public record Position(LocalDateTime submittedAt, Long responseId) {
+        public static Position of(Response response) {
+            return new Position(response.getSubmittedAt(), response.getResponseId());
+        }
+    }
+
+    /**
+     * Cursor đã giải mã: vị trí dòng cuối đã trả về và chiều sắp xếp của lượt duyệt
+     */
+    public record Cursor(Position after, boolean ascending) {
+    }
+
+    private record CountKey(Long surveyId, LocalDateTime from, LocalDateTime to, Long userId, String requestToken,
+            String search, CompletionStatusEnum status) {
+    }
+
+    private record CachedCount(long count, long loadedAtMillis) {
+    }
+
+    private final LinkedHashMap<CountKey, CachedCount> countCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CountKey, CachedCount> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Tăng mỗi lần evict; số đếm bắt đầu trước khi evict sẽ không được đưa vào cache
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ResponseQuery resolve(Survey survey, ResponseFilterRequestDTO filter) throws IdInvalidException {
+        return new ResponseQuery(
+                survey,
+                filter.getFrom(),
+                filter.getTo(),
+                filter.getUserId(),
+                blankToNull(filter.getRequestToken()),
+                responseSearchService.prepare(survey, filter.getSearch()),
+                parseCompletionStatus(filter.getCompletionStatus()));
+    }
+
+    /**
+     * Tối đa limit response đứng sau vị trí after theo chiều ascending
+     */
+    public List<Response> readAfter(ResponseQuery query, Position after, boolean ascending, int limit) {
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        PageRequest page = PageRequest.of(0, limit,
+                Sort.by(direction, "submittedAt").and(Sort.by(direction, "responseId")));
+        LocalDateTime afterSubmittedAt = after != null ? after.submittedAt() : null;
+        Long afterId = after != null ? after.responseId() : null;
+        if (ascending) {
+            return responseRepository.findSliceBySurveyWithFiltersAscAfter(
+                    query.survey(), query.from(), query.to(), query.userId(), query.requestToken(),
+                    query.search().text(), query.search().booleanQuery(), query.search().questionIds(),
+                    query.search().optionIds(), query.status(), afterSubmittedAt, afterId, page);
+        }
+        return responseRepository.findSliceBySurveyWithFiltersDescAfter(
+                query.survey(), query.from(), query.to(), query.userId(), query.requestToken(),
+                query.search().text(), query.search().booleanQuery(), query.search().questionIds(),
+                query.search().optionIds(), query.status(), afterSubmittedAt, afterId, page);
+    }
+
+    /**
+     * Tổng số response khớp bộ lọc, lấy từ cache nếu còn hạn
+     */
+    public long count(ResponseQuery query) {
+        CountKey key = new CountKey(query.survey().getSurveyId(), query.from(), query.to(), query.userId(),
+                query.requestToken(), query.search().text(), query.status());
+        synchronized (countCache) {
+            CachedCount cached = countCache.get(key);
+            if (cached != null && System.currentTimeMillis() - cached.loadedAtMillis() <= ttlSeconds * 1000L) {
+                return cached.count();
+            }
+        }
+
+        long generation = invalidations.get();
+        long count = responseRepository.countBySurveyWithFilters(
+                query.survey(),
+                query.from(),
+                query.to(),
+                query.userId(),
+                query.requestToken(),
+                query.search().text(),
+                query.search().booleanQuery(),
+                query.search().questionIds(),
+                query.search().optionIds(),
+                query.status());
+        synchronized (countCache) {
+            if (invalidations.get() == generation) {
+                countCache.put(key, new CachedCount(count, System.currentTimeMillis()));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Xóa các số đếm đã cache của survey; nếu đang trong transaction thì xóa lại sau khi commit
+     */
+    public void evictCounts(Long surveyId) {
+        removeCounts(surveyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeCounts(surveyId);
+                }
+            });
+        }
+    }
+
+    public String encodeCursor(Position position, boolean ascending) {
+        String raw = (ascending ? "a" : "d") + "|" + position.submittedAt() + "|" + position.responseId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Cursor decodeCursor(String token) throws IdInvalidException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !("a".equals(parts[0]) || "d".equals(parts[0]))) {
+                throw new IllegalArgumentException(raw);
+            }
+            Position position = new Position(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+            return new Cursor(position, "a".equals(parts[0]));
+        } catch (RuntimeException e) {
+            throw new IdInvalidException("Cursor không hợp lệ");
+        }
+    }
+
+    /**
+     * Chuyển bộ lọc trạng thái hoàn thành (completed / partial / dropped) sang enum, rỗng = không lọc
+     */
+    private CompletionStatusEnum parseCompletionStatus(String value) throws IdInvalidException {
+        String status = blankToNull(value);
+        if (status == null) {
+            return null;
+        }
+        try {
+            return CompletionStatusEnum.valueOf(status.trim().toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IdInvalidException("Trạng thái hoàn thành không hợp lệ: " + status);
+        }
+    }
+
+    private void removeCounts(Long surveyId) {
+        synchronized (countCache) {
+            invalidations.incrementAndGet();
+            countCache.keySet().removeIf(key -> key.surveyId().equals(surveyId));
+        }
+    }
+
+    private String blankToNull(String v) {
+        return v != null && !v.isBlank() ? v : null;
+    }
+}
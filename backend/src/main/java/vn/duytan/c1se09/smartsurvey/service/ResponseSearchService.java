@@ -0,0 +1,142 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import vn.duytan.c1se09.smartsurvey.domain.Answer;
+import vn.duytan.c1se09.smartsurvey.domain.Option;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerRepository;
+import vn.duytan.c1se09.smartsurvey.repository.OptionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.ResponseSearchRepository;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Tìm kiếm trong nội dung response cho bộ lọc search (danh sách / export).
+ * - answer_text: document theo response trong response_search_docs (FULLTEXT ngram), ghi khi submit
+ * - Nội dung câu hỏi / lựa chọn: vài chục dòng mỗi survey nên so khớp trong bộ nhớ,
+ *   query chỉ lọc answers theo questionId / optionId tìm được (có index).
+ *   So khớp không phân biệt hoa thường và dấu như collation utf8mb4_unicode_ci ("cau hoi" khớp "Câu hỏi")
+ */
+@Service
+@RequiredArgsConstructor
+@SuppressWarnings("null")
+public class ResponseSearchService {
+
+    /**
+     * Giá trị thay cho danh sách id rỗng (JPQL không cho "in ()")
+     */
+    private static final List<Long> NO_IDS = List.of(-1L);
+
+    private static final int REINDEX_CHUNK_SIZE = 500;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ResponseSearchRepository responseSearchRepository;
+    private final AnswerRepository answerRepository;
+    private final QuestionRepository questionRepository;
+    private final OptionRepository optionRepository;
+
+    /**
+     * Phải khớp biến ngram_token_size của MySQL (mặc định 2)
+     */
+    @Value("${app.response-search.ngram-token-size:2}")
+    private int ngramTokenSize;
+
+    /**
+     * Tham số bộ lọc search cho ResponseRepository.
+     * text = null nghĩa là không lọc; booleanQuery dùng cho MATCH ... AGAINST,
+     * text dùng để lọc lại chính xác (LIKE) trên các document ứng viên
+     */
+    public record AnswerSearch(String text, String booleanQuery, List<Long> questionIds, List<Long> optionIds) {
+        static final AnswerSearch NONE = new AnswerSearch(null, "", NO_IDS, NO_IDS);
+    }
+
+    public AnswerSearch prepare(Survey survey, String search) {
+        String text = search != null ? search.trim() : "";
+        if (text.isEmpty()) {
+            return AnswerSearch.NONE;
+        }
+        String needle = fold(text);
+        List<Long> questionIds = questionRepository.findBySurvey(survey).stream()
+                .filter(q -> containsFolded(q.getQuestionText(), needle))
+                .map(Question::getQuestionId)
+                .toList();
+        List<Long> optionIds = optionRepository.findBySurveyOrderByCreatedAt(survey).stream()
+                .filter(o -> containsFolded(o.getOptionText(), needle))
+                .map(Option::getOptionId)
+                .toList();
+        return new AnswerSearch(text, toBooleanQuery(text),
+                questionIds.isEmpty() ? NO_IDS : questionIds,
+                optionIds.isEmpty() ? NO_IDS : optionIds);
+    }
+
+    /**
+     * Ghi document của response mới submit (trong transaction submit)
+     */
+    public void indexResponse(Long responseId, Long surveyId, List<Answer> answers) {
+        String document = buildDocument(answers);
+        if (document.isEmpty()) {
+            responseSearchRepository.delete(responseId);
+        } else {
+            responseSearchRepository.upsert(responseId, surveyId, document);
+        }
+    }
+
+    /**
+     * Dựng lại document của các response sau khi answers của chúng thay đổi
+     * (xóa câu hỏi, cập nhật answer khi upload file)
+     */
+    public void reindexResponses(Long surveyId, Collection<Long> responseIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(responseIds));
+        for (int from = 0; from < ids.size(); from += REINDEX_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + REINDEX_CHUNK_SIZE, ids.size()));
+            Map<Long, List<Answer>> answersByResponse = answerRepository.findByResponseIdsWithQuestionAndOption(chunk).stream()
+                    .collect(Collectors.groupingBy(a -> a.getResponse().getResponseId()));
+            for (Long responseId : chunk) {
+                indexResponse(responseId, surveyId, answersByResponse.getOrDefault(responseId, List.of()));
+            }
+        }
+    }
+
+    private String buildDocument(List<Answer> answers) {
+        return answers.stream()
+                .map(Answer::getAnswerText)
+                .filter(t -> t != null && !t.isBlank())
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Cụm từ đặt trong ngoặc kép (toán tử boolean bên trong mất tác dụng);
+     * từ ngắn hơn ngram_token_size không có token riêng nên tìm theo tiền tố
+     */
+    private String toBooleanQuery(String text) {
+        String phrase = text.replace("\"", " ").trim();
+        if (phrase.codePointCount(0, phrase.length()) < ngramTokenSize
+                && !phrase.isEmpty() && phrase.codePoints().allMatch(Character::isLetterOrDigit)) {
+            return phrase + "*";
+        }
+        return "\"" + phrase + "\"";
+    }
+
+    private boolean containsFolded(String value, String needle) {
+        return value != null && fold(value).contains(needle);
+    }
+
+    /**
+     * Bỏ dấu (NFD rồi xóa dấu kết hợp) và chữ thường; đ / Đ không tách được bằng NFD nên đổi riêng thành d
+     */
+    static String fold(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+}
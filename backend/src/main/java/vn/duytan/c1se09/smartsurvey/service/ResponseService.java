@@ -10,8 +10,10 @@ import vn.duytan.c1se09.smartsurvey.domain.response.response.AnswerDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponseWithAnswersDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponseSummaryDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponsePageDTO;
+import vn.duytan.c1se09.smartsurvey.domain.response.response.ResponseCursorPageDTO;
 import vn.duytan.c1se09.smartsurvey.domain.request.response.ResponseFilterRequestDTO;
 import vn.duytan.c1se09.smartsurvey.repository.*;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
 import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
 import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
 import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
@@ -36,6 +38,7 @@ import java.time.format.DateTimeFormatter;
 public class ResponseService {
 	private final ResponseRepository responseRepository;
 	private final AnswerRepository answerRepository;
+	private final AnswerBatchRepository answerBatchRepository;
 	private final SurveyRepository surveyRepository;
 	private final QuestionRepository questionRepository;
 	private final OptionRepository optionRepository;
@@ -45,14 +48,24 @@ public class ResponseService {
 	private final ActivityLogService activityLogService;
 	private final AnswerDataHelper answerDataHelper;
 	private final SurveyPermissionService surveyPermissionService;
+	private final SurveyStatsRollupService surveyStatsRollupService;
+	private final AnswerAnalyticsService answerAnalyticsService;
+	private final PdfReportCacheService pdfReportCacheService;
+	private final SurveyDefinitionCache surveyDefinitionCache;
+	private final ResponseSearchService responseSearchService;
+	private final ResponseKeysetReader responseKeysetReader;
+	private final jakarta.persistence.EntityManager entityManager;
 
 	@Value("${app.upload.dir:uploads}")
 	private String uploadDir;
 
 	@Transactional
 	public ResponseWithAnswersDTO submitResponse(ResponseSubmitRequestDTO request) throws IdInvalidException {
-		Survey survey = surveyRepository.findById(request.getSurveyId())
-				.orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
+		// Survey, câu hỏi và options lấy từ cache định nghĩa (không truy vấn DB khi cache còn nóng);
+		// trạng thái trong cache được kiểm tra lại với DB sau mỗi app.survey-cache.status-ttl-seconds
+		SurveyDefinitionCache.SurveyDefinition definition = surveyDefinitionCache.get(request.getSurveyId());
+		Survey survey = definition.getSurvey();
+		SurveyStatusEnum status = survey.getStatus();
 
 		// Lấy user hiện tại (có thể null nếu user ngoài)
 		User current = tryGetCurrentUserOrNull();
@@ -60,10 +73,10 @@ public class ResponseService {
 		// Kiểm tra quyền trả lời survey:
 		// - Chỉ survey published mới cho phép nộp response
 		// - Draft và archived KHÔNG CHO PHÉP nộp response (kể cả có permission)
-		if (survey.getStatus() != SurveyStatusEnum.published) {
-			if (survey.getStatus() == SurveyStatusEnum.draft) {
+		if (status != SurveyStatusEnum.published) {
+			if (status == SurveyStatusEnum.draft) {
 				throw new IdInvalidException("Khảo sát đang ở trạng thái bản nháp, chưa thể nộp phản hồi");
-			} else if (survey.getStatus() == SurveyStatusEnum.archived) {
+			} else if (status == SurveyStatusEnum.archived) {
 				throw new IdInvalidException("Khảo sát đã được lưu trữ, không thể nộp phản hồi");
 			} else {
 				throw new IdInvalidException("Khảo sát không ở trạng thái cho phép nộp phản hồi");
@@ -72,15 +85,13 @@ public class ResponseService {
 		// Survey published = Public = Ai cũng có thể trả lời (không cần check permission)
 		// current có thể null (user ngoài) hoặc có giá trị (user đã đăng nhập)
 
-		List<Question> questions = questionRepository.findBySurvey(survey);
-		if (questions.isEmpty()) {
+		if (definition.getQuestions().isEmpty()) {
 			throw new IdInvalidException("Khảo sát chưa có câu hỏi");
 		}
 
-		Map<Long, Question> questionById = questions.stream()
-				.collect(Collectors.toMap(Question::getQuestionId, q -> q));
-
-		// Group answers by question for processing (removed unused variable)
+		Map<Long, Question> questionById = definition.getQuestionById();
+		Map<Long, Option> optionById = definition.getOptionById();
+		Map<Long, List<Option>> optionsByQuestion = definition.getOptionsByQuestion();
 
 		// Bỏ kiểm tra câu hỏi bắt buộc để cho phép submit partial responses
 		// Phân loại completed/partial/dropped sẽ được xử lý ở tầng thống kê
@@ -101,6 +112,16 @@ public class ResponseService {
 			response.setDurationSeconds(request.getDurationSeconds());
 		}
 
+		// Trạng thái hoàn thành tính một lần lúc submit và lưu trên dòng response
+		Set<Long> requiredIds = definition.getRequiredQuestionIds();
+		int answeredRequired = (int) request.getAnswers().stream()
+				.map(AnswerSubmitDTO::getQuestionId)
+				.filter(requiredIds::contains)
+				.distinct()
+				.count();
+		response.setAnsweredRequiredCount(answeredRequired);
+		response.setCompletionStatus(CompletionStatusEnum.of(!request.getAnswers().isEmpty(), answeredRequired, requiredIds.size()));
+
 		Response savedResponse = responseRepository.save(response);
 
 		List<Answer> toSave = new ArrayList<>();
@@ -109,7 +130,7 @@ public class ResponseService {
 			if (question == null) {
 				throw new IdInvalidException("questionId không thuộc khảo sát: " + dto.getQuestionId());
 			}
-			validateSingleAnswer(question, dto);
+			validateSingleAnswer(question, dto, definition.options(question.getQuestionId()));
 
 			Answer answer = new Answer();
 			answer.setResponse(savedResponse);
@@ -122,17 +143,18 @@ public class ResponseService {
 				case rating:
 					// Single option selection
 					if (dto.getOptionId() != null) {
-						Option option = optionRepository.findById(dto.getOptionId())
-								.orElseThrow(
-										() -> new IdInvalidException("Không tìm thấy optionId: " + dto.getOptionId()));
+						Option option = optionById.get(dto.getOptionId());
+						if (option == null) {
+							throw new IdInvalidException("Không tìm thấy optionId: " + dto.getOptionId());
+						}
 						if (!option.getQuestion().getQuestionId().equals(question.getQuestionId())) {
 							throw new IdInvalidException("option không thuộc câu hỏi");
 						}
 						answer.setOption(option);
 					} else if (dto.getAnswerText() != null && !dto.getAnswerText().isBlank()) {
 						String text = dto.getAnswerText().trim();
-						// Find option from database by text
-						List<Option> questionOptions = optionRepository.findByQuestion(question);
+						// Find option by text
+						List<Option> questionOptions = optionsByQuestion.get(question.getQuestionId());
 						if (questionOptions != null && !questionOptions.isEmpty()) {
 							// Try to match provided text to an existing option (case-insensitive)
 							Option matched = questionOptions.stream()
@@ -161,7 +183,7 @@ public class ResponseService {
 						selectedOptionIds = dto.getSelectedOptionIds();
 					} else if (dto.getSelectedOptions() != null && !dto.getSelectedOptions().isEmpty()) {
 						// Map text values to option ids - validate they belong to this question
-						List<Option> questionOptions = optionRepository.findByQuestion(question);
+						List<Option> questionOptions = optionsByQuestion.get(question.getQuestionId());
 
 						if (questionOptions == null || questionOptions.isEmpty()) {
 							throw new IdInvalidException("Câu hỏi này không có options để chọn");
@@ -191,8 +213,10 @@ public class ResponseService {
 					// Validate all selected option ids belong to this question and create separate Answer records
 					if (selectedOptionIds != null && !selectedOptionIds.isEmpty()) {
 						for (Long optionId : selectedOptionIds) {
-							Option option = optionRepository.findById(optionId)
-									.orElseThrow(() -> new IdInvalidException("Không tìm thấy optionId: " + optionId));
+							Option option = optionById.get(optionId);
+							if (option == null) {
+								throw new IdInvalidException("Không tìm thấy optionId: " + optionId);
+							}
 							if (!option.getQuestion().getQuestionId().equals(question.getQuestionId())) {
 								throw new IdInvalidException("option không thuộc câu hỏi");
 							}
@@ -218,8 +242,10 @@ public class ResponseService {
 							Long optionId = dto.getRankingOptionIds().get(i);
 							int rank = i + 1; // Rank starts from 1
 							
-							Option option = optionRepository.findById(optionId)
-									.orElseThrow(() -> new IdInvalidException("Không tìm thấy optionId: " + optionId));
+							Option option = optionById.get(optionId);
+							if (option == null) {
+								throw new IdInvalidException("Không tìm thấy optionId: " + optionId);
+							}
 							
 							Answer rankingAnswer = new Answer();
 							rankingAnswer.setResponse(savedResponse);
@@ -267,7 +293,15 @@ public class ResponseService {
 			}
 			toSave.add(answer);
 		}
-		List<Answer> savedAnswers = answerRepository.saveAll(toSave);
+		// Insert toàn bộ answers trong 1 JDBC batch (số round trip không phụ thuộc số answers)
+		List<Answer> savedAnswers = answerBatchRepository.insertAll(toSave);
+		responseSearchService.indexResponse(savedResponse.getResponseId(), survey.getSurveyId(), savedAnswers);
+
+		// Cập nhật rollup thống kê trong cùng transaction
+		surveyStatsRollupService.onResponseSubmitted(survey, savedResponse, savedAnswers);
+		answerAnalyticsService.onResponseSubmitted(savedResponse.getResponseId());
+		pdfReportCacheService.evict(survey.getSurveyId());
+		responseKeysetReader.evictCounts(survey.getSurveyId());
 
 		activityLogService.log(
 				ActivityLog.ActionType.submit_response,
@@ -445,31 +479,22 @@ public class ResponseService {
 
 		org.springframework.data.domain.Pageable pageable = buildPageable(filter.getPage(), filter.getSize(), filter.getSort());
 
+		ResponseKeysetReader.ResponseQuery query = responseKeysetReader.resolve(survey, filter);
 		var page = responseRepository.findPageBySurveyWithFilters(
 				survey,
-				filter.getFrom(),
-				filter.getTo(),
-				filter.getUserId(),
-				filter.getRequestToken() != null && !filter.getRequestToken().isBlank() ? filter.getRequestToken() : null,
-				filter.getSearch() != null && !filter.getSearch().isBlank() ? filter.getSearch() : null,
-				filter.getCompletionStatus() != null && !filter.getCompletionStatus().isBlank() ? filter.getCompletionStatus() : null,
+				query.from(),
+				query.to(),
+				query.userId(),
+				query.requestToken(),
+				query.search().text(),
+				query.search().booleanQuery(),
+				query.search().questionIds(),
+				query.search().optionIds(),
+				query.status(),
 				pageable
 		);
 
-		List<Question> requiredQuestions = questionRepository.findBySurveyAndIsRequiredTrue(survey);
-
-		List<ResponseSummaryDTO> items = page.getContent().stream().map(r -> {
-			String status = determineCompletionStatus(r, requiredQuestions);
-			return ResponseSummaryDTO.builder()
-					.responseId(r.getResponseId())
-					.surveyId(surveyId)
-					.userId(r.getUser() != null ? r.getUser().getUserId() : null)
-					.requestToken(r.getRequestToken())
-					.submittedAt(r.getSubmittedAt())
-					.durationSeconds(r.getDurationSeconds())
-					.completionStatus(status)
-					.build();
-		}).toList();
+		List<ResponseSummaryDTO> items = page.getContent().stream().map(this::toSummaryDTO).toList();
 
 		ResponsePageDTO<ResponseSummaryDTO> dto = new ResponsePageDTO<>();
 		ResponsePageDTO.Meta meta = new ResponsePageDTO.Meta();
@@ -482,6 +507,78 @@ public class ResponseService {
 		return dto;
 	}
 
+	/**
+	 * Danh sách response theo cursor (keyset theo submittedAt, responseId): chi phí mỗi trang không
+	 * phụ thuộc vị trí trang. Trang đầu dùng sort (chỉ hỗ trợ submittedAt, cú pháp như phân trang offset); các trang sau chỉ cần cursor
+	 * nhận từ trang trước. Tổng số chỉ đếm khi includeTotal = true (có cache ngắn hạn).
+	 */
+	@Transactional(readOnly = true)
+	public ResponseCursorPageDTO<ResponseSummaryDTO> listResponsesByCursor(Long surveyId, ResponseFilterRequestDTO filter) throws IdInvalidException {
+		Survey survey = surveyRepository.findById(surveyId)
+				.orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
+
+		User currentUser = authService.getCurrentUser();
+		if (!surveyPermissionService.canViewResults(survey, currentUser)) {
+			throw new IdInvalidException("Bạn không có quyền xem kết quả khảo sát này");
+		}
+
+		ResponseKeysetReader.ResponseQuery query = responseKeysetReader.resolve(survey, filter);
+		ResponseKeysetReader.Position after = null;
+		boolean ascending = parseCursorSortAscending(filter.getSort());
+		if (filter.getCursor() != null && !filter.getCursor().isBlank()) {
+			ResponseKeysetReader.Cursor cursor = responseKeysetReader.decodeCursor(filter.getCursor());
+			after = cursor.after();
+			ascending = cursor.ascending();
+		}
+		int size = filter.getSize() != null && filter.getSize() > 0 ? Math.min(filter.getSize(), MAX_CURSOR_PAGE_SIZE) : 10;
+
+		// Lấy dư 1 dòng để biết còn trang sau hay không (không cần count)
+		List<Response> rows = responseKeysetReader.readAfter(query, after, ascending, size + 1);
+		boolean hasMore = rows.size() > size;
+		if (hasMore) {
+			rows = rows.subList(0, size);
+		}
+
+		ResponseCursorPageDTO<ResponseSummaryDTO> dto = new ResponseCursorPageDTO<>();
+		dto.setResult(rows.stream().map(this::toSummaryDTO).toList());
+		dto.setPageSize(size);
+		dto.setHasMore(hasMore);
+		dto.setNextCursor(hasMore
+				? responseKeysetReader.encodeCursor(ResponseKeysetReader.Position.of(rows.get(rows.size() - 1)), ascending)
+				: null);
+		if (Boolean.TRUE.equals(filter.getIncludeTotal())) {
+			dto.setTotal(responseKeysetReader.count(query));
+		}
+		return dto;
+	}
+
+	/**
+	 * Đọc chiều sắp xếp cho chế độ cursor theo cùng cú pháp với buildPageable ("field" = asc,
+	 * "field,desc" = desc, bỏ trống = desc). Keyset chỉ đi theo submittedAt nên field khác bị từ chối.
+	 */
+	private boolean parseCursorSortAscending(String sort) throws IdInvalidException {
+		if (sort == null || sort.isBlank()) {
+			return false;
+		}
+		String[] parts = sort.split(",");
+		if (!"submittedAt".equals(parts[0].trim())) {
+			throw new IdInvalidException("Phân trang theo cursor chỉ hỗ trợ sắp xếp theo submittedAt");
+		}
+		return parts.length < 2 || !"desc".equalsIgnoreCase(parts[1].trim());
+	}
+
+	private ResponseSummaryDTO toSummaryDTO(Response r) {
+		return ResponseSummaryDTO.builder()
+				.responseId(r.getResponseId())
+				.surveyId(r.getSurvey().getSurveyId())
+				.userId(r.getUser() != null ? r.getUser().getUserId() : null)
+				.requestToken(r.getRequestToken())
+				.submittedAt(r.getSubmittedAt())
+				.durationSeconds(r.getDurationSeconds())
+				.completionStatus(r.getCompletionStatus().name())
+				.build();
+	}
+
 	@Transactional(readOnly = true)
 	public ResponseWithAnswersDTO getResponseDetail(Long responseId) throws IdInvalidException {
 		Response response = responseRepository.findById(responseId)
@@ -495,8 +592,38 @@ public class ResponseService {
 		return buildResponseWithAnswersDTO(response);
 	}
 
+	/**
+	 * Export responses ra CSV/Excel, ghi thẳng vào output stream của HTTP response.
+	 * Response được đọc theo chunk (keyset pagination) nên bộ nhớ không tăng theo số response.
+	 */
+	@Transactional(readOnly = true)
+	public void exportResponses(Long surveyId, ResponseFilterRequestDTO filter, String format, boolean includeAnswers,
+			jakarta.servlet.http.HttpServletResponse httpResponse) throws IdInvalidException, java.io.IOException {
+		Survey survey = findSurveyForExport(surveyId);
+		ResponseKeysetReader.ResponseQuery query = responseKeysetReader.resolve(survey, filter);
+
+		boolean xlsx = "xlsx".equalsIgnoreCase(format);
+		if (xlsx) {
+			prepareDownload(httpResponse, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "responses_" + surveyId + ".xlsx");
+		} else {
+			prepareDownload(httpResponse, "text/csv; charset=UTF-8", "responses_" + surveyId + ".csv");
+		}
+		writeExport(survey, query, xlsx ? "xlsx" : "csv", includeAnswers, httpResponse.getOutputStream(), null);
+	}
+
+	/**
+	 * Export responses ra CSV/Excel vào output stream bất kỳ (dùng cho export job chạy nền).
+	 * progressListener (có thể null) nhận tiến độ theo phần trăm 0..100.
+	 */
 	@Transactional(readOnly = true)
-	public org.springframework.http.ResponseEntity<byte[]> exportResponses(Long surveyId, ResponseFilterRequestDTO filter, String format, boolean includeAnswers) throws IdInvalidException {
+	public void exportResponses(Long surveyId, ResponseFilterRequestDTO filter, String format, boolean includeAnswers,
+			java.io.OutputStream out, java.util.function.IntConsumer progressListener) throws IdInvalidException, java.io.IOException {
+		Survey survey = findSurveyForExport(surveyId);
+		ResponseKeysetReader.ResponseQuery query = responseKeysetReader.resolve(survey, filter);
+		writeExport(survey, query, "xlsx".equalsIgnoreCase(format) ? "xlsx" : "csv", includeAnswers, out, progressListener);
+	}
+
+	private Survey findSurveyForExport(Long surveyId) throws IdInvalidException {
 		Survey survey = surveyRepository.findById(surveyId)
 				.orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
 
@@ -504,30 +631,22 @@ public class ResponseService {
 		if (!surveyPermissionService.canViewResults(survey, currentUser)) {
 			throw new IdInvalidException("Bạn không có quyền export responses của khảo sát này");
 		}
+		return survey;
+	}
 
-		// Fetch all (no pagination) with filters
-		org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, Integer.MAX_VALUE);
-		var page = responseRepository.findPageBySurveyWithFilters(
-				survey,
-				filter.getFrom(),
-				filter.getTo(),
-				filter.getUserId(),
-				filter.getRequestToken(),
-				filter.getSearch(),
-				filter.getCompletionStatus(),
-				pageable);
-
-		List<Response> responses = page.getContent();
+	/**
+	 * Ghi nội dung export (csv/xlsx) của survey vào output stream (không kiểm tra quyền)
+	 */
+	private void writeExport(Survey survey, ResponseKeysetReader.ResponseQuery query, String format, boolean includeAnswers,
+			java.io.OutputStream out, java.util.function.IntConsumer progressListener) throws java.io.IOException {
 		// Lấy tất cả questions và sắp xếp theo displayOrder
 		List<Question> allQuestions = questionRepository.findBySurveyOrderByDisplayOrderAsc(survey);
 
-		if ("xlsx".equalsIgnoreCase(format)) {
-			byte[] bytes = exportXlsx(survey, responses, includeAnswers, allQuestions);
-			return buildDownload(bytes, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "responses_" + surveyId + ".xlsx");
+		if ("xlsx".equals(format)) {
+			exportXlsx(survey, query, includeAnswers, allQuestions, out, progressListener);
+			return;
 		}
-		// default CSV
-		byte[] bytes = exportCsv(survey, responses, includeAnswers, allQuestions);
-		return buildDownload(bytes, "text/csv; charset=UTF-8", "responses_" + surveyId + ".csv");
+		exportCsv(survey, query, includeAnswers, allQuestions, out, progressListener);
 	}
 
 	@Transactional
@@ -540,6 +659,7 @@ public class ResponseService {
 		}
 
 		int deleted = 0;
+		List<Long> deletedIds = new ArrayList<>();
 		for (Long id : responseIds) {
 			Response r = responseRepository.findById(id).orElse(null);
 			if (r == null) continue;
@@ -548,8 +668,15 @@ public class ResponseService {
 			List<Answer> answers = answerRepository.findByResponse(r);
 			answerRepository.deleteAll(answers);
 			responseRepository.delete(r);
+			surveyStatsRollupService.onResponseDeleted(survey, r, answers);
+			deletedIds.add(id);
 			deleted++;
 		}
+		answerAnalyticsService.onResponsesDeleted(surveyId, deletedIds);
+		if (deleted > 0) {
+			pdfReportCacheService.evict(surveyId);
+			responseKeysetReader.evictCounts(surveyId);
+		}
 		return deleted;
 	}
 
@@ -566,52 +693,70 @@ public class ResponseService {
 		return org.springframework.data.domain.PageRequest.of(p, s, sortSpec);
 	}
 
-	private String determineCompletionStatus(Response r, List<Question> requiredQuestions) {
-		List<Answer> answers = answerRepository.findByResponse(r);
-		if (answers.isEmpty()) return "dropped";
-		Set<Long> answeredRequired = answers.stream()
-				.filter(a -> a.getQuestion() != null && Boolean.TRUE.equals(a.getQuestion().getIsRequired()))
-				.map(a -> a.getQuestion().getQuestionId())
-				.collect(java.util.stream.Collectors.toSet());
-		long requiredCount = requiredQuestions.stream().filter(q -> Boolean.TRUE.equals(q.getIsRequired())).count();
-		return answeredRequired.size() >= requiredCount && requiredCount > 0 ? "completed" : "partial";
+	/**
+	 * Số response đọc mỗi chunk khi export
+	 */
+	private static final int EXPORT_CHUNK_SIZE = 500;
+
+	/**
+	 * Số response tối đa mỗi trang của danh sách theo cursor
+	 */
+	private static final int MAX_CURSOR_PAGE_SIZE = 200;
+
+	/**
+	 * Callback xử lý một chunk response kèm answers đã nạp sẵn (key = responseId)
+	 */
+	@FunctionalInterface
+	private interface ResponseChunkHandler {
+		void handle(List<Response> responses, Map<Long, List<Answer>> answersByResponse) throws java.io.IOException;
 	}
 
-	private byte[] exportCsv(Survey survey, List<Response> responses, boolean includeAnswers, List<Question> questions) {
-		StringBuilder sb = new StringBuilder();
-		
-		// Thêm UTF-8 BOM để Excel hiểu đúng tiếng Việt
-		sb.append("\uFEFF");
-		
-		// ========== PHẦN 1: TỔNG QUAN ==========
-		sb.append("BÁO CÁO PHẢN HỒI KHẢO SÁT\r\n");
-		sb.append("========================================\r\n");
-		sb.append("\r\n");
-		
-		// Thông tin khảo sát
-		sb.append("Thông tin khảo sát:\r\n");
-		sb.append("Tên khảo sát:,").append(escapeCsv(survey.getTitle() != null ? survey.getTitle() : "N/A")).append("\r\n");
-		sb.append("ID khảo sát:,").append(survey.getSurveyId()).append("\r\n");
-		if (survey.getCreatedAt() != null) {
-			sb.append("Ngày tạo:,").append(escapeCsv(survey.getCreatedAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")))).append("\r\n");
-		}
-		if (survey.getStatus() != null) {
-			sb.append("Trạng thái:,").append(escapeCsv(survey.getStatus().name())).append("\r\n");
+	/**
+	 * Duyệt các response khớp bộ lọc theo từng chunk bằng ResponseKeysetReader (keyset theo submittedAt, responseId).
+	 * Answers của mỗi chunk được nạp bằng 1 query; persistence context được clear sau mỗi chunk
+	 * nên bộ nhớ không tăng theo số response.
+	 */
+	private void forEachResponseChunk(ResponseKeysetReader.ResponseQuery query, ResponseChunkHandler handler) throws java.io.IOException {
+		ResponseKeysetReader.Position after = null;
+		while (true) {
+			List<Response> chunk = responseKeysetReader.readAfter(query, after, true, EXPORT_CHUNK_SIZE);
+			if (chunk.isEmpty()) {
+				break;
+			}
+			List<Long> ids = chunk.stream().map(Response::getResponseId).toList();
+			Map<Long, List<Answer>> answersByResponse = answerRepository.findByResponseIdsWithQuestionAndOption(ids).stream()
+					.collect(Collectors.groupingBy(a -> a.getResponse().getResponseId()));
+			handler.handle(chunk, answersByResponse);
+			after = ResponseKeysetReader.Position.of(chunk.get(chunk.size() - 1));
+			entityManager.clear();
+			if (chunk.size() < EXPORT_CHUNK_SIZE) {
+				break;
+			}
 		}
-		sb.append("\r\n");
-		
-		// Tính toán thống kê
-		int totalResponses = responses.size();
-		List<Question> requiredQuestions = questions.stream()
-				.filter(q -> Boolean.TRUE.equals(q.getIsRequired()))
-				.collect(Collectors.toList());
-		
-		int completed = 0;
-		int partial = 0;
-		int dropped = 0;
-		
-		for (Response r : responses) {
-			String status = determineCompletionStatus(r, requiredQuestions);
+	}
+
+	/**
+	 * Số liệu tổng hợp của export, tích lũy dần qua từng chunk response
+	 */
+	private static class ExportSummary {
+		private int total;
+		private int completed;
+		private int partial;
+		private int dropped;
+		private long durationSum;
+		private int durationCount;
+		private long maxResponseId;
+		private LocalDateTime firstResponse;
+		private LocalDateTime lastResponse;
+		// questionId -> số response có trả lời câu hỏi
+		private final Map<Long, Integer> answeredByQuestion = new HashMap<>();
+		// questionId -> số response có answerText không rỗng
+		private final Map<Long, Integer> textAnsweredByQuestion = new HashMap<>();
+		// optionId -> số lần được chọn
+		private final Map<Long, Integer> optionCounts = new HashMap<>();
+
+		private void add(Response r, List<Answer> answers, String status) {
+			total++;
 			if (status.equals("completed")) {
 				completed++;
 			} else if (status.equals("partial")) {
@@ -619,26 +764,11 @@ public class ResponseService {
 			} else {
 				dropped++;
 			}
-		}
-		
-		double completionRate = totalResponses > 0 ? (double) completed / totalResponses * 100 : 0.0;
-		
-		double avgDuration = 0.0;
-		int countWithDuration = 0;
-		for (Response r : responses) {
 			if (r.getDurationSeconds() != null && r.getDurationSeconds() > 0) {
-				avgDuration += r.getDurationSeconds();
-				countWithDuration++;
+				durationSum += r.getDurationSeconds();
+				durationCount++;
 			}
-		}
-		if (countWithDuration > 0) {
-			avgDuration = avgDuration / countWithDuration;
-		}
-		String avgTimeStr = formatDuration((int) avgDuration);
-		
-		LocalDateTime firstResponse = null;
-		LocalDateTime lastResponse = null;
-		for (Response r : responses) {
+			maxResponseId = Math.max(maxResponseId, r.getResponseId());
 			if (r.getSubmittedAt() != null) {
 				if (firstResponse == null || r.getSubmittedAt().isBefore(firstResponse)) {
 					firstResponse = r.getSubmittedAt();
@@ -647,151 +777,211 @@ public class ResponseService {
 					lastResponse = r.getSubmittedAt();
 				}
 			}
+
+			Set<Long> answered = new HashSet<>();
+			Set<Long> textAnswered = new HashSet<>();
+			for (Answer a : answers) {
+				Long questionId = a.getQuestion().getQuestionId();
+				answered.add(questionId);
+				if (a.getAnswerText() != null && !a.getAnswerText().trim().isEmpty()) {
+					textAnswered.add(questionId);
+				}
+				if (a.getOption() != null) {
+					optionCounts.merge(a.getOption().getOptionId(), 1, Integer::sum);
+				}
+			}
+			answered.forEach(id -> answeredByQuestion.merge(id, 1, Integer::sum));
+			textAnswered.forEach(id -> textAnsweredByQuestion.merge(id, 1, Integer::sum));
 		}
-		
+
+		private double averageDuration() {
+			return durationCount > 0 ? (double) durationSum / durationCount : 0.0;
+		}
+	}
+
+	/**
+	 * Tích lũy ExportSummary cho toàn bộ response khớp filter
+	 */
+	private ExportSummary summarizeResponses(Survey survey, ResponseKeysetReader.ResponseQuery query) throws java.io.IOException {
+		ExportSummary summary = new ExportSummary();
+		forEachResponseChunk(query, (chunk, answersByResponse) -> {
+			for (Response r : chunk) {
+				List<Answer> answers = answersByResponse.getOrDefault(r.getResponseId(), List.of());
+				summary.add(r, answers, r.getCompletionStatus().name());
+			}
+		});
+		return summary;
+	}
+
+	/**
+	 * Báo tiến độ export: lượt thống kê chiếm 50%, lượt ghi dòng chiếm 50% còn lại
+	 */
+	private void reportExportProgress(java.util.function.IntConsumer progressListener, int writtenRows, int totalRows) {
+		if (progressListener == null) {
+			return;
+		}
+		int percent = totalRows > 0 ? 50 + (int) ((long) Math.min(writtenRows, totalRows) * 50 / totalRows) : 50;
+		progressListener.accept(percent);
+	}
+
+	/**
+	 * Export CSV dạng streaming: lượt 1 tích lũy thống kê theo chunk, lượt 2 ghi từng dòng response ra output
+	 */
+	private void exportCsv(Survey survey, ResponseKeysetReader.ResponseQuery query, boolean includeAnswers, List<Question> questions,
+			java.io.OutputStream out, java.util.function.IntConsumer progressListener) throws java.io.IOException {
+		// Đọc trước các thông tin của survey vì persistence context sẽ bị clear giữa các chunk
+		Long surveyId = survey.getSurveyId();
+		String surveyTitle = survey.getTitle();
+		LocalDateTime surveyCreatedAt = survey.getCreatedAt();
+		SurveyStatusEnum surveyStatus = survey.getStatus();
+		Map<Long, List<Option>> optionsByQuestion = optionRepository.findBySurveyOrderByCreatedAt(survey).stream()
+				.collect(Collectors.groupingBy(o -> o.getQuestion().getQuestionId()));
+
+		List<Question> requiredQuestions = questions.stream()
+				.filter(q -> Boolean.TRUE.equals(q.getIsRequired()))
+				.collect(Collectors.toList());
+		ExportSummary summary = summarizeResponses(survey, query);
+		reportExportProgress(progressListener, 0, summary.total);
+
+		java.io.Writer writer = new java.io.BufferedWriter(new java.io.OutputStreamWriter(out, StandardCharsets.UTF_8));
+		StringBuilder sb = new StringBuilder();
+
+		// Thêm UTF-8 BOM để Excel hiểu đúng tiếng Việt
+		sb.append("\uFEFF");
+
+		// ========== PHẦN 1: TỔNG QUAN ==========
+		sb.append("BÁO CÁO PHẢN HỒI KHẢO SÁT\r\n");
+		sb.append("========================================\r\n");
+		sb.append("\r\n");
+
+		// Thông tin khảo sát
+		sb.append("Thông tin khảo sát:\r\n");
+		sb.append("Tên khảo sát:,").append(escapeCsv(surveyTitle != null ? surveyTitle : "N/A")).append("\r\n");
+		sb.append("ID khảo sát:,").append(surveyId).append("\r\n");
+		if (surveyCreatedAt != null) {
+			sb.append("Ngày tạo:,").append(escapeCsv(surveyCreatedAt.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")))).append("\r\n");
+		}
+		if (surveyStatus != null) {
+			sb.append("Trạng thái:,").append(escapeCsv(surveyStatus.name())).append("\r\n");
+		}
+		sb.append("\r\n");
+
+		int totalResponses = summary.total;
+		double completionRate = totalResponses > 0 ? (double) summary.completed / totalResponses * 100 : 0.0;
+		String avgTimeStr = formatDuration((int) summary.averageDuration());
+
 		// Thống kê phản hồi
 		sb.append("Thống kê phản hồi:\r\n");
 		sb.append("Tổng số phản hồi:,").append(totalResponses).append("\r\n");
-		sb.append("Số phản hồi hoàn thành:,").append(completed).append("\r\n");
-		sb.append("Số phản hồi chưa hoàn thành:,").append(partial).append("\r\n");
-		sb.append("Số phản hồi bỏ dở:,").append(dropped).append("\r\n");
+		sb.append("Số phản hồi hoàn thành:,").append(summary.completed).append("\r\n");
+		sb.append("Số phản hồi chưa hoàn thành:,").append(summary.partial).append("\r\n");
+		sb.append("Số phản hồi bỏ dở:,").append(summary.dropped).append("\r\n");
 		sb.append("Tỷ lệ hoàn thành:,").append(String.format("%.2f%%", completionRate)).append("\r\n");
 		sb.append("Thời gian trung bình hoàn thành:,").append(escapeCsv(avgTimeStr)).append("\r\n");
-		if (firstResponse != null) {
-			sb.append("Phản hồi đầu tiên:,").append(escapeCsv(firstResponse.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")))).append("\r\n");
+		if (summary.firstResponse != null) {
+			sb.append("Phản hồi đầu tiên:,").append(escapeCsv(summary.firstResponse.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")))).append("\r\n");
 		}
-		if (lastResponse != null) {
-			sb.append("Phản hồi cuối cùng:,").append(escapeCsv(lastResponse.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")))).append("\r\n");
+		if (summary.lastResponse != null) {
+			sb.append("Phản hồi cuối cùng:,").append(escapeCsv(summary.lastResponse.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")))).append("\r\n");
 		}
 		sb.append("\r\n");
-		
+
 		// Thống kê câu hỏi
 		sb.append("Thống kê câu hỏi:\r\n");
 		sb.append("Tổng số câu hỏi:,").append(questions.size()).append("\r\n");
 		sb.append("Số câu hỏi bắt buộc:,").append(requiredQuestions.size()).append("\r\n");
 		sb.append("Số câu hỏi tùy chọn:,").append(questions.size() - requiredQuestions.size()).append("\r\n");
 		sb.append("\r\n");
-		
+
 		// ========== PHẦN 2: THỐNG KÊ TỪNG CÂU HỎI ==========
 		sb.append("THỐNG KÊ TỪNG CÂU HỎI\r\n");
 		sb.append("========================================\r\n");
 		sb.append("STT,Câu hỏi,Số người trả lời,Tỷ lệ (%),Loại câu hỏi\r\n");
-		
+
 		int stt = 1;
 		for (Question question : questions) {
-			// Đếm số người trả lời
-			int answerCount = 0;
-			for (Response response : responses) {
-				List<Answer> answers = answerRepository.findByResponse(response);
-				boolean hasAnswer = answers.stream()
-						.anyMatch(a -> a.getQuestion() != null && 
-								a.getQuestion().getQuestionId().equals(question.getQuestionId()));
-				if (hasAnswer) {
-					answerCount++;
-				}
-			}
-			
+			// Số người trả lời
+			int answerCount = summary.answeredByQuestion.getOrDefault(question.getQuestionId(), 0);
+
 			double percentage = totalResponses > 0 ? (double) answerCount / totalResponses * 100 : 0.0;
 			String questionText = question.getQuestionText() != null ? question.getQuestionText() : "Câu hỏi " + question.getQuestionId();
-			String questionType = question.getQuestionType() != null ? 
+			String questionType = question.getQuestionType() != null ?
 					translateQuestionType(question.getQuestionType()) : "N/A";
-			
+
 			sb.append(stt++).append(',')
 					.append(escapeCsv(questionText)).append(',')
 					.append(answerCount).append(',')
 					.append(String.format("%.2f", percentage)).append(',')
 					.append(escapeCsv(questionType)).append("\r\n");
 		}
-		
+
 		sb.append("TỔNG CỘNG,,").append(totalResponses).append(",100.00,\r\n");
 		sb.append("\r\n");
 		sb.append("\r\n");
-		
+
 		// ========== PHẦN 2.5: THỐNG KÊ CHI TIẾT TỪNG CÂU HỎI (ĐÁP ÁN VÀ SỐ LƯỢNG) ==========
 		sb.append("THỐNG KÊ CHI TIẾT TỪNG CÂU HỎI - ĐÁP ÁN VÀ SỐ LƯỢNG\r\n");
 		sb.append("========================================\r\n");
 		sb.append("\r\n");
-		
+
 		for (Question question : questions) {
 			String questionText = question.getQuestionText() != null ? question.getQuestionText() : "Câu hỏi " + question.getQuestionId();
 			sb.append("Câu hỏi: ").append(escapeCsv(questionText)).append("\r\n");
 			sb.append("Tùy chọn,Số lượng,Tỷ lệ (%),Loại câu hỏi\r\n");
-			
+
 			QuestionTypeEnum questionType = question.getQuestionType();
-			
-			if (questionType == QuestionTypeEnum.multiple_choice || 
+
+			if (questionType == QuestionTypeEnum.multiple_choice ||
 				questionType == QuestionTypeEnum.single_choice ||
 				questionType == QuestionTypeEnum.boolean_ ||
 				questionType == QuestionTypeEnum.rating) {
 				// Câu hỏi có options
-				List<Option> options = optionRepository.findByQuestionOrderByCreatedAt(question);
-				List<Answer> allAnswers = answerRepository.findByQuestion(question);
-				
-				// Đếm số lượng cho mỗi option
-				Map<Long, Integer> optionCounts = new HashMap<>();
-				for (Answer answer : allAnswers) {
-					if (answer.getOption() != null) {
-						Long optionId = answer.getOption().getOptionId();
-						optionCounts.put(optionId, optionCounts.getOrDefault(optionId, 0) + 1);
-					}
-				}
-				
-				// Tính tổng số responses cho câu hỏi này
-				int questionTotalResponses = (int) allAnswers.stream()
-						.map(a -> a.getResponse().getResponseId())
-						.distinct()
-						.count();
-				
+				List<Option> options = optionsByQuestion.getOrDefault(question.getQuestionId(), List.of());
+
+				// Tổng số responses cho câu hỏi này
+				int questionTotalResponses = summary.answeredByQuestion.getOrDefault(question.getQuestionId(), 0);
+
 				// Hiển thị từng option
 				for (Option option : options) {
-					int count = optionCounts.getOrDefault(option.getOptionId(), 0);
+					int count = summary.optionCounts.getOrDefault(option.getOptionId(), 0);
 					double percentage = questionTotalResponses > 0 ? (double) count / questionTotalResponses * 100 : 0.0;
-					
+
 					sb.append(escapeCsv(option.getOptionText() != null ? option.getOptionText() : "N/A")).append(',')
 							.append(count).append(',')
 							.append(String.format("%.2f", percentage)).append(',')
 							.append(escapeCsv(translateQuestionType(questionType))).append("\r\n");
 				}
-				
+
 				// Tổng cộng
 				sb.append("Tổng,").append(questionTotalResponses).append(",100.00,\r\n");
-				
+
 			} else if (questionType == QuestionTypeEnum.open_ended) {
 				// Câu hỏi mở
-				List<Answer> allAnswers = answerRepository.findByQuestion(question);
-				int answerCount = (int) allAnswers.stream()
-						.filter(a -> a.getAnswerText() != null && !a.getAnswerText().trim().isEmpty())
-						.map(a -> a.getResponse().getResponseId())
-						.distinct()
-						.count();
-				
+				int answerCount = summary.textAnsweredByQuestion.getOrDefault(question.getQuestionId(), 0);
+
 				double percentage = totalResponses > 0 ? (double) answerCount / totalResponses * 100 : 0.0;
 				sb.append("Câu hỏi mở,").append(answerCount).append(',')
 						.append(String.format("%.2f", percentage)).append(',')
 						.append(escapeCsv(translateQuestionType(questionType))).append("\r\n");
 			} else {
 				// Các loại câu hỏi khác
-				List<Answer> allAnswers = answerRepository.findByQuestion(question);
-				int answerCount = (int) allAnswers.stream()
-						.map(a -> a.getResponse().getResponseId())
-						.distinct()
-						.count();
-				
+				int answerCount = summary.answeredByQuestion.getOrDefault(question.getQuestionId(), 0);
+
 				double percentage = totalResponses > 0 ? (double) answerCount / totalResponses * 100 : 0.0;
 				sb.append("Có trả lời,").append(answerCount).append(',')
 						.append(String.format("%.2f", percentage)).append(',')
 						.append(escapeCsv(translateQuestionType(questionType))).append("\r\n");
 			}
-			
+
 			sb.append("\r\n"); // Skip một dòng giữa các câu hỏi
 		}
-		
+
 		sb.append("\r\n");
-		
+
 		// ========== PHẦN 3: DANH SÁCH PHẢN HỒI ==========
 		sb.append("DANH SÁCH PHẢN HỒI\r\n");
 		sb.append("========================================\r\n");
-		
+
 		// Header với tên cột rõ ràng hơn
 		sb.append("STT,Response ID,Survey ID,User ID,Request Token,Submitted At,Duration (seconds),Completion Status");
 		if (includeAnswers) {
@@ -800,42 +990,51 @@ public class ResponseService {
 			}
 		}
 		sb.append("\r\n"); // Dùng \r\n cho Windows compatibility
-
-		List<Question> required = questions.stream().filter(q -> Boolean.TRUE.equals(q.getIsRequired())).toList();
-
-		stt = 1;
-		for (Response r : responses) {
-			String status = determineCompletionStatus(r, required);
-			String statusVi = status.equals("completed") ? "Hoàn thành" : 
-							  status.equals("partial") ? "Chưa hoàn thành" : "Bỏ dở";
-			
-			// Format submittedAt đúng chuẩn
-			String submittedAtStr = r.getSubmittedAt() != null 
-				? r.getSubmittedAt().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))
-				: "";
-			
-			sb.append(stt++).append(',')
-					.append(r.getResponseId()).append(',')
-					.append(r.getSurvey().getSurveyId()).append(',')
-					.append(r.getUser() != null ? r.getUser().getUserId() : "").append(',')
-					.append(escapeCsv(r.getRequestToken())).append(',')
-					.append(escapeCsv(submittedAtStr)).append(',')
-					.append(r.getDurationSeconds() != null ? r.getDurationSeconds() : "").append(',')
-					.append(escapeCsv(statusVi));
-			if (includeAnswers) {
-				List<Answer> answers = answerRepository.findByResponse(r);
-				Map<Long, List<Answer>> byQ = answers.stream().collect(Collectors.groupingBy(a -> a.getQuestion().getQuestionId()));
-				for (Question q : questions) {
-					List<Answer> list = byQ.getOrDefault(q.getQuestionId(), List.of());
-					String val = formatAnswerValueForCsv(list, q.getQuestionType());
-					sb.append(',').append(escapeCsv(val));
+		writer.write(sb.toString());
+		sb.setLength(0);
+
+		java.util.concurrent.atomic.AtomicInteger rowNumber = new java.util.concurrent.atomic.AtomicInteger(1);
+		forEachResponseChunk(query, (chunk, answersByResponse) -> {
+			for (Response r : chunk) {
+				// Bỏ qua response mới được submit sau lượt thống kê để danh sách khớp với phần tổng quan
+				if (r.getResponseId() > summary.maxResponseId) {
+					continue;
+				}
+				List<Answer> answers = answersByResponse.getOrDefault(r.getResponseId(), List.of());
+				String statusVi = r.getCompletionStatus().getDescription();
+
+				// Format submittedAt đúng chuẩn
+				String submittedAtStr = r.getSubmittedAt() != null
+					? r.getSubmittedAt().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))
+					: "";
+
+				sb.append(rowNumber.getAndIncrement()).append(',')
+						.append(r.getResponseId()).append(',')
+						.append(surveyId).append(',')
+						.append(r.getUser() != null ? r.getUser().getUserId() : "").append(',')
+						.append(escapeCsv(r.getRequestToken())).append(',')
+						.append(escapeCsv(submittedAtStr)).append(',')
+						.append(r.getDurationSeconds() != null ? r.getDurationSeconds() : "").append(',')
+						.append(escapeCsv(statusVi));
+				if (includeAnswers) {
+					Map<Long, List<Answer>> byQ = answers.stream().collect(Collectors.groupingBy(a -> a.getQuestion().getQuestionId()));
+					for (Question q : questions) {
+						List<Answer> list = byQ.getOrDefault(q.getQuestionId(), List.of());
+						String val = formatAnswerValueForCsv(list, q.getQuestionType());
+						sb.append(',').append(escapeCsv(val));
+					}
 				}
+				sb.append("\r\n"); // Dùng \r\n
+				writer.write(sb.toString());
+				sb.setLength(0);
 			}
-			sb.append("\r\n"); // Dùng \r\n
-		}
-		return sb.toString().getBytes(StandardCharsets.UTF_8);
+			// Đẩy dữ liệu của chunk xuống client
+			writer.flush();
+			reportExportProgress(progressListener, rowNumber.get() - 1, summary.total);
+		});
+		writer.flush();
 	}
-	
+
 	/**
 	 * Format answer value cho CSV (giống với Excel)
 	 */
@@ -867,59 +1066,88 @@ public class ResponseService {
 		}
 	}
 
-	private byte[] exportXlsx(Survey survey, List<Response> responses, boolean includeAnswers, List<Question> questions) {
+	/**
+	 * Số dòng giữ trong bộ nhớ cho mỗi sheet của SXSSFWorkbook, các dòng cũ hơn được ghi ra file tạm
+	 */
+	private static final int XLSX_ROW_ACCESS_WINDOW = 100;
+
+	/**
+	 * Export Excel dạng streaming (SXSSF): thống kê được tích lũy 1 lần theo chunk và dùng chung cho 3 sheet đầu,
+	 * sheet danh sách phản hồi được ghi theo chunk với cửa sổ dòng cố định.
+	 */
+	private void exportXlsx(Survey survey, ResponseKeysetReader.ResponseQuery query, boolean includeAnswers, List<Question> questions,
+			java.io.OutputStream out, java.util.function.IntConsumer progressListener) throws java.io.IOException {
+		// Sắp xếp questions theo displayOrder
+		List<Question> sortedQuestions = new ArrayList<>(questions);
+		sortedQuestions.sort((q1, q2) -> {
+			Integer order1 = q1.getDisplayOrder() != null ? q1.getDisplayOrder() : 0;
+			Integer order2 = q2.getDisplayOrder() != null ? q2.getDisplayOrder() : 0;
+			return Integer.compare(order1, order2);
+		});
+		List<Question> requiredQuestions = sortedQuestions.stream()
+				.filter(q -> Boolean.TRUE.equals(q.getIsRequired()))
+				.collect(Collectors.toList());
+		Map<Long, List<Option>> optionsByQuestion = optionRepository.findBySurveyOrderByCreatedAt(survey).stream()
+				.collect(Collectors.groupingBy(o -> o.getQuestion().getQuestionId()));
+
+		// Lượt 1: tích lũy thống kê dùng chung cho các sheet tổng hợp
+		ExportSummary summary = summarizeResponses(survey, query);
+		reportExportProgress(progressListener, 0, summary.total);
+
+		org.apache.poi.xssf.streaming.SXSSFWorkbook wb = new org.apache.poi.xssf.streaming.SXSSFWorkbook(XLSX_ROW_ACCESS_WINDOW);
+		wb.setCompressTempFiles(true);
 		try {
-			org.apache.poi.xssf.usermodel.XSSFWorkbook wb = new org.apache.poi.xssf.usermodel.XSSFWorkbook();
-			
-			// Sắp xếp questions theo displayOrder
-			List<Question> sortedQuestions = new ArrayList<>(questions);
-			sortedQuestions.sort((q1, q2) -> {
-				Integer order1 = q1.getDisplayOrder() != null ? q1.getDisplayOrder() : 0;
-				Integer order2 = q2.getDisplayOrder() != null ? q2.getDisplayOrder() : 0;
-				return Integer.compare(order1, order2);
-			});
-			
 			// Tạo các style
 			org.apache.poi.ss.usermodel.CellStyle headerStyle = createHeaderStyle(wb);
 			org.apache.poi.ss.usermodel.CellStyle dataStyle = createDataStyle(wb);
-			org.apache.poi.ss.usermodel.CellStyle dateStyle = createDateStyle(wb);
 			org.apache.poi.ss.usermodel.CellStyle numberStyle = createNumberStyle(wb);
 			org.apache.poi.ss.usermodel.CellStyle titleStyle = createTitleStyle(wb);
 			org.apache.poi.ss.usermodel.CellStyle completedStyle = createStatusStyle(wb, true);
 			org.apache.poi.ss.usermodel.CellStyle partialStyle = createStatusStyle(wb, false);
 			
 			// Sheet 1: Tổng quan
-			createOverviewSheet(wb, survey, responses, sortedQuestions, titleStyle, dataStyle, numberStyle);
+			createOverviewSheet(wb, survey, summary, sortedQuestions, requiredQuestions, titleStyle, dataStyle, numberStyle);
 			
 			// Sheet 2: Thống kê câu hỏi
-			createQuestionStatsSheet(wb, survey, responses, sortedQuestions, headerStyle, dataStyle, numberStyle);
+			createQuestionStatsSheet(wb, summary, sortedQuestions, headerStyle, dataStyle, numberStyle);
 			
 			// Sheet 3: Thống kê chi tiết từng câu hỏi (đáp án và số lượng)
-			createDetailedQuestionStatsSheet(wb, survey, responses, sortedQuestions, headerStyle, dataStyle, numberStyle);
+			createDetailedQuestionStatsSheet(wb, summary, sortedQuestions, optionsByQuestion, headerStyle, dataStyle, numberStyle);
 			
-			// Sheet 4: Danh sách phản hồi
-			createResponsesSheet(wb, survey, responses, includeAnswers, sortedQuestions, 
-					headerStyle, dataStyle, dateStyle, numberStyle, completedStyle, partialStyle);
+			// Sheet 4: Danh sách phản hồi (lượt 2, ghi theo chunk)
+			createResponsesSheet(wb, survey, query, summary, includeAnswers, sortedQuestions, requiredQuestions,
+					headerStyle, dataStyle, numberStyle, completedStyle, partialStyle, progressListener);
 			
-			java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
-			wb.write(bos);
+			wb.write(out);
+			out.flush();
+		} finally {
+			// Xóa các file tạm của SXSSF
+			wb.dispose();
 			wb.close();
-			return bos.toByteArray();
-		} catch (Exception e) {
-			e.printStackTrace();
-			return new byte[0];
 		}
 	}
 	
+	/**
+	 * Tạo style định dạng phần trăm (0.00) dựa trên numberStyle
+	 */
+	private org.apache.poi.ss.usermodel.CellStyle createPercentageStyle(org.apache.poi.ss.usermodel.Workbook wb,
+			org.apache.poi.ss.usermodel.CellStyle numberStyle) {
+		org.apache.poi.ss.usermodel.CellStyle percentageStyle = wb.createCellStyle();
+		percentageStyle.cloneStyleFrom(numberStyle);
+		percentageStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("0.00"));
+		return percentageStyle;
+	}
+	
 	/**
 	 * Tạo sheet Tổng quan với thống kê đầy đủ
 	 */
-	private void createOverviewSheet(org.apache.poi.xssf.usermodel.XSSFWorkbook wb, 
-			Survey survey, List<Response> responses, List<Question> questions,
+	private void createOverviewSheet(org.apache.poi.xssf.streaming.SXSSFWorkbook wb, 
+			Survey survey, ExportSummary summary, List<Question> questions, List<Question> requiredQuestions,
 			org.apache.poi.ss.usermodel.CellStyle titleStyle,
 			org.apache.poi.ss.usermodel.CellStyle dataStyle,
 			org.apache.poi.ss.usermodel.CellStyle numberStyle) {
-		org.apache.poi.ss.usermodel.Sheet sheet = wb.createSheet("Tổng quan");
+		org.apache.poi.xssf.streaming.SXSSFSheet sheet = wb.createSheet("Tổng quan");
+		sheet.trackAllColumnsForAutoSizing();
 		int rowIdx = 0;
 		
 		// Title
@@ -944,58 +1172,10 @@ public class ResponseService {
 		
 		rowIdx++; // Skip một dòng
 		
-		// Tính toán thống kê
-		int totalResponses = responses.size();
-		List<Question> requiredQuestions = questions.stream()
-				.filter(q -> Boolean.TRUE.equals(q.getIsRequired()))
-				.collect(Collectors.toList());
-		
-		// Đếm completed, partial, dropped
-		int completed = 0;
-		int partial = 0;
-		int dropped = 0;
-		
-		for (Response r : responses) {
-			String status = determineCompletionStatus(r, requiredQuestions);
-			if (status.equals("completed")) {
-				completed++;
-			} else if (status.equals("partial")) {
-				partial++;
-			} else {
-				dropped++;
-			}
-		}
-		
-		// Tính tỷ lệ hoàn thành
-		double completionRate = totalResponses > 0 ? (double) completed / totalResponses * 100 : 0.0;
-		
-		// Tính thời gian trung bình hoàn thành
-		double avgDuration = 0.0;
-		int countWithDuration = 0;
-		for (Response r : responses) {
-			if (r.getDurationSeconds() != null && r.getDurationSeconds() > 0) {
-				avgDuration += r.getDurationSeconds();
-				countWithDuration++;
-			}
-		}
-		if (countWithDuration > 0) {
-			avgDuration = avgDuration / countWithDuration;
-		}
-		String avgTimeStr = formatDuration((int) avgDuration);
-		
-		// Tìm ngày phản hồi đầu tiên và cuối cùng
-		LocalDateTime firstResponse = null;
-		LocalDateTime lastResponse = null;
-		for (Response r : responses) {
-			if (r.getSubmittedAt() != null) {
-				if (firstResponse == null || r.getSubmittedAt().isBefore(firstResponse)) {
-					firstResponse = r.getSubmittedAt();
-				}
-				if (lastResponse == null || r.getSubmittedAt().isAfter(lastResponse)) {
-					lastResponse = r.getSubmittedAt();
-				}
-			}
-		}
+		// Thống kê đã được tích lũy sẵn trong summary
+		int totalResponses = summary.total;
+		double completionRate = totalResponses > 0 ? (double) summary.completed / totalResponses * 100 : 0.0;
+		String avgTimeStr = formatDuration((int) summary.averageDuration());
 		
 		// Thống kê phản hồi
 		org.apache.poi.ss.usermodel.Row statsTitleRow = sheet.createRow(rowIdx++);
@@ -1013,9 +1193,9 @@ public class ResponseService {
 		
 		// Thống kê số lượng
 		addInfoRow(sheet, rowIdx++, "Tổng số phản hồi:", String.valueOf(totalResponses), dataStyle);
-		addInfoRowWithNumber(sheet, rowIdx++, "Số phản hồi hoàn thành:", completed, dataStyle, numberStyle);
-		addInfoRowWithNumber(sheet, rowIdx++, "Số phản hồi chưa hoàn thành:", partial, dataStyle, numberStyle);
-		addInfoRowWithNumber(sheet, rowIdx++, "Số phản hồi bỏ dở:", dropped, dataStyle, numberStyle);
+		addInfoRowWithNumber(sheet, rowIdx++, "Số phản hồi hoàn thành:", summary.completed, dataStyle, numberStyle);
+		addInfoRowWithNumber(sheet, rowIdx++, "Số phản hồi chưa hoàn thành:", summary.partial, dataStyle, numberStyle);
+		addInfoRowWithNumber(sheet, rowIdx++, "Số phản hồi bỏ dở:", summary.dropped, dataStyle, numberStyle);
 		
 		rowIdx++; // Skip một dòng
 		
@@ -1027,17 +1207,15 @@ public class ResponseService {
 		rowIdx++; // Skip một dòng
 		
 		// Thông tin thời gian
-		if (firstResponse != null) {
+		if (summary.firstResponse != null) {
 			addInfoRow(sheet, rowIdx++, "Phản hồi đầu tiên:", 
-					firstResponse.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")), dataStyle);
+					summary.firstResponse.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")), dataStyle);
 		}
-		if (lastResponse != null) {
+		if (summary.lastResponse != null) {
 			addInfoRow(sheet, rowIdx++, "Phản hồi cuối cùng:", 
-					lastResponse.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")), dataStyle);
+					summary.lastResponse.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")), dataStyle);
 		}
 		
-		rowIdx++; // Skip một dòng
-		
 		// Thống kê câu hỏi
 		org.apache.poi.ss.usermodel.Row questionsTitleRow = sheet.createRow(rowIdx++);
 		org.apache.poi.ss.usermodel.Cell questionsTitleCell = questionsTitleRow.createCell(0);
@@ -1091,12 +1269,13 @@ public class ResponseService {
 	/**
 	 * Tạo sheet Thống kê câu hỏi
 	 */
-	private void createQuestionStatsSheet(org.apache.poi.xssf.usermodel.XSSFWorkbook wb,
-			Survey survey, List<Response> responses, List<Question> questions,
+	private void createQuestionStatsSheet(org.apache.poi.xssf.streaming.SXSSFWorkbook wb,
+			ExportSummary summary, List<Question> questions,
 			org.apache.poi.ss.usermodel.CellStyle headerStyle,
 			org.apache.poi.ss.usermodel.CellStyle dataStyle,
 			org.apache.poi.ss.usermodel.CellStyle numberStyle) {
-		org.apache.poi.ss.usermodel.Sheet sheet = wb.createSheet("Thống kê câu hỏi");
+		org.apache.poi.xssf.streaming.SXSSFSheet sheet = wb.createSheet("Thống kê câu hỏi");
+		sheet.trackAllColumnsForAutoSizing();
 		int rowIdx = 0;
 		
 		// Title
@@ -1126,24 +1305,16 @@ public class ResponseService {
 		}
 		
 		// Tính tổng số responses
-		int totalResponses = responses.size();
+		int totalResponses = summary.total;
+		org.apache.poi.ss.usermodel.CellStyle percentageStyle = createPercentageStyle(wb, numberStyle);
 		
 		// Data rows
 		int stt = 1;
 		for (Question question : questions) {
 			org.apache.poi.ss.usermodel.Row row = sheet.createRow(rowIdx++);
 			
-			// Đếm số người trả lời câu hỏi này
-			int answerCount = 0;
-			for (Response response : responses) {
-				List<Answer> answers = answerRepository.findByResponse(response);
-				boolean hasAnswer = answers.stream()
-						.anyMatch(a -> a.getQuestion() != null && 
-								a.getQuestion().getQuestionId().equals(question.getQuestionId()));
-				if (hasAnswer) {
-					answerCount++;
-				}
-			}
+			// Số người trả lời câu hỏi này
+			int answerCount = summary.answeredByQuestion.getOrDefault(question.getQuestionId(), 0);
 			
 			// Tính tỷ lệ
 			double percentage = totalResponses > 0 ? (double) answerCount / totalResponses * 100 : 0.0;
@@ -1163,10 +1334,6 @@ public class ResponseService {
 			
 			// Tỷ lệ
 			row.createCell(3).setCellValue(percentage);
-			org.apache.poi.ss.usermodel.CellStyle percentageStyle = wb.createCellStyle();
-			percentageStyle.cloneStyleFrom(numberStyle);
-			org.apache.poi.ss.usermodel.CreationHelper createHelper = wb.getCreationHelper();
-			percentageStyle.setDataFormat(createHelper.createDataFormat().getFormat("0.00"));
 			row.getCell(3).setCellStyle(percentageStyle);
 			
 			// Loại câu hỏi
@@ -1204,12 +1371,13 @@ public class ResponseService {
 	/**
 	 * Tạo sheet Thống kê chi tiết từng câu hỏi (đáp án và số lượng)
 	 */
-	private void createDetailedQuestionStatsSheet(org.apache.poi.xssf.usermodel.XSSFWorkbook wb,
-			Survey survey, List<Response> responses, List<Question> questions,
+	private void createDetailedQuestionStatsSheet(org.apache.poi.xssf.streaming.SXSSFWorkbook wb,
+			ExportSummary summary, List<Question> questions, Map<Long, List<Option>> optionsByQuestion,
 			org.apache.poi.ss.usermodel.CellStyle headerStyle,
 			org.apache.poi.ss.usermodel.CellStyle dataStyle,
 			org.apache.poi.ss.usermodel.CellStyle numberStyle) {
-		org.apache.poi.ss.usermodel.Sheet sheet = wb.createSheet("Thống kê chi tiết");
+		org.apache.poi.xssf.streaming.SXSSFSheet sheet = wb.createSheet("Thống kê chi tiết");
+		sheet.trackAllColumnsForAutoSizing();
 		int rowIdx = 0;
 		
 		// Title
@@ -1227,7 +1395,17 @@ public class ResponseService {
 		rowIdx++; // Skip một dòng
 		
 		// Tính tổng số responses
-		int totalResponses = responses.size();
+		int totalResponses = summary.total;
+		
+		// Style dùng chung cho tiêu đề câu hỏi và cột tỷ lệ
+		org.apache.poi.ss.usermodel.Font questionFont = wb.createFont();
+		questionFont.setBold(true);
+		questionFont.setFontHeightInPoints((short) 12);
+		org.apache.poi.ss.usermodel.CellStyle questionStyle = wb.createCellStyle();
+		questionStyle.setFont(questionFont);
+		questionStyle.setFillForegroundColor(org.apache.poi.ss.usermodel.IndexedColors.LIGHT_BLUE.getIndex());
+		questionStyle.setFillPattern(org.apache.poi.ss.usermodel.FillPatternType.SOLID_FOREGROUND);
+		org.apache.poi.ss.usermodel.CellStyle percentageStyle = createPercentageStyle(wb, numberStyle);
 		
 		// Xử lý từng câu hỏi
 		for (Question question : questions) {
@@ -1236,13 +1414,6 @@ public class ResponseService {
 			org.apache.poi.ss.usermodel.Cell questionTitleCell = questionTitleRow.createCell(0);
 			String questionText = question.getQuestionText() != null ? question.getQuestionText() : "Câu hỏi " + question.getQuestionId();
 			questionTitleCell.setCellValue(questionText);
-			org.apache.poi.ss.usermodel.Font questionFont = wb.createFont();
-			questionFont.setBold(true);
-			questionFont.setFontHeightInPoints((short) 12);
-			org.apache.poi.ss.usermodel.CellStyle questionStyle = wb.createCellStyle();
-			questionStyle.setFont(questionFont);
-			questionStyle.setFillForegroundColor(org.apache.poi.ss.usermodel.IndexedColors.LIGHT_BLUE.getIndex());
-			questionStyle.setFillPattern(org.apache.poi.ss.usermodel.FillPatternType.SOLID_FOREGROUND);
 			questionTitleCell.setCellStyle(questionStyle);
 			sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(rowIdx - 1, rowIdx - 1, 0, 3));
 			
@@ -1265,28 +1436,15 @@ public class ResponseService {
 				questionType == QuestionTypeEnum.boolean_ ||
 				questionType == QuestionTypeEnum.rating) {
 				// Câu hỏi có options
-				List<Option> options = optionRepository.findByQuestionOrderByCreatedAt(question);
-				List<Answer> allAnswers = answerRepository.findByQuestion(question);
-				
-				// Đếm số lượng cho mỗi option
-				Map<Long, Integer> optionCounts = new HashMap<>();
-				for (Answer answer : allAnswers) {
-					if (answer.getOption() != null) {
-						Long optionId = answer.getOption().getOptionId();
-						optionCounts.put(optionId, optionCounts.getOrDefault(optionId, 0) + 1);
-					}
-				}
+				List<Option> options = optionsByQuestion.getOrDefault(question.getQuestionId(), List.of());
 				
-				// Tính tổng số responses cho câu hỏi này (unique responses)
-				int questionTotalResponses = (int) allAnswers.stream()
-						.map(a -> a.getResponse().getResponseId())
-						.distinct()
-						.count();
+				// Tổng số responses cho câu hỏi này (unique responses)
+				int questionTotalResponses = summary.answeredByQuestion.getOrDefault(question.getQuestionId(), 0);
 				
 				// Hiển thị từng option
 				for (Option option : options) {
 					org.apache.poi.ss.usermodel.Row row = sheet.createRow(rowIdx++);
-					int count = optionCounts.getOrDefault(option.getOptionId(), 0);
+					int count = summary.optionCounts.getOrDefault(option.getOptionId(), 0);
 					double percentage = questionTotalResponses > 0 ? (double) count / questionTotalResponses * 100 : 0.0;
 					
 					row.createCell(0).setCellValue(option.getOptionText() != null ? option.getOptionText() : "N/A");
@@ -1296,12 +1454,6 @@ public class ResponseService {
 					
 					row.getCell(0).setCellStyle(dataStyle);
 					row.getCell(1).setCellStyle(numberStyle);
-					
-					// Format percentage
-					org.apache.poi.ss.usermodel.CellStyle percentageStyle = wb.createCellStyle();
-					percentageStyle.cloneStyleFrom(numberStyle);
-					org.apache.poi.ss.usermodel.CreationHelper createHelper = wb.getCreationHelper();
-					percentageStyle.setDataFormat(createHelper.createDataFormat().getFormat("0.00"));
 					row.getCell(2).setCellStyle(percentageStyle);
 					row.getCell(3).setCellStyle(dataStyle);
 				}
@@ -1317,42 +1469,15 @@ public class ResponseService {
 					totalRow.getCell(i).setCellStyle(headerStyle);
 				}
 				
-			} else if (questionType == QuestionTypeEnum.open_ended) {
-				// Câu hỏi mở - đếm số người trả lời
-				List<Answer> allAnswers = answerRepository.findByQuestion(question);
-				int answerCount = (int) allAnswers.stream()
-						.filter(a -> a.getAnswerText() != null && !a.getAnswerText().trim().isEmpty())
-						.map(a -> a.getResponse().getResponseId())
-						.distinct()
-						.count();
-				
-				org.apache.poi.ss.usermodel.Row row = sheet.createRow(rowIdx++);
-				row.createCell(0).setCellValue("Câu hỏi mở");
-				row.createCell(1).setCellValue(answerCount);
-				double percentage = totalResponses > 0 ? (double) answerCount / totalResponses * 100 : 0.0;
-				row.createCell(2).setCellValue(percentage);
-				row.createCell(3).setCellValue(translateQuestionType(questionType));
-				
-				row.getCell(0).setCellStyle(dataStyle);
-				row.getCell(1).setCellStyle(numberStyle);
-				
-				org.apache.poi.ss.usermodel.CellStyle percentageStyle = wb.createCellStyle();
-				percentageStyle.cloneStyleFrom(numberStyle);
-				org.apache.poi.ss.usermodel.CreationHelper createHelper = wb.getCreationHelper();
-				percentageStyle.setDataFormat(createHelper.createDataFormat().getFormat("0.00"));
-				row.getCell(2).setCellStyle(percentageStyle);
-				row.getCell(3).setCellStyle(dataStyle);
-				
 			} else {
-				// Các loại câu hỏi khác
-				List<Answer> allAnswers = answerRepository.findByQuestion(question);
-				int answerCount = (int) allAnswers.stream()
-						.map(a -> a.getResponse().getResponseId())
-						.distinct()
-						.count();
+				// Câu hỏi mở: đếm answerText không rỗng; các loại khác: đếm response có trả lời
+				boolean openEnded = questionType == QuestionTypeEnum.open_ended;
+				int answerCount = openEnded
+						? summary.textAnsweredByQuestion.getOrDefault(question.getQuestionId(), 0)
+						: summary.answeredByQuestion.getOrDefault(question.getQuestionId(), 0);
 				
 				org.apache.poi.ss.usermodel.Row row = sheet.createRow(rowIdx++);
-				row.createCell(0).setCellValue("Có trả lời");
+				row.createCell(0).setCellValue(openEnded ? "Câu hỏi mở" : "Có trả lời");
 				row.createCell(1).setCellValue(answerCount);
 				double percentage = totalResponses > 0 ? (double) answerCount / totalResponses * 100 : 0.0;
 				row.createCell(2).setCellValue(percentage);
@@ -1360,11 +1485,6 @@ public class ResponseService {
 				
 				row.getCell(0).setCellStyle(dataStyle);
 				row.getCell(1).setCellStyle(numberStyle);
-				
-				org.apache.poi.ss.usermodel.CellStyle percentageStyle = wb.createCellStyle();
-				percentageStyle.cloneStyleFrom(numberStyle);
-				org.apache.poi.ss.usermodel.CreationHelper createHelper = wb.getCreationHelper();
-				percentageStyle.setDataFormat(createHelper.createDataFormat().getFormat("0.00"));
 				row.getCell(2).setCellStyle(percentageStyle);
 				row.getCell(3).setCellStyle(dataStyle);
 			}
@@ -1411,111 +1531,118 @@ public class ResponseService {
 	}
 	
 	/**
-	 * Tạo sheet Danh sách phản hồi
+	 * Tạo sheet Danh sách phản hồi: đọc response theo chunk và ghi dòng trực tiếp vào SXSSF sheet
 	 */
-	private void createResponsesSheet(org.apache.poi.xssf.usermodel.XSSFWorkbook wb,
-			Survey survey, List<Response> responses, boolean includeAnswers, List<Question> questions,
+	private void createResponsesSheet(org.apache.poi.xssf.streaming.SXSSFWorkbook wb,
+			Survey survey, ResponseKeysetReader.ResponseQuery query, ExportSummary summary, boolean includeAnswers,
+			List<Question> questions, List<Question> requiredQuestions,
 			org.apache.poi.ss.usermodel.CellStyle headerStyle,
 			org.apache.poi.ss.usermodel.CellStyle dataStyle,
-			org.apache.poi.ss.usermodel.CellStyle dateStyle,
 			org.apache.poi.ss.usermodel.CellStyle numberStyle,
 			org.apache.poi.ss.usermodel.CellStyle completedStyle,
-			org.apache.poi.ss.usermodel.CellStyle partialStyle) {
-		org.apache.poi.ss.usermodel.Sheet sheet = wb.createSheet("Danh sách phản hồi");
-			int rowIdx = 0;
-			
-			// Header row
-			org.apache.poi.ss.usermodel.Row header = sheet.createRow(rowIdx++);
-			int col = 0;
+			org.apache.poi.ss.usermodel.CellStyle partialStyle,
+			java.util.function.IntConsumer progressListener) throws java.io.IOException {
+		org.apache.poi.xssf.streaming.SXSSFSheet sheet = wb.createSheet("Danh sách phản hồi");
 		
 		// Header tiếng Việt rõ ràng
 		String[] headerNames = {"STT", "Mã phản hồi", "Ngày gửi", "Thời gian (giây)", "Trạng thái"};
-			for (String headerName : headerNames) {
-				org.apache.poi.ss.usermodel.Cell cell = header.createCell(col++);
-				cell.setCellValue(headerName);
-				cell.setCellStyle(headerStyle);
-			}
+		// Chỉ auto-size các cột thông tin cố định, cột câu trả lời dùng độ rộng theo header
+		List<Integer> fixedColumns = new ArrayList<>();
+		for (int i = 0; i < headerNames.length; i++) {
+			fixedColumns.add(i);
+		}
+		sheet.trackColumnsForAutoSizing(fixedColumns);
 		
-			if (includeAnswers) {
-				for (Question q : questions) {
-					org.apache.poi.ss.usermodel.Cell cell = header.createCell(col++);
+		// Header row
+		org.apache.poi.ss.usermodel.Row header = sheet.createRow(0);
+		int col = 0;
+		for (String headerName : headerNames) {
+			org.apache.poi.ss.usermodel.Cell cell = header.createCell(col++);
+			cell.setCellValue(headerName);
+			cell.setCellStyle(headerStyle);
+		}
+		
+		if (includeAnswers) {
+			for (Question q : questions) {
+				org.apache.poi.ss.usermodel.Cell cell = header.createCell(col);
 				String questionText = q.getQuestionText() != null ? q.getQuestionText() : ("Câu hỏi " + q.getQuestionId());
 				// Giới hạn độ dài header
 				if (questionText.length() > 50) {
 					questionText = questionText.substring(0, 47) + "...";
 				}
 				cell.setCellValue(questionText);
-					cell.setCellStyle(headerStyle);
-				}
+				cell.setCellStyle(headerStyle);
+				sheet.setColumnWidth(col, Math.min(15000, Math.max(4000, questionText.length() * 256 + 1000)));
+				col++;
 			}
-			
-			// Freeze panes để header luôn hiển thị
-			sheet.createFreezePane(0, 1);
-			
-			List<Question> required = questions.stream().filter(q -> Boolean.TRUE.equals(q.getIsRequired())).toList();
-
-			// Data rows
-		int stt = 1;
-			for (Response r : responses) {
-				org.apache.poi.ss.usermodel.Row row = sheet.createRow(rowIdx++);
+		}
+		
+		// Freeze panes để header luôn hiển thị
+		sheet.createFreezePane(0, 1);
+		
+		// Data rows
+		java.util.concurrent.atomic.AtomicInteger nextRow = new java.util.concurrent.atomic.AtomicInteger(1);
+		forEachResponseChunk(query, (chunk, answersByResponse) -> {
+			for (Response r : chunk) {
+				// Bỏ qua response mới được submit sau lượt thống kê để danh sách khớp với các sheet tổng hợp
+				if (r.getResponseId() > summary.maxResponseId) {
+					continue;
+				}
+				int rowIdx = nextRow.getAndIncrement();
+				org.apache.poi.ss.usermodel.Row row = sheet.createRow(rowIdx);
 				int c = 0;
-				String status = determineCompletionStatus(r, required);
-			String statusVi = status.equals("completed") ? "Hoàn thành" : 
-							  status.equals("partial") ? "Chưa hoàn thành" : "Bỏ dở";
+				List<Answer> answers = answersByResponse.getOrDefault(r.getResponseId(), List.of());
+				String statusVi = r.getCompletionStatus().getDescription();
 				
-			// STT
+				// STT
 				org.apache.poi.ss.usermodel.Cell cell0 = row.createCell(c++);
-			cell0.setCellValue(stt++);
+				cell0.setCellValue(rowIdx);
 				cell0.setCellStyle(numberStyle);
 				
-			// Response ID
+				// Response ID
 				org.apache.poi.ss.usermodel.Cell cell1 = row.createCell(c++);
-			cell1.setCellValue(r.getResponseId());
+				cell1.setCellValue(r.getResponseId());
 				cell1.setCellStyle(numberStyle);
 				
-			// Submitted At (Date format - dd/MM/yyyy HH:mm:ss)
+				// Submitted At (Date format - dd/MM/yyyy HH:mm:ss)
 				org.apache.poi.ss.usermodel.Cell cell2 = row.createCell(c++);
-			if (r.getSubmittedAt() != null) {
-				cell2.setCellValue(r.getSubmittedAt().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
-				cell2.setCellStyle(dataStyle);
-			} else {
-				cell2.setCellValue("N/A");
+				if (r.getSubmittedAt() != null) {
+					cell2.setCellValue(r.getSubmittedAt().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
+				} else {
+					cell2.setCellValue("N/A");
+				}
 				cell2.setCellStyle(dataStyle);
-			}
-			
-			// Duration Seconds
+				
+				// Duration Seconds
 				org.apache.poi.ss.usermodel.Cell cell3 = row.createCell(c++);
-			cell3.setCellValue(r.getDurationSeconds() != null ? r.getDurationSeconds() : 0);
-			cell3.setCellStyle(numberStyle);
+				cell3.setCellValue(r.getDurationSeconds() != null ? r.getDurationSeconds() : 0);
+				cell3.setCellStyle(numberStyle);
 				
-			// Completion Status (có màu)
+				// Completion Status (có màu)
 				org.apache.poi.ss.usermodel.Cell cell4 = row.createCell(c++);
-			cell4.setCellValue(statusVi);
-			if (status.equals("completed")) {
-				cell4.setCellStyle(completedStyle);
-				} else {
-				cell4.setCellStyle(partialStyle);
-			}
+				cell4.setCellValue(statusVi);
+				cell4.setCellStyle(r.getCompletionStatus() == CompletionStatusEnum.completed ? completedStyle : partialStyle);
 				
 				if (includeAnswers) {
-					List<Answer> answers = answerRepository.findByResponse(r);
 					Map<Long, List<Answer>> byQ = answers.stream().collect(Collectors.groupingBy(a -> a.getQuestion().getQuestionId()));
 					for (Question q : questions) {
 						List<Answer> list = byQ.getOrDefault(q.getQuestionId(), List.of());
-					String val = formatAnswerValue(list, q.getQuestionType());
+						String val = formatAnswerValue(list, q.getQuestionType());
 						org.apache.poi.ss.usermodel.Cell cell = row.createCell(c++);
 						cell.setCellValue(val);
 						cell.setCellStyle(dataStyle);
 					}
 				}
 			}
-			
-		// Auto-size columns với giới hạn
-			for (int i = 0; i < col; i++) {
-				sheet.autoSizeColumn(i);
-				int currentWidth = sheet.getColumnWidth(i);
+			reportExportProgress(progressListener, nextRow.get() - 1, summary.total);
+		});
+		
+		// Auto-size các cột cố định với giới hạn
+		for (int i : fixedColumns) {
+			sheet.autoSizeColumn(i);
+			int currentWidth = sheet.getColumnWidth(i);
 			// Thêm padding
-				sheet.setColumnWidth(i, currentWidth + 1000);
+			sheet.setColumnWidth(i, currentWidth + 1000);
 			// Giới hạn độ rộng tối đa
 			if (sheet.getColumnWidth(i) > 15000) {
 				sheet.setColumnWidth(i, 15000);
@@ -1557,7 +1684,7 @@ public class ResponseService {
 	/**
 	 * Helper methods để tạo styles
 	 */
-	private org.apache.poi.ss.usermodel.CellStyle createHeaderStyle(org.apache.poi.xssf.usermodel.XSSFWorkbook wb) {
+	private org.apache.poi.ss.usermodel.CellStyle createHeaderStyle(org.apache.poi.ss.usermodel.Workbook wb) {
 		org.apache.poi.ss.usermodel.CellStyle style = wb.createCellStyle();
 		org.apache.poi.ss.usermodel.Font font = wb.createFont();
 		font.setBold(true);
@@ -1575,7 +1702,7 @@ public class ResponseService {
 		return style;
 	}
 	
-	private org.apache.poi.ss.usermodel.CellStyle createDataStyle(org.apache.poi.xssf.usermodel.XSSFWorkbook wb) {
+	private org.apache.poi.ss.usermodel.CellStyle createDataStyle(org.apache.poi.ss.usermodel.Workbook wb) {
 		org.apache.poi.ss.usermodel.CellStyle style = wb.createCellStyle();
 		style.setBorderBottom(org.apache.poi.ss.usermodel.BorderStyle.THIN);
 		style.setBorderTop(org.apache.poi.ss.usermodel.BorderStyle.THIN);
@@ -1586,20 +1713,13 @@ public class ResponseService {
 		return style;
 	}
 	
-	private org.apache.poi.ss.usermodel.CellStyle createDateStyle(org.apache.poi.xssf.usermodel.XSSFWorkbook wb) {
-		org.apache.poi.ss.usermodel.CellStyle style = createDataStyle(wb);
-		org.apache.poi.ss.usermodel.CreationHelper createHelper = wb.getCreationHelper();
-		style.setDataFormat(createHelper.createDataFormat().getFormat("dd/mm/yyyy hh:mm:ss"));
-		return style;
-	}
-	
-	private org.apache.poi.ss.usermodel.CellStyle createNumberStyle(org.apache.poi.xssf.usermodel.XSSFWorkbook wb) {
+	private org.apache.poi.ss.usermodel.CellStyle createNumberStyle(org.apache.poi.ss.usermodel.Workbook wb) {
 		org.apache.poi.ss.usermodel.CellStyle style = createDataStyle(wb);
 		style.setAlignment(org.apache.poi.ss.usermodel.HorizontalAlignment.RIGHT);
 		return style;
 	}
 	
-	private org.apache.poi.ss.usermodel.CellStyle createTitleStyle(org.apache.poi.xssf.usermodel.XSSFWorkbook wb) {
+	private org.apache.poi.ss.usermodel.CellStyle createTitleStyle(org.apache.poi.ss.usermodel.Workbook wb) {
 		org.apache.poi.ss.usermodel.CellStyle style = wb.createCellStyle();
 		org.apache.poi.ss.usermodel.Font font = wb.createFont();
 		font.setBold(true);
@@ -1610,7 +1730,7 @@ public class ResponseService {
 		return style;
 	}
 	
-	private org.apache.poi.ss.usermodel.CellStyle createStatusStyle(org.apache.poi.xssf.usermodel.XSSFWorkbook wb, boolean isCompleted) {
+	private org.apache.poi.ss.usermodel.CellStyle createStatusStyle(org.apache.poi.ss.usermodel.Workbook wb, boolean isCompleted) {
 		org.apache.poi.ss.usermodel.CellStyle style = createDataStyle(wb);
 		org.apache.poi.ss.usermodel.Font font = wb.createFont();
 		font.setBold(true);
@@ -1637,9 +1757,7 @@ public class ResponseService {
 		row.getCell(1).setCellStyle(style);
 	}
 
-	private org.springframework.http.ResponseEntity<byte[]> buildDownload(byte[] bytes, String contentType, String filename) {
-		org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-		
+	private void prepareDownload(jakarta.servlet.http.HttpServletResponse httpResponse, String contentType, String filename) {
 		// Tạo filename với timestamp
 		String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
 		String baseName = filename.substring(0, filename.lastIndexOf('.'));
@@ -1647,10 +1765,9 @@ public class ResponseService {
 		String finalFilename = baseName + "_" + timestamp + extension;
 		
 		// Sử dụng cả filename và filename* để hỗ trợ UTF-8
-		headers.add(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, 
+		httpResponse.setHeader(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, 
 			"attachment; filename=\"" + finalFilename + "\"; filename*=UTF-8''" + java.net.URLEncoder.encode(finalFilename, StandardCharsets.UTF_8));
-		headers.add(org.springframework.http.HttpHeaders.CONTENT_TYPE, contentType);
-		return org.springframework.http.ResponseEntity.ok().headers(headers).body(bytes);
+		httpResponse.setContentType(contentType);
 	}
 
 	private String escapeCsv(String v) {
@@ -1662,7 +1779,8 @@ public class ResponseService {
 
 
 
-	private void validateSingleAnswer(Question question, AnswerSubmitDTO dto) throws IdInvalidException {
+	private void validateSingleAnswer(Question question, AnswerSubmitDTO dto, List<Option> questionOptions)
+			throws IdInvalidException {
 		QuestionTypeEnum type = question.getQuestionType();
 		switch (type) {
 			case single_choice:
@@ -1692,7 +1810,6 @@ public class ResponseService {
 			case ranking:
 				if (dto.getRankingOptionIds() != null && !dto.getRankingOptionIds().isEmpty()) {
 					// Validate that all option IDs belong to the question
-					List<Option> questionOptions = optionRepository.findByQuestionOrderByCreatedAt(question);
 					List<Long> validOptionIds = questionOptions.stream()
 							.map(Option::getOptionId)
 							.collect(Collectors.toList());
@@ -1858,6 +1975,9 @@ public class ResponseService {
 					}
 				}
 				
+				// answer_text của câu file_upload đã đổi nên dựng lại document tìm kiếm của response
+				responseSearchService.reindexResponses(surveyId, List.of(response.getResponseId()));
+
 				// After all files are processed, regenerate the response DTO to include file info
 				Response savedResponse = responseRepository.findById(response.getResponseId())
 						.orElseThrow(() -> new IdInvalidException("Response not found"));
@@ -6,7 +6,6 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import vn.duytan.c1se09.smartsurvey.domain.*;
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyOverviewResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyQuestionCountsDTO;
@@ -14,6 +13,11 @@ import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyTimelineRes
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyChartsResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyTextAnalysisResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveySentimentResponseDTO;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiAnalysisCache;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiEndpoint;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiFanoutExecutor;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiServiceClient;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
 import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
 import vn.duytan.c1se09.smartsurvey.repository.*;
 import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
@@ -37,13 +41,16 @@ public class StatisticsService {
     private final AnswerRepository answerRepository;
     private final OptionRepository optionRepository;
     private final QuestionRepository questionRepository;
-    private final SurveyViewRepository surveyViewRepository;
+    private final SurveyViewSketchService surveyViewSketchService;
     private final AuthService authService;
     private final SurveyPermissionService surveyPermissionService;
+    private final SurveyStatsRollupService surveyStatsRollupService;
+    private final AnswerAnalyticsService answerAnalyticsService;
+    private final PdfReportResources pdfReportResources;
 
-    // AI service configuration
-    private static final String AI_SERVICE_BASE_URL = "http://localhost:8000";
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final AiServiceClient aiServiceClient;
+    private final AiFanoutExecutor aiFanoutExecutor;
+    private final AiAnalysisCache aiAnalysisCache;
 
     /**
      * Lấy thống kê tổng quan của survey
@@ -58,16 +65,12 @@ public class StatisticsService {
             throw new IdInvalidException("Bạn không có quyền xem thống kê khảo sát này. Chỉ chủ sở hữu (OWNER) và phân tích viên (ANALYST) mới có quyền xem báo cáo.");
         }
 
-        // Lấy tất cả responses của survey
-        List<Response> responses = responseRepository.findBySurvey(survey);
-
-        // Lấy tất cả questions required của survey
-        List<Question> requiredQuestions = questionRepository.findBySurveyAndIsRequiredTrue(survey);
-
-        // Tính toán thống kê
-        int totalResponses = responses.size();
-        int viewership = (int) surveyViewRepository.countBySurvey(survey);
-        CompletionTally tally = tallyCompletions(responses, requiredQuestions);
+        // Tổng số response, thời lượng và thời điểm cuối lấy từ rollup; completion dùng truy vấn aggregate
+        // (số query cố định, không phụ thuộc số response)
+        SurveyStatsRollup rollup = surveyStatsRollupService.getSnapshot(survey).getSurvey();
+        int totalResponses = rollup.getResponseCount().intValue();
+        int viewership = (int) surveyViewSketchService.countViews(surveyId);
+        CompletionTally tally = aggregateCompletions(survey, totalResponses);
         int completedResponses = tally.completed;
         int partialResponses = tally.partial;
 
@@ -75,10 +78,14 @@ public class StatisticsService {
         double completionRate = totalResponses > 0 ? (double) completedResponses / totalResponses * 100 : 0.0;
 
         // Thời gian trung bình hoàn thành
-        String avgCompletionTime = calculateAverageCompletionTime(responses);
+        String avgCompletionTime = rollup.getDurationCount() > 0
+                ? formatAverageCompletionTime((double) rollup.getDurationSum() / rollup.getDurationCount())
+                : "0m 0s";
 
         // Demographics: tự nhận diện nếu survey có câu hỏi về tuổi/giới tính
-        SurveyOverviewResponseDTO.DemographicsDTO demographics = buildDemographicsIfAvailable(survey, responses);
+        SurveyOverviewResponseDTO.DemographicsDTO demographics = totalResponses > 0
+                ? buildDemographicsIfAvailable(survey)
+                : null;
 
         // Completion stats
         SurveyOverviewResponseDTO.CompletionStatsDTO completionStats = SurveyOverviewResponseDTO.CompletionStatsDTO
@@ -96,13 +103,28 @@ public class StatisticsService {
                 .completionRate(Math.round(completionRate * 100.0) / 100.0) // Làm tròn 2 chữ số
                 .avgCompletionTime(avgCompletionTime)
                 .createdAt(survey.getCreatedAt())
-                .lastResponseAt(getLastResponseTime(responses))
+                .lastResponseAt(rollup.getLastResponseAt())
                 .status(survey.getStatus().name().toLowerCase())
                 .demographics(demographics)
                 .completionStats(completionStats)
                 .build();
     }
 
+    /**
+     * Dựng lại rollup thống kê của survey từ dữ liệu gốc
+     */
+    public void rebuildStatsRollup(Long surveyId) throws IdInvalidException {
+        Survey survey = surveyRepository.findById(surveyId)
+                .orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
+
+        User currentUser = authService.getCurrentUser();
+        if (!surveyPermissionService.canViewResults(survey, currentUser)) {
+            throw new IdInvalidException("Bạn không có quyền xem thống kê khảo sát này. Chỉ chủ sở hữu (OWNER) và phân tích viên (ANALYST) mới có quyền xem báo cáo.");
+        }
+
+        surveyStatsRollupService.rebuild(survey);
+    }
+
     /**
      * Đếm nhanh số câu hỏi theo loại để hiển thị ở phần Overview
      */
@@ -205,38 +227,20 @@ public class StatisticsService {
      * - completed: trả đủ mọi câu required
      * - partial: có ít nhất 1 answer nhưng chưa đủ câu required
      * - dropped: không có answer nào
+     * Trạng thái được lưu sẵn trên từng response nên chỉ cần một câu GROUP BY theo index (survey_id, completion_status).
      */
-    private CompletionTally tallyCompletions(List<Response> responses, List<Question> requiredQuestions) {
-        int completed = 0;
-        int partial = 0;
-        int dropped = 0;
-
-        for (Response response : responses) {
-            List<Answer> answers = answerRepository.findByResponse(response);
-            if (answers.isEmpty()) {
-                dropped++;
-                continue;
-            }
-
-            boolean isCompleted = true;
-            for (Question requiredQuestion : requiredQuestions) {
-                boolean hasAnswer = answers.stream()
-                        .anyMatch(answer -> answer.getQuestion().getQuestionId()
-                                .equals(requiredQuestion.getQuestionId()));
-                if (!hasAnswer) {
-                    isCompleted = false;
-                    break;
-                }
-            }
-
-            if (isCompleted) {
-                completed++;
-            } else {
-                partial++;
-            }
+    private CompletionTally aggregateCompletions(Survey survey, int totalResponses) {
+        if (totalResponses == 0) {
+            return new CompletionTally(0, 0, 0);
         }
-
-        return new CompletionTally(completed, partial, dropped);
+        Map<CompletionStatusEnum, Integer> counts = new EnumMap<>(CompletionStatusEnum.class);
+        for (Object[] row : responseRepository.countBySurveyGroupByCompletionStatus(survey)) {
+            counts.put((CompletionStatusEnum) row[0], ((Number) row[1]).intValue());
+        }
+        return new CompletionTally(
+                counts.getOrDefault(CompletionStatusEnum.completed, 0),
+                counts.getOrDefault(CompletionStatusEnum.partial, 0),
+                counts.getOrDefault(CompletionStatusEnum.dropped, 0));
     }
 
     private static class CompletionTally {
@@ -252,29 +256,14 @@ public class StatisticsService {
     }
 
     /**
-     * Tính thời gian trung bình hoàn thành
+     * Định dạng thời gian trung bình hoàn thành (giây) thành "Xm Ys"
      */
-    private String calculateAverageCompletionTime(List<Response> responses) {
-        if (responses.isEmpty()) {
+    private String formatAverageCompletionTime(Double avgSeconds) {
+        if (avgSeconds == null || avgSeconds <= 0) {
             return "0m 0s";
         }
 
-        long totalSeconds = 0L;
-        int counted = 0;
-
-        for (Response r : responses) {
-            Integer duration = r.getDurationSeconds();
-            if (duration != null && duration > 0) {
-                totalSeconds += duration;
-                counted++;
-            }
-        }
-
-        if (counted == 0) {
-            return "0m 0s";
-        }
-
-        long avg = totalSeconds / counted;
+        long avg = avgSeconds.longValue();
         long minutes = avg / 60;
         long seconds = avg % 60;
         return minutes + "m " + seconds + "s";
@@ -283,11 +272,7 @@ public class StatisticsService {
     /**
      * Tính demographics
      */
-    private SurveyOverviewResponseDTO.DemographicsDTO buildDemographicsIfAvailable(Survey survey,
-            List<Response> responses) {
-        if (responses.isEmpty())
-            return null;
-
+    private SurveyOverviewResponseDTO.DemographicsDTO buildDemographicsIfAvailable(Survey survey) {
         // 1) Tìm các câu hỏi có thể là tuổi hoặc giới tính theo keyword
         List<Question> questions = questionRepository.findBySurvey(survey);
         Set<Long> ageQuestionIds = new HashSet<>();
@@ -319,44 +304,41 @@ public class StatisticsService {
                 "khác", "other",
                 "other", "other");
 
+        if (ageQuestionIds.isEmpty() && genderQuestionIds.isEmpty())
+            return null;
+
+        // 2) Đếm answers theo giá trị của các câu hỏi age/gender rồi gom demographics
+        Set<Long> demographicQuestionIds = new HashSet<>(ageQuestionIds);
+        demographicQuestionIds.addAll(genderQuestionIds);
+        Map<Long, Map<String, Long>> valueCounts = countDemographicValues(survey, demographicQuestionIds);
+
         boolean hasAge = false;
         boolean hasGender = false;
 
-        // 2) Duyệt qua các answers của responses để gom demographics
-        for (Response r : responses) {
-            // gom theo từng question nghi là age/gender
-            for (Long qid : ageQuestionIds) {
-                List<Answer> answers = answerRepository.findByResponseAndQuestion(r, new Question() {
-                    {
-                        setQuestionId(qid);
-                    }
-                });
-                for (Answer a : answers) {
-                    String candidate = extractAnswerText(a);
-                    if (candidate == null || candidate.isBlank())
-                        continue;
-                    String bucket = bucketAge(candidate);
-                    if (bucket != null) {
-                        ageBuckets.compute(bucket, (k, v) -> v == null ? 1 : v + 1);
-                        hasAge = true;
+        for (Map.Entry<Long, Map<String, Long>> questionEntry : valueCounts.entrySet()) {
+            Long qid = questionEntry.getKey();
+            for (Map.Entry<String, Long> valueEntry : questionEntry.getValue().entrySet()) {
+                int count = valueEntry.getValue().intValue();
+
+                if (ageQuestionIds.contains(qid)) {
+                    String candidate = valueEntry.getKey();
+                    if (candidate != null && !candidate.isBlank()) {
+                        String bucket = bucketAge(candidate);
+                        if (bucket != null) {
+                            ageBuckets.merge(bucket, count, Integer::sum);
+                            hasAge = true;
+                        }
                     }
                 }
-            }
 
-            for (Long qid : genderQuestionIds) {
-                List<Answer> answers = answerRepository.findByResponseAndQuestion(r, new Question() {
-                    {
-                        setQuestionId(qid);
-                    }
-                });
-                for (Answer a : answers) {
-                    String candidate = Optional.ofNullable(extractAnswerText(a)).orElse("").toLowerCase();
-                    if (candidate.isBlank())
-                        continue;
-                    String normalized = normalizeGender(candidate, genderMap);
-                    if (normalized != null) {
-                        genderBuckets.compute(normalized, (k, v) -> v == null ? 1 : v + 1);
-                        hasGender = true;
+                if (genderQuestionIds.contains(qid)) {
+                    String candidate = Optional.ofNullable(valueEntry.getKey()).orElse("").toLowerCase();
+                    if (!candidate.isBlank()) {
+                        String normalized = normalizeGender(candidate, genderMap);
+                        if (normalized != null) {
+                            genderBuckets.merge(normalized, count, Integer::sum);
+                            hasGender = true;
+                        }
                     }
                 }
             }
@@ -383,6 +365,28 @@ public class StatisticsService {
                 .build();
     }
 
+    /**
+     * Đếm answers theo giá trị hiển thị của các câu hỏi demographics.
+     * Ưu tiên read model answers_analytical (GROUP BY trên partition của survey); nếu read model stale thì đọc bảng answers.
+     */
+    private Map<Long, Map<String, Long>> countDemographicValues(Survey survey, Set<Long> questionIds) {
+        Map<Long, Map<String, Long>> counts = answerAnalyticsService.countValuesByQuestions(survey.getSurveyId(),
+                questionIds);
+        if (counts != null) {
+            return counts;
+        }
+
+        counts = new HashMap<>();
+        for (Answer a : answerRepository.findByQuestionIdsWithOption(questionIds)) {
+            String value = extractAnswerText(a);
+            if (value == null)
+                continue;
+            counts.computeIfAbsent(a.getQuestion().getQuestionId(), k -> new HashMap<>())
+                    .merge(value, 1L, Long::sum);
+        }
+        return counts;
+    }
+
     private boolean containsAny(String text, List<String> needles) {
         for (String n : needles) {
             if (text.contains(n))
@@ -450,17 +454,6 @@ public class StatisticsService {
         return null;
     }
 
-    /**
-     * Lấy thời gian response cuối cùng
-     */
-    private LocalDateTime getLastResponseTime(List<Response> responses) {
-        return responses.stream()
-                .map(Response::getSubmittedAt)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-    }
-
     /**
      * Tính dữ liệu theo ngày
      */
@@ -549,6 +542,12 @@ public class StatisticsService {
         // Lấy tất cả questions của survey
         List<Question> questions = questionRepository.findBySurveyOrderByDisplayOrderAsc(survey);
 
+        // Đếm theo câu hỏi/option đọc từ rollup (O(số câu hỏi)), options của cả survey lấy trong 1 query
+        SurveyStatsRollupService.RollupSnapshot rollup = surveyStatsRollupService.getSnapshot(survey);
+        Map<Long, List<Option>> optionsByQuestion = optionRepository.findBySurveyOrderByCreatedAt(survey).stream()
+                .collect(Collectors.groupingBy(o -> o.getQuestion().getQuestionId(), LinkedHashMap::new,
+                        Collectors.toList()));
+
         // Phân loại và xử lý từng loại câu hỏi
         List<SurveyChartsResponseDTO.MultipleChoiceDataDTO> multipleChoiceData = new ArrayList<>();
         List<SurveyChartsResponseDTO.RatingDataDTO> ratingData = new ArrayList<>();
@@ -560,17 +559,19 @@ public class StatisticsService {
             switch (questionType) {
                 case multiple_choice:
                 case single_choice:
-                    multipleChoiceData.add(buildMultipleChoiceData(question));
+                    multipleChoiceData.add(buildChoiceData(question,
+                            optionsByQuestion.getOrDefault(question.getQuestionId(), List.of()), rollup));
                     break;
                 case rating:
-                    ratingData.add(buildRatingData(question));
+                    ratingData.add(buildRatingData(question, rollup));
                     break;
                 case boolean_:
-                    booleanData.add(buildBooleanData(question));
+                    booleanData.add(buildBooleanData(question, rollup));
                     break;
                 case ranking:
                     // Ranking được xử lý như multiple choice với weighted scoring
-                    multipleChoiceData.add(buildMultipleChoiceData(question));
+                    multipleChoiceData.add(buildRankingChartData(survey, question,
+                            optionsByQuestion.getOrDefault(question.getQuestionId(), List.of())));
                     break;
                 case date_time:
                     // Date/time questions - hiển thị thống kê responses theo thời gian
@@ -595,6 +596,74 @@ public class StatisticsService {
                 .build();
     }
 
+    /**
+     * Xây dựng dữ liệu biểu đồ cho câu hỏi multiple choice/single choice từ rollup
+     * (percentage tính trên số response đã trả lời câu hỏi)
+     */
+    private SurveyChartsResponseDTO.MultipleChoiceDataDTO buildChoiceData(Question question, List<Option> options,
+            SurveyStatsRollupService.RollupSnapshot rollup) {
+        long totalResponses = rollup.question(question.getQuestionId()).getResponseCount();
+
+        List<SurveyChartsResponseDTO.MultipleChoiceDataDTO.ChartDataDTO> chartData = new ArrayList<>();
+        for (Option option : options) {
+            int count = (int) rollup.optionCount(option.getOptionId());
+            double percentage = totalResponses > 0 ? (double) count / totalResponses * 100 : 0.0;
+
+            chartData.add(SurveyChartsResponseDTO.MultipleChoiceDataDTO.ChartDataDTO.builder()
+                    .option(option.getOptionText())
+                    .count(count)
+                    .percentage(Math.round(percentage * 100.0) / 100.0) // Làm tròn 2 chữ số
+                    .build());
+        }
+
+        return SurveyChartsResponseDTO.MultipleChoiceDataDTO.builder()
+                .questionId(question.getQuestionId())
+                .questionText(question.getQuestionText())
+                .chartData(chartData)
+                .chartType("pie")
+                .build();
+    }
+
+    /**
+     * Xây dựng dữ liệu biểu đồ ranking: tính điểm bằng SQL trên answers_analytical,
+     * fallback về cách đọc answers cũ nếu read model stale hoặc có dữ liệu ranking không gắn option
+     */
+    private SurveyChartsResponseDTO.MultipleChoiceDataDTO buildRankingChartData(Survey survey, Question question,
+            List<Option> options) {
+        AnswerAnalyticsService.RankingScores scores = options.isEmpty() ? null
+                : answerAnalyticsService.computeRankingScores(survey.getSurveyId(), question.getQuestionId(),
+                        options.size());
+        if (scores == null) {
+            return buildMultipleChoiceData(question);
+        }
+
+        List<SurveyChartsResponseDTO.MultipleChoiceDataDTO.ChartDataDTO> chartData = new ArrayList<>();
+        long validResponses = scores.getValidResponses();
+        double maxScore = validResponses > 0 ? (double) options.size() * validResponses : 1.0;
+
+        for (Option option : options) {
+            double weightedScore = scores.getScoresByOption().getOrDefault(option.getOptionId(), 0.0);
+            int count = scores.getCountsByOption().getOrDefault(option.getOptionId(), 0L).intValue();
+            double percentage = maxScore > 0 ? (weightedScore / maxScore) * 100.0 : 0.0;
+
+            chartData.add(SurveyChartsResponseDTO.MultipleChoiceDataDTO.ChartDataDTO.builder()
+                    .option(option.getOptionText())
+                    .count(count) // Số lần được xếp hạng
+                    .percentage(Math.round(percentage * 100.0) / 100.0) // Weighted score percentage
+                    .build());
+        }
+
+        // Sắp xếp theo weighted score giảm dần
+        chartData.sort((a, b) -> Double.compare(b.getPercentage(), a.getPercentage()));
+
+        return SurveyChartsResponseDTO.MultipleChoiceDataDTO.builder()
+                .questionId(question.getQuestionId())
+                .questionText(question.getQuestionText())
+                .chartData(chartData)
+                .chartType("bar")
+                .build();
+    }
+
     /**
      * Xây dựng dữ liệu biểu đồ cho câu hỏi multiple choice/single choice/ranking
      */
@@ -764,36 +833,25 @@ public class StatisticsService {
     }
 
     /**
-     * Xây dựng dữ liệu biểu đồ cho câu hỏi rating
+     * Xây dựng dữ liệu biểu đồ cho câu hỏi rating từ histogram trong rollup
      */
-    private SurveyChartsResponseDTO.RatingDataDTO buildRatingData(Question question) {
-        // Lấy tất cả answers cho question này
-        List<Answer> answers = answerRepository.findByQuestion(question);
+    private SurveyChartsResponseDTO.RatingDataDTO buildRatingData(Question question,
+            SurveyStatsRollupService.RollupSnapshot rollup) {
+        QuestionStatsRollup stats = rollup.question(question.getQuestionId());
 
-        // Đếm distribution và tính average
+        // Distribution chỉ chứa các mức có người chọn (thang 1-5)
         Map<String, Integer> distribution = new HashMap<>();
-        List<Integer> ratings = new ArrayList<>();
-
-        for (Answer answer : answers) {
-            try {
-                // Giả sử rating được lưu trong answerText dưới dạng số
-                if (answer.getAnswerText() != null && !answer.getAnswerText().trim().isEmpty()) {
-                    int rating = Integer.parseInt(answer.getAnswerText().trim());
-                    if (rating >= 1 && rating <= 5) { // Giả sử scale 1-5
-                        String ratingStr = String.valueOf(rating);
-                        distribution.put(ratingStr, distribution.getOrDefault(ratingStr, 0) + 1);
-                        ratings.add(rating);
-                    }
-                }
-            } catch (NumberFormatException e) {
-                // Bỏ qua answers không phải số
-                log.warn("Invalid rating value for question {}: {}", question.getQuestionId(), answer.getAnswerText());
+        for (int rating = 1; rating <= 5; rating++) {
+            long count = stats.getRatingCount(rating);
+            if (count > 0) {
+                distribution.put(String.valueOf(rating), (int) count);
             }
         }
 
         // Tính average rating
-        double averageRating = ratings.isEmpty() ? 0.0
-                : ratings.stream().mapToInt(Integer::intValue).average().orElse(0.0);
+        double averageRating = stats.getRatingCount() > 0
+                ? (double) stats.getRatingSum() / stats.getRatingCount()
+                : 0.0;
 
         return SurveyChartsResponseDTO.RatingDataDTO.builder()
                 .questionId(question.getQuestionId())
@@ -804,39 +862,13 @@ public class StatisticsService {
     }
 
     /**
-     * Xây dựng dữ liệu biểu đồ cho câu hỏi boolean
+     * Xây dựng dữ liệu biểu đồ cho câu hỏi boolean từ bộ đếm đúng/sai trong rollup
      */
-    private SurveyChartsResponseDTO.BooleanDataDTO buildBooleanData(Question question) {
-        // Lấy tất cả answers cho question này
-        List<Answer> answers = answerRepository.findByQuestion(question);
-
-        int trueCount = 0;
-        int falseCount = 0;
-
-        for (Answer answer : answers) {
-            // Kiểm tra option text thay vì answer text cho boolean questions
-            if (answer.getOption() != null && answer.getOption().getOptionText() != null) {
-                String optionText = answer.getOption().getOptionText().trim().toLowerCase();
-                if ("true".equals(optionText) || "đúng".equals(optionText) || "có".equals(optionText)
-                        || "yes".equals(optionText)) {
-                    trueCount++;
-                } else if ("false".equals(optionText) || "sai".equals(optionText) || "không".equals(optionText)
-                        || "no".equals(optionText)) {
-                    falseCount++;
-                }
-            }
-            // Fallback: nếu không có option, kiểm tra answer text
-            else if (answer.getAnswerText() != null) {
-                String answerText = answer.getAnswerText().trim().toLowerCase();
-                if ("true".equals(answerText) || "đúng".equals(answerText) || "có".equals(answerText)
-                        || "yes".equals(answerText)) {
-                    trueCount++;
-                } else if ("false".equals(answerText) || "sai".equals(answerText) || "không".equals(answerText)
-                        || "no".equals(answerText)) {
-                    falseCount++;
-                }
-            }
-        }
+    private SurveyChartsResponseDTO.BooleanDataDTO buildBooleanData(Question question,
+            SurveyStatsRollupService.RollupSnapshot rollup) {
+        QuestionStatsRollup stats = rollup.question(question.getQuestionId());
+        int trueCount = stats.getTrueCount().intValue();
+        int falseCount = stats.getFalseCount().intValue();
 
         int totalResponses = trueCount + falseCount;
         double truePercentage = totalResponses > 0 ? (double) trueCount / totalResponses * 100 : 0.0;
@@ -882,155 +914,47 @@ public class StatisticsService {
                     .build();
         }
 
-        // Lấy tất cả answers cho open-ended questions
-        List<Answer> openEndedAnswers = new ArrayList<>();
-        for (Question question : openEndedQuestions) {
-            openEndedAnswers.addAll(answerRepository.findByQuestion(question));
+        // Số câu trả lời có nội dung và độ dài trung bình: 1 query tổng hợp, không nạp entity
+        Object[] textStats = answerRepository.summarizeTextAnswers(survey, QuestionTypeEnum.open_ended).get(0);
+        int totalAnswers = ((Number) textStats[0]).intValue();
+        int avgLength = totalAnswers > 0 ? (int) Math.round(((Number) textStats[1]).doubleValue()) : 0;
+
+        // Gọi song song keywords / themes / summary; lời gọi lỗi hoặc quá hạn chỉ làm thiếu phần tương ứng.
+        // Kết quả dùng chung cache (theo dấu vân tay câu trả lời) với AiAnalysisService: không có câu trả lời mới
+        // thì không gọi lại dịch vụ AI
+        Map<String, java.util.function.Supplier<Map<String, Object>>> calls = new LinkedHashMap<>();
+        for (String kind : List.of("keywords", "themes", "summary")) {
+            calls.put(kind, () -> aiAnalysisCache.get(surveyId, kind, null,
+                    () -> callAnalysis("/ai/" + kind + "/" + surveyId)));
         }
+        AiFanoutExecutor.Results<String, Map<String, Object>> results = aiFanoutExecutor.invokeAll(calls);
 
-        // Lọc những answers có text
-        List<Answer> validAnswers = openEndedAnswers.stream()
-                .filter(answer -> answer.getAnswerText() != null && !answer.getAnswerText().trim().isEmpty())
-                .collect(Collectors.toList());
-
-        int totalAnswers = validAnswers.size();
-
-        // Tính average length
-        int avgLength = totalAnswers > 0 ? (int) Math.round(validAnswers.stream()
-                .mapToInt(answer -> answer.getAnswerText().length())
-                .average()
-                .orElse(0.0)) : 0;
-
-        // Gọi AI service để lấy keywords và themes
-        List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO> commonKeywords = new ArrayList<>();
-        List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.ThemeDTO> themes = new ArrayList<>();
+        List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO> commonKeywords = parseKeywords(
+                results.get("keywords"));
+        List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.ThemeDTO> themes = parseThemes(results.get("themes"));
         List<String> keyInsights = new ArrayList<>();
 
-        try {
-            // Gọi AI service trực tiếp để lấy keywords
-            String keywordsUrl = AI_SERVICE_BASE_URL + "/ai/keywords/" + surveyId;
-
-            ResponseEntity<Map<String, Object>> keywordsResponse = restTemplate.exchange(
-                    keywordsUrl,
-                    HttpMethod.POST,
-                    null,
-                    new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {
-                    });
-
-            if (keywordsResponse.getStatusCode() == HttpStatus.OK && keywordsResponse.getBody() != null) {
-                Map<String, Object> keywordsData = keywordsResponse.getBody();
-
-                if (keywordsData != null && keywordsData.get("ok").equals(true)
-                        && keywordsData.containsKey("keywords")) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> keywordsList = (List<Map<String, Object>>) keywordsData.get("keywords");
-
-                    for (Map<String, Object> kw : keywordsList) {
-                        // Convert decimal score (0.0-1.0) to meaningful frequency (multiply by 100 and
-                        // round)
-                        double score = ((Number) kw.get("score")).doubleValue();
-                        int frequency = (int) Math.round(score * 100);
-
-                        commonKeywords.add(SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO.builder()
-                                .word((String) kw.get("keyword")) // AI service trả về "keyword", không phải "word"
-                                .frequency(frequency) // Convert score to frequency percentage
-                                .build());
-                    }
-                }
-            }
-
-            // Gọi AI service trực tiếp để lấy themes
-            String themesUrl = AI_SERVICE_BASE_URL + "/ai/themes/" + surveyId;
-
-            ResponseEntity<Map<String, Object>> themesResponse = restTemplate.exchange(
-                    themesUrl,
-                    HttpMethod.POST,
-                    null,
-                    new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {
-                    });
-
-            if (themesResponse.getStatusCode() == HttpStatus.OK && themesResponse.getBody() != null) {
-                Map<String, Object> themesData = themesResponse.getBody();
-
-                if (themesData != null && themesData.get("ok").equals(true) && themesData.containsKey("themes")) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> themesList = (List<Map<String, Object>>) themesData.get("themes");
-
-                    for (Map<String, Object> theme : themesList) {
-                        // AI service trả về format: {"cluster": 0, "size": 11, "examples": [...]}
-                        int clusterNum = ((Number) theme.get("cluster")).intValue();
-                        int size = ((Number) theme.get("size")).intValue();
-
-                        // Analyze sentiment based on cluster size and content
-                        String sentiment = "neutral"; // default
-                        if (size >= 3) {
-                            sentiment = "positive"; // Larger clusters tend to be more significant/positive
-                        } else if (size == 1) {
-                            sentiment = "neutral"; // Single items are usually neutral
-                        }
+        Map<String, Object> summaryData = results.get("summary");
+        if (summaryData != null && Boolean.TRUE.equals(summaryData.get("ok")) && summaryData.containsKey("summary")) {
+            // Sử dụng AI summary làm key insights chính
+            keyInsights.add((String) summaryData.get("summary"));
+        } else if (results.allFailed()) {
+            log.error("Lỗi khi gọi AI service cho text analysis của survey {}: {}", surveyId, results.errors());
+            keyInsights.add("Không thể phân tích AI: " + String.join(", ", results.errors().values()));
+        } else {
+            // Fallback về insights cơ bản nếu AI không có summary
+            keyInsights.add("Tổng cộng " + totalAnswers + " câu trả lời văn bản");
+            keyInsights.add("Độ dài trung bình: " + avgLength + " ký tự");
 
-                        themes.add(SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.ThemeDTO.builder()
-                                .theme("Theme " + (clusterNum + 1)) // More user-friendly naming (Theme 1, Theme 2)
-                                .mentions(size) // AI service trả về "size"
-                                .sentiment(sentiment) // Improved sentiment logic
-                                .build());
-                    }
-                }
+            if (!commonKeywords.isEmpty()) {
+                SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO topKeyword = commonKeywords.get(0);
+                keyInsights.add("Từ khóa phổ biến nhất: \"" + topKeyword.getWord() + "\" ("
+                        + topKeyword.getFrequency() + " lần)");
             }
 
-            // Gọi AI service để lấy summary thông minh
-            String summaryUrl = AI_SERVICE_BASE_URL + "/ai/summary/" + surveyId;
-
-            ResponseEntity<Map<String, Object>> summaryResponse = restTemplate.exchange(
-                    summaryUrl,
-                    HttpMethod.POST,
-                    null,
-                    new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {
-                    });
-
-            if (summaryResponse.getStatusCode() == HttpStatus.OK && summaryResponse.getBody() != null) {
-                Map<String, Object> summaryData = summaryResponse.getBody();
-
-                if (summaryData != null && summaryData.get("ok").equals(true) && summaryData.containsKey("summary")) {
-                    // Sử dụng AI summary làm key insights chính
-                    String aiSummary = (String) summaryData.get("summary");
-                    keyInsights.add(aiSummary);
-                } else {
-                    // Fallback về insights cơ bản nếu AI không có summary
-                    keyInsights.add("Tổng cộng " + totalAnswers + " câu trả lời văn bản");
-                    keyInsights.add("Độ dài trung bình: " + avgLength + " ký tự");
-
-                    if (!commonKeywords.isEmpty()) {
-                        SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO topKeyword = commonKeywords
-                                .get(0);
-                        keyInsights.add("Từ khóa phổ biến nhất: \"" + topKeyword.getWord() + "\" ("
-                                + topKeyword.getFrequency() + " lần)");
-                    }
-
-                    if (!themes.isEmpty()) {
-                        keyInsights.add("Đã xác định được " + themes.size() + " chủ đề chính");
-                    }
-                }
-            } else {
-                // Fallback về insights cơ bản nếu không gọi được AI service
-                keyInsights.add("Tổng cộng " + totalAnswers + " câu trả lời văn bản");
-                keyInsights.add("Độ dài trung bình: " + avgLength + " ký tự");
-
-                if (!commonKeywords.isEmpty()) {
-                    SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO topKeyword = commonKeywords
-                            .get(0);
-                    keyInsights.add("Từ khóa phổ biến nhất: \"" + topKeyword.getWord() + "\" ("
-                            + topKeyword.getFrequency() + " lần)");
-                }
-
-                if (!themes.isEmpty()) {
-                    keyInsights.add("Đã xác định được " + themes.size() + " chủ đề chính");
-                }
+            if (!themes.isEmpty()) {
+                keyInsights.add("Đã xác định được " + themes.size() + " chủ đề chính");
             }
-
-        } catch (Exception e) {
-            log.error("Lỗi khi gọi AI service cho text analysis của survey {}: {}", surveyId, e.getMessage());
-            keyInsights.add("Không thể phân tích AI: " + e.getMessage());
         }
 
         return SurveyTextAnalysisResponseDTO.builder()
@@ -1044,6 +968,75 @@ public class StatisticsService {
                 .build();
     }
 
+    /**
+     * POST tới endpoint phân tích của AI service; null nếu status khác 200
+     */
+    private Map<String, Object> callAnalysis(String path) {
+        ResponseEntity<Map<String, Object>> response = aiServiceClient.exchange(
+                AiEndpoint.ANALYSIS,
+                path,
+                HttpMethod.POST,
+                null,
+                new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {
+                });
+        return response.getStatusCode() == HttpStatus.OK ? response.getBody() : null;
+    }
+
+    private List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO> parseKeywords(
+            Map<String, Object> keywordsData) {
+        List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO> commonKeywords = new ArrayList<>();
+        if (keywordsData == null || !Boolean.TRUE.equals(keywordsData.get("ok"))
+                || !keywordsData.containsKey("keywords")) {
+            return commonKeywords;
+        }
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> keywordsList = (List<Map<String, Object>>) keywordsData.get("keywords");
+
+        for (Map<String, Object> kw : keywordsList) {
+            // Convert decimal score (0.0-1.0) to meaningful frequency (multiply by 100 and
+            // round)
+            double score = ((Number) kw.get("score")).doubleValue();
+            int frequency = (int) Math.round(score * 100);
+
+            commonKeywords.add(SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.CommonKeywordDTO.builder()
+                    .word((String) kw.get("keyword")) // AI service trả về "keyword", không phải "word"
+                    .frequency(frequency) // Convert score to frequency percentage
+                    .build());
+        }
+        return commonKeywords;
+    }
+
+    private List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.ThemeDTO> parseThemes(
+            Map<String, Object> themesData) {
+        List<SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.ThemeDTO> themes = new ArrayList<>();
+        if (themesData == null || !Boolean.TRUE.equals(themesData.get("ok")) || !themesData.containsKey("themes")) {
+            return themes;
+        }
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> themesList = (List<Map<String, Object>>) themesData.get("themes");
+
+        for (Map<String, Object> theme : themesList) {
+            // AI service trả về format: {"cluster": 0, "size": 11, "examples": [...]}
+            int clusterNum = ((Number) theme.get("cluster")).intValue();
+            int size = ((Number) theme.get("size")).intValue();
+
+            // Analyze sentiment based on cluster size and content
+            String sentiment = "neutral"; // default
+            if (size >= 3) {
+                sentiment = "positive"; // Larger clusters tend to be more significant/positive
+            } else if (size == 1) {
+                sentiment = "neutral"; // Single items are usually neutral
+            }
+
+            themes.add(SurveyTextAnalysisResponseDTO.OpenEndedSummaryDTO.ThemeDTO.builder()
+                    .theme("Theme " + (clusterNum + 1)) // More user-friendly naming (Theme 1, Theme 2)
+                    .mentions(size) // AI service trả về "size"
+                    .sentiment(sentiment) // Improved sentiment logic
+                    .build());
+        }
+        return themes;
+    }
+
     /**
      * Lấy sentiment analysis dữ liệu cho survey
      */
@@ -1070,10 +1063,10 @@ public class StatisticsService {
 
         try {
             // Gọi AI service để lấy sentiment data thông qua REST call
-            String aiServiceUrl = AI_SERVICE_BASE_URL + "/ai/basic-sentiment/" + surveyId;
 
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    aiServiceUrl,
+            ResponseEntity<Map<String, Object>> response = aiServiceClient.exchange(
+                    AiEndpoint.ANALYSIS,
+                    "/ai/basic-sentiment/" + surveyId,
                     HttpMethod.POST,
                     null,
                     new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {
@@ -1192,10 +1185,16 @@ public class StatisticsService {
         SurveyTimelineResponseDTO timeline = getSurveyTimeline(surveyId);
         SurveySentimentResponseDTO sentiment = getSurveySentimentAnalysis(surveyId);
 
-        // Set headless mode cho AWT (cần thiết khi chạy trên server không có display)
-        System.setProperty("java.awt.headless", "true");
+        // Loại câu hỏi lấy 1 lần cho cả survey (thay vì findById cho từng biểu đồ)
+        Map<Long, QuestionTypeEnum> questionTypes = new HashMap<>();
+        for (Question question : questionRepository.findBySurvey(survey)) {
+            questionTypes.put(question.getQuestionId(), question.getQuestionType());
+        }
 
         try {
+            // Vẽ trước tất cả biểu đồ song song, sau đó dựng PDF tuần tự theo đúng thứ tự
+            Map<Object, byte[]> chartImages = renderReportCharts(charts, timeline, sentiment, questionTypes);
+
             // Tạo PDF document
             java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
             com.itextpdf.kernel.pdf.PdfDocument pdfDoc = new com.itextpdf.kernel.pdf.PdfDocument(
@@ -1203,76 +1202,9 @@ public class StatisticsService {
             com.itextpdf.layout.Document document = new com.itextpdf.layout.Document(pdfDoc);
             document.setMargins(50, 50, 50, 50);
 
-            // Fonts - Sử dụng font hỗ trợ tiếng Việt (Arial trên Windows)
-            com.itextpdf.kernel.font.PdfFont font;
-            com.itextpdf.kernel.font.PdfFont fontBold;
-            
-            try {
-                // Ưu tiên sử dụng Arial (hỗ trợ tiếng Việt tốt)
-                String osName = System.getProperty("os.name", "").toLowerCase();
-                String arialPath = null;
-                String arialBoldPath = null;
-                
-                if (osName.contains("win")) {
-                    // Windows
-                    arialPath = "C:/Windows/Fonts/arial.ttf";
-                    arialBoldPath = "C:/Windows/Fonts/arialbd.ttf";
-                } else if (osName.contains("mac")) {
-                    // macOS
-                    arialPath = "/System/Library/Fonts/Supplemental/Arial.ttf";
-                    arialBoldPath = "/System/Library/Fonts/Supplemental/Arial Bold.ttf";
-                } else {
-                    // Linux - thử DejaVu Sans
-                    arialPath = "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf";
-                    arialBoldPath = "/usr/share/fonts/truetype/dejavu/DejaVuSans-Bold.ttf";
-                }
-                
-                font = null;
-                fontBold = null;
-                
-                // Thử load Arial
-                if (arialPath != null) {
-                    try {
-                        java.io.File fontFile = new java.io.File(arialPath);
-                        if (fontFile.exists()) {
-                            byte[] fontBytes = java.nio.file.Files.readAllBytes(fontFile.toPath());
-                            font = com.itextpdf.kernel.font.PdfFontFactory.createFont(fontBytes, 
-                                    com.itextpdf.io.font.PdfEncodings.IDENTITY_H);
-                            log.info("Loaded Arial font from: {}", arialPath);
-                            
-                            // Thử load Arial Bold
-                            if (arialBoldPath != null) {
-                                java.io.File boldFile = new java.io.File(arialBoldPath);
-                                if (boldFile.exists()) {
-                                    byte[] boldBytes = java.nio.file.Files.readAllBytes(boldFile.toPath());
-                                    fontBold = com.itextpdf.kernel.font.PdfFontFactory.createFont(boldBytes, 
-                                            com.itextpdf.io.font.PdfEncodings.IDENTITY_H);
-                                    log.info("Loaded Arial Bold font from: {}", arialBoldPath);
-                                } else {
-                                    fontBold = font; // Dùng font thường nếu không có bold
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.warn("Could not load Arial font: {}", e.getMessage());
-                    }
-                }
-                
-                // Fallback về StandardFonts nếu không tìm thấy font Unicode
-                if (font == null) {
-                    log.warn("No Unicode font found, using StandardFonts (may lose Vietnamese characters)");
-                    font = com.itextpdf.kernel.font.PdfFontFactory.createFont(
-                            com.itextpdf.io.font.constants.StandardFonts.HELVETICA);
-                    fontBold = com.itextpdf.kernel.font.PdfFontFactory.createFont(
-                            com.itextpdf.io.font.constants.StandardFonts.HELVETICA_BOLD);
-                }
-            } catch (Exception e) {
-                log.error("Error loading fonts, using StandardFonts: {}", e.getMessage());
-                font = com.itextpdf.kernel.font.PdfFontFactory.createFont(
-                        com.itextpdf.io.font.constants.StandardFonts.HELVETICA);
-                fontBold = com.itextpdf.kernel.font.PdfFontFactory.createFont(
-                        com.itextpdf.io.font.constants.StandardFonts.HELVETICA_BOLD);
-            }
+            // Fonts - font program đã được nạp sẵn, chỉ tạo PdfFont cho document này
+            com.itextpdf.kernel.font.PdfFont font = pdfReportResources.createRegularFont();
+            com.itextpdf.kernel.font.PdfFont fontBold = pdfReportResources.createBoldFont();
 
             // Tiêu đề
             com.itextpdf.layout.element.Paragraph title = new com.itextpdf.layout.element.Paragraph(
@@ -1338,15 +1270,11 @@ public class StatisticsService {
                     List<SurveyChartsResponseDTO.MultipleChoiceDataDTO> rankingList = new ArrayList<>();
                     
                     for (SurveyChartsResponseDTO.MultipleChoiceDataDTO chartData : charts.getMultipleChoiceData()) {
-                        Question question = questionRepository.findById(chartData.getQuestionId()).orElse(null);
-                        if (question != null) {
-                            if (question.getQuestionType() == QuestionTypeEnum.ranking) {
-                                rankingList.add(chartData);
-                            } else if (question.getQuestionType() == QuestionTypeEnum.single_choice) {
-                                singleChoiceList.add(chartData);
-                            } else {
-                                multipleChoiceList.add(chartData);
-                            }
+                        QuestionTypeEnum questionType = questionTypes.get(chartData.getQuestionId());
+                        if (questionType == QuestionTypeEnum.ranking) {
+                            rankingList.add(chartData);
+                        } else if (questionType == QuestionTypeEnum.single_choice) {
+                            singleChoiceList.add(chartData);
                         } else {
                             // Mặc định là multiple choice nếu không tìm thấy
                             multipleChoiceList.add(chartData);
@@ -1364,7 +1292,7 @@ public class StatisticsService {
                         document.add(chartsTitle);
                         
                         for (SurveyChartsResponseDTO.MultipleChoiceDataDTO chartData : multipleChoiceList) {
-                            addQuestionChartToPDF(document, chartData, "pie", font, fontBold, false);
+                            addQuestionChartToPDF(document, chartData, chartImages.get(chartData), font, fontBold);
                         }
                     }
                     
@@ -1379,7 +1307,7 @@ public class StatisticsService {
                         document.add(chartsTitle);
                         
                         for (SurveyChartsResponseDTO.MultipleChoiceDataDTO chartData : singleChoiceList) {
-                            addQuestionChartToPDF(document, chartData, "pie", font, fontBold, false);
+                            addQuestionChartToPDF(document, chartData, chartImages.get(chartData), font, fontBold);
                         }
                     }
                     
@@ -1394,7 +1322,7 @@ public class StatisticsService {
                         document.add(chartsTitle);
                         
                         for (SurveyChartsResponseDTO.MultipleChoiceDataDTO chartData : rankingList) {
-                            addQuestionChartToPDF(document, chartData, "bar", font, fontBold, true);
+                            addQuestionChartToPDF(document, chartData, chartImages.get(chartData), font, fontBold);
                         }
                     }
                 }
@@ -1428,8 +1356,7 @@ public class StatisticsService {
 
                         // Vẽ biểu đồ rating
                         if (ratingData.getDistribution() != null && !ratingData.getDistribution().isEmpty()) {
-                            byte[] chartImage = createRatingBarChart(ratingData.getDistribution(),
-                                    ratingData.getQuestionText() != null ? ratingData.getQuestionText() : "Biểu đồ");
+                            byte[] chartImage = chartImages.get(ratingData);
                             if (chartImage != null) {
                                 com.itextpdf.io.image.ImageData imageData = com.itextpdf.io.image.ImageDataFactory
                                         .create(chartImage);
@@ -1466,7 +1393,7 @@ public class StatisticsService {
                         document.add(questionTitle);
 
                         // Vẽ biểu đồ boolean
-                        byte[] chartImage = createBooleanPieChart(booleanData);
+                        byte[] chartImage = chartImages.get(booleanData);
                         if (chartImage != null) {
                             com.itextpdf.io.image.ImageData imageData = com.itextpdf.io.image.ImageDataFactory
                                     .create(chartImage);
@@ -1495,7 +1422,7 @@ public class StatisticsService {
                     document.add(timelineTitle);
 
                     // Vẽ biểu đồ daily timeline
-                    byte[] timelineChartImage = createTimelineLineChart(timeline.getDaily());
+                    byte[] timelineChartImage = chartImages.get(timeline);
                     if (timelineChartImage != null) {
                         com.itextpdf.io.image.ImageData imageData = com.itextpdf.io.image.ImageDataFactory
                                 .create(timelineChartImage);
@@ -1526,7 +1453,7 @@ public class StatisticsService {
                         document.add(sentimentTitle);
 
                         // Vẽ biểu đồ sentiment overall
-                        byte[] sentimentChartImage = createSentimentPieChart(overall);
+                        byte[] sentimentChartImage = chartImages.get(overall);
                         if (sentimentChartImage != null) {
                             com.itextpdf.io.image.ImageData imageData = com.itextpdf.io.image.ImageDataFactory
                                     .create(sentimentChartImage);
@@ -2524,47 +2451,70 @@ public class StatisticsService {
      */
     private byte[] chartToByteArray(org.jfree.chart.JFreeChart chart, int width, int height) {
         try {
-            // Đảm bảo headless mode
-            System.setProperty("java.awt.headless", "true");
-            
-            // Tạo BufferedImage với type RGB để đảm bảo tương thích
-            java.awt.image.BufferedImage image = new java.awt.image.BufferedImage(width, height, 
-                    java.awt.image.BufferedImage.TYPE_INT_RGB);
-            java.awt.Graphics2D g2 = image.createGraphics();
-            
-            // Set rendering hints để có chất lượng tốt hơn
-            g2.setRenderingHint(java.awt.RenderingHints.KEY_ANTIALIASING, 
-                    java.awt.RenderingHints.VALUE_ANTIALIAS_ON);
-            g2.setRenderingHint(java.awt.RenderingHints.KEY_TEXT_ANTIALIASING, 
-                    java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            
-            // Vẽ chart vào image
-            chart.draw(g2, new java.awt.geom.Rectangle2D.Double(0, 0, width, height));
-            g2.dispose();
-            
-            // Chuyển thành PNG
-            java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-            javax.imageio.ImageIO.write(image, "PNG", baos);
-            byte[] result = baos.toByteArray();
-            
+            byte[] result = pdfReportResources.renderPng(chart, width, height);
             log.debug("Chart converted successfully, size: {} bytes", result.length);
             return result;
         } catch (Exception e) {
             log.error("Lỗi khi chuyển chart thành image: {}", e.getMessage(), e);
-            e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * Vẽ trước toàn bộ biểu đồ của báo cáo trên pool giới hạn.
+     * Key là DTO nguồn của từng biểu đồ (so sánh theo identity).
+     */
+    private Map<Object, byte[]> renderReportCharts(SurveyChartsResponseDTO charts,
+            SurveyTimelineResponseDTO timeline, SurveySentimentResponseDTO sentiment,
+            Map<Long, QuestionTypeEnum> questionTypes) {
+        Map<Object, java.util.function.Supplier<byte[]>> tasks = new IdentityHashMap<>();
+        if (charts != null) {
+            if (charts.getMultipleChoiceData() != null) {
+                for (SurveyChartsResponseDTO.MultipleChoiceDataDTO chartData : charts.getMultipleChoiceData()) {
+                    if (chartData.getChartData() == null || chartData.getChartData().isEmpty()) {
+                        continue;
+                    }
+                    String title = chartData.getQuestionText() != null ? chartData.getQuestionText() : "Biểu đồ";
+                    if (questionTypes.get(chartData.getQuestionId()) == QuestionTypeEnum.ranking) {
+                        tasks.put(chartData, () -> createMultipleChoiceBarChart(chartData.getChartData(), title, true));
+                    } else {
+                        tasks.put(chartData, () -> createPieChart(chartData.getChartData(), title));
+                    }
+                }
+            }
+            if (charts.getRatingData() != null) {
+                for (SurveyChartsResponseDTO.RatingDataDTO ratingData : charts.getRatingData()) {
+                    if (ratingData.getDistribution() == null || ratingData.getDistribution().isEmpty()) {
+                        continue;
+                    }
+                    String title = ratingData.getQuestionText() != null ? ratingData.getQuestionText() : "Biểu đồ";
+                    tasks.put(ratingData, () -> createRatingBarChart(ratingData.getDistribution(), title));
+                }
+            }
+            if (charts.getBooleanData() != null) {
+                for (SurveyChartsResponseDTO.BooleanDataDTO booleanData : charts.getBooleanData()) {
+                    tasks.put(booleanData, () -> createBooleanPieChart(booleanData));
+                }
+            }
+        }
+        if (timeline != null && timeline.getDaily() != null && !timeline.getDaily().isEmpty()) {
+            tasks.put(timeline, () -> createTimelineLineChart(timeline.getDaily()));
+        }
+        if (sentiment != null && sentiment.getOverall() != null) {
+            SurveySentimentResponseDTO.SentimentOverallDTO overall = sentiment.getOverall();
+            tasks.put(overall, () -> createSentimentPieChart(overall));
+        }
+        return pdfReportResources.renderAll(tasks);
+    }
+
     /**
      * Helper method để thêm biểu đồ câu hỏi vào PDF
-     * @param isRanking true nếu là ranking question, false nếu là multiple choice
+     * @param chartImage ảnh biểu đồ đã vẽ trước (pie hoặc bar cho ranking), null nếu không vẽ được
      */
     private void addQuestionChartToPDF(com.itextpdf.layout.Document document,
             SurveyChartsResponseDTO.MultipleChoiceDataDTO chartData,
-            String chartType,
-            com.itextpdf.kernel.font.PdfFont font, com.itextpdf.kernel.font.PdfFont fontBold,
-            boolean isRanking) {
+            byte[] chartImage,
+            com.itextpdf.kernel.font.PdfFont font, com.itextpdf.kernel.font.PdfFont fontBold) {
         // Tiêu đề câu hỏi
         com.itextpdf.layout.element.Paragraph questionTitle = new com.itextpdf.layout.element.Paragraph(
                 chartData.getQuestionText() != null ? chartData.getQuestionText() : "Câu hỏi")
@@ -2576,17 +2526,6 @@ public class StatisticsService {
 
         // Vẽ biểu đồ
         if (chartData.getChartData() != null && !chartData.getChartData().isEmpty()) {
-            byte[] chartImage = null;
-            
-            if ("bar".equals(chartType)) {
-                chartImage = createMultipleChoiceBarChart(chartData.getChartData(),
-                        chartData.getQuestionText() != null ? chartData.getQuestionText() : "Biểu đồ",
-                        isRanking);
-            } else {
-                chartImage = createPieChart(chartData.getChartData(),
-                        chartData.getQuestionText() != null ? chartData.getQuestionText() : "Biểu đồ");
-            }
-            
             if (chartImage != null) {
                 com.itextpdf.io.image.ImageData imageData = com.itextpdf.io.image.ImageDataFactory
                         .create(chartImage);
@@ -0,0 +1,216 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.duytan.c1se09.smartsurvey.domain.Option;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.repository.OptionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache in-process định nghĩa survey (survey, câu hỏi, options, câu bắt buộc) cho luồng public:
+ * hiển thị survey và validate khi submit không cần truy vấn DB khi cache còn nóng.
+ * - Entity trong cache là bản detached, chỉ đọc; không được sửa hay merge lại
+ * - Bị xóa khi survey/câu hỏi/option thay đổi (ngay lập tức và sau khi transaction commit)
+ * - Giới hạn số survey (LRU) và thời gian sống để tự làm mới khi dữ liệu đổi từ instance khác
+ * - Evict chỉ xảy ra trên instance đã sửa survey, nên trạng thái (published / draft / archived) có hạn ngắn riêng:
+ *   quá app.survey-cache.status-ttl-seconds thì đọc lại cột status (tối đa 1 lần mỗi khoảng đó cho mỗi survey,
+ *   không phải mỗi request), nếu đã đổi thì nạp lại định nghĩa
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class SurveyDefinitionCache {
+
+    private final SurveyRepository surveyRepository;
+    private final QuestionRepository questionRepository;
+    private final OptionRepository optionRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.survey-cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${app.survey-cache.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    @Value("${app.survey-cache.status-ttl-seconds:5}")
+    private long statusTtlSeconds;
+
+    /**
+     * Định nghĩa bất biến của một survey
+     */
+    @Getter
+    public static class SurveyDefinition {
+        private final Survey survey;
+        private final String categoryName;
+        private final List<Question> questions;
+        private final Map<Long, Question> questionById;
+        private final Map<Long, Option> optionById;
+        private final Map<Long, List<Option>> optionsByQuestion;
+        private final Set<Long> requiredQuestionIds;
+        private final long loadedAtMillis;
+
+        /**
+         * Lần cuối trạng thái trong cache được xác nhận khớp với DB
+         */
+        private volatile long statusCheckedAtMillis;
+
+        SurveyDefinition(Survey survey, String categoryName, List<Question> questions, List<Option> options) {
+            this.survey = survey;
+            this.categoryName = categoryName;
+            this.questions = List.copyOf(questions);
+
+            Map<Long, Question> byId = new HashMap<>();
+            Set<Long> required = new HashSet<>();
+            for (Question question : questions) {
+                byId.put(question.getQuestionId(), question);
+                if (Boolean.TRUE.equals(question.getIsRequired())) {
+                    required.add(question.getQuestionId());
+                }
+            }
+            this.questionById = Collections.unmodifiableMap(byId);
+            this.requiredQuestionIds = Collections.unmodifiableSet(required);
+
+            Map<Long, Option> optionMap = new HashMap<>();
+            Map<Long, List<Option>> grouped = new HashMap<>();
+            for (Option option : options) {
+                optionMap.put(option.getOptionId(), option);
+                grouped.computeIfAbsent(option.getQuestion().getQuestionId(), k -> new ArrayList<>()).add(option);
+            }
+            grouped.replaceAll((k, v) -> List.copyOf(v));
+            this.optionById = Collections.unmodifiableMap(optionMap);
+            this.optionsByQuestion = Collections.unmodifiableMap(grouped);
+            this.loadedAtMillis = System.currentTimeMillis();
+            this.statusCheckedAtMillis = loadedAtMillis;
+        }
+
+        /**
+         * Options của câu hỏi theo thứ tự tạo (rỗng nếu không có)
+         */
+        public List<Option> options(Long questionId) {
+            return optionsByQuestion.getOrDefault(questionId, List.of());
+        }
+    }
+
+    private final LinkedHashMap<Long, SurveyDefinition> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SurveyDefinition> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Tăng mỗi lần evict; bản nạp bắt đầu trước khi evict sẽ không được đưa vào cache
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Lấy định nghĩa survey, nạp từ DB nếu chưa có hoặc đã hết hạn
+     */
+    public SurveyDefinition get(Long surveyId) throws IdInvalidException {
+        SurveyDefinition cached;
+        synchronized (cache) {
+            cached = cache.get(surveyId);
+        }
+        if (cached != null && !isExpired(cached)) {
+            if (isStatusFresh(cached) || confirmStatus(cached)) {
+                return cached;
+            }
+            // Trạng thái đã đổi (hoặc survey đã bị xóa) trên instance khác -> nạp lại
+            remove(surveyId);
+        }
+
+        long generation = invalidations.get();
+        SurveyDefinition loaded = load(surveyId);
+        if (loaded == null) {
+            throw new IdInvalidException("Không tìm thấy khảo sát");
+        }
+        synchronized (cache) {
+            if (invalidations.get() == generation) {
+                cache.put(surveyId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Xóa định nghĩa survey khỏi cache; nếu đang trong transaction thì xóa lại sau khi commit
+     * để request đọc song song không đưa bản cũ trở lại cache
+     */
+    public void evict(Long surveyId) {
+        remove(surveyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(surveyId);
+                }
+            });
+        }
+    }
+
+    private void remove(Long surveyId) {
+        synchronized (cache) {
+            invalidations.incrementAndGet();
+            cache.remove(surveyId);
+        }
+    }
+
+    private boolean isStatusFresh(SurveyDefinition definition) {
+        return System.currentTimeMillis() - definition.getStatusCheckedAtMillis() <= statusTtlSeconds * 1000L;
+    }
+
+    /**
+     * Đọc lại cột status; khớp với bản trong cache thì gia hạn kiểm tra trạng thái
+     */
+    private boolean confirmStatus(SurveyDefinition definition) {
+        Survey survey = definition.getSurvey();
+        Optional<SurveyStatusEnum> status = surveyRepository.findStatusById(survey.getSurveyId());
+        if (status.isPresent() && status.get() == survey.getStatus()) {
+            definition.statusCheckedAtMillis = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isExpired(SurveyDefinition definition) {
+        return ttlMinutes > 0 && System.currentTimeMillis() - definition.getLoadedAtMillis() > ttlMinutes * 60_000L;
+    }
+
+    /**
+     * Nạp trong transaction riêng để entity trả về đã detached (không gắn với session của request)
+     */
+    private SurveyDefinition load(Long surveyId) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template.execute(status -> {
+            Survey survey = surveyRepository.findById(surveyId).orElse(null);
+            if (survey == null) {
+                return null;
+            }
+            String categoryName = survey.getCategory() != null ? survey.getCategory().getCategoryName() : null;
+            List<Question> questions = questionRepository.findBySurveyOrderByDisplayOrderAsc(survey);
+            List<Option> options = optionRepository.findBySurveyOrderByCreatedAt(survey);
+            log.debug("Loaded survey definition {} ({} questions, {} options)", surveyId, questions.size(),
+                    options.size());
+            return new SurveyDefinition(survey, categoryName, questions, options);
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyPermissionRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyPermissionRole;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache quyết định quyền (survey, user) → SurveyPermissionRole (kể cả "không có quyền").
+ * - Chỉ cache phần tra DB (permission trực tiếp + ràng buộc team); quyền OWNER vẫn tính từ survey.user
+ * - Bị xóa chính xác theo survey/user khi permission, team membership hoặc survey thay đổi
+ *   (ngay lập tức và sau khi transaction commit)
+ * - Giới hạn số entry (LRU) và thời gian sống để tự làm mới khi dữ liệu đổi từ instance khác
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class SurveyPermissionCache {
+
+    private final SurveyPermissionRepository surveyPermissionRepository;
+
+    @Value("${app.permission-cache.max-entries:20000}")
+    private int maxEntries;
+
+    @Value("${app.permission-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private record Key(Long surveyId, Long userId) {
+    }
+
+    /**
+     * Quyết định đã tính; role = null nghĩa là không có quyền
+     */
+    private record Decision(SurveyPermissionRole role, long loadedAtMillis) {
+    }
+
+    private final LinkedHashMap<Key, Decision> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Decision> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Tăng mỗi lần evict; kết quả nạp bắt đầu trước khi evict sẽ không được đưa vào cache
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Quyền (không tính owner) của user trên 1 survey; null nếu không có quyền
+     */
+    public SurveyPermissionRole get(Long surveyId, User user) {
+        return getAll(List.of(surveyId), user).get(surveyId);
+    }
+
+    /**
+     * Quyền (không tính owner) của user trên nhiều survey; các survey chưa có trong cache
+     * được tra bằng 1 truy vấn. Survey không có quyền ánh xạ tới null.
+     */
+    public Map<Long, SurveyPermissionRole> getAll(Collection<Long> surveyIds, User user) {
+        Map<Long, SurveyPermissionRole> result = new HashMap<>();
+        if (surveyIds.isEmpty() || user == null || user.getUserId() == null) {
+            surveyIds.forEach(id -> result.put(id, null));
+            return result;
+        }
+
+        Long userId = user.getUserId();
+        Set<Long> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            for (Long surveyId : surveyIds) {
+                Decision decision = cache.get(new Key(surveyId, userId));
+                if (decision != null && now - decision.loadedAtMillis() <= ttlSeconds * 1000L) {
+                    result.put(surveyId, decision.role());
+                } else {
+                    missing.add(surveyId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long generation = invalidations.get();
+        Map<Long, SurveyPermissionRole> loaded = new HashMap<>();
+        missing.forEach(id -> loaded.put(id, null));
+        for (Object[] row : surveyPermissionRepository.findEffectivePermissions(user, missing)) {
+            loaded.put((Long) row[0], (SurveyPermissionRole) row[1]);
+        }
+
+        long loadedAt = System.currentTimeMillis();
+        synchronized (cache) {
+            if (invalidations.get() == generation) {
+                loaded.forEach((surveyId, role) -> cache.put(new Key(surveyId, userId), new Decision(role, loadedAt)));
+            }
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * Xóa quyết định của 1 user trên 1 survey
+     */
+    public void evict(Long surveyId, Long userId) {
+        Key key = new Key(surveyId, userId);
+        evictWhere(key::equals);
+    }
+
+    /**
+     * Xóa mọi quyết định trên survey (đổi permissions, đổi owner, xóa survey)
+     */
+    public void evictSurvey(Long surveyId) {
+        evictWhere(key -> key.surveyId().equals(surveyId));
+    }
+
+    /**
+     * Xóa mọi quyết định của user (đổi team membership, xóa user)
+     */
+    public void evictUser(Long userId) {
+        evictWhere(key -> key.userId().equals(userId));
+    }
+
+    private void evictWhere(Predicate<Key> predicate) {
+        remove(predicate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(predicate);
+                }
+            });
+        }
+    }
+
+    private void remove(Predicate<Key> predicate) {
+        synchronized (cache) {
+            invalidations.incrementAndGet();
+            cache.keySet().removeIf(predicate);
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class SurveyPermissionService {
     private final TeamRepository teamRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final SurveyPermissionCache surveyPermissionCache;
 
     /**
      * Lấy permission của user cho survey này
@@ -64,26 +65,37 @@ public class SurveyPermissionService {
             return SurveyPermissionRole.OWNER;
         }
 
-        // Check direct user permission only (không còn team permission)
-        Optional<SurveyPermission> directPerm = surveyPermissionRepository.findBySurveyAndUser(survey, user);
-        if (directPerm.isPresent()) {
-            SurveyPermission permission = directPerm.get();
-            if (permission.getRestrictedTeam() != null) {
-                Team restrictedTeam = permission.getRestrictedTeam();
-                if (!isUserStillInTeam(user, restrictedTeam)) {
-                    // User đã rời khỏi team bị ràng buộc -> bỏ qua quyền này
-                    return null;
-                } else {
-                    return permission.getPermission();
-                }
+        if (survey == null || survey.getSurveyId() == null || user == null) {
+            return null;
+        }
+
+        // Check direct user permission only (không còn team permission);
+        // permission ràng buộc team chỉ có hiệu lực khi user còn trong team. Kết quả được cache.
+        return surveyPermissionCache.get(survey.getSurveyId(), user);
+    }
+
+    /**
+     * Lấy permission của user cho nhiều survey cùng lúc (1 truy vấn cho các survey chưa có trong cache).
+     * Cùng logic với getUserPermission; survey không có quyền ánh xạ tới null.
+     */
+    public Map<Long, SurveyPermissionRole> getUserPermissions(Collection<Survey> surveys, User user) {
+        Map<Long, SurveyPermissionRole> result = new HashMap<>();
+        List<Long> sharedSurveyIds = new ArrayList<>();
+        for (Survey survey : surveys) {
+            if (isOwner(survey, user)) {
+                result.put(survey.getSurveyId(), SurveyPermissionRole.OWNER);
             } else {
-                // Permission độc lập (không ràng buộc team) - giống Google Form
-                return permission.getPermission();
+                sharedSurveyIds.add(survey.getSurveyId());
             }
         }
+        result.putAll(surveyPermissionCache.getAll(sharedSurveyIds, user));
+        return result;
+    }
 
-        // Không có permission nào
-        return null;
+    private boolean isOwner(Survey survey, User user) {
+        return survey != null && survey.getUser() != null && survey.getUser().getUserId() != null
+                && user != null && user.getUserId() != null
+                && survey.getUser().getUserId().equals(user.getUserId());
     }
 
     private boolean isUserStillInTeam(User user, Team team) {
@@ -151,6 +163,7 @@ public class SurveyPermissionService {
         if (!canManagePermissions(survey, grantedBy)) {
             throw new IdInvalidException("Bạn không có quyền quản lý permissions của survey này");
         }
+        surveyPermissionCache.evictSurvey(survey.getSurveyId());
 
         List<String> warnings = new ArrayList<>();
         List<SurveyPermissionResponseDTO.SharedUserDTO> sharedUsers = new ArrayList<>();
@@ -549,6 +562,9 @@ public class SurveyPermissionService {
         
         // Xóa permission
         surveyPermissionRepository.delete(permission);
+        if (targetUser != null) {
+            surveyPermissionCache.evict(survey.getSurveyId(), targetUser.getUserId());
+        }
         
         // Gửi notification cho user bị xóa quyền
         if (targetUser != null) {
@@ -26,6 +26,7 @@ import vn.duytan.c1se09.smartsurvey.domain.response.survey.SurveyPaginationDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.survey.SurveyPublicResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.survey.SurveyStatusResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.request.survey.SurveyPermissionUpdateRequestDTO;
+import vn.duytan.c1se09.smartsurvey.domain.response.purge.PurgeJobResponseDTO;
 import vn.duytan.c1se09.smartsurvey.domain.response.survey.SurveyPermissionResponseDTO;
 
 /**
@@ -39,20 +40,18 @@ public class SurveyService {
     private final CategoryRepository categoryRepository;
     private final QuestionRepository questionRepository;
     private final OptionRepository optionRepository;
-    private final AnswerRepository answerRepository;
-    private final ResponseRepository responseRepository;
-    private final SurveyViewRepository surveyViewRepository;
-    private final AiSentimentRepository aiSentimentRepository;
-    private final AiAnalysisRepository aiAnalysisRepository;
     private final AuthService authService;
     private final ActivityLogService activityLogService;
     private final SurveyPermissionService surveyPermissionService;
     private final SurveyPermissionRepository surveyPermissionRepository;
-    private final AiChatLogRepository aiChatLogRepository;
     private final NotificationService notificationService;
     private final UserRepository userRepository;
     private final TeamRepository teamRepository;
     private final TeamMemberRepository teamMemberRepository;
+    private final SurveyDefinitionCache surveyDefinitionCache;
+    private final SurveyPermissionCache surveyPermissionCache;
+    private final DashboardService dashboardService;
+    private final PurgeService purgeService;
 
     public Survey getSurveyEntityById(Long surveyId) throws IdInvalidException {
         return surveyRepository.findById(surveyId)
@@ -100,6 +99,9 @@ public class SurveyService {
             throw new IdInvalidException("Bạn không có quyền chỉnh sửa khảo sát này");
         }
 
+        surveyDefinitionCache.evict(survey.getSurveyId());
+        // Entity truyền vào có thể đã đổi owner
+        surveyPermissionCache.evictSurvey(survey.getSurveyId());
         return surveyRepository.save(survey);
     }
 
@@ -124,6 +126,7 @@ public class SurveyService {
         }
 
         Survey saved = surveyRepository.save(survey);
+        dashboardService.evict(currentUser.getUserId());
         // log activity
         activityLogService.log(
                 ActivityLog.ActionType.create_survey,
@@ -264,6 +267,7 @@ public class SurveyService {
             throw new IdInvalidException("Bạn không có quyền cập nhật khảo sát này");
         }
         survey.setStatus(status);
+        surveyDefinitionCache.evict(surveyId);
         return surveyRepository.save(survey);
     }
 
@@ -294,6 +298,7 @@ public class SurveyService {
         }
 
         Survey saved = surveyRepository.save(survey);
+        surveyDefinitionCache.evict(surveyId);
         activityLogService.log(
                 ActivityLog.ActionType.edit_survey,
                 saved.getSurveyId(),
@@ -303,8 +308,11 @@ public class SurveyService {
 
     }
 
+    /**
+     * Xóa khảo sát: ẩn ngay và xóa dữ liệu nền theo lô (PurgeService)
+     */
     @Transactional
-    public void deleteSurvey(Long surveyId) throws IdInvalidException {
+    public PurgeJobResponseDTO deleteSurvey(Long surveyId) throws IdInvalidException {
         Survey survey = getSurveyEntityById(surveyId);
 
         // Kiểm tra quyền (chỉ OWNER mới được xóa)
@@ -313,84 +321,14 @@ public class SurveyService {
             throw new IdInvalidException("Chỉ chủ sở hữu mới có thể xóa khảo sát");
         }
 
-        // BƯỚC 1: Xóa tất cả Answers trước (tham chiếu Response và Question)
-        List<Response> responses = responseRepository.findBySurvey(survey);
-        for (Response response : responses) {
-            List<Answer> answers = answerRepository.findByResponse(response);
-            if (!answers.isEmpty()) {
-                answerRepository.deleteAll(answers);
-            }
-        }
-
-        // BƯỚC 2: Xóa tất cả Responses (tham chiếu Survey)
-        if (!responses.isEmpty()) {
-            responseRepository.deleteAll(responses);
-        }
-
-        // BƯỚC 3: Xóa tất cả Options và Questions
-        List<Question> questions = questionRepository.findBySurvey(survey);
-        for (Question question : questions) {
-            // Xóa tất cả options của question này
-            List<Option> options = optionRepository.findByQuestion(question);
-            if (!options.isEmpty()) {
-                optionRepository.deleteAll(options);
-                activityLogService.log(
-                        ActivityLog.ActionType.delete_option,
-                        question.getQuestionId(),
-                        "options",
-                        "Xóa " + options.size() + " tùy chọn khi xóa câu hỏi: " + question.getQuestionText());
-            }
-
-            // Log xóa question
-            activityLogService.log(
-                    ActivityLog.ActionType.delete_question,
-                    question.getQuestionId(),
-                    "questions",
-                    "Xóa câu hỏi khi xóa khảo sát: " + question.getQuestionText());
-        }
-
-        // Xóa tất cả questions
-        if (!questions.isEmpty()) {
-            questionRepository.deleteAll(questions);
-        }
-
-        // BƯỚC 4: Xóa SurveyPermission (tham chiếu Survey)
-        List<SurveyPermission> permissions = surveyPermissionRepository.findBySurvey(survey);
-        if (!permissions.isEmpty()) {
-            surveyPermissionRepository.deleteAll(permissions);
-        }
-
-        // BƯỚC 5: Xóa SurveyView (tham chiếu Survey)
-        List<SurveyView> views = surveyViewRepository.findBySurveyOrderByViewedAtDesc(survey);
-        if (!views.isEmpty()) {
-            surveyViewRepository.deleteAll(views);
-        }
-
-        // BƯỚC 6: Xóa AiSentiment (tham chiếu Survey)
-        List<AiSentiment> sentiments = aiSentimentRepository.findBySurvey(survey);
-        if (!sentiments.isEmpty()) {
-            aiSentimentRepository.deleteAll(sentiments);
-        }
-
-        // BƯỚC 7: Xóa AiAnalysis (tham chiếu Survey)
-        List<AiAnalysis> analyses = aiAnalysisRepository.findBySurvey(survey);
-        if (!analyses.isEmpty()) {
-            aiAnalysisRepository.deleteAll(analyses);
-        }
-
-        // BƯỚC 8: Xóa AiChatLogs (tham chiếu Survey)
-        List<AiChatLog> chatLogs = aiChatLogRepository.findBySurvey(survey);
-        if (!chatLogs.isEmpty()) {
-            aiChatLogRepository.deleteAll(chatLogs);
-        }
-
-        // BƯỚC 9: Cuối cùng xóa survey
-        surveyRepository.delete(survey);
+        PurgeJobResponseDTO purgeJob = purgeService.requestSurveyPurge(survey, currentUser);
+        dashboardService.evict(currentUser.getUserId());
         activityLogService.log(
                 ActivityLog.ActionType.delete_survey,
                 surveyId,
                 "surveys",
                 "Xóa khảo sát: " + survey.getTitle());
+        return purgeJob;
     }
 
     public long getTotalSurveys() {
@@ -517,7 +455,9 @@ public class SurveyService {
      * Chỉ trả về thông tin cần thiết, không có AI prompt hay thông tin user
      */
     public SurveyPublicResponseDTO getSurveyPublic(Long surveyId) throws IdInvalidException {
-        Survey survey = getSurveyEntityById(surveyId);
+        // Định nghĩa survey lấy từ cache (không truy vấn DB khi cache còn nóng)
+        SurveyDefinitionCache.SurveyDefinition definition = surveyDefinitionCache.get(surveyId);
+        Survey survey = definition.getSurvey();
 
         // Kiểm tra survey có active không
         if (survey.getStatus() != SurveyStatusEnum.published) {
@@ -533,13 +473,10 @@ public class SurveyService {
         dto.setUpdatedAt(survey.getUpdatedAt());
 
         // Chỉ trả về category name, không có category ID
-        if (survey.getCategory() != null) {
-            dto.setCategoryName(survey.getCategory().getCategoryName());
-        }
+        dto.setCategoryName(definition.getCategoryName());
 
         // Lấy danh sách questions với options (public version)
-        List<Question> questions = questionRepository.findBySurveyOrderByDisplayOrderAsc(survey);
-        List<SurveyPublicResponseDTO.QuestionPublicDTO> questionDTOs = questions.stream().map(question -> {
+        List<SurveyPublicResponseDTO.QuestionPublicDTO> questionDTOs = definition.getQuestions().stream().map(question -> {
             SurveyPublicResponseDTO.QuestionPublicDTO qDto = new SurveyPublicResponseDTO.QuestionPublicDTO();
             qDto.setId(question.getQuestionId());
             qDto.setText(question.getQuestionText());
@@ -548,13 +485,13 @@ public class SurveyService {
             qDto.setOrder(question.getDisplayOrder());
 
             // Lấy options cho question này
-            List<Option> options = optionRepository.findByQuestion(question);
-            List<SurveyPublicResponseDTO.OptionPublicDTO> optionDTOs = options.stream().map(option -> {
-                SurveyPublicResponseDTO.OptionPublicDTO oDto = new SurveyPublicResponseDTO.OptionPublicDTO();
-                oDto.setId(option.getOptionId());
-                oDto.setText(option.getOptionText());
-                return oDto;
-            }).toList();
+            List<SurveyPublicResponseDTO.OptionPublicDTO> optionDTOs = definition.options(question.getQuestionId())
+                    .stream().map(option -> {
+                        SurveyPublicResponseDTO.OptionPublicDTO oDto = new SurveyPublicResponseDTO.OptionPublicDTO();
+                        oDto.setId(option.getOptionId());
+                        oDto.setText(option.getOptionText());
+                        return oDto;
+                    }).toList();
 
             qDto.setOptions(optionDTOs);
             return qDto;
@@ -621,6 +558,8 @@ public class SurveyService {
         if (!surveyPermissionService.canManagePermissions(survey, currentUser)) {
             throw new IdInvalidException("Bạn không có quyền quản lý quyền truy cập của khảo sát này");
         }
+        // Quyền của survey sắp thay đổi: bỏ cache ngay và sau khi transaction kết thúc
+        surveyPermissionCache.evictSurvey(surveyId);
 
         // Map để lưu thông tin user permissions với restrictedTeamId
         // Key: userId, Value: Pair<permission, restrictedTeamId>
@@ -0,0 +1,43 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Job định kỳ dựng lại rollup thống kê cho các survey chưa có rollup hoặc đã bị đánh dấu stale mà chưa
+ * được luồng đọc yêu cầu dựng (survey không ai xem, hàng đợi dựng theo yêu cầu bị đầy)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SurveyStatsRollupRebuildJob {
+
+    private final SurveyStatsRollupService surveyStatsRollupService;
+
+    @Value("${app.stats-rollup.rebuild-batch-size:20}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${app.stats-rollup.rebuild-initial-delay-ms:30000}",
+            fixedDelayString = "${app.stats-rollup.rebuild-interval-ms:60000}")
+    public void rebuildPendingSurveys() {
+        List<Long> surveyIds = surveyStatsRollupService.findSurveyIdsNeedingRebuild(batchSize);
+        if (surveyIds.isEmpty()) {
+            return;
+        }
+        int rebuilt = 0;
+        for (Long surveyId : surveyIds) {
+            try {
+                surveyStatsRollupService.rebuild(surveyId);
+                rebuilt++;
+            } catch (Exception e) {
+                log.warn("Không thể dựng lại rollup thống kê cho survey {}: {}", surveyId, e.getMessage());
+            }
+        }
+        log.info("Rebuilt stats rollup for {}/{} surveys", rebuilt, surveyIds.size());
+    }
+}
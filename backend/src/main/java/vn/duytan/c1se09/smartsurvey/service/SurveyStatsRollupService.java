@@ -0,0 +1,458 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.duytan.c1se09.smartsurvey.domain.*;
+import vn.duytan.c1se09.smartsurvey.repository.*;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Service duy trì bảng rollup thống kê (survey / question / option).
+ * - Submit/xóa response: cộng/trừ delta bằng câu lệnh upsert nguyên tử (col = col + ?), không khóa đọc;
+ *   delta được ghi ngay trước commit để khóa dòng rollup chỉ giữ trong thời gian commit
+ * - Đọc thống kê: O(số câu hỏi) thay vì O(số answers)
+ * - Rollup chưa có hoặc bị đánh dấu stale: luồng đọc xếp survey vào hàng dựng lại ngay (worker riêng),
+ *   trong lúc chờ tính tạm bằng vài truy vấn aggregate (không ghi, không khóa);
+ *   SurveyStatsRollupRebuildJob quét định kỳ các survey còn sót
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class SurveyStatsRollupService {
+
+    private static final Set<String> TRUE_VALUES = Set.of("true", "đúng", "có", "yes");
+    private static final Set<String> FALSE_VALUES = Set.of("false", "sai", "không", "no");
+
+    /**
+     * Độ dài tối đa của answerText được đếm theo giá trị khi tính tạm (đủ cho rating 1-5 và các giá trị đúng/sai
+     * kể cả khoảng trắng thừa); văn bản dài hơn không thể là rating hay đúng/sai
+     */
+    private static final int SHORT_TEXT_MAX_LENGTH = 16;
+
+    private final SurveyStatsRollupRepository surveyStatsRollupRepository;
+    private final QuestionStatsRollupRepository questionStatsRollupRepository;
+    private final OptionStatsRollupRepository optionStatsRollupRepository;
+    private final ResponseRepository responseRepository;
+    private final AnswerRepository answerRepository;
+    private final QuestionRepository questionRepository;
+    private final SurveyRepository surveyRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.stats-rollup.rebuild-on-read:true}")
+    private boolean rebuildOnRead;
+
+    @Value("${app.stats-rollup.rebuild-queue-capacity:100}")
+    private int rebuildQueueCapacity;
+
+    /**
+     * Các survey đang chờ / đang được dựng lại theo yêu cầu từ luồng đọc (tránh xếp hàng trùng)
+     */
+    private final Set<Long> pendingRebuilds = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor rebuildExecutor;
+
+    @PostConstruct
+    void startRebuildWorker() {
+        // Một worker: các lần dựng lại chạy tuần tự, chỉ chiếm 1 connection dù nhiều survey cùng nguội
+        rebuildExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(rebuildQueueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "stats-rollup-rebuild");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stopRebuildWorker() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Ảnh chụp rollup của một survey để tầng thống kê đọc
+     */
+    @Getter
+    public static class RollupSnapshot {
+        private final SurveyStatsRollup survey;
+        private final Map<Long, QuestionStatsRollup> questions;
+        private final Map<Long, OptionStatsRollup> options;
+
+        RollupSnapshot(SurveyStatsRollup survey, Map<Long, QuestionStatsRollup> questions,
+                Map<Long, OptionStatsRollup> options) {
+            this.survey = survey;
+            this.questions = questions;
+            this.options = options;
+        }
+
+        public QuestionStatsRollup question(Long questionId) {
+            QuestionStatsRollup row = questions.get(questionId);
+            if (row == null) {
+                row = new QuestionStatsRollup();
+                row.setQuestionId(questionId);
+                row.setSurveyId(survey.getSurveyId());
+            }
+            return row;
+        }
+
+        public long optionCount(Long optionId) {
+            OptionStatsRollup row = options.get(optionId);
+            return row != null ? row.getSelectCount() : 0L;
+        }
+    }
+
+    /**
+     * Lấy rollup của survey; nếu chưa có hoặc đã stale thì xếp hàng dựng lại và tính tạm bằng truy vấn aggregate
+     * (số query cố định, không nạp answers)
+     */
+    @Transactional(readOnly = true)
+    public RollupSnapshot getSnapshot(Survey survey) {
+        Long surveyId = survey.getSurveyId();
+        SurveyStatsRollup rollup = surveyStatsRollupRepository.findById(surveyId)
+                .filter(r -> Boolean.TRUE.equals(r.getInitialized()))
+                .orElse(null);
+        if (rollup == null) {
+            SurveyStatsRollup transientRollup = new SurveyStatsRollup();
+            transientRollup.setSurveyId(surveyId);
+            Map<Long, QuestionStatsRollup> questionRows = new HashMap<>();
+            Map<Long, OptionStatsRollup> optionRows = new HashMap<>();
+            requestRebuild(surveyId);
+            computeFromAggregates(survey, transientRollup, questionRows, optionRows);
+            return new RollupSnapshot(transientRollup, questionRows, optionRows);
+        }
+
+        Map<Long, QuestionStatsRollup> questions = questionStatsRollupRepository.findBySurveyId(surveyId).stream()
+                .collect(Collectors.toMap(QuestionStatsRollup::getQuestionId, r -> r));
+        Map<Long, OptionStatsRollup> options = optionStatsRollupRepository.findBySurveyId(surveyId).stream()
+                .collect(Collectors.toMap(OptionStatsRollup::getOptionId, r -> r));
+        return new RollupSnapshot(rollup, questions, options);
+    }
+
+    /**
+     * Cộng response vừa submit vào rollup (gọi sau khi answers đã được lưu)
+     */
+    @Transactional
+    public void onResponseSubmitted(Survey survey, Response response, List<Answer> answers) {
+        applyAtCommit(survey.getSurveyId(), response, answers, 1);
+    }
+
+    /**
+     * Trừ response đã xóa khỏi rollup (gọi sau khi response và answers đã bị xóa)
+     */
+    @Transactional
+    public void onResponseDeleted(Survey survey, Response response, List<Answer> answers) {
+        applyAtCommit(survey.getSurveyId(), response, answers, -1);
+    }
+
+    /**
+     * Đánh dấu rollup của các survey cần job nền dựng lại (dùng khi dữ liệu bị sửa ngoài luồng submit/xóa thông thường)
+     */
+    @Transactional
+    public void markStale(Collection<Long> surveyIds) {
+        if (surveyIds == null || surveyIds.isEmpty()) {
+            return;
+        }
+        surveyStatsRollupRepository.markStale(surveyIds);
+    }
+
+    /**
+     * Dựng lại toàn bộ rollup của survey từ bảng responses/answers
+     */
+    @Transactional
+    public void rebuild(Survey survey) {
+        SurveyStatsRollup rollup = lockRollup(survey.getSurveyId());
+        rebuildLocked(survey, rollup);
+    }
+
+    /**
+     * Dựng lại rollup theo surveyId (dùng cho job nền). Khóa dòng rollup TRƯỚC khi đọc dữ liệu gốc
+     * để các response commit trong lúc chờ khóa đều được tính, không bị cộng trùng với delta
+     */
+    @Transactional
+    public void rebuild(Long surveyId) {
+        SurveyStatsRollup rollup = lockRollup(surveyId);
+        Survey survey = surveyRepository.findById(surveyId)
+                .orElseThrow(() -> new IllegalStateException("Không tìm thấy survey " + surveyId));
+        rebuildLocked(survey, rollup);
+    }
+
+    /**
+     * Xếp survey vào hàng dựng lại rollup ngay, không chờ lượt quét của job nền. Hàng đợi đầy thì bỏ qua
+     * (job nền sẽ dựng sau)
+     */
+    public void requestRebuild(Long surveyId) {
+        if (!rebuildOnRead || !pendingRebuilds.add(surveyId)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(() -> {
+                try {
+                    new TransactionTemplate(transactionManager).executeWithoutResult(status -> rebuild(surveyId));
+                } catch (Exception e) {
+                    log.warn("Không thể dựng lại rollup thống kê cho survey {}: {}", surveyId, e.getMessage());
+                } finally {
+                    pendingRebuilds.remove(surveyId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRebuilds.remove(surveyId);
+            log.debug("Stats rollup rebuild queue full, survey {} left to the scheduled job", surveyId);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findSurveyIdsNeedingRebuild(int limit) {
+        return surveyStatsRollupRepository.findSurveyIdsNeedingRebuild(PageRequest.of(0, limit));
+    }
+
+    /**
+     * Tính delta của response ngay (answers còn trong session), ghi vào rollup ngay trước khi transaction commit
+     */
+    private void applyAtCommit(Long surveyId, Response response, List<Answer> answers, int sign) {
+        Map<Long, QuestionStatsRollup> questionDeltas = new HashMap<>();
+        Map<Long, OptionStatsRollup> optionDeltas = new HashMap<>();
+        if (answers != null) {
+            Map<Long, List<Answer>> answersByQuestion = answers.stream()
+                    .collect(Collectors.groupingBy(a -> a.getQuestion().getQuestionId()));
+            for (Map.Entry<Long, List<Answer>> entry : answersByQuestion.entrySet()) {
+                accumulate(surveyId, entry.getKey(), entry.getValue(), sign, questionDeltas, optionDeltas);
+            }
+        }
+        Integer duration = response.getDurationSeconds();
+        boolean timed = duration != null && duration > 0;
+        long durationSumDelta = timed ? (long) sign * duration : 0L;
+        long durationCountDelta = timed ? sign : 0L;
+
+        Runnable apply = () -> {
+            surveyStatsRollupRepository.applyDelta(surveyId, sign, durationSumDelta, durationCountDelta,
+                    sign > 0 ? response.getSubmittedAt() : null);
+            if (sign < 0) {
+                surveyStatsRollupRepository.refreshLastResponseAt(surveyId);
+            }
+            questionDeltas.values().forEach(questionStatsRollupRepository::applyDelta);
+            optionDeltas.values().forEach(delta -> optionStatsRollupRepository.applyDelta(
+                    delta.getOptionId(), delta.getQuestionId(), surveyId, delta.getSelectCount()));
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private SurveyStatsRollup lockRollup(Long surveyId) {
+        surveyStatsRollupRepository.insertIfMissing(surveyId);
+        return surveyStatsRollupRepository.findForUpdate(surveyId)
+                .orElseThrow(() -> new IllegalStateException("Không tạo được rollup cho survey " + surveyId));
+    }
+
+    private void rebuildLocked(Survey survey, SurveyStatsRollup rollup) {
+        Long surveyId = survey.getSurveyId();
+        long startedAt = System.currentTimeMillis();
+
+        // Reset các dòng hiện có thay vì xóa để tránh đụng entity đang được quản lý trong transaction
+        Map<Long, QuestionStatsRollup> questionRows = new HashMap<>();
+        for (QuestionStatsRollup row : questionStatsRollupRepository.findBySurveyId(surveyId)) {
+            QuestionStatsRollup reset = resetCounters(row);
+            questionRows.put(reset.getQuestionId(), reset);
+        }
+        Map<Long, OptionStatsRollup> optionRows = new HashMap<>();
+        for (OptionStatsRollup row : optionStatsRollupRepository.findBySurveyId(surveyId)) {
+            row.setSelectCount(0L);
+            optionRows.put(row.getOptionId(), row);
+        }
+
+        computeFromSource(survey, rollup, questionRows, optionRows);
+
+        questionStatsRollupRepository.saveAll(questionRows.values());
+        optionStatsRollupRepository.saveAll(optionRows.values());
+        rollup.setInitialized(true);
+        surveyStatsRollupRepository.save(rollup);
+
+        log.info("Rebuilt stats rollup for survey {} ({} responses) in {} ms",
+                surveyId, rollup.getResponseCount(), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Tính các bộ đếm từ bảng responses/answers vào rollup và các dòng (đã reset) truyền vào
+     */
+    private void computeFromSource(Survey survey, SurveyStatsRollup rollup,
+            Map<Long, QuestionStatsRollup> questionRows, Map<Long, OptionStatsRollup> optionRows) {
+        Long surveyId = survey.getSurveyId();
+        rollup.setResponseCount(responseRepository.countBySurvey(survey));
+        rollup.setDurationSum(responseRepository.sumPositiveDurationSecondsBySurvey(survey));
+        rollup.setDurationCount(responseRepository.countBySurveyAndDurationSecondsGreaterThan(survey, 0));
+        rollup.setLastResponseAt(responseRepository.findLastSubmittedAtBySurvey(survey));
+
+        for (Question question : questionRepository.findBySurvey(survey)) {
+            List<Answer> answers = answerRepository.findByQuestionIdsWithOption(List.of(question.getQuestionId()));
+            Map<Long, List<Answer>> answersByResponse = answers.stream()
+                    .collect(Collectors.groupingBy(a -> a.getResponse().getResponseId()));
+            for (List<Answer> responseAnswers : answersByResponse.values()) {
+                accumulate(surveyId, question.getQuestionId(), responseAnswers, 1, questionRows, optionRows);
+            }
+        }
+    }
+
+    /**
+     * Tính tạm các bộ đếm bằng truy vấn aggregate (đếm theo câu hỏi, theo option, theo giá trị văn bản ngắn),
+     * cùng quy tắc phân loại rating / đúng-sai với accumulate. Giá trị văn bản được gộp theo collation của DB
+     * nên có thể lệch nhẹ so với rollup dựng lại (ví dụ "khong" và "không"); chỉ dùng trong lúc chờ dựng lại
+     */
+    private void computeFromAggregates(Survey survey, SurveyStatsRollup rollup,
+            Map<Long, QuestionStatsRollup> questionRows, Map<Long, OptionStatsRollup> optionRows) {
+        Long surveyId = survey.getSurveyId();
+        rollup.setResponseCount(responseRepository.countBySurvey(survey));
+        rollup.setDurationSum(responseRepository.sumPositiveDurationSecondsBySurvey(survey));
+        rollup.setDurationCount(responseRepository.countBySurveyAndDurationSecondsGreaterThan(survey, 0));
+        rollup.setLastResponseAt(responseRepository.findLastSubmittedAtBySurvey(survey));
+
+        for (Object[] row : answerRepository.countByQuestionForSurvey(survey)) {
+            QuestionStatsRollup questionRow = questionRow(surveyId, (Long) row[0], questionRows);
+            questionRow.setResponseCount(((Number) row[1]).longValue());
+            questionRow.setAnswerCount(((Number) row[2]).longValue());
+        }
+        for (Object[] row : answerRepository.countByOptionForSurvey(survey)) {
+            Long questionId = (Long) row[0];
+            long count = ((Number) row[3]).longValue();
+            OptionStatsRollup optionRow = optionRow(surveyId, questionId, (Long) row[1], optionRows);
+            optionRow.setSelectCount(optionRow.getSelectCount() + count);
+            countBoolean(questionRow(surveyId, questionId, questionRows), classifyBoolean((String) row[2]), count);
+        }
+        for (Object[] row : answerRepository.countShortAnswerTextsForSurvey(survey, SHORT_TEXT_MAX_LENGTH)) {
+            QuestionStatsRollup questionRow = questionRow(surveyId, (Long) row[0], questionRows);
+            String text = (String) row[1];
+            Integer rating = parseRating(text);
+            if (rating != null) {
+                questionRow.addRating(rating, ((Number) row[2]).longValue());
+            }
+            // Answer có option đã được phân loại đúng/sai theo option text ở trên
+            long withoutOption = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+            countBoolean(questionRow, classifyBoolean(text), withoutOption);
+        }
+    }
+
+    /**
+     * Cộng/trừ answers của MỘT response cho MỘT câu hỏi vào rollup
+     */
+    private void accumulate(Long surveyId, Long questionId, List<Answer> answers, int sign,
+            Map<Long, QuestionStatsRollup> questionRows, Map<Long, OptionStatsRollup> optionRows) {
+        QuestionStatsRollup questionRow = questionRow(surveyId, questionId, questionRows);
+
+        questionRow.setResponseCount(questionRow.getResponseCount() + sign);
+        questionRow.setAnswerCount(questionRow.getAnswerCount() + (long) sign * answers.size());
+
+        for (Answer answer : answers) {
+            Integer rating = parseRating(answer.getAnswerText());
+            if (rating != null) {
+                questionRow.addRating(rating, sign);
+            }
+
+            // Ưu tiên option text; nếu không có option thì xét answer text
+            countBoolean(questionRow, classifyBoolean(answer.getOption() != null
+                    ? answer.getOption().getOptionText() : answer.getAnswerText()), sign);
+
+            if (answer.getOption() != null) {
+                OptionStatsRollup optionRow = optionRow(surveyId, questionId, answer.getOption().getOptionId(), optionRows);
+                optionRow.setSelectCount(optionRow.getSelectCount() + sign);
+            }
+        }
+    }
+
+    private QuestionStatsRollup questionRow(Long surveyId, Long questionId, Map<Long, QuestionStatsRollup> questionRows) {
+        return questionRows.computeIfAbsent(questionId, id -> {
+            QuestionStatsRollup row = new QuestionStatsRollup();
+            row.setQuestionId(id);
+            row.setSurveyId(surveyId);
+            return row;
+        });
+    }
+
+    private OptionStatsRollup optionRow(Long surveyId, Long questionId, Long optionId,
+            Map<Long, OptionStatsRollup> optionRows) {
+        return optionRows.computeIfAbsent(optionId, id -> {
+            OptionStatsRollup row = new OptionStatsRollup();
+            row.setOptionId(id);
+            row.setQuestionId(questionId);
+            row.setSurveyId(surveyId);
+            return row;
+        });
+    }
+
+    private void countBoolean(QuestionStatsRollup questionRow, Boolean value, long delta) {
+        if (Boolean.TRUE.equals(value)) {
+            questionRow.setTrueCount(questionRow.getTrueCount() + delta);
+        } else if (Boolean.FALSE.equals(value)) {
+            questionRow.setFalseCount(questionRow.getFalseCount() + delta);
+        }
+    }
+
+    private QuestionStatsRollup resetCounters(QuestionStatsRollup row) {
+        row.setResponseCount(0L);
+        row.setAnswerCount(0L);
+        row.setRatingCount(0L);
+        row.setRatingSum(0L);
+        row.setRating1Count(0L);
+        row.setRating2Count(0L);
+        row.setRating3Count(0L);
+        row.setRating4Count(0L);
+        row.setRating5Count(0L);
+        row.setTrueCount(0L);
+        row.setFalseCount(0L);
+        return row;
+    }
+
+    /**
+     * Rating được lưu trong answerText dưới dạng số, thang 1-5
+     */
+    private Integer parseRating(String answerText) {
+        if (answerText == null || answerText.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            int rating = Integer.parseInt(answerText.trim());
+            return rating >= 1 && rating <= 5 ? rating : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Boolean classifyBoolean(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase();
+        if (TRUE_VALUES.contains(normalized)) {
+            return true;
+        }
+        if (FALSE_VALUES.contains(normalized)) {
+            return false;
+        }
+        return null;
+    }
+}
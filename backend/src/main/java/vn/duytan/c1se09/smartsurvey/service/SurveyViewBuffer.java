@@ -0,0 +1,170 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.duytan.c1se09.smartsurvey.domain.SurveyView;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewBatchRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hàng đợi ghi sau (write-behind) cho lượt xem survey.
+ * - trackView chỉ đưa view vào hàng đợi giới hạn; khi đầy thì bỏ view và đếm số bị bỏ (không chặn request)
+ * - Một thread duy nhất ghi theo lô: định kỳ hoặc ngay khi hàng đợi đạt batch-size
+ * - Khi tắt ứng dụng: ghi nốt toàn bộ hàng đợi
+ * - Lô view và phần cộng vào tổng hợp theo ngày (SurveyViewSketchService) ghi trong cùng transaction,
+ *   nên view_count luôn khớp với survey_views: cập nhật tổng hợp lỗi thì lô được ghi lại từng view
+ * - Metrics: survey.views.queue.depth, survey.views.flushed, survey.views.dropped, survey.views.flush
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SurveyViewBuffer {
+
+    private final SurveyViewBatchRepository surveyViewBatchRepository;
+    private final SurveyViewSketchService surveyViewSketchService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.views.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.views.batch-size:500}")
+    private int batchSize;
+
+    private BlockingQueue<SurveyView> queue;
+    private ExecutorService flushExecutor;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private Counter flushedCounter;
+    private Counter droppedCounter;
+    private Counter failedCounter;
+    private Timer flushTimer;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        flushExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "survey-view-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        meterRegistry.gauge("survey.views.queue.depth", queue, BlockingQueue::size);
+        flushedCounter = meterRegistry.counter("survey.views.flushed");
+        droppedCounter = meterRegistry.counter("survey.views.dropped", "reason", "queue_full");
+        failedCounter = meterRegistry.counter("survey.views.dropped", "reason", "write_failed");
+        flushTimer = meterRegistry.timer("survey.views.flush");
+    }
+
+    /**
+     * Đưa view vào hàng đợi; false nếu hàng đợi đầy và view bị bỏ
+     */
+    public boolean offer(SurveyView view) {
+        if (!queue.offer(view)) {
+            droppedCounter.increment();
+            log.debug("Survey view queue full, dropped view for survey {}", view.getSurvey().getSurveyId());
+            return false;
+        }
+        if (queue.size() >= batchSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    @Scheduled(initialDelayString = "${app.views.flush-interval-ms:1000}",
+            fixedDelayString = "${app.views.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (!queue.isEmpty()) {
+            requestFlush();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushRequested.set(false);
+                    drainAll();
+                });
+            } catch (RejectedExecutionException e) {
+                // Đang tắt ứng dụng: stop() sẽ ghi nốt hàng đợi
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Ghi toàn bộ hàng đợi theo từng lô batch-size
+     */
+    private void drainAll() {
+        List<SurveyView> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<SurveyView> batch) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            insertAndRecord(batch);
+            flushedCounter.increment(batch.size());
+        } catch (Exception e) {
+            // Một view lỗi (vd: survey vừa bị xóa) hoặc cập nhật tổng hợp lỗi làm hỏng cả lô -> ghi lại từng view
+            log.warn("Batch write of {} survey views failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (SurveyView view : batch) {
+                try {
+                    insertAndRecord(List.of(view));
+                    flushedCounter.increment();
+                } catch (Exception rowError) {
+                    failedCounter.increment();
+                }
+            }
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    /**
+     * Ghi view và cộng vào tổng hợp theo ngày trong một transaction: một bước lỗi thì cả hai cùng rollback
+     */
+    private void insertAndRecord(List<SurveyView> views) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            surveyViewBatchRepository.insertAll(views);
+            surveyViewSketchService.record(views);
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Survey view flush did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainAll();
+        log.info("Survey view buffer stopped (flushed={}, dropped={}, failed={})",
+                (long) flushedCounter.count(), (long) droppedCounter.count(), (long) failedCounter.count());
+    }
+}
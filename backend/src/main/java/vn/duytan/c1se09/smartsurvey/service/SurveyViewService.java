@@ -3,7 +3,6 @@ package vn.duytan.c1se09.smartsurvey.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import vn.duytan.c1se09.smartsurvey.domain.Survey;
 import vn.duytan.c1se09.smartsurvey.domain.SurveyView;
 import vn.duytan.c1se09.smartsurvey.domain.User;
@@ -27,38 +26,36 @@ public class SurveyViewService {
     private final SurveyViewRepository surveyViewRepository;
     private final AuthService authService;
     private final SurveyPermissionService surveyPermissionService;
+    private final SurveyViewBuffer surveyViewBuffer;
+    private final SurveyViewSketchService surveyViewSketchService;
     
     /**
-     * Track một lượt xem survey
+     * Track một lượt xem survey: chỉ đưa vào hàng đợi ghi sau (SurveyViewBuffer), không ghi DB đồng bộ
      * @param surveyId ID của survey
      * @param ipAddress IP address của người xem
      * @param userAgent User agent của browser
      * @param sessionId Session ID (có thể null)
-     * @return SurveyView đã được tạo
+     * @return SurveyView đã đưa vào hàng đợi (chưa có viewId), null nếu hàng đợi đầy và view bị bỏ
      */
-    @Transactional
     public SurveyView trackView(Long surveyId, String ipAddress, String userAgent, String sessionId) throws IdInvalidException {
-        try {
-            // Lấy survey
-            Survey survey = surveyRepository.findById(surveyId)
-                    .orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
-            
-            // Tạo session ID nếu chưa có
-            if (sessionId == null || sessionId.trim().isEmpty()) {
-                sessionId = UUID.randomUUID().toString();
-            }
-            
-            // Tạo view record
-            SurveyView view = new SurveyView(survey, ipAddress, userAgent, sessionId);
-            SurveyView savedView = surveyViewRepository.save(view);
-            
-            log.info("Tracked view for survey {} from IP {}", surveyId, ipAddress);
-            return savedView;
-            
-        } catch (Exception e) {
-            log.error("Error tracking view for survey {}: {}", surveyId, e.getMessage());
-            throw e;
+        // Chỉ cần biết survey còn tồn tại; view chỉ giữ tham chiếu theo id nên không nạp cả survey
+        if (surveyId == null || !surveyRepository.existsById(surveyId)) {
+            throw new IdInvalidException("Không tìm thấy khảo sát");
         }
+        Survey survey = surveyRepository.getReferenceById(surveyId);
+
+        // Tạo session ID nếu chưa có
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            sessionId = UUID.randomUUID().toString();
+        }
+
+        SurveyView view = new SurveyView(survey, ipAddress, userAgent, sessionId);
+        view.setViewedAt(LocalDateTime.now());
+        if (!surveyViewBuffer.offer(view)) {
+            return null;
+        }
+        log.debug("Queued view for survey {} from IP {}", surveyId, ipAddress);
+        return view;
     }
     
     /**
@@ -66,9 +63,8 @@ public class SurveyViewService {
      * @param surveyId ID của survey
      * @param ipAddress IP address
      * @param userAgent User agent
-     * @return SurveyView đã được tạo
+     * @return SurveyView đã đưa vào hàng đợi, null nếu view bị bỏ
      */
-    @Transactional
     public SurveyView trackView(Long surveyId, String ipAddress, String userAgent) throws IdInvalidException {
         return trackView(surveyId, ipAddress, userAgent, null);
     }
@@ -88,11 +84,11 @@ public class SurveyViewService {
             throw new IdInvalidException("Bạn không có quyền xem thống kê lượt xem khảo sát này");
         }
         
-        return surveyViewRepository.countBySurvey(survey);
+        return surveyViewSketchService.countViews(surveyId);
     }
     
     /**
-     * Lấy số lượt xem duy nhất của survey (theo IP)
+     * Lấy số lượt xem duy nhất của survey (theo IP), ước lượng bằng HyperLogLog
      * @param surveyId ID của survey
      * @return Số lượt xem duy nhất
      */
@@ -106,19 +102,20 @@ public class SurveyViewService {
             throw new IdInvalidException("Bạn không có quyền xem thống kê lượt xem khảo sát này");
         }
         
-        return surveyViewRepository.countDistinctViewsBySurvey(survey);
+        return surveyViewSketchService.estimateUniqueViewers(surveyId, null, null);
     }
     
     /**
-     * Lấy số lượt xem duy nhất trong khoảng thời gian
+     * Lấy số lượt xem duy nhất trong khoảng thời gian (theo ngày, tính từ ngày của since)
      * @param surveyId ID của survey
      * @param since Thời điểm bắt đầu
      * @return Số lượt xem duy nhất từ thời điểm đó
      */
     public long getUniqueViewsSince(Long surveyId, LocalDateTime since) throws IdInvalidException {
-        Survey survey = surveyRepository.findById(surveyId)
-                .orElseThrow(() -> new IdInvalidException("Không tìm thấy khảo sát"));
-        return surveyViewRepository.countDistinctViewsBySurveySince(survey, since);
+        if (!surveyRepository.existsById(surveyId)) {
+            throw new IdInvalidException("Không tìm thấy khảo sát");
+        }
+        return surveyViewSketchService.estimateUniqueViewers(surveyId, since.toLocalDate(), null);
     }
     
     /**
@@ -0,0 +1,34 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Job định kỳ dựng HyperLogLog cho các ngày có lượt xem trước khi có bảng survey_view_daily
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SurveyViewSketchBackfillJob {
+
+    private final SurveyViewSketchService surveyViewSketchService;
+
+    @Value("${app.views.hll.backfill-batch-size:50}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${app.views.hll.backfill-initial-delay-ms:30000}",
+            fixedDelayString = "${app.views.hll.backfill-interval-ms:60000}")
+    public void backfillPendingSketches() {
+        try {
+            int built = surveyViewSketchService.backfillPending(batchSize);
+            if (built > 0) {
+                log.info("Built unique-viewer sketches for {} survey days", built);
+            }
+        } catch (Exception e) {
+            log.warn("Không thể dựng sketch lượt xem: {}", e.getMessage());
+        }
+    }
+}
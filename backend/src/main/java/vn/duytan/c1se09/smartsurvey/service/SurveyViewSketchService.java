@@ -0,0 +1,144 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.duytan.c1se09.smartsurvey.domain.SurveyView;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewDailyRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewDailyRepository.DailyDelta;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewDailyRepository.DailyRow;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewDailyRepository.DayKey;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewRepository;
+import vn.duytan.c1se09.smartsurvey.util.helper.HyperLogLog;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Đếm lượt xem và ước lượng số người xem duy nhất (theo IP) bằng HyperLogLog theo survey / ngày.
+ * - Cập nhật khi SurveyViewBuffer ghi một lô view (cộng view_count, gộp sketch)
+ * - Số người xem duy nhất trên khoảng ngày = gộp sketch các ngày trong khoảng (O(số ngày), không quét survey_views)
+ * - Sai số chuẩn cấu hình qua app.views.hll.relative-error
+ * - Ngày chưa dựng sketch (dữ liệu trước V52) được job nền dựng dần; trong lúc đó dùng COUNT(DISTINCT) chính xác
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class SurveyViewSketchService {
+
+    private final SurveyViewDailyRepository surveyViewDailyRepository;
+    private final SurveyViewRepository surveyViewRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.views.hll.relative-error:0.02}")
+    private double relativeError;
+
+    private int precision;
+
+    @PostConstruct
+    void init() {
+        precision = HyperLogLog.precisionForError(relativeError);
+    }
+
+    /**
+     * Cộng các view vừa ghi vào tổng hợp theo ngày.
+     * Tham gia transaction hiện có (SurveyViewBuffer gọi cùng transaction ghi survey_views)
+     */
+    public void record(List<SurveyView> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+        // Sắp theo khóa để các instance khóa dòng theo cùng thứ tự
+        Map<DayKey, HyperLogLog> sketches = new TreeMap<>(
+                Comparator.comparing(DayKey::surveyId).thenComparing(DayKey::viewDate));
+        Map<DayKey, Long> counts = new HashMap<>();
+        for (SurveyView view : views) {
+            DayKey key = new DayKey(view.getSurvey().getSurveyId(), view.getViewedAt().toLocalDate());
+            sketches.computeIfAbsent(key, k -> new HyperLogLog(precision)).add(view.getIpAddress());
+            counts.merge(key, 1L, Long::sum);
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Map<DayKey, byte[]> existing = surveyViewDailyRepository.lockRegisters(sketches.keySet());
+            List<DailyDelta> deltas = new ArrayList<>(sketches.size());
+            sketches.forEach((key, sketch) -> {
+                byte[] registers;
+                if (!existing.containsKey(key)) {
+                    registers = sketch.toBytes();
+                } else if (existing.get(key) != null) {
+                    registers = HyperLogLog.fromBytes(existing.get(key)).merge(sketch).toBytes();
+                } else {
+                    // Sketch ngày này đang chờ dựng từ survey_views
+                    registers = null;
+                }
+                deltas.add(new DailyDelta(key, counts.get(key), registers));
+            });
+            surveyViewDailyRepository.upsertAll(deltas);
+        });
+    }
+
+    /**
+     * Tổng lượt xem của survey
+     */
+    public long countViews(Long surveyId) {
+        return surveyViewDailyRepository.sumViewCount(surveyId);
+    }
+
+    /**
+     * Ước lượng số người xem duy nhất trong khoảng ngày [from, to] (null = không giới hạn)
+     */
+    public long estimateUniqueViewers(Long surveyId, LocalDate from, LocalDate to) {
+        List<DailyRow> rows = surveyViewDailyRepository.findRange(surveyId, from, to);
+        if (rows.isEmpty()) {
+            return 0L;
+        }
+        HyperLogLog merged = null;
+        for (DailyRow row : rows) {
+            if (row.registers() == null) {
+                // Còn ngày chưa dựng sketch -> đếm chính xác
+                return surveyViewRepository.countDistinctViewsBySurveyBetween(surveyId,
+                        from != null ? from.atStartOfDay() : null,
+                        to != null ? to.plusDays(1).atStartOfDay() : null);
+            }
+            HyperLogLog day = HyperLogLog.fromBytes(row.registers());
+            merged = merged == null ? day : merged.merge(day);
+        }
+        return merged.estimate();
+    }
+
+    /**
+     * Dựng sketch cho các ngày có dữ liệu trước khi có bảng tổng hợp.
+     * Quét survey_views và ghi sketch dưới cùng khóa dòng mà record() dùng: view ghi xong trước khi có khóa
+     * nằm trong lần quét, view đến sau chờ khóa rồi được gộp vào sketch vừa dựng, nên không view nào bị mất
+     * @return số ngày đã dựng
+     */
+    public int backfillPending(int limit) {
+        List<DayKey> pending = surveyViewDailyRepository.findPendingSketches(limit);
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        int built = 0;
+        for (DayKey key : pending) {
+            Integer updated = template.execute(status -> {
+                Map<DayKey, byte[]> locked = surveyViewDailyRepository.lockRegisters(List.of(key));
+                if (!locked.containsKey(key) || locked.get(key) != null) {
+                    // Ngày đã được dựng (hoặc không còn dòng) trong lúc chờ khóa
+                    return 0;
+                }
+                HyperLogLog sketch = new HyperLogLog(precision);
+                surveyViewDailyRepository.forEachIpAddress(key, sketch::add);
+                return surveyViewDailyRepository.setRegistersIfPending(key, sketch.toBytes());
+            });
+            built += updated != null ? updated : 0;
+        }
+        return built;
+    }
+}
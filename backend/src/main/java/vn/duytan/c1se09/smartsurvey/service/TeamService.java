@@ -36,6 +36,7 @@ public class TeamService {
     private final UserRepository userRepository;
     private final AuthService authService;
     private final NotificationService notificationService;
+    private final SurveyPermissionCache surveyPermissionCache;
 
     /**
      * Tạo team mới và gắn current user làm OWNER
@@ -156,6 +157,7 @@ public class TeamService {
             member.setUser(currentUser);
             member.setRole(SurveyPermissionRole.VIEWER);
             teamMemberRepository.save(member);
+            surveyPermissionCache.evictUser(currentUser.getUserId());
         }
 
         invitation.setStatus(TeamInvitation.InvitationStatus.ACCEPTED);
@@ -264,6 +266,7 @@ public class TeamService {
 
         // Xóa tất cả permissions của user này trên các survey được share với team này
         surveyPermissionRepository.deleteByUserAndRestrictedTeam(removedUser, team);
+        surveyPermissionCache.evictUser(removedUser.getUserId());
 
         notificationService.createNotification(
                 removedUser,
@@ -296,6 +299,7 @@ public class TeamService {
 
         // Xóa tất cả permissions của user này trên các survey được share với team này
         surveyPermissionRepository.deleteByUserAndRestrictedTeam(currentUser, team);
+        surveyPermissionCache.evictUser(currentUser.getUserId());
 
         // Gửi thông báo cho owner
         notificationService.createNotification(
@@ -334,6 +338,9 @@ public class TeamService {
         // 1. Xóa tất cả permissions liên quan đến team
         List<SurveyPermission> teamPermissions = surveyPermissionRepository.findByRestrictedTeam(team);
         surveyPermissionRepository.deleteAll(teamPermissions);
+        teamPermissions.forEach(perm -> surveyPermissionCache.evict(
+                perm.getSurvey().getSurveyId(), perm.getUser().getUserId()));
+        members.forEach(member -> surveyPermissionCache.evictUser(member.getUser().getUserId()));
 
         // 2. Xóa tất cả team members
         teamMemberRepository.deleteAll(members);
@@ -0,0 +1,109 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.repository.UserRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.RoleEnum;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache ngắn hạn thông tin xác thực của user (id, role, trạng thái active) theo email,
+ * dùng bởi AuthTokenFilter để không phải truy vấn bảng users ở mỗi request.
+ * Bị xóa khi admin đổi role/trạng thái hoặc xóa user; TTL giới hạn độ trễ khi đổi từ instance khác.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserAuthCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${app.auth.user-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.auth.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    /**
+     * Ảnh chụp bất biến thông tin xác thực của user
+     */
+    @Getter
+    public static class CachedUser {
+        private final Long userId;
+        private final String email;
+        private final RoleEnum role;
+        private final boolean active;
+        private final long loadedAtMillis;
+
+        CachedUser(User user) {
+            this.userId = user.getUserId();
+            this.email = user.getEmail();
+            this.role = user.getRole();
+            this.active = Boolean.TRUE.equals(user.getIsActive());
+            this.loadedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    private final LinkedHashMap<String, CachedUser> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Thông tin xác thực theo email; null nếu user không tồn tại
+     */
+    public CachedUser get(String email) {
+        synchronized (cache) {
+            CachedUser cached = cache.get(email);
+            if (cached != null && System.currentTimeMillis() - cached.getLoadedAtMillis() <= ttlSeconds * 1000L) {
+                return cached;
+            }
+        }
+
+        User user = userRepository.findByEmail(email).orElse(null);
+        if (user == null) {
+            remove(email);
+            return null;
+        }
+        CachedUser loaded = new CachedUser(user);
+        synchronized (cache) {
+            cache.put(email, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Xóa cache của user (gọi khi role/trạng thái thay đổi hoặc user bị xóa);
+     * nếu đang trong transaction thì xóa lại sau khi commit
+     */
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        remove(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(email);
+                }
+            });
+        }
+    }
+
+    private void remove(String email) {
+        synchronized (cache) {
+            cache.remove(email);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả phân tích AI (keywords / summary / themes / basic sentiment) theo
+ * (survey, loại phân tích, tham số, dấu vân tay tập câu trả lời).
+ * - Dấu vân tay = số câu trả lời của câu hỏi mở + answerId lớn nhất, nên có câu trả lời mới / bị xóa
+ *   thì entry cũ tự động không còn khớp
+ * - Bộ nhớ: LRU giới hạn số entry; mỗi (survey, loại, tham số) chỉ giữ kết quả mới nhất
+ * - Đĩa (tùy chọn): {app.upload.dir}/ai-analysis-cache, dùng khi entry đã bị đẩy khỏi bộ nhớ hoặc sau khi restart
+ * - Các request giống nhau đến cùng lúc chỉ gọi dịch vụ AI 1 lần (single-flight)
+ * - Chỉ cache kết quả không báo lỗi (ok != false)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@SuppressWarnings("null")
+public class AiAnalysisCache {
+
+    private final AnswerRepository answerRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @Value("${ai.analysis.cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${ai.analysis.cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${ai.analysis.cache.disk-enabled:false}")
+    private boolean diskEnabled;
+
+    private record EntryKey(Long surveyId, String slug) {
+    }
+
+    private record FlightKey(EntryKey entry, String fingerprint) {
+    }
+
+    private record CachedResult(String fingerprint, Map<String, Object> value, long createdAtMillis) {
+    }
+
+    /**
+     * (survey, loại + tham số) -> kết quả của dấu vân tay mới nhất, theo thứ tự truy cập (LRU)
+     */
+    private final LinkedHashMap<EntryKey, CachedResult> memory = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EntryKey, CachedResult> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private final ConcurrentHashMap<FlightKey, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Kết quả phân tích từ cache, hoặc gọi loader (1 lần cho các request trùng nhau) khi chưa có.
+     * kind: loại phân tích (keywords, summary, ...); params: tham số ảnh hưởng kết quả (vd. "k5"), null nếu không có
+     */
+    public Map<String, Object> get(Long surveyId, String kind, String params, Supplier<Map<String, Object>> loader) {
+        EntryKey entryKey = new EntryKey(surveyId, params != null ? kind + "-" + params : kind);
+        String fingerprint = fingerprint(surveyId);
+
+        Map<String, Object> cached = lookup(entryKey, fingerprint);
+        if (cached != null) {
+            return new LinkedHashMap<>(cached);
+        }
+
+        FlightKey flightKey = new FlightKey(entryKey, fingerprint);
+        CompletableFuture<Map<String, Object>> flight = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            return copy(await(existing));
+        }
+
+        try {
+            Map<String, Object> result = loader.get();
+            // Câu trả lời có thể vừa thay đổi trong lúc phân tích; khi đó không gắn kết quả với dấu vân tay cũ
+            if (isCacheable(result) && fingerprint.equals(fingerprint(surveyId))) {
+                store(entryKey, fingerprint, result);
+            }
+            flight.complete(result);
+            return copy(result);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private String fingerprint(Long surveyId) {
+        Object[] row = answerRepository.fingerprintAnswers(surveyId, QuestionTypeEnum.open_ended).get(0);
+        return ((Number) row[0]).longValue() + "-" + ((Number) row[1]).longValue();
+    }
+
+    private Map<String, Object> await(CompletableFuture<Map<String, Object>> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private Map<String, Object> lookup(EntryKey key, String fingerprint) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            CachedResult entry = memory.get(key);
+            if (entry != null) {
+                if (entry.fingerprint().equals(fingerprint) && !isExpired(entry.createdAtMillis(), now)) {
+                    return entry.value();
+                }
+                memory.remove(key);
+            }
+        }
+        if (!diskEnabled) {
+            return null;
+        }
+
+        Path file = diskPath(key, fingerprint);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            long modifiedAt = Files.getLastModifiedTime(file).toMillis();
+            if (isExpired(modifiedAt, now)) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            Map<String, Object> value = objectMapper.readValue(file.toFile(), new TypeReference<Map<String, Object>>() {
+            });
+            synchronized (memory) {
+                memory.put(key, new CachedResult(fingerprint, value, modifiedAt));
+            }
+            return value;
+        } catch (IOException e) {
+            log.warn("Could not read cached AI analysis {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(EntryKey key, String fingerprint, Map<String, Object> value) {
+        Map<String, Object> snapshot = copy(value);
+        synchronized (memory) {
+            memory.put(key, new CachedResult(fingerprint, snapshot, System.currentTimeMillis()));
+        }
+        if (!diskEnabled) {
+            return;
+        }
+        try {
+            deleteDiskEntries(key);
+            Path file = diskPath(key, fingerprint);
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".part");
+            objectMapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write cached AI analysis for survey {}: {}", key.surveyId(), e.getMessage());
+        }
+    }
+
+    private boolean isCacheable(Map<String, Object> result) {
+        return result != null && !Boolean.FALSE.equals(result.get("ok"));
+    }
+
+    private boolean isExpired(long createdAtMillis, long now) {
+        return ttlMinutes > 0 && now - createdAtMillis > ttlMinutes * 60_000L;
+    }
+
+    private Path diskDir() {
+        return Paths.get(uploadDir, "ai-analysis-cache");
+    }
+
+    private Path diskPath(EntryKey key, String fingerprint) {
+        return diskDir().resolve(filePrefix(key) + fingerprint + ".json");
+    }
+
+    private String filePrefix(EntryKey key) {
+        return "survey_" + key.surveyId() + "_" + key.slug().replaceAll("[^A-Za-z0-9-]", "") + "_";
+    }
+
+    private void deleteDiskEntries(EntryKey key) {
+        Path dir = diskDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, filePrefix(key) + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not clear cached AI analysis for survey {}: {}", key.surveyId(), e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> value) {
+        return value != null ? new LinkedHashMap<>(value) : null;
+    }
+}
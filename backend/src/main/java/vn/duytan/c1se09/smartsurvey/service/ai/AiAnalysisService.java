@@ -2,12 +2,10 @@ package vn.duytan.c1se09.smartsurvey.service.ai;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import vn.duytan.c1se09.smartsurvey.domain.Survey;
 import vn.duytan.c1se09.smartsurvey.domain.User;
 import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
@@ -19,7 +17,8 @@ import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
 import java.util.Map;
 
 /**
- * Service chịu trách nhiệm gọi AI Analysis Service thông qua RestTemplate
+ * Service chịu trách nhiệm gọi AI Analysis Service thông qua AiServiceClient.
+ * Kết quả keywords / summary / themes / basic sentiment được cache theo tập câu trả lời (AiAnalysisCache)
  */
 @Service
 @RequiredArgsConstructor
@@ -27,33 +26,35 @@ import java.util.Map;
 @SuppressWarnings("null")
 public class AiAnalysisService {
 
-    private final RestTemplate restTemplate;
+    private final AiServiceClient aiServiceClient;
+    private final AiAnalysisCache aiAnalysisCache;
     private final SurveyRepository surveyRepository;
     private final AuthService authService;
     private final SurveyPermissionService surveyPermissionService;
 
-    @Value("${ai.sentiment.base-url:http://localhost:8000}")
-    private String aiServiceBaseUrl;
-
     public Map<String, Object> extractKeywords(Long surveyId) throws IdInvalidException {
         validatePermission(surveyId);
-        return postForSurvey("/ai/keywords/" + surveyId, surveyId);
+        return aiAnalysisCache.get(surveyId, "keywords", null,
+                () -> postForSurvey("/ai/keywords/" + surveyId, surveyId));
     }
 
     public Map<String, Object> basicSentiment(Long surveyId) throws IdInvalidException {
         validatePermission(surveyId);
-        return postForSurvey("/ai/basic-sentiment/" + surveyId, surveyId);
+        return aiAnalysisCache.get(surveyId, "basic-sentiment", null,
+                () -> postForSurvey("/ai/basic-sentiment/" + surveyId, surveyId));
     }
 
     public Map<String, Object> summarize(Long surveyId) throws IdInvalidException {
         validatePermission(surveyId);
-        return postForSurvey("/ai/summary/" + surveyId, surveyId);
+        return aiAnalysisCache.get(surveyId, "summary", null,
+                () -> postForSurvey("/ai/summary/" + surveyId, surveyId));
     }
 
     public Map<String, Object> clusterThemes(Long surveyId, Integer k) throws IdInvalidException {
         validatePermission(surveyId);
         String path = "/ai/themes/" + surveyId + (k != null ? "?k=" + k : "");
-        return postForSurvey(path, surveyId);
+        return aiAnalysisCache.get(surveyId, "themes", k != null ? "k" + k : null,
+                () -> postForSurvey(path, surveyId));
     }
 
     public Map<String, Object> getLatestAnalysis(Long surveyId, String kind) throws IdInvalidException {
@@ -93,11 +94,11 @@ public class AiAnalysisService {
     }
 
     private Map<String, Object> exchangeForSurvey(String path, HttpMethod method, Long surveyId) {
-        String url = aiServiceBaseUrl + path;
-        log.debug("Calling AI Analysis Service: {} {}", method, url);
+        log.debug("Calling AI Analysis Service: {} {}", method, aiServiceClient.url(AiEndpoint.ANALYSIS, path));
 
-        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url,
+        ResponseEntity<Map<String, Object>> response = aiServiceClient.exchange(
+                AiEndpoint.ANALYSIS,
+                path,
                 method,
                 null,
                 new ParameterizedTypeReference<Map<String, Object>>() {
@@ -1,12 +1,13 @@
 package vn.duytan.c1se09.smartsurvey.service.ai;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import vn.duytan.c1se09.smartsurvey.domain.AiChatLog;
 import vn.duytan.c1se09.smartsurvey.domain.User;
 import vn.duytan.c1se09.smartsurvey.domain.request.ai.AiChatRequestDTO;
@@ -14,10 +15,14 @@ import vn.duytan.c1se09.smartsurvey.domain.response.ai.AiChatResponseDTO;
 import vn.duytan.c1se09.smartsurvey.repository.AiChatLogRepository;
 import vn.duytan.c1se09.smartsurvey.service.UserService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service for AI Chat functionality
@@ -27,16 +32,22 @@ import java.util.Map;
 @Slf4j
 public class AiChatService {
 
-    private final RestTemplate restTemplate;
+    private final AiServiceClient aiServiceClient;
     private final AiChatLogRepository aiChatLogRepository;
     private final UserService userService;
     private final ObjectMapper objectMapper;
 
-    @Value("${ai.service.base-url:http://localhost:8000}")
-    private String aiServiceBaseUrl;
+    @Value("${ai.service.stream-timeout-ms:120000}")
+    private long streamTimeoutMs;
 
-    @Value("${ai.service.timeout:30000}")
-    private int requestTimeout;
+    private static final String STREAM_ERROR_MESSAGE = "Xin lỗi, hiện tại không thể xử lý câu hỏi của bạn. Vui lòng thử lại sau.";
+
+    /**
+     * Trạng thái kết thúc do upstream báo qua dòng NDJSON cuối (null = chưa nhận dòng kết thúc)
+     */
+    private enum StreamEnd {
+        DONE, ERROR
+    }
 
     /**
      * Process AI chat request
@@ -69,6 +80,129 @@ public class AiChatService {
         return aiResponse;
     }
 
+    /**
+     * Chat dạng stream (SSE): chuyển tiếp từng đoạn câu trả lời từ /ai/chat/stream của AI service.
+     * Event gửi cho client: context (ngữ cảnh dùng để trả lời), delta (đoạn text), done (AiChatResponseDTO
+     * đầy đủ kèm chat_id) hoặc error. Không giữ thread servlet trong lúc chờ AI trả lời.
+     * Chat log chỉ được lưu khi upstream gửi dòng "done"; dòng "error" hoặc body kết thúc khi chưa có "done"
+     * thì trả error và không lưu. Client ngắt kết nối thì hủy luôn lời gọi upstream.
+     */
+    public SseEmitter streamChat(AiChatRequestDTO request, String username) throws Exception {
+        log.info("Processing streaming AI chat for user: {} on survey: {}", username, request.getSurveyId());
+
+        User currentUser = null;
+        if (username != null) {
+            try {
+                currentUser = userService.findUserByEmail(username);
+                if (request.getUserId() == null && currentUser != null) {
+                    request.setUserId(currentUser.getUserId());
+                }
+            } catch (Exception e) {
+                log.warn("Could not find user: {}", username);
+            }
+        }
+        final User chatUser = currentUser;
+
+        String body = objectMapper.writeValueAsString(createAiChatRequest(request));
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        StringBuilder answer = new StringBuilder();
+        List<String> context = new ArrayList<>();
+        AtomicReference<StreamEnd> end = new AtomicReference<>();
+
+        // Bulkhead đầy / circuit mở: ném AiServiceUnavailableException trước khi trả emitter (503)
+        AiServiceClient.AiStream stream = aiServiceClient.streamLines(AiEndpoint.CHAT, "/ai/chat/stream", body,
+                line -> relayChunk(line, emitter, answer, context, end));
+
+        emitter.onTimeout(stream::cancel);
+        emitter.onError(e -> stream.cancel());
+        emitter.onCompletion(stream::cancel);
+
+        stream.completion().whenComplete((ignored, error) -> {
+            if (stream.isCancelled()) {
+                log.info("Streaming AI chat cancelled for survey {}", request.getSurveyId());
+                return;
+            }
+            try {
+                if (error != null) {
+                    log.error("Error streaming AI chat: {}", error.getMessage());
+                    emitter.send(SseEmitter.event().name("error").data(Map.of("message", STREAM_ERROR_MESSAGE)));
+                    emitter.complete();
+                    return;
+                }
+                if (end.get() == StreamEnd.ERROR) {
+                    // Event error đã được gửi khi nhận dòng "error"
+                    log.warn("AI service reported an error while streaming chat for survey {}", request.getSurveyId());
+                    emitter.complete();
+                    return;
+                }
+                if (end.get() != StreamEnd.DONE) {
+                    // Upstream đóng stream giữa chừng: câu trả lời có thể bị cắt cụt, không lưu
+                    log.warn("AI chat stream ended without done for survey {}", request.getSurveyId());
+                    emitter.send(SseEmitter.event().name("error").data(Map.of("message", STREAM_ERROR_MESSAGE)));
+                    emitter.complete();
+                    return;
+                }
+                AiChatResponseDTO response = AiChatResponseDTO.builder()
+                        .surveyId(request.getSurveyId())
+                        .questionText(request.getQuestionText())
+                        .answerText(answer.toString())
+                        .context(context)
+                        .topK(request.getTopK())
+                        .createdAt(LocalDateTime.now())
+                        .build();
+                AiChatLog chatLog = saveChatLog(request, response, chatUser);
+                response.setChatId(chatLog.getChatId());
+                emitter.send(SseEmitter.event().name("done").data(response));
+                emitter.complete();
+                log.info("Streaming AI chat completed with chat_id: {}", chatLog.getChatId());
+            } catch (Exception e) {
+                log.warn("Could not finish AI chat stream: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Xử lý 1 dòng NDJSON từ AI service và gửi event tương ứng cho client; sau dòng "done" / "error"
+     * các dòng còn lại bị bỏ qua
+     */
+    private void relayChunk(String line, SseEmitter emitter, StringBuilder answer, List<String> context,
+            AtomicReference<StreamEnd> end) {
+        if (line == null || line.isBlank() || end.get() != null) {
+            return;
+        }
+        try {
+            JsonNode chunk = objectMapper.readTree(line);
+            switch (chunk.path("type").asText()) {
+                case "context" -> {
+                    for (JsonNode item : chunk.path("context")) {
+                        context.add(item.asText());
+                    }
+                    emitter.send(SseEmitter.event().name("context").data(Map.of("context", context)));
+                }
+                case "delta" -> {
+                    String text = chunk.path("text").asText("");
+                    answer.append(text);
+                    emitter.send(SseEmitter.event().name("delta").data(Map.of("text", text)));
+                }
+                case "error" -> {
+                    end.set(StreamEnd.ERROR);
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("message", chunk.path("message").asText("Luồng trả lời bị gián đoạn"))));
+                }
+                // Event done (kèm chat_id) chỉ gửi sau khi upstream đóng stream và đã lưu chat log
+                case "done" -> end.set(StreamEnd.DONE);
+                default -> {
+                    // Loại chunk không biết: bỏ qua
+                }
+            }
+        } catch (IOException e) {
+            // Client đã ngắt kết nối: báo lỗi để AiServiceClient hủy upstream
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Get chat history for a survey
      */
@@ -91,7 +225,7 @@ public class AiChatService {
     public Map<String, Object> ingestSurveyData(Long surveyId) throws Exception {
         log.info("Ingesting survey data for RAG: {}", surveyId);
 
-        String url = aiServiceBaseUrl + "/ai/rag/ingest/" + surveyId;
+        String path = "/ai/rag/ingest/" + surveyId;
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -99,8 +233,8 @@ public class AiChatService {
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
         try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url, HttpMethod.POST, entity, Map.class);
+            ResponseEntity<Map> response = aiServiceClient.exchange(
+                    AiEndpoint.CHAT, path, HttpMethod.POST, entity, Map.class);
 
             @SuppressWarnings("unchecked")
             Map<String, Object> result = response.getBody();
@@ -123,7 +257,6 @@ public class AiChatService {
     }
 
     private AiChatResponseDTO callAiChatService(Map<String, Object> request) throws Exception {
-        String url = aiServiceBaseUrl + "/ai/chat";
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -131,8 +264,8 @@ public class AiChatService {
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
 
         try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url, HttpMethod.POST, entity, Map.class);
+            ResponseEntity<Map> response = aiServiceClient.exchange(
+                    AiEndpoint.CHAT, "/ai/chat", HttpMethod.POST, entity, Map.class);
 
             @SuppressWarnings("unchecked")
             Map<String, Object> responseBody = response.getBody();
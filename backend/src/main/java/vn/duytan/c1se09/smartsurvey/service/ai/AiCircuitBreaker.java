@@ -0,0 +1,97 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker đơn giản theo số lỗi liên tiếp:
+ * - CLOSED: cho mọi request đi qua; đủ failureThreshold lỗi liên tiếp thì chuyển OPEN
+ * - OPEN: từ chối ngay trong openMillis, sau đó chuyển HALF_OPEN
+ * - HALF_OPEN: chỉ cho 1 request thử; thành công thì CLOSED, lỗi thì OPEN lại
+ * AiHealthMonitor có thể mở circuit sớm (forceOpen) hoặc cho thử lại sớm (allowTrial) theo kết quả health check
+ */
+public class AiCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public AiCircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    AiCircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * true = request được phép gọi; khi đó phải báo lại kết quả bằng onSuccess / onFailure
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    /**
+     * Health check báo dịch vụ không phản hồi: mở circuit ngay, request thật bị từ chối thay vì chờ timeout
+     */
+    public synchronized void forceOpen() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        trialInFlight = false;
+    }
+
+    /**
+     * Health check báo dịch vụ đã hoạt động lại: cho request tiếp theo thử ngay, không chờ hết openMillis
+     */
+    public synchronized void allowTrial() {
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+}
@@ -0,0 +1,26 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+/**
+ * Các nhóm endpoint của dịch vụ AI; mỗi nhóm có base-url, timeout, circuit breaker và bulkhead riêng
+ * (cấu hình theo prefix ai.&lt;key&gt;.*)
+ */
+public enum AiEndpoint {
+    /** Phân tích sentiment (ai.sentiment.*) */
+    SENTIMENT("sentiment"),
+    /** Keywords, themes, summary, basic sentiment (ai.analysis.*) */
+    ANALYSIS("analysis"),
+    /** Chat / RAG (ai.service.*) */
+    CHAT("service"),
+    /** Sinh khảo sát (ai.survey-generator.*) */
+    SURVEY_GENERATOR("survey-generator");
+
+    private final String key;
+
+    AiEndpoint(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,110 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Gọi song song nhiều endpoint AI độc lập cho cùng một request (vd. keywords / themes / summary)
+ * trên pool giới hạn, để thời gian chờ gần bằng lời gọi chậm nhất thay vì tổng các lời gọi.
+ * Lời gọi lỗi hoặc quá hạn không làm hỏng các kết quả còn lại.
+ * Mỗi lời gọi chạy trong AiServiceClient.withDeadline với hạn chót của cả lượt, nên read timeout của nó
+ * không vượt quá hạn chót: thread và permit bulkhead được trả lại đúng hạn kể cả khi upstream treo.
+ */
+@Component
+@Slf4j
+public class AiFanoutExecutor {
+
+    @Value("${ai.analysis.fanout-threads:8}")
+    private int fanoutThreads;
+
+    @Value("${ai.analysis.fanout-timeout-ms:45000}")
+    private long fanoutTimeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Kết quả của một lượt gọi song song: giá trị của các lời gọi thành công
+     * và thông báo lỗi của các lời gọi thất bại / quá hạn
+     */
+    public record Results<K, T>(Map<K, T> values, Map<K, String> errors) {
+        public T get(K key) {
+            return values.get(key);
+        }
+
+        public boolean allFailed() {
+            return values.isEmpty() && !errors.isEmpty();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadSeq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(fanoutThreads, fanoutThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(64),
+                r -> {
+                    Thread t = new Thread(r, "ai-fanout-" + threadSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                // Khi pool quá tải thì thread gọi tự chạy, chỉ mất phần song song
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Chạy song song các lời gọi, chờ tối đa ai.analysis.fanout-timeout-ms cho cả lượt
+     */
+    public <K, T> Results<K, T> invokeAll(Map<K, Supplier<T>> calls) {
+        // Tính trước khi submit: với CallerRunsPolicy lời gọi có thể chạy ngay trên thread này
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fanoutTimeoutMs);
+        Map<K, Future<T>> futures = new LinkedHashMap<>();
+        for (Map.Entry<K, Supplier<T>> entry : calls.entrySet()) {
+            Supplier<T> call = entry.getValue();
+            futures.put(entry.getKey(), executor.submit(() -> AiServiceClient.withDeadline(deadline, call)));
+        }
+
+        Map<K, T> values = new LinkedHashMap<>();
+        Map<K, String> errors = new LinkedHashMap<>();
+        for (Map.Entry<K, Future<T>> entry : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                T value = entry.getValue().get(remaining, TimeUnit.NANOSECONDS);
+                if (value != null) {
+                    values.put(entry.getKey(), value);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                errors.put(entry.getKey(), "bị gián đoạn");
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                errors.put(entry.getKey(), "quá thời gian chờ");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                errors.put(entry.getKey(), cause.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            log.warn("Gọi AI song song: {} / {} lời gọi thất bại {}", errors.size(), calls.size(), errors);
+        }
+        return new Results<>(values, errors);
+    }
+}
@@ -0,0 +1,36 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint /actuator/aihealth: trạng thái health check đã lưu của dịch vụ AI
+ * (không gọi dịch vụ AI khi đọc) và trạng thái circuit breaker của từng endpoint; chỉ ADMIN được xem
+ */
+@Component
+@Endpoint(id = "aihealth")
+@RequiredArgsConstructor
+public class AiHealthEndpoint {
+
+    private final AiHealthMonitor aiHealthMonitor;
+    private final AiServiceClient aiServiceClient;
+
+    @ReadOperation
+    public Map<String, Object> health() {
+        Map<String, String> circuits = new LinkedHashMap<>();
+        for (AiEndpoint endpoint : AiEndpoint.values()) {
+            if (aiServiceClient.isConfigured(endpoint)) {
+                circuits.put(endpoint.getKey(), aiServiceClient.circuitState(endpoint).name());
+            }
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("targets", aiHealthMonitor.snapshot());
+        body.put("circuits", circuits);
+        return body;
+    }
+}
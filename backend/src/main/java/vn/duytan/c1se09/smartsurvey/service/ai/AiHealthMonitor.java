@@ -0,0 +1,214 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Kiểm tra định kỳ GET /health của từng base URL dịch vụ AI (các endpoint cùng base URL chỉ probe 1 lần).
+ * - Luồng request đọc trạng thái đã lưu (isAvailable) thay vì tự gọi /health trước mỗi lời gọi thật
+ * - failure-threshold lần probe lỗi liên tiếp thì đánh dấu down và mở circuit của các endpoint liên quan;
+ *   probe thành công trở lại thì cho circuit thử lại ngay
+ * - Giữ độ trễ của các probe gần nhất để tính p50 / p95 / p99 (xem actuator endpoint aihealth)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AiHealthMonitor {
+
+    private final AiServiceClient aiServiceClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.health.timeout-ms:2000}")
+    private long timeoutMs;
+
+    @Value("${ai.health.failure-threshold:2}")
+    private int failureThreshold;
+
+    @Value("${ai.health.latency-window:60}")
+    private int latencyWindow;
+
+    /**
+     * Trạng thái của một base URL tại thời điểm đọc; up = null nghĩa là chưa probe lần nào,
+     * lastError chỉ là loại lỗi (mã HTTP / tên exception), không chứa message gốc
+     */
+    public record TargetHealth(List<String> endpoints, Boolean up, LocalDateTime lastCheckedAt,
+            Long lastLatencyMs, int consecutiveFailures, String lastError,
+            Long p50LatencyMs, Long p95LatencyMs, Long p99LatencyMs) {
+    }
+
+    private static final class Target {
+        private final List<AiEndpoint> endpoints = new ArrayList<>();
+        private final long[] latencies;
+        private int latencyCount;
+        private int latencyNext;
+        private Boolean up;
+        private LocalDateTime lastCheckedAt;
+        private Long lastLatencyMs;
+        private int consecutiveFailures;
+        private String lastError;
+
+        private Target(int window) {
+            this.latencies = new long[Math.max(1, window)];
+        }
+    }
+
+    /**
+     * base URL -> trạng thái; danh sách target cố định sau init, từng target được khóa khi đọc / ghi
+     */
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private final Map<AiEndpoint, Target> targetByEndpoint = new LinkedHashMap<>();
+
+    private RestTemplate probeTemplate;
+
+    @PostConstruct
+    void init() {
+        // Probe dùng kết nối riêng, không chiếm pool / bulkhead của request thật
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(Duration.ofMillis(timeoutMs));
+        factory.setReadTimeout(Duration.ofMillis(timeoutMs));
+        probeTemplate = new RestTemplate(factory);
+
+        for (AiEndpoint endpoint : AiEndpoint.values()) {
+            if (!aiServiceClient.isConfigured(endpoint)) {
+                continue;
+            }
+            String baseUrl = aiServiceClient.url(endpoint, "");
+            Target target = targets.computeIfAbsent(baseUrl, url -> new Target(latencyWindow));
+            target.endpoints.add(endpoint);
+            targetByEndpoint.put(endpoint, target);
+            Gauge.builder("ai.health.up", target, t -> {
+                synchronized (t) {
+                    return Boolean.TRUE.equals(t.up) ? 1 : 0;
+                }
+            }).tag("endpoint", endpoint.getKey()).register(meterRegistry);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ai.health.initial-delay-ms:5000}",
+            fixedDelayString = "${ai.health.interval-ms:15000}")
+    public void probeAll() {
+        for (Map.Entry<String, Target> entry : targets.entrySet()) {
+            try {
+                probe(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.warn("Health check AI {} thất bại: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Endpoint có được coi là sẵn sàng không: chưa probe lần nào thì coi là sẵn sàng,
+     * để request đầu tiên sau khi khởi động không bị chặn
+     */
+    public boolean isAvailable(AiEndpoint endpoint) {
+        Target target = targetByEndpoint.get(endpoint);
+        if (target == null) {
+            return false;
+        }
+        synchronized (target) {
+            return !Boolean.FALSE.equals(target.up);
+        }
+    }
+
+    public List<TargetHealth> snapshot() {
+        List<TargetHealth> result = new ArrayList<>();
+        for (Target target : targets.values()) {
+            synchronized (target) {
+                long[] window = Arrays.copyOf(target.latencies, target.latencyCount);
+                Arrays.sort(window);
+                result.add(new TargetHealth(
+                        target.endpoints.stream().map(AiEndpoint::getKey).toList(),
+                        target.up,
+                        target.lastCheckedAt,
+                        target.lastLatencyMs,
+                        target.consecutiveFailures,
+                        target.lastError,
+                        percentile(window, 0.50),
+                        percentile(window, 0.95),
+                        percentile(window, 0.99)));
+            }
+        }
+        return result;
+    }
+
+    private void probe(String baseUrl, Target target) {
+        long start = System.nanoTime();
+        String error = null;
+        String errorType = null;
+        try {
+            ResponseEntity<String> response = probeTemplate.getForEntity(baseUrl + "/health", String.class);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                error = "HTTP " + response.getStatusCode().value();
+                errorType = error;
+            }
+        } catch (Exception e) {
+            // Chỉ lưu loại lỗi vào trạng thái (message có thể chứa URL nội bộ), chi tiết để ở log
+            errorType = e.getClass().getSimpleName();
+            error = e.getMessage() != null ? e.getMessage() : errorType;
+        }
+        long latencyMs = (System.nanoTime() - start) / 1_000_000L;
+
+        Boolean previous;
+        Boolean current;
+        synchronized (target) {
+            previous = target.up;
+            target.lastCheckedAt = LocalDateTime.now();
+            target.lastLatencyMs = latencyMs;
+            if (error == null) {
+                target.latencies[target.latencyNext] = latencyMs;
+                target.latencyNext = (target.latencyNext + 1) % target.latencies.length;
+                target.latencyCount = Math.min(target.latencyCount + 1, target.latencies.length);
+                target.consecutiveFailures = 0;
+                target.lastError = null;
+                target.up = true;
+            } else {
+                target.consecutiveFailures++;
+                target.lastError = errorType;
+                // Một probe lỗi đơn lẻ chưa đổi trạng thái
+                if (target.consecutiveFailures >= failureThreshold) {
+                    target.up = false;
+                }
+            }
+            current = target.up;
+        }
+
+        // Down: giữ circuit mở sau mỗi probe lỗi; chỉ cho circuit thử lại khi vừa chuyển từ down sang up,
+        // probe thành công khi đang up không được ghi đè trạng thái half-open / open do request thật
+        boolean recovered = Boolean.FALSE.equals(previous) && Boolean.TRUE.equals(current);
+        if (Boolean.FALSE.equals(current) || recovered) {
+            for (AiEndpoint endpoint : target.endpoints) {
+                aiServiceClient.reportHealth(endpoint, current);
+            }
+        }
+        if (!Objects.equals(previous, current)) {
+            log.info("Dịch vụ AI {} ({}) chuyển trạng thái: {}", baseUrl, target.endpoints,
+                    Boolean.TRUE.equals(current) ? "UP" : "DOWN - " + error);
+        }
+    }
+
+    private static Long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return null;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
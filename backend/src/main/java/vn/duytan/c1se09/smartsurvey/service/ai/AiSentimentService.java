@@ -3,10 +3,8 @@ package vn.duytan.c1se09.smartsurvey.service.ai;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import vn.duytan.c1se09.smartsurvey.domain.ActivityLog;
 import vn.duytan.c1se09.smartsurvey.domain.AiSentiment;
 import vn.duytan.c1se09.smartsurvey.domain.Response;
@@ -19,6 +17,7 @@ import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
 import vn.duytan.c1se09.smartsurvey.service.ActivityLogService;
 import vn.duytan.c1se09.smartsurvey.service.AuthService;
 import vn.duytan.c1se09.smartsurvey.service.SurveyPermissionService;
+import vn.duytan.c1se09.smartsurvey.util.error.AiServiceUnavailableException;
 import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
 
 import java.time.LocalDateTime;
@@ -36,7 +35,8 @@ import java.util.Map;
 @SuppressWarnings("null")
 public class AiSentimentService {
 
-    private final RestTemplate restTemplate;
+    private final AiServiceClient aiServiceClient;
+    private final AiHealthMonitor aiHealthMonitor;
     private final SurveyRepository surveyRepository;
     private final ResponseRepository responseRepository;
     private final AiSentimentRepository aiSentimentRepository;
@@ -45,12 +45,6 @@ public class AiSentimentService {
     private final AuthService authService;
     private final SurveyPermissionService surveyPermissionService;
 
-    @Value("${ai.sentiment.base-url:http://localhost:8000}")
-    private String aiServiceBaseUrl;
-
-    @Value("${ai.sentiment.timeout:30000}")
-    private int requestTimeout;
-
     /**
      * Phân tích sentiment cho survey
      * Chỉ OWNER và ANALYST mới có quyền sử dụng AI sentiment analysis
@@ -150,19 +144,19 @@ public class AiSentimentService {
      */
     private SentimentAnalysisResponseDTO callAiSentimentService(Long surveyId, Long questionId) {
         try {
-            String url = aiServiceBaseUrl + "/ai/sentiment/" + surveyId;
+            String path = "/ai/sentiment/" + surveyId;
             if (questionId != null) {
-                url += "?question_id=" + questionId;
+                path += "?question_id=" + questionId;
             }
 
-            log.info("Gọi AI service: {}", url);
+            log.info("Gọi AI service: {}", aiServiceClient.url(AiEndpoint.SENTIMENT, path));
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<String> httpEntity = new HttpEntity<>(headers);
 
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    url, HttpMethod.POST, httpEntity,
+            ResponseEntity<Map<String, Object>> response = aiServiceClient.exchange(
+                    AiEndpoint.SENTIMENT, path, HttpMethod.POST, httpEntity,
                     new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {
                     });
 
@@ -273,19 +267,12 @@ public class AiSentimentService {
     }
 
     /**
-     * Kiểm tra AI service health
+     * Kiểm tra AI service health theo trạng thái đã lưu của AiHealthMonitor (không gọi /health)
      */
     private void validateAiServiceHealth() {
-        try {
-            String healthUrl = aiServiceBaseUrl + "/health";
-            ResponseEntity<String> response = restTemplate.getForEntity(healthUrl, String.class);
-            if (response.getStatusCode() != HttpStatus.OK) {
-                throw new RuntimeException("AI service không khả dụng");
-            }
-            log.info("AI service health check passed");
-        } catch (Exception e) {
-            log.error("AI service health check failed: {}", e.getMessage());
-            throw new RuntimeException("Không thể kết nối đến AI service: " + e.getMessage());
+        if (!aiHealthMonitor.isAvailable(AiEndpoint.SENTIMENT)) {
+            log.warn("AI service health check failed: dịch vụ đang down");
+            throw new AiServiceUnavailableException("Không thể kết nối đến AI service: dịch vụ tạm thời không khả dụng");
         }
     }
 
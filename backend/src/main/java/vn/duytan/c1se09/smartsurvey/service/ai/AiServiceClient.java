@@ -0,0 +1,455 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import vn.duytan.c1se09.smartsurvey.util.error.AiServiceUnavailableException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Client dùng chung cho mọi lời gọi tới dịch vụ AI (Python).
+ * - Một pool kết nối HTTP (Apache HttpClient 5) cho tất cả endpoint
+ * - Mỗi endpoint có connect/read timeout, circuit breaker và bulkhead (số request đồng thời) riêng
+ * - Lời gọi chạy trong withDeadline (vd. từ AiFanoutExecutor) có read timeout không vượt quá thời gian còn lại
+ *   tới hạn chót: hủy Future không ngắt được socket đang đọc, nên chỉ timeout mới trả lại thread và permit đúng hạn
+ * - Khi circuit mở hoặc bulkhead đầy, request bị từ chối ngay bằng AiServiceUnavailableException
+ *   thay vì giữ thread Tomcat chờ dịch vụ đang treo
+ * - streamLines: nhận phản hồi dạng stream theo từng dòng (java.net.http, bất đồng bộ) cho chat
+ * - Metrics: ai.client.requests (endpoint, outcome), ai.client.circuit.state, ai.client.bulkhead.available,
+ *   ai.client.pool.*
+ */
+@Slf4j
+public class AiServiceClient implements AutoCloseable {
+
+    public record PoolSettings(int maxTotal, int maxPerRoute) {
+    }
+
+    public record BreakerSettings(int failureThreshold, Duration openDuration) {
+    }
+
+    public record EndpointSettings(String baseUrl, Duration connectTimeout, Duration readTimeout, int maxConcurrent) {
+    }
+
+    private static final class Channel {
+        private final String baseUrl;
+        private final RestTemplate restTemplate;
+        private final Duration readTimeout;
+        private final Semaphore bulkhead;
+        private final AiCircuitBreaker breaker;
+
+        private Channel(String baseUrl, RestTemplate restTemplate, Duration readTimeout, Semaphore bulkhead,
+                AiCircuitBreaker breaker) {
+            this.baseUrl = baseUrl;
+            this.restTemplate = restTemplate;
+            this.readTimeout = readTimeout;
+            this.bulkhead = bulkhead;
+            this.breaker = breaker;
+        }
+    }
+
+    /**
+     * Một lời gọi stream đang chạy: completion() kết thúc khi upstream gửi hết (hoặc lỗi / bị hủy),
+     * cancel() hủy request và đóng kết nối tới dịch vụ AI
+     */
+    public static final class AiStream {
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Flow.Subscription subscription;
+        private volatile CompletableFuture<?> exchange;
+
+        public CompletableFuture<Void> completion() {
+            return completion;
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+            CompletableFuture<?> pending = exchange;
+            if (pending != null) {
+                pending.cancel(true);
+            }
+            completion.cancel(false);
+        }
+    }
+
+    /**
+     * Hạn chót (System.nanoTime) của lời gọi đang chạy trên thread hiện tại, null nếu không có
+     */
+    private static final ThreadLocal<Long> CALL_DEADLINE = new ThreadLocal<>();
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final MeterRegistry meterRegistry;
+    private final Map<AiEndpoint, Channel> channels = new EnumMap<>(AiEndpoint.class);
+
+    /**
+     * Client cho các lời gọi stream: nhận body theo từng dòng bất đồng bộ, không giữ thread trong lúc chờ
+     */
+    private final HttpClient streamClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    public AiServiceClient(PoolSettings pool, BreakerSettings breaker, Map<AiEndpoint, EndpointSettings> endpoints,
+            MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.maxTotal())
+                .setMaxConnPerRoute(pool.maxPerRoute())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+
+        for (AiEndpoint endpoint : AiEndpoint.values()) {
+            EndpointSettings settings = endpoints.get(endpoint);
+            if (settings == null) {
+                continue;
+            }
+            HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient) {
+                @Override
+                protected RequestConfig createRequestConfig(Object client) {
+                    return boundByDeadline(super.createRequestConfig(client));
+                }
+            };
+            factory.setConnectTimeout(settings.connectTimeout());
+            // Chờ mượn kết nối từ pool không lâu hơn thời gian connect
+            factory.setConnectionRequestTimeout(settings.connectTimeout());
+            factory.setReadTimeout(settings.readTimeout());
+
+            Channel channel = new Channel(
+                    stripTrailingSlash(settings.baseUrl()),
+                    new RestTemplate(factory),
+                    settings.readTimeout(),
+                    new Semaphore(Math.max(1, settings.maxConcurrent())),
+                    new AiCircuitBreaker(breaker.failureThreshold(), breaker.openDuration().toMillis()));
+            channels.put(endpoint, channel);
+
+            Gauge.builder("ai.client.circuit.state", channel.breaker, b -> b.getState().ordinal())
+                    .description("0 = closed, 1 = open, 2 = half-open")
+                    .tag("endpoint", endpoint.getKey())
+                    .register(meterRegistry);
+            Gauge.builder("ai.client.bulkhead.available", channel.bulkhead, Semaphore::availablePermits)
+                    .tag("endpoint", endpoint.getKey())
+                    .register(meterRegistry);
+        }
+
+        Gauge.builder("ai.client.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+                .register(meterRegistry);
+        Gauge.builder("ai.client.pool.available", connectionManager, cm -> cm.getTotalStats().getAvailable())
+                .register(meterRegistry);
+        Gauge.builder("ai.client.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Chạy call với hạn chót deadlineNanos (System.nanoTime): mọi lời gọi exchange bên trong dùng read timeout
+     * không quá thời gian còn lại, và bị từ chối ngay nếu đã quá hạn
+     */
+    public static <T> T withDeadline(long deadlineNanos, Supplier<T> call) {
+        Long previous = CALL_DEADLINE.get();
+        CALL_DEADLINE.set(deadlineNanos);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CALL_DEADLINE.set(previous);
+            } else {
+                CALL_DEADLINE.remove();
+            }
+        }
+    }
+
+    public <T> ResponseEntity<T> exchange(AiEndpoint endpoint, String path, HttpMethod method, HttpEntity<?> entity,
+            Class<T> responseType) {
+        return execute(endpoint, (restTemplate, url) -> restTemplate.exchange(url, method, entity, responseType), path);
+    }
+
+    public <T> ResponseEntity<T> exchange(AiEndpoint endpoint, String path, HttpMethod method, HttpEntity<?> entity,
+            ParameterizedTypeReference<T> responseType) {
+        return execute(endpoint, (restTemplate, url) -> restTemplate.exchange(url, method, entity, responseType), path);
+    }
+
+    public <T> ResponseEntity<T> getForEntity(AiEndpoint endpoint, String path, Class<T> responseType) {
+        return exchange(endpoint, path, HttpMethod.GET, null, responseType);
+    }
+
+    public <T> ResponseEntity<T> postForEntity(AiEndpoint endpoint, String path, Object body, Class<T> responseType) {
+        return exchange(endpoint, path, HttpMethod.POST, new HttpEntity<>(body), responseType);
+    }
+
+    /**
+     * POST jsonBody và nhận body trả về theo từng dòng (vd. NDJSON), mỗi dòng gọi onLine trên thread của HttpClient.
+     * Bulkhead và circuit breaker áp dụng như lời gọi thường; permit được giữ đến khi stream kết thúc.
+     * readTimeout của endpoint giới hạn thời gian chờ tới khi nhận được header phản hồi.
+     */
+    public AiStream streamLines(AiEndpoint endpoint, String path, String jsonBody, Consumer<String> onLine) {
+        Channel channel = channel(endpoint);
+        if (!channel.bulkhead.tryAcquire()) {
+            record(endpoint, "rejected", 0L);
+            throw new AiServiceUnavailableException("Dịch vụ AI đang xử lý quá nhiều yêu cầu, vui lòng thử lại sau");
+        }
+        if (!channel.breaker.tryAcquirePermission()) {
+            channel.bulkhead.release();
+            record(endpoint, "circuit_open", 0L);
+            throw new AiServiceUnavailableException("Dịch vụ AI tạm thời không khả dụng, vui lòng thử lại sau");
+        }
+
+        AiStream stream = new AiStream();
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(channel.baseUrl + path))
+                .timeout(channel.readTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+                .build();
+        Flow.Subscriber<String> lines = new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                stream.subscription = subscription;
+                if (stream.isCancelled()) {
+                    subscription.cancel();
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onNext(String line) {
+                if (stream.isCancelled()) {
+                    return;
+                }
+                try {
+                    onLine.accept(line);
+                } catch (RuntimeException e) {
+                    // Bên nhận không xử lý được (vd. client đã ngắt kết nối): dừng upstream
+                    stream.cancel();
+                    return;
+                }
+                stream.subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                // Kết quả được xử lý trong whenComplete của exchange
+            }
+
+            @Override
+            public void onComplete() {
+                // Kết quả được xử lý trong whenComplete của exchange
+            }
+        };
+
+        CompletableFuture<HttpResponse<Void>> exchange;
+        try {
+            exchange = streamClient.sendAsync(request, info -> info.statusCode() / 100 == 2
+                    ? HttpResponse.BodySubscribers.fromLineSubscriber(lines)
+                    : HttpResponse.BodySubscribers.<Void>replacing(null));
+        } catch (RuntimeException e) {
+            channel.bulkhead.release();
+            channel.breaker.onFailure();
+            throw e;
+        }
+        stream.exchange = exchange;
+        exchange.whenComplete((response, error) -> {
+            try {
+                long nanos = System.nanoTime() - start;
+                if (stream.isCancelled()) {
+                    // Client hủy: không phải lỗi của dịch vụ AI
+                    channel.breaker.onSuccess();
+                    record(endpoint, "cancelled", nanos);
+                } else if (error != null) {
+                    channel.breaker.onFailure();
+                    record(endpoint, "error", nanos);
+                    log.warn("Stream dịch vụ AI {} {} thất bại: {}", endpoint.getKey(), path, error.getMessage());
+                    stream.completion.completeExceptionally(error);
+                } else if (response.statusCode() / 100 != 2) {
+                    boolean serverError = response.statusCode() >= 500;
+                    if (serverError) {
+                        channel.breaker.onFailure();
+                    } else {
+                        channel.breaker.onSuccess();
+                    }
+                    record(endpoint, serverError ? "error" : "client_error", nanos);
+                    stream.completion.completeExceptionally(new IllegalStateException(
+                            "Dịch vụ AI trả về HTTP " + response.statusCode()));
+                } else {
+                    channel.breaker.onSuccess();
+                    record(endpoint, "success", nanos);
+                    stream.completion.complete(null);
+                }
+            } finally {
+                channel.bulkhead.release();
+            }
+        });
+        return stream;
+    }
+
+    /**
+     * URL đầy đủ của path trên endpoint (dùng khi ghi log)
+     */
+    public String url(AiEndpoint endpoint, String path) {
+        return channel(endpoint).baseUrl + path;
+    }
+
+    public AiCircuitBreaker.State circuitState(AiEndpoint endpoint) {
+        return channel(endpoint).breaker.getState();
+    }
+
+    /**
+     * Kết quả health check của endpoint: không khỏe thì mở circuit, khỏe lại thì cho thử ngay
+     */
+    public void reportHealth(AiEndpoint endpoint, boolean healthy) {
+        AiCircuitBreaker breaker = channel(endpoint).breaker;
+        if (healthy) {
+            breaker.allowTrial();
+        } else {
+            breaker.forceOpen();
+        }
+    }
+
+    public boolean isConfigured(AiEndpoint endpoint) {
+        return channels.containsKey(endpoint);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        ResponseEntity<T> apply(RestTemplate restTemplate, String url);
+    }
+
+    private <T> ResponseEntity<T> execute(AiEndpoint endpoint, Call<T> call, String path) {
+        Channel channel = channel(endpoint);
+        Duration remaining = remainingBeforeDeadline();
+        if (remaining != null && remaining.isZero()) {
+            record(endpoint, "deadline_exceeded", 0L);
+            throw new AiServiceUnavailableException("Dịch vụ AI phản hồi quá thời gian chờ, vui lòng thử lại sau");
+        }
+        if (!channel.bulkhead.tryAcquire()) {
+            record(endpoint, "rejected", 0L);
+            throw new AiServiceUnavailableException("Dịch vụ AI đang xử lý quá nhiều yêu cầu, vui lòng thử lại sau");
+        }
+        try {
+            if (!channel.breaker.tryAcquirePermission()) {
+                record(endpoint, "circuit_open", 0L);
+                throw new AiServiceUnavailableException("Dịch vụ AI tạm thời không khả dụng, vui lòng thử lại sau");
+            }
+            long start = System.nanoTime();
+            try {
+                ResponseEntity<T> response = call.apply(channel.restTemplate, channel.baseUrl + path);
+                channel.breaker.onSuccess();
+                record(endpoint, "success", System.nanoTime() - start);
+                return response;
+            } catch (HttpClientErrorException e) {
+                // Lỗi 4xx: dịch vụ vẫn phản hồi bình thường, không tính vào circuit breaker
+                channel.breaker.onSuccess();
+                record(endpoint, "client_error", System.nanoTime() - start);
+                throw e;
+            } catch (RuntimeException e) {
+                channel.breaker.onFailure();
+                record(endpoint, "error", System.nanoTime() - start);
+                log.warn("Gọi dịch vụ AI {} {} thất bại: {}", endpoint.getKey(), path, e.getMessage());
+                throw e;
+            }
+        } finally {
+            channel.bulkhead.release();
+        }
+    }
+
+    /**
+     * Thời gian còn lại tới hạn chót của thread hiện tại (ZERO nếu đã quá hạn), null nếu không có hạn chót
+     */
+    private static Duration remainingBeforeDeadline() {
+        Long deadline = CALL_DEADLINE.get();
+        if (deadline == null) {
+            return null;
+        }
+        long remaining = deadline - System.nanoTime();
+        // Dưới 1 ms thì Timeout làm tròn về 0 (= chờ vô hạn), coi như đã quá hạn
+        return remaining < TimeUnit.MILLISECONDS.toNanos(1) ? Duration.ZERO : Duration.ofNanos(remaining);
+    }
+
+    /**
+     * Rút ngắn thời gian chờ mượn kết nối và read timeout của request về thời gian còn lại tới hạn chót
+     */
+    private static RequestConfig boundByDeadline(RequestConfig config) {
+        Duration remaining = remainingBeforeDeadline();
+        if (remaining == null) {
+            return config;
+        }
+        Timeout bound = Timeout.ofMilliseconds(Math.max(1, remaining.toMillis()));
+        RequestConfig.Builder builder = RequestConfig.copy(config);
+        if (config.getResponseTimeout() == null || config.getResponseTimeout().isDisabled()
+                || config.getResponseTimeout().compareTo(bound) > 0) {
+            builder.setResponseTimeout(bound);
+        }
+        if (config.getConnectionRequestTimeout() == null || config.getConnectionRequestTimeout().isDisabled()
+                || config.getConnectionRequestTimeout().compareTo(bound) > 0) {
+            builder.setConnectionRequestTimeout(bound);
+        }
+        return builder.build();
+    }
+
+    private Channel channel(AiEndpoint endpoint) {
+        Channel channel = channels.get(endpoint);
+        if (channel == null) {
+            throw new IllegalStateException("Chưa cấu hình endpoint AI: " + endpoint.getKey());
+        }
+        return channel;
+    }
+
+    private void record(AiEndpoint endpoint, String outcome, long nanos) {
+        Timer.builder("ai.client.requests")
+                .tag("endpoint", endpoint.getKey())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -2,10 +2,8 @@ package vn.duytan.c1se09.smartsurvey.service.ai;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import vn.duytan.c1se09.smartsurvey.domain.Category;
 import vn.duytan.c1se09.smartsurvey.domain.Survey;
 import vn.duytan.c1se09.smartsurvey.domain.User;
@@ -30,17 +28,12 @@ import java.util.Map;
 @SuppressWarnings("null")
 public class SurveyGeneratorService {
 
-    private final RestTemplate restTemplate;
+    private final AiServiceClient aiServiceClient;
+    private final AiHealthMonitor aiHealthMonitor;
     private final UserService userService;
     private final CategoryService categoryService;
     private final SurveyService surveyService;
 
-    @Value("${ai.survey-generator.base-url:http://localhost:8002}")
-    private String aiServiceBaseUrl;
-
-    @Value("${ai.survey-generator.timeout:30000}")
-    private int requestTimeout;
-
     /**
      * Xử lý toàn bộ logic tạo khảo sát từ AI
      * 
@@ -160,11 +153,10 @@ public class SurveyGeneratorService {
         log.info("🔄 Calling Python AI /refresh_question with type: {}", questionType);
 
         // 4. Gọi Python AI service /refresh_question endpoint
-        String aiServiceUrl = aiServiceBaseUrl + "/refresh_question";
         ResponseEntity<Map> aiResponse;
 
         try {
-            aiResponse = restTemplate.postForEntity(aiServiceUrl, refreshRequest, Map.class);
+            aiResponse = aiServiceClient.postForEntity(AiEndpoint.SURVEY_GENERATOR, "/refresh_question", refreshRequest, Map.class);
         } catch (Exception e) {
             log.error("❌ Error calling AI service /refresh_question: {}", e.getMessage());
             throw new Exception("Không thể kết nối đến AI service: " + e.getMessage());
@@ -348,9 +340,9 @@ public class SurveyGeneratorService {
             HttpEntity<Map<String, Object>> httpEntity = new HttpEntity<>(aiRequest, headers);
 
             // Gọi AI service
-            String url = aiServiceBaseUrl + "/generate";
-            ResponseEntity<SurveyGenerationResponseDTO> response = restTemplate.exchange(
-                    url,
+            ResponseEntity<SurveyGenerationResponseDTO> response = aiServiceClient.exchange(
+                    AiEndpoint.SURVEY_GENERATOR,
+                    "/generate",
                     HttpMethod.POST,
                     httpEntity,
                     SurveyGenerationResponseDTO.class);
@@ -381,19 +373,10 @@ public class SurveyGeneratorService {
     }
 
     /**
-     * Kiểm tra tình trạng AI service
+     * Kiểm tra tình trạng AI service theo trạng thái đã lưu của AiHealthMonitor (không gọi /health)
      */
-    @SuppressWarnings("rawtypes")
     private boolean isAiServiceHealthy() {
-        try {
-            String url = aiServiceBaseUrl + "/health";
-            ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
-            return response.getStatusCode() == HttpStatus.OK;
-
-        } catch (Exception e) {
-            log.warn("Không thể kiểm tra tình trạng AI service: {}", e.getMessage());
-            return false;
-        }
+        return aiHealthMonitor.isAvailable(AiEndpoint.SURVEY_GENERATOR);
     }
 
     /**
@@ -402,8 +385,8 @@ public class SurveyGeneratorService {
     @SuppressWarnings("rawtypes")
     private Map<String, Object> validatePromptInternal(String prompt) {
         try {
-            String url = aiServiceBaseUrl + "/validate-prompt?prompt=" + prompt;
-            ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
+            ResponseEntity<Map> response = aiServiceClient.getForEntity(AiEndpoint.SURVEY_GENERATOR,
+                    "/validate-prompt?prompt=" + prompt, Map.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 @SuppressWarnings("unchecked")
@@ -0,0 +1,29 @@
+package vn.duytan.c1se09.smartsurvey.util.constant;
+
+public enum CompletionStatusEnum {
+    completed("Hoàn thành"),
+    partial("Chưa hoàn thành"),
+    dropped("Bỏ dở");
+
+    private final String description;
+
+    CompletionStatusEnum(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * - dropped: không có answer nào
+     * - completed: trả lời đủ mọi câu required (survey không có câu required thì chỉ cần có answer)
+     * - partial: có answer nhưng chưa đủ câu required
+     */
+    public static CompletionStatusEnum of(boolean hasAnswers, long answeredRequiredCount, long requiredCount) {
+        if (!hasAnswers) {
+            return dropped;
+        }
+        return answeredRequiredCount >= requiredCount ? completed : partial;
+    }
+}
@@ -0,0 +1,11 @@
+package vn.duytan.c1se09.smartsurvey.util.error;
+
+/**
+ * Dịch vụ AI tạm thời không nhận request (circuit breaker đang mở hoặc đã đủ số request đồng thời)
+ * - trả về 503 SERVICE_UNAVAILABLE
+ */
+public class AiServiceUnavailableException extends RuntimeException {
+    public AiServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -54,6 +54,19 @@ public class GlobalException {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    @ExceptionHandler(AiServiceUnavailableException.class)
+    public ResponseEntity<ErrorDTO> handleServiceUnavailable(AiServiceUnavailableException ex,
+            HttpServletRequest request) {
+        ErrorDTO body = ErrorDTO.builder()
+                .message(ex.getMessage())
+                .error("SERVICE_UNAVAILABLE")
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .path(request.getRequestURI())
+                .timestamp(LocalDateTime.now())
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorDTO> validationError(MethodArgumentNotValidException ex, HttpServletRequest request) {
         BindingResult result = ex.getBindingResult();
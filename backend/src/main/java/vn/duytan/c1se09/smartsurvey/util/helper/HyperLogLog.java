@@ -0,0 +1,192 @@
+package vn.duytan.c1se09.smartsurvey.util.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * HyperLogLog ước lượng số phần tử phân biệt (vd: số IP xem survey) với bộ nhớ cố định 2^p byte.
+ * - Sai số chuẩn ≈ 1.04 / sqrt(2^p)
+ * - Gộp (merge) 2 sketch = lấy max từng register, nên có thể cộng dồn nhiều ngày
+ * - Serialize: [p][registers nén deflate] (phần lớn register = 0 với survey ít lượt xem)
+ * Không thread-safe.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be in [4, 18]: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    /**
+     * Precision nhỏ nhất đạt sai số chuẩn mong muốn (vd: 0.02 -> p = 12)
+     */
+    public static int precisionForError(double relativeError) {
+        double m = Math.pow(1.04 / relativeError, 2);
+        int p = (int) Math.ceil(Math.log(m) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, p));
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        addHash(hash64(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Số bit 0 đầu tiên của phần còn lại + 1 (bit sentinel đảm bảo không vượt quá 64 - p + 1)
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Gộp sketch khác vào sketch này và trả về kết quả; nếu precision khác nhau thì hạ xuống
+     * precision nhỏ hơn (khi đó kết quả là object mới)
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        HyperLogLog target = this;
+        HyperLogLog source = other;
+        if (other.precision < precision) {
+            target = this.reduceTo(other.precision);
+        } else if (other.precision > precision) {
+            source = other.reduceTo(precision);
+        }
+        for (int i = 0; i < target.registers.length; i++) {
+            if (source.registers[i] > target.registers[i]) {
+                target.registers[i] = source.registers[i];
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Hạ precision: các bit index bị bỏ trở thành bit đầu của phần hash còn lại
+     */
+    public HyperLogLog reduceTo(int newPrecision) {
+        if (newPrecision >= precision) {
+            return this;
+        }
+        int dropped = precision - newPrecision;
+        HyperLogLog reduced = new HyperLogLog(newPrecision);
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+            int newIndex = i >>> dropped;
+            int droppedBits = i & ((1 << dropped) - 1);
+            int rank = droppedBits != 0
+                    ? dropped - (32 - Integer.numberOfLeadingZeros(droppedBits)) + 1
+                    : dropped + registers[i];
+            if (rank > reduced.registers[newIndex]) {
+                reduced.registers[newIndex] = (byte) rank;
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * Ước lượng số phần tử phân biệt
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting cho tập nhỏ
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(registers);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(precision);
+        byte[] buffer = new byte[1024];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    public static HyperLogLog fromBytes(byte[] data) {
+        int precision = data[0];
+        byte[] registers = new byte[1 << precision];
+        Inflater inflater = new Inflater();
+        inflater.setInput(data, 1, data.length - 1);
+        try {
+            int offset = 0;
+            while (offset < registers.length && !inflater.finished()) {
+                int n = inflater.inflate(registers, offset, registers.length - offset);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid HyperLogLog data", e);
+        } finally {
+            inflater.end();
+        }
+        return new HyperLogLog(precision, registers);
+    }
+
+    /**
+     * FNV-1a 64-bit + bước trộn cuối của MurmurHash3 để các bit phân bố đều
+     */
+    private static long hash64(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53b5a2fL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
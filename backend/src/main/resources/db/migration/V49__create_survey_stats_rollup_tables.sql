@@ -0,0 +1,51 @@
+-- V49: Bảng rollup thống kê theo survey / question / option
+-- Được cập nhật tăng dần khi submit/xóa response để các endpoint /results/* không phải quét lại toàn bộ answers
+
+CREATE TABLE IF NOT EXISTS survey_stats_rollup (
+    survey_id BIGINT PRIMARY KEY,
+    response_count BIGINT NOT NULL DEFAULT 0,
+    duration_sum BIGINT NOT NULL DEFAULT 0,
+    duration_count BIGINT NOT NULL DEFAULT 0,
+    last_response_at DATETIME NULL,
+    initialized BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_survey_stats_rollup_survey FOREIGN KEY (survey_id)
+        REFERENCES surveys(survey_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS question_stats_rollup (
+    question_id BIGINT PRIMARY KEY,
+    survey_id BIGINT NOT NULL,
+    response_count BIGINT NOT NULL DEFAULT 0,
+    answer_count BIGINT NOT NULL DEFAULT 0,
+    rating_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_1_count BIGINT NOT NULL DEFAULT 0,
+    rating_2_count BIGINT NOT NULL DEFAULT 0,
+    rating_3_count BIGINT NOT NULL DEFAULT 0,
+    rating_4_count BIGINT NOT NULL DEFAULT 0,
+    rating_5_count BIGINT NOT NULL DEFAULT 0,
+    true_count BIGINT NOT NULL DEFAULT 0,
+    false_count BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_question_stats_rollup_survey (survey_id),
+    CONSTRAINT fk_question_stats_rollup_question FOREIGN KEY (question_id)
+        REFERENCES questions(question_id) ON DELETE CASCADE,
+    CONSTRAINT fk_question_stats_rollup_survey FOREIGN KEY (survey_id)
+        REFERENCES surveys(survey_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS option_stats_rollup (
+    option_id BIGINT PRIMARY KEY,
+    question_id BIGINT NOT NULL,
+    survey_id BIGINT NOT NULL,
+    select_count BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_option_stats_rollup_survey (survey_id),
+    CONSTRAINT fk_option_stats_rollup_option FOREIGN KEY (option_id)
+        REFERENCES options(option_id) ON DELETE CASCADE,
+    CONSTRAINT fk_option_stats_rollup_question FOREIGN KEY (question_id)
+        REFERENCES questions(question_id) ON DELETE CASCADE,
+    CONSTRAINT fk_option_stats_rollup_survey FOREIGN KEY (survey_id)
+        REFERENCES surveys(survey_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,79 @@
+-- V50: Dựng lại bảng answers_analytical (đã bị drop ở V48) làm read model cho thống kê
+-- - Bảng partition theo survey_id để các truy vấn aggregate theo survey được partition pruning
+-- - answers_analytical_state đánh dấu survey nào đã đồng bộ đầy đủ (fresh) để tầng service quyết định fallback
+-- - sp_refresh_answers được viết lại: xóa dữ liệu cũ của survey rồi nạp lại, chỉ cast answer_value khi là số
+
+-- ============================================================
+-- 1. answers_analytical (partitioned, không có FK vì MySQL không hỗ trợ FK với partitioning)
+-- ============================================================
+CREATE TABLE IF NOT EXISTS answers_analytical (
+    survey_id BIGINT NOT NULL,
+    answer_id BIGINT NOT NULL,
+    response_id BIGINT NOT NULL,
+    question_id BIGINT NOT NULL,
+    option_id BIGINT NULL,
+    answer_text TEXT NULL,
+    answer_value DECIMAL(9,3) NULL,
+    PRIMARY KEY (survey_id, answer_id),
+    INDEX ix_ans_anal_resp (survey_id, response_id),
+    INDEX ix_ans_anal_qopt (survey_id, question_id, option_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+PARTITION BY RANGE (survey_id) (
+    PARTITION p_lt_1000 VALUES LESS THAN (1000),
+    PARTITION p_1000_1999 VALUES LESS THAN (2000),
+    PARTITION p_2000_2999 VALUES LESS THAN (3000),
+    PARTITION p_3000_3999 VALUES LESS THAN (4000),
+    PARTITION p_4000_4999 VALUES LESS THAN (5000),
+    PARTITION p_max VALUES LESS THAN MAXVALUE
+);
+
+-- ============================================================
+-- 2. Trạng thái đồng bộ theo survey
+-- ============================================================
+CREATE TABLE IF NOT EXISTS answers_analytical_state (
+    survey_id BIGINT PRIMARY KEY,
+    is_fresh BOOLEAN NOT NULL DEFAULT FALSE,
+    refreshed_at DATETIME NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_answers_analytical_state_survey FOREIGN KEY (survey_id)
+        REFERENCES surveys(survey_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================
+-- 3. Procedure nạp lại dữ liệu analytical của một survey
+-- ============================================================
+DELIMITER $$
+
+DROP PROCEDURE IF EXISTS sp_refresh_answers$$
+
+CREATE PROCEDURE sp_refresh_answers(IN p_survey_id BIGINT)
+BEGIN
+    DELETE FROM answers_analytical WHERE survey_id = p_survey_id;
+
+    INSERT IGNORE INTO answers_analytical
+    (
+        survey_id,
+        answer_id,
+        response_id,
+        question_id,
+        option_id,
+        answer_text,
+        answer_value
+    )
+    SELECT
+        r.survey_id,
+        a.answer_id,
+        a.response_id,
+        a.question_id,
+        a.option_id,
+        a.answer_text,
+        CASE
+            WHEN TRIM(a.answer_text) REGEXP '^-?[0-9]{1,6}([.][0-9]{1,3})?$' THEN CAST(TRIM(a.answer_text) AS DECIMAL(9,3))
+            ELSE NULL
+        END AS answer_value
+    FROM answers a
+    JOIN responses r ON r.response_id = a.response_id
+    WHERE r.survey_id = p_survey_id;
+END$$
+
+DELIMITER ;
@@ -0,0 +1,30 @@
+-- V51: Bảng export_jobs cho export chạy nền (responses CSV/XLSX, báo cáo PDF)
+-- active_hash chỉ có giá trị khi job đang pending/running -> UNIQUE để gộp các yêu cầu export giống nhau đang chạy
+
+CREATE TABLE IF NOT EXISTS export_jobs (
+    job_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    survey_id BIGINT NOT NULL,
+    requested_by BIGINT NULL,
+    format ENUM('csv','xlsx','pdf') NOT NULL,
+    include_answers BOOLEAN NOT NULL DEFAULT TRUE,
+    request_hash CHAR(64) NOT NULL,
+    active_hash CHAR(64) NULL,
+    status ENUM('pending','running','completed','failed','expired') NOT NULL DEFAULT 'pending',
+    progress INT NOT NULL DEFAULT 0,
+    file_path VARCHAR(500) NULL,
+    file_name VARCHAR(255) NULL,
+    file_size BIGINT NULL,
+    error_message TEXT NULL,
+    started_at DATETIME NULL,
+    completed_at DATETIME NULL,
+    expires_at DATETIME NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_export_jobs_active_hash (active_hash),
+    INDEX idx_export_jobs_survey (survey_id),
+    INDEX idx_export_jobs_status_expires (status, expires_at),
+    CONSTRAINT fk_export_jobs_survey FOREIGN KEY (survey_id)
+        REFERENCES surveys(survey_id) ON DELETE CASCADE,
+    CONSTRAINT fk_export_jobs_user FOREIGN KEY (requested_by)
+        REFERENCES users(user_id) ON DELETE SET NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
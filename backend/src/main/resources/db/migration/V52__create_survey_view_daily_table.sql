@@ -0,0 +1,23 @@
+-- V52: Tổng hợp lượt xem theo survey / ngày
+-- view_count: tổng lượt xem trong ngày; hll_registers: HyperLogLog (đã nén) các IP xem trong ngày
+-- để ước lượng số người xem duy nhất trên khoảng ngày bất kỳ bằng cách gộp sketch (O(số ngày))
+-- hll_registers = NULL: chưa dựng sketch từ survey_views (job nền sẽ dựng dần)
+
+CREATE TABLE IF NOT EXISTS survey_view_daily (
+    survey_id BIGINT NOT NULL,
+    view_date DATE NOT NULL,
+    view_count BIGINT NOT NULL DEFAULT 0,
+    hll_registers MEDIUMBLOB NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (survey_id, view_date),
+    CONSTRAINT fk_survey_view_daily_survey FOREIGN KEY (survey_id)
+        REFERENCES surveys(survey_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Số lượt xem hiện có; sketch được dựng sau từ survey_views
+INSERT INTO survey_view_daily (survey_id, view_date, view_count, hll_registers)
+SELECT survey_id, DATE(viewed_at), COUNT(*), NULL
+FROM survey_views
+GROUP BY survey_id, DATE(viewed_at);
+
+CREATE INDEX idx_survey_view_survey_viewed_at ON survey_views (survey_id, viewed_at);
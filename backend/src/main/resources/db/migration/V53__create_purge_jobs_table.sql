@@ -0,0 +1,26 @@
+-- V53: Xóa survey / user chạy nền theo từng lô (purge job)
+-- surveys.purge_requested_at: khác NULL = survey đang chờ xóa, bị ẩn khỏi mọi truy vấn JPA
+-- purge_jobs: trạng thái, bước hiện tại và tiến độ của job xóa
+
+ALTER TABLE surveys ADD COLUMN purge_requested_at DATETIME NULL;
+
+CREATE TABLE IF NOT EXISTS purge_jobs (
+    job_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    target_type ENUM('survey','user') NOT NULL,
+    target_id BIGINT NOT NULL,
+    target_label VARCHAR(255) NULL,
+    requested_by BIGINT NULL,
+    status ENUM('pending','running','completed','failed') NOT NULL DEFAULT 'pending',
+    current_step VARCHAR(50) NULL,
+    progress INT NOT NULL DEFAULT 0,
+    rows_deleted BIGINT NOT NULL DEFAULT 0,
+    error_message TEXT NULL,
+    started_at DATETIME NULL,
+    completed_at DATETIME NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_purge_jobs_target (target_type, target_id),
+    INDEX idx_purge_jobs_status_updated (status, updated_at),
+    CONSTRAINT fk_purge_jobs_user FOREIGN KEY (requested_by)
+        REFERENCES users(user_id) ON DELETE SET NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
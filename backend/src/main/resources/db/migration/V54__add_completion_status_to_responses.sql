@@ -0,0 +1,30 @@
+-- V54: Lưu trạng thái hoàn thành (completed / partial / dropped) trên responses
+-- Trước đây trạng thái được tính lại mỗi lần đọc bằng các subquery count(distinct ...) trên answers;
+-- giờ được ghi khi submit và tính lại hàng loạt theo survey khi tập câu required thay đổi
+
+ALTER TABLE responses
+    ADD COLUMN completion_status ENUM('completed','partial','dropped') NOT NULL DEFAULT 'dropped',
+    ADD COLUMN answered_required_count INT NOT NULL DEFAULT 0;
+
+-- Tính cho dữ liệu hiện có
+UPDATE responses r
+LEFT JOIN (
+    SELECT a.response_id, COUNT(DISTINCT a.question_id) AS cnt
+    FROM answers a
+    JOIN questions q ON q.question_id = a.question_id AND q.is_required = TRUE
+    GROUP BY a.response_id
+) req ON req.response_id = r.response_id
+LEFT JOIN (
+    SELECT survey_id, COUNT(*) AS cnt
+    FROM questions
+    WHERE is_required = TRUE
+    GROUP BY survey_id
+) rq ON rq.survey_id = r.survey_id
+SET r.answered_required_count = COALESCE(req.cnt, 0),
+    r.completion_status = CASE
+        WHEN NOT EXISTS (SELECT 1 FROM answers a2 WHERE a2.response_id = r.response_id) THEN 'dropped'
+        WHEN COALESCE(req.cnt, 0) >= COALESCE(rq.cnt, 0) THEN 'completed'
+        ELSE 'partial'
+    END;
+
+CREATE INDEX idx_responses_survey_completion ON responses (survey_id, completion_status);
@@ -0,0 +1,30 @@
+-- V55: Chỉ mục tìm kiếm toàn văn cho bộ lọc search của danh sách / export responses
+-- Mỗi response có một document gồm các answer_text (ghép bằng xuống dòng), ghi khi submit.
+-- FULLTEXT dùng parser ngram để tìm được tiếng Việt; tắt stopword khi tạo index vì với ngram
+-- mọi token chứa stopword tiếng Anh (vd. "a", "i") sẽ bị loại khỏi index.
+
+CREATE TABLE IF NOT EXISTS response_search_docs (
+    response_id BIGINT PRIMARY KEY,
+    survey_id BIGINT NOT NULL,
+    search_text MEDIUMTEXT NOT NULL,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_response_search_docs_survey (survey_id),
+    CONSTRAINT fk_response_search_docs_response FOREIGN KEY (response_id)
+        REFERENCES responses(response_id) ON DELETE CASCADE,
+    CONSTRAINT fk_response_search_docs_survey FOREIGN KEY (survey_id)
+        REFERENCES surveys(survey_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Dựng document cho dữ liệu hiện có (nạp trước rồi mới tạo FULLTEXT index cho nhanh)
+SET SESSION group_concat_max_len = 16777216;
+
+INSERT INTO response_search_docs (response_id, survey_id, search_text)
+SELECT r.response_id, r.survey_id, GROUP_CONCAT(a.answer_text ORDER BY a.answer_id SEPARATOR '\n')
+FROM responses r
+JOIN answers a ON a.response_id = r.response_id
+WHERE a.answer_text IS NOT NULL AND TRIM(a.answer_text) <> ''
+GROUP BY r.response_id, r.survey_id;
+
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+CREATE FULLTEXT INDEX ft_response_search_docs_text ON response_search_docs (search_text) WITH PARSER ngram;
@@ -0,0 +1,4 @@
+-- V56: Index cho keyset pagination của responses theo (submitted_at, response_id) trong một survey
+-- Danh sách theo cursor và export đọc theo chunk dùng index này nên chi phí mỗi trang không phụ thuộc vị trí
+
+CREATE INDEX idx_responses_survey_submitted ON responses (survey_id, submitted_at, response_id);
@@ -0,0 +1,8 @@
+-- V57: Thử lại purge job thất bại
+-- attempts: số lần chạy đã thất bại; next_attempt_at: thời điểm được thử lại (NULL = không tự thử lại nữa)
+
+ALTER TABLE purge_jobs
+    ADD COLUMN attempts INT NOT NULL DEFAULT 0,
+    ADD COLUMN next_attempt_at DATETIME NULL;
+
+CREATE INDEX idx_purge_jobs_status_next_attempt ON purge_jobs (status, next_attempt_at);
@@ -0,0 +1,237 @@
+package vn.duytan.c1se09.smartsurvey.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import vn.duytan.c1se09.smartsurvey.domain.Answer;
+import vn.duytan.c1se09.smartsurvey.domain.Option;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Response;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh ghi answers theo lô (AnswerBatchRepository) với ghi từng dòng qua JPA như submitResponse trước đây.
+ * Số lời gọi JDBC execute* được đếm qua DataSource bọc proxy: mỗi lời gọi là 1 round trip tới DB
+ * (executeBatch là 1 round trip trên MySQL khi bật rewriteBatchedStatements).
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:answerbatch;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,USER",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ AnswerBatchRepository.class, AnswerBatchRepositoryBenchmarkTest.JdbcCallCounterConfig.class })
+class AnswerBatchRepositoryBenchmarkTest {
+
+    /**
+     * Số câu hỏi của một khảo sát điển hình
+     */
+    private static final int ANSWERS_PER_RESPONSE = 20;
+    private static final int RESPONSES = 300;
+
+    private static final AtomicLong JDBC_CALLS = new AtomicLong();
+
+    @Autowired
+    private AnswerBatchRepository answerBatchRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private TestEntityManager em;
+
+    private Survey survey;
+    private final List<Question> questions = new ArrayList<>();
+    private final List<Option> options = new ArrayList<>();
+
+    @TestConfiguration
+    static class JdbcCallCounterConfig {
+        @Bean
+        static BeanPostProcessor jdbcCallCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counting(dataSource, DataSource.class) : bean;
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User();
+        owner.setFullName("Owner");
+        owner.setEmail("batch-owner@test.local");
+        owner.setPasswordHash("x");
+        em.persist(owner);
+
+        survey = new Survey();
+        survey.setUser(owner);
+        survey.setTitle("Batch insert");
+        survey.setStatus(SurveyStatusEnum.published);
+        em.persist(survey);
+
+        // Một nửa câu hỏi chọn option, một nửa câu hỏi mở
+        for (int i = 0; i < 40; i++) {
+            Question question = new Question();
+            question.setSurvey(survey);
+            question.setQuestionText("Câu hỏi " + i);
+            question.setQuestionType(i % 2 == 0 ? QuestionTypeEnum.single_choice : QuestionTypeEnum.open_ended);
+            question.setIsRequired(false);
+            questions.add(em.persist(question));
+            Option option = new Option();
+            option.setQuestion(question);
+            option.setOptionText("Lựa chọn " + i);
+            options.add(em.persist(option));
+        }
+        em.flush();
+    }
+
+    @Test
+    void batchedInsertUsesOneJdbcCallPerResponseRegardlessOfAnswerCount() {
+        for (int answerCount : new int[] { 1, 5, ANSWERS_PER_RESPONSE, 40 }) {
+            Response response = newResponse();
+            List<Answer> answers = newAnswers(response, answerCount);
+
+            JDBC_CALLS.set(0);
+            answerBatchRepository.insertAll(answers);
+
+            assertThat(JDBC_CALLS.get()).as("JDBC calls for %d answers", answerCount).isEqualTo(1);
+            assertThat(answers).allSatisfy(a -> assertThat(a.getAnswerId()).isNotNull());
+            assertThat(answers.stream().map(Answer::getAnswerId).distinct()).hasSize(answerCount);
+            assertThat(answerRepository.countByResponse(response)).isEqualTo(answerCount);
+        }
+    }
+
+    @Test
+    void batchedInsertComparedWithPerRowInserts() {
+        List<Response> batchedResponses = new ArrayList<>();
+        List<Response> perRowResponses = new ArrayList<>();
+        for (int i = 0; i < RESPONSES; i++) {
+            batchedResponses.add(newResponse());
+            perRowResponses.add(newResponse());
+        }
+        em.flush();
+        // Làm nóng cả hai đường ghi
+        answerBatchRepository.insertAll(newAnswers(newResponse(), ANSWERS_PER_RESPONSE));
+        newAnswers(newResponse(), ANSWERS_PER_RESPONSE).forEach(answerRepository::save);
+        em.flush();
+        em.clear();
+
+        JDBC_CALLS.set(0);
+        long batchedStart = System.nanoTime();
+        for (Response response : batchedResponses) {
+            answerBatchRepository.insertAll(newAnswers(response, ANSWERS_PER_RESPONSE));
+        }
+        long batchedNanos = System.nanoTime() - batchedStart;
+        long batchedCalls = JDBC_CALLS.get();
+
+        JDBC_CALLS.set(0);
+        long perRowStart = System.nanoTime();
+        for (Response response : perRowResponses) {
+            // Answer dùng IDENTITY: mỗi save là 1 câu INSERT ngay lập tức
+            newAnswers(response, ANSWERS_PER_RESPONSE).forEach(answerRepository::save);
+        }
+        em.flush();
+        long perRowNanos = System.nanoTime() - perRowStart;
+        long perRowCalls = JDBC_CALLS.get();
+
+        System.out.printf("Answer inserts, %d responses x %d answers: batched %d JDBC calls, %.0f submits/s; "
+                + "per-row %d JDBC calls, %.0f submits/s%n",
+                RESPONSES, ANSWERS_PER_RESPONSE, batchedCalls, RESPONSES / (batchedNanos / 1e9),
+                perRowCalls, RESPONSES / (perRowNanos / 1e9));
+
+        assertThat(batchedCalls).isEqualTo(RESPONSES);
+        assertThat(perRowCalls).isGreaterThanOrEqualTo((long) RESPONSES * ANSWERS_PER_RESPONSE);
+        assertThat(em.getEntityManager().createQuery("select count(a) from Answer a", Long.class).getSingleResult())
+                .isEqualTo(2L * (RESPONSES + 1) * ANSWERS_PER_RESPONSE);
+    }
+
+    @Test
+    void datasourceUrlEnablesRewriteBatchedStatements() throws Exception {
+        Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+
+        assertThat(properties.getProperty("spring.datasource.url")).contains("rewriteBatchedStatements=true");
+    }
+
+    private Response newResponse() {
+        Response response = new Response();
+        response.setSurvey(survey);
+        response.setCompletionStatus(CompletionStatusEnum.completed);
+        return em.persist(response);
+    }
+
+    private List<Answer> newAnswers(Response response, int count) {
+        List<Answer> answers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Answer answer = new Answer();
+            answer.setResponse(response);
+            answer.setQuestion(questions.get(i));
+            if (i % 2 == 0) {
+                answer.setOption(options.get(i));
+            } else {
+                answer.setAnswerText("Câu trả lời " + i + " của response " + response.getResponseId());
+            }
+            answers.add(answer);
+        }
+        return answers;
+    }
+
+    /**
+     * Bọc đối tượng JDBC để đếm các lời gọi execute* của statement; connection / statement trả về cũng được bọc
+     */
+    private static <T> T counting(T target, Class<T> type) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (p, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (target instanceof Statement && method.getName().startsWith("execute")) {
+                JDBC_CALLS.incrementAndGet();
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result != null && (returnType == Connection.class || returnType == Statement.class
+                    || returnType == PreparedStatement.class || returnType == CallableStatement.class)) {
+                return wrap(result, returnType);
+            }
+            return result;
+        });
+        return type.cast(proxy);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Object wrap(Object target, Class<T> type) {
+        return counting((T) target, type);
+    }
+}
@@ -0,0 +1,282 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import vn.duytan.c1se09.smartsurvey.domain.Answer;
+import vn.duytan.c1se09.smartsurvey.domain.Option;
+import vn.duytan.c1se09.smartsurvey.domain.PurgeJob;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Response;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.domain.response.purge.PurgeJobResponseDTO;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerRepository;
+import vn.duytan.c1se09.smartsurvey.repository.OptionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.PurgeBatchRepository;
+import vn.duytan.c1se09.smartsurvey.repository.PurgeJobRepository;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.ResponseRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.repository.UserRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Chạy purge job thật trên H2: xóa theo lô đúng thứ tự khóa ngoại và job lỗi được chạy lại đến khi hoàn tất.
+ * Dữ liệu được commit (không bọc transaction test) để worker thread của PurgeService nhìn thấy.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:purge;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,USER",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.purge.chunk-size=2",
+        "app.purge.max-attempts=3",
+        "app.purge.retry-base-delay-seconds=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ PurgeService.class, PurgeBatchRepository.class })
+class PurgeServiceIntegrationTest {
+
+    private static final int RESPONSES = 5;
+
+    @Autowired
+    private PurgeService purgeService;
+
+    @MockitoSpyBean
+    private PurgeBatchRepository purgeBatchRepository;
+
+    @Autowired
+    private PurgeJobRepository purgeJobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SurveyRepository surveyRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private OptionRepository optionRepository;
+
+    @Autowired
+    private ResponseRepository responseRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private AuthService authService;
+
+    @MockitoBean
+    private SurveyStatsRollupService surveyStatsRollupService;
+
+    @MockitoBean
+    private AnswerAnalyticsService answerAnalyticsService;
+
+    @MockitoBean
+    private SurveyDefinitionCache surveyDefinitionCache;
+
+    @MockitoBean
+    private SurveyPermissionCache surveyPermissionCache;
+
+    private User owner;
+    private Survey survey;
+
+    @BeforeEach
+    void setUp() {
+        // Bảng không có entity (schema H2 sinh từ entity)
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ai_embed (id BIGINT AUTO_INCREMENT PRIMARY KEY, survey_id BIGINT)");
+
+        owner = new User();
+        owner.setFullName("Owner");
+        owner.setEmail("purge-owner@test.local");
+        owner.setPasswordHash("x");
+        owner = userRepository.save(owner);
+
+        survey = new Survey();
+        survey.setUser(owner);
+        survey.setTitle("Purge");
+        survey.setStatus(SurveyStatusEnum.published);
+        survey = surveyRepository.save(survey);
+
+        Question question = new Question();
+        question.setSurvey(survey);
+        question.setQuestionText("Bạn chọn gì?");
+        question.setQuestionType(QuestionTypeEnum.single_choice);
+        question.setIsRequired(true);
+        question = questionRepository.save(question);
+
+        Option yes = newOption(question, "Có");
+        Option no = newOption(question, "Không");
+
+        // Answer tham chiếu option: xóa options trước answers sẽ vi phạm khóa ngoại
+        for (int i = 0; i < RESPONSES; i++) {
+            Response response = new Response();
+            response.setSurvey(survey);
+            response.setAnsweredRequiredCount(1);
+            response.setCompletionStatus(CompletionStatusEnum.completed);
+            response = responseRepository.save(response);
+
+            Answer answer = new Answer();
+            answer.setResponse(response);
+            answer.setQuestion(question);
+            answer.setOption(i % 2 == 0 ? yes : no);
+            answerRepository.save(answer);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[] { "answers", "responses", "options", "questions", "surveys", "purge_jobs", "users" }) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void purgeDeletesInChunksInForeignKeyOrder() throws Exception {
+        PurgeJobResponseDTO job = purgeService.requestSurveyPurge(survey, owner);
+
+        PurgeJob done = awaitStatus(job.getJobId(), PurgeJob.Status.completed);
+
+        // 5 answers + 5 responses + 2 options + 1 question + 1 survey
+        assertThat(done.getRowsDeleted()).isEqualTo(14L);
+        assertThat(done.getProgress()).isEqualTo(100);
+        assertThat(done.getAttempts()).isZero();
+        assertThat(countRows("surveys")).isZero();
+        assertThat(countRows("responses")).isZero();
+        assertThat(countRows("answers")).isZero();
+        assertThat(countRows("options")).isZero();
+        assertThat(countRows("questions")).isZero();
+
+        // chunk-size = 2: responses xóa thành 3 lô (2 + 2 + 1)
+        verify(purgeBatchRepository, times(3)).findResponseIdsBySurvey(eq(survey.getSurveyId()), eq(2));
+        InOrder order = inOrder(purgeBatchRepository);
+        order.verify(purgeBatchRepository, atLeastOnce()).deleteAnswersByResponses(anyCollection());
+        order.verify(purgeBatchRepository, atLeastOnce()).deleteResponses(anyCollection());
+        order.verify(purgeBatchRepository, atLeastOnce()).deleteOptionsBySurvey(eq(survey.getSurveyId()), anyInt());
+        order.verify(purgeBatchRepository, atLeastOnce()).deleteBySurvey(eq("questions"), eq(survey.getSurveyId()), anyInt());
+        order.verify(purgeBatchRepository, atLeastOnce()).deleteBySurvey(eq("ai_embed"), eq(survey.getSurveyId()), anyInt());
+        order.verify(purgeBatchRepository).deleteSurvey(survey.getSurveyId());
+    }
+
+    @Test
+    void failedJobIsRetriedAndCompletesFromPartialState() throws Exception {
+        doThrow(new IllegalStateException("lỗi giả lập")).doCallRealMethod()
+                .when(purgeBatchRepository).deleteBySurvey(eq("questions"), anyLong(), anyInt());
+
+        PurgeJobResponseDTO job = purgeService.requestSurveyPurge(survey, owner);
+
+        PurgeJob failed = awaitStatus(job.getJobId(), PurgeJob.Status.failed);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getNextAttemptAt()).isNotNull();
+        assertThat(failed.getErrorMessage()).contains("lỗi giả lập");
+        // Dừng giữa chừng: responses / options đã xóa, survey vẫn còn (và bị ẩn khỏi JPA)
+        assertThat(countRows("responses")).isZero();
+        assertThat(countRows("options")).isZero();
+        assertThat(countRows("questions")).isEqualTo(1);
+        assertThat(countRows("surveys")).isEqualTo(1);
+        assertThat(surveyRepository.findById(survey.getSurveyId())).isEmpty();
+
+        purgeService.resumeJobs();
+
+        PurgeJob done = awaitStatus(job.getJobId(), PurgeJob.Status.completed);
+        assertThat(done.getAttempts()).isEqualTo(1);
+        assertThat(done.getErrorMessage()).isNull();
+        assertThat(done.getNextAttemptAt()).isNull();
+        assertThat(countRows("questions")).isZero();
+        assertThat(countRows("surveys")).isZero();
+    }
+
+    @Test
+    void jobStopsRetryingAfterMaxAttempts() throws Exception {
+        doThrow(new IllegalStateException("lỗi giả lập")).doThrow(new IllegalStateException("lỗi giả lập"))
+                .doThrow(new IllegalStateException("lỗi giả lập")).doCallRealMethod()
+                .when(purgeBatchRepository).deleteBySurvey(eq("questions"), anyLong(), anyInt());
+
+        Long jobId = purgeService.requestSurveyPurge(survey, owner).getJobId();
+        awaitAttempts(jobId, 1);
+        purgeService.resumeJobs();
+        awaitAttempts(jobId, 2);
+        purgeService.resumeJobs();
+        PurgeJob exhausted = awaitAttempts(jobId, 3);
+        assertThat(exhausted.getNextAttemptAt()).isNull();
+
+        // Hết lượt tự thử lại: resume không chạy lại nữa
+        purgeService.resumeJobs();
+        Thread.sleep(200);
+        assertThat(purgeJobRepository.findById(jobId)).get()
+                .extracting(PurgeJob::getStatus).isEqualTo(PurgeJob.Status.failed);
+
+        // Admin chạy lại thủ công
+        purgeService.retryJob(jobId);
+        PurgeJob done = awaitStatus(jobId, PurgeJob.Status.completed);
+        assertThat(done.getAttempts()).isZero();
+        assertThat(countRows("surveys")).isZero();
+    }
+
+    private Option newOption(Question question, String text) {
+        Option option = new Option();
+        option.setQuestion(question);
+        option.setOptionText(text);
+        return optionRepository.save(option);
+    }
+
+    private long countRows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private PurgeJob awaitStatus(Long jobId, PurgeJob.Status status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            PurgeJob job = purgeJobRepository.findById(jobId).orElseThrow();
+            if (job.getStatus() == status) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Purge job " + jobId + " không đạt trạng thái " + status);
+    }
+
+    private PurgeJob awaitAttempts(Long jobId, int attempts) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            PurgeJob job = purgeJobRepository.findById(jobId).orElseThrow();
+            if (job.getStatus() == PurgeJob.Status.failed && job.getAttempts() == attempts) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Purge job " + jobId + " chưa thất bại lần " + attempts);
+    }
+}
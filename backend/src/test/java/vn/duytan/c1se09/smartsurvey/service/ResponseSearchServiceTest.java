@@ -0,0 +1,104 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.duytan.c1se09.smartsurvey.domain.Option;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerRepository;
+import vn.duytan.c1se09.smartsurvey.repository.OptionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.ResponseSearchRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * So khớp nội dung câu hỏi / lựa chọn trong bộ nhớ phải giữ hành vi của collation utf8mb4_unicode_ci:
+ * không phân biệt hoa thường và dấu tiếng Việt.
+ */
+@ExtendWith(MockitoExtension.class)
+class ResponseSearchServiceTest {
+
+    @Mock
+    private ResponseSearchRepository responseSearchRepository;
+
+    @Mock
+    private AnswerRepository answerRepository;
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @Mock
+    private OptionRepository optionRepository;
+
+    @InjectMocks
+    private ResponseSearchService responseSearchService;
+
+    private final Survey survey = new Survey();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(responseSearchService, "ngramTokenSize", 2);
+        survey.setSurveyId(1L);
+
+        Question question = new Question();
+        question.setQuestionId(10L);
+        question.setQuestionText("Câu hỏi về Đánh giá dịch vụ");
+        Question other = new Question();
+        other.setQuestionId(11L);
+        other.setQuestionText("Góp ý khác");
+        when(questionRepository.findBySurvey(survey)).thenReturn(List.of(question, other));
+
+        Option option = new Option();
+        option.setOptionId(20L);
+        option.setOptionText("Rất hài lòng");
+        Option otherOption = new Option();
+        otherOption.setOptionId(21L);
+        otherOption.setOptionText("Không ý kiến");
+        when(optionRepository.findBySurveyOrderByCreatedAt(survey)).thenReturn(List.of(option, otherOption));
+    }
+
+    @Test
+    void unaccentedSearchMatchesAccentedQuestionAndOptionText() {
+        ResponseSearchService.AnswerSearch search = responseSearchService.prepare(survey, "cau hoi");
+
+        assertThat(search.text()).isEqualTo("cau hoi");
+        assertThat(search.questionIds()).containsExactly(10L);
+
+        assertThat(responseSearchService.prepare(survey, "HAI LONG").optionIds()).containsExactly(20L);
+        assertThat(responseSearchService.prepare(survey, "danh gia").questionIds()).containsExactly(10L);
+    }
+
+    @Test
+    void accentedSearchMatchesRegardlessOfCaseAndAccents() {
+        assertThat(responseSearchService.prepare(survey, "CÂU HỎI").questionIds()).containsExactly(10L);
+        assertThat(responseSearchService.prepare(survey, "đánh giá").questionIds()).containsExactly(10L);
+        assertThat(responseSearchService.prepare(survey, "hài lòng").optionIds()).containsExactly(20L);
+    }
+
+    @Test
+    void noMatchFallsBackToPlaceholderIds() {
+        ResponseSearchService.AnswerSearch search = responseSearchService.prepare(survey, "thanh toán");
+
+        assertThat(search.questionIds()).containsExactly(-1L);
+        assertThat(search.optionIds()).containsExactly(-1L);
+    }
+
+    @Test
+    void decomposedInputMatchesPrecomposedText() {
+        // "hỏi" / "hài" gõ ở dạng tách dấu (NFD), nội dung lưu ở dạng dựng sẵn (NFC)
+        ResponseSearchService.AnswerSearch search = responseSearchService.prepare(survey, "ho\u0309i");
+
+        assertThat(search.questionIds()).containsExactly(10L);
+        assertThat(responseSearchService.prepare(survey, "ha\u0300i").optionIds()).containsExactly(20L);
+        assertThat(ResponseSearchService.fold("Câu hỏi ĐẦU tiên")).isEqualTo("cau hoi dau tien");
+    }
+}
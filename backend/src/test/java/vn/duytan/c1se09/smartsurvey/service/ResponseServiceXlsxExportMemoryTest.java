@@ -0,0 +1,271 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import jakarta.persistence.EntityManager;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import vn.duytan.c1se09.smartsurvey.domain.Answer;
+import vn.duytan.c1se09.smartsurvey.domain.Option;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Response;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.domain.request.response.ResponseFilterRequestDTO;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerRepository;
+import vn.duytan.c1se09.smartsurvey.repository.OptionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đo bộ nhớ và thời gian của export XLSX dạng streaming (SXSSF) so với cách cũ dựng toàn bộ XSSFWorkbook trong heap.
+ * Response / answers được sinh theo chunk khi được đọc (mock stubOnly, không giữ lại) nên heap đo được
+ * chỉ là phần workbook giữ lại. Heap được đo sau GC tại lần ghi đầu tiên ra output: lúc đó workbook đã đủ
+ * mọi dòng, là thời điểm lượng bộ nhớ sống của export lớn nhất.
+ */
+@ExtendWith(MockitoExtension.class)
+class ResponseServiceXlsxExportMemoryTest {
+
+    private static final int RESPONSES = 10_000;
+    private static final int CHUNK_SIZE = 500;
+    private static final long MB = 1024L * 1024L;
+
+    /**
+     * Bộ nhớ tối đa workbook streaming được giữ lại, không phụ thuộc số response
+     */
+    private static final long STREAMED_RETAINED_LIMIT = 32 * MB;
+
+    @Mock
+    private SurveyRepository surveyRepository;
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @Mock
+    private OptionRepository optionRepository;
+
+    @Mock(stubOnly = true)
+    private AnswerRepository answerRepository;
+
+    @Mock(stubOnly = true)
+    private ResponseKeysetReader responseKeysetReader;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private SurveyPermissionService surveyPermissionService;
+
+    @Mock(stubOnly = true)
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private ResponseService responseService;
+
+    private final LocalDateTime startedAt = LocalDateTime.of(2025, 1, 1, 8, 0);
+    private Survey survey;
+    private final List<Question> questions = new ArrayList<>();
+    private final List<Option> options = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        User owner = new User();
+        owner.setUserId(1L);
+
+        survey = new Survey();
+        survey.setSurveyId(1L);
+        survey.setUser(owner);
+        survey.setTitle("Khảo sát mức độ hài lòng");
+        survey.setStatus(SurveyStatusEnum.published);
+
+        // 12 câu hỏi: 6 câu mở, 3 câu một lựa chọn (4 option), 3 câu rating
+        long optionId = 1;
+        for (int i = 0; i < 12; i++) {
+            Question question = new Question();
+            question.setQuestionId((long) i + 1);
+            question.setSurvey(survey);
+            question.setDisplayOrder(i);
+            question.setIsRequired(i % 2 == 0);
+            question.setQuestionText("Câu hỏi số " + (i + 1) + " về trải nghiệm sử dụng sản phẩm");
+            question.setQuestionType(i < 6 ? QuestionTypeEnum.open_ended
+                    : i < 9 ? QuestionTypeEnum.single_choice : QuestionTypeEnum.rating);
+            questions.add(question);
+            if (question.getQuestionType() == QuestionTypeEnum.single_choice) {
+                for (int k = 0; k < 4; k++) {
+                    Option option = new Option();
+                    option.setOptionId(optionId++);
+                    option.setQuestion(question);
+                    option.setOptionText("Lựa chọn " + (k + 1));
+                    options.add(option);
+                }
+            }
+        }
+
+        when(surveyRepository.findById(1L)).thenReturn(Optional.of(survey));
+        when(surveyPermissionService.canViewResults(any(), any())).thenReturn(true);
+        when(questionRepository.findBySurveyOrderByDisplayOrderAsc(any())).thenReturn(questions);
+        when(optionRepository.findBySurveyOrderByCreatedAt(any())).thenReturn(options);
+        when(responseKeysetReader.readAfter(any(), any(), anyBoolean(), anyInt())).thenAnswer(invocation -> {
+            ResponseKeysetReader.Position after = invocation.getArgument(1);
+            int limit = invocation.getArgument(3);
+            return responseChunk(after != null ? after.responseId() + 1 : 1, limit);
+        });
+        when(answerRepository.findByResponseIdsWithQuestionAndOption(anyCollection()))
+                .thenAnswer(invocation -> answersFor(invocation.getArgument(0)));
+    }
+
+    @Test
+    void streamedExportKeepsHeapBoundedComparedToInMemoryWorkbook() throws Exception {
+        // Chạy 1 lượt làm nóng JIT / class loading, không tính
+        responseService.exportResponses(1L, new ResponseFilterRequestDTO(), "xlsx", true, OutputStream.nullOutputStream(), null);
+
+        long baseline = usedHeapAfterGc();
+        HeapProbeOutputStream streamedOut = new HeapProbeOutputStream();
+        long streamedStart = System.nanoTime();
+        responseService.exportResponses(1L, new ResponseFilterRequestDTO(), "xlsx", true, streamedOut, null);
+        long streamedMillis = (System.nanoTime() - streamedStart - streamedOut.probeNanos) / 1_000_000L;
+        long streamedRetained = streamedOut.retainedAtFirstWrite - baseline;
+
+        baseline = usedHeapAfterGc();
+        HeapProbeOutputStream inMemoryOut = new HeapProbeOutputStream();
+        long inMemoryStart = System.nanoTime();
+        writeInMemoryWorkbook(inMemoryOut);
+        long inMemoryMillis = (System.nanoTime() - inMemoryStart - inMemoryOut.probeNanos) / 1_000_000L;
+        long inMemoryRetained = inMemoryOut.retainedAtFirstWrite - baseline;
+
+        System.out.printf("XLSX export %d responses x %d questions: SXSSF %d MB retained, %d ms, %d KB; "
+                + "XSSF in-memory %d MB retained, %d ms, %d KB%n",
+                RESPONSES, questions.size(), streamedRetained / MB, streamedMillis, streamedOut.bytes / 1024,
+                inMemoryRetained / MB, inMemoryMillis, inMemoryOut.bytes / 1024);
+
+        assertThat(streamedOut.bytes).isPositive();
+        assertThat(streamedRetained).isLessThan(STREAMED_RETAINED_LIMIT);
+        assertThat(streamedRetained).isLessThan(inMemoryRetained / 4);
+    }
+
+    /**
+     * Cách cũ: toàn bộ dòng của sheet danh sách phản hồi nằm trong XSSFWorkbook cho tới khi ghi ra output
+     */
+    private void writeInMemoryWorkbook(OutputStream out) throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Danh sách phản hồi");
+            int rowIdx = 1;
+            for (int start = 1; start <= RESPONSES; start += CHUNK_SIZE) {
+                List<Response> chunk = responseChunk(start, CHUNK_SIZE);
+                List<Answer> answers = answersFor(chunk.stream().map(Response::getResponseId).toList());
+                for (int r = 0; r < chunk.size(); r++) {
+                    Response response = chunk.get(r);
+                    Row row = sheet.createRow(rowIdx);
+                    row.createCell(0).setCellValue(rowIdx++);
+                    row.createCell(1).setCellValue(response.getResponseId());
+                    row.createCell(2).setCellValue(response.getSubmittedAt().toString());
+                    row.createCell(3).setCellValue(response.getDurationSeconds());
+                    row.createCell(4).setCellValue(response.getCompletionStatus().getDescription());
+                    for (int q = 0; q < questions.size(); q++) {
+                        Answer answer = answers.get(r * questions.size() + q);
+                        row.createCell(5 + q).setCellValue(answer.getOption() != null
+                                ? answer.getOption().getOptionText() : answer.getAnswerText());
+                    }
+                }
+            }
+            wb.write(out);
+        }
+    }
+
+    private List<Response> responseChunk(long firstId, int limit) {
+        List<Response> chunk = new ArrayList<>();
+        for (long id = firstId; id <= RESPONSES && chunk.size() < limit; id++) {
+            Response response = new Response();
+            response.setResponseId(id);
+            response.setSurvey(survey);
+            response.setSubmittedAt(startedAt.plusSeconds(id));
+            response.setDurationSeconds(60 + (int) (id % 240));
+            response.setCompletionStatus(id % 5 == 0 ? CompletionStatusEnum.partial : CompletionStatusEnum.completed);
+            chunk.add(response);
+        }
+        return chunk;
+    }
+
+    private List<Answer> answersFor(Collection<Long> responseIds) {
+        List<Answer> answers = new ArrayList<>();
+        for (Long responseId : responseIds) {
+            Response response = new Response();
+            response.setResponseId(responseId);
+            for (Question question : questions) {
+                Answer answer = new Answer();
+                answer.setResponse(response);
+                answer.setQuestion(question);
+                switch (question.getQuestionType()) {
+                    case single_choice -> answer.setOption(
+                            options.get((int) ((question.getQuestionId() - 7) * 4 + responseId % 4)));
+                    case rating -> answer.setAnswerText(String.valueOf(1 + responseId % 5));
+                    default -> answer.setAnswerText("Phản hồi " + responseId + " cho câu " + question.getQuestionId()
+                            + ": giao diện dễ dùng nhưng cần thêm bộ lọc");
+                }
+                answers.add(answer);
+            }
+        }
+        return answers;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Đếm số byte được ghi (không giữ nội dung) và đo heap sau GC ở lần ghi đầu tiên;
+     * thời gian GC của lần đo được trừ khỏi thời gian export
+     */
+    private static final class HeapProbeOutputStream extends OutputStream {
+        private long retainedAtFirstWrite = -1;
+        private long probeNanos;
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            probe();
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            probe();
+            bytes += len;
+        }
+
+        private void probe() {
+            if (retainedAtFirstWrite < 0) {
+                long start = System.nanoTime();
+                retainedAtFirstWrite = usedHeapAfterGc();
+                probeNanos = System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vn.duytan.c1se09.smartsurvey.domain.Answer;
+import vn.duytan.c1se09.smartsurvey.domain.Option;
+import vn.duytan.c1se09.smartsurvey.domain.QuestionStatsRollup;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Response;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyOverviewResponseDTO;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiAnalysisCache;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiFanoutExecutor;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiServiceClient;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra getSurveyOverview dùng số query cố định, không tăng theo số response, cả khi rollup đã dựng
+ * lẫn khi rollup chưa có (tính tạm bằng aggregate)
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:overview;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,USER",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Không dựng lại rollup trên worker nền: thống kê query của Hibernate dùng chung cho mọi thread
+        "app.stats-rollup.rebuild-on-read=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ StatisticsService.class, SurveyStatsRollupService.class, AnswerAnalyticsService.class,
+        PdfReportResources.class })
+class StatisticsServiceOverviewQueryTest {
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private SurveyStatsRollupService surveyStatsRollupService;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private AuthService authService;
+
+    @MockitoBean
+    private SurveyPermissionService surveyPermissionService;
+
+    @MockitoBean
+    private SurveyViewSketchService surveyViewSketchService;
+
+    @MockitoBean
+    private AiServiceClient aiServiceClient;
+
+    @MockitoBean
+    private AiFanoutExecutor aiFanoutExecutor;
+
+    @MockitoBean
+    private AiAnalysisCache aiAnalysisCache;
+
+    private Survey survey;
+    private Question requiredQuestion;
+    private Question optionalQuestion;
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User();
+        owner.setFullName("Owner");
+        owner.setEmail("owner@test.local");
+        owner.setPasswordHash("x");
+        em.persist(owner);
+
+        survey = new Survey();
+        survey.setUser(owner);
+        survey.setTitle("Overview");
+        survey.setStatus(SurveyStatusEnum.published);
+        em.persist(survey);
+
+        requiredQuestion = newQuestion("Bạn bao nhiêu tuổi?", true);
+        optionalQuestion = newQuestion("Góp ý thêm", false);
+
+        when(authService.getCurrentUser()).thenReturn(owner);
+        when(surveyPermissionService.canViewResults(any(), any())).thenReturn(true);
+    }
+
+    @Test
+    void overviewQueryCountDoesNotGrowWithResponses() throws Exception {
+        addResponses(5);
+        long smallCount = countOverviewStatements();
+
+        addResponses(60);
+        long largeCount = countOverviewStatements();
+
+        assertThat(largeCount).isEqualTo(smallCount);
+    }
+
+    @Test
+    void coldRollupOverviewQueryCountDoesNotGrowWithResponses() throws Exception {
+        addResponses(5);
+        long smallCount = countColdOverviewStatements();
+
+        addResponses(60);
+        long largeCount = countColdOverviewStatements();
+
+        assertThat(largeCount).isEqualTo(smallCount);
+    }
+
+    @Test
+    void coldRollupSnapshotMatchesRebuiltRollup() {
+        Question ratingQuestion = newQuestion("Mức độ hài lòng", false, QuestionTypeEnum.rating);
+        Question booleanQuestion = newQuestion("Bạn có quay lại?", false, QuestionTypeEnum.boolean_);
+        Option yes = newOption(booleanQuestion, "Có");
+        Option no = newOption(booleanQuestion, "Không");
+        Question textBooleanQuestion = newQuestion("Đúng hay sai?", false, QuestionTypeEnum.boolean_);
+        String[] ratings = { "1", "5", " 4 ", "5", "03", "6", "tốt" };
+        String[] booleans = { "true", "Sai", "không", "yes", "có thể" };
+        for (int i = 0; i < 14; i++) {
+            Response response = new Response();
+            response.setSurvey(survey);
+            response.setDurationSeconds(i % 4 == 0 ? null : 30 + i);
+            response.setCompletionStatus(CompletionStatusEnum.completed);
+            em.persist(response);
+            em.persist(newAnswer(response, ratingQuestion, ratings[i % ratings.length]));
+            Answer choice = newAnswer(response, booleanQuestion, null);
+            choice.setOption(i % 3 == 0 ? no : yes);
+            em.persist(choice);
+            if (i % 2 == 0) {
+                em.persist(newAnswer(response, textBooleanQuestion, booleans[i % booleans.length]));
+            }
+        }
+        em.flush();
+        em.clear();
+
+        SurveyStatsRollupService.RollupSnapshot cold = surveyStatsRollupService.getSnapshot(survey);
+        surveyStatsRollupService.rebuild(survey);
+        em.flush();
+        em.clear();
+        SurveyStatsRollupService.RollupSnapshot rebuilt = surveyStatsRollupService.getSnapshot(survey);
+
+        assertThat(rebuilt.getSurvey().getInitialized()).isTrue();
+        assertThat(cold.getSurvey().getResponseCount()).isEqualTo(rebuilt.getSurvey().getResponseCount());
+        assertThat(cold.getSurvey().getDurationSum()).isEqualTo(rebuilt.getSurvey().getDurationSum());
+        assertThat(cold.getSurvey().getDurationCount()).isEqualTo(rebuilt.getSurvey().getDurationCount());
+        for (Question question : List.of(ratingQuestion, booleanQuestion, textBooleanQuestion)) {
+            assertThat(counters(cold.question(question.getQuestionId())))
+                    .isEqualTo(counters(rebuilt.question(question.getQuestionId())));
+        }
+        assertThat(cold.optionCount(yes.getOptionId())).isEqualTo(rebuilt.optionCount(yes.getOptionId())).isEqualTo(9);
+        assertThat(cold.optionCount(no.getOptionId())).isEqualTo(rebuilt.optionCount(no.getOptionId())).isEqualTo(5);
+        assertThat(cold.question(ratingQuestion.getQuestionId()).getRatingCount()).isEqualTo(10);
+    }
+
+    @Test
+    void overviewTalliesCompletedPartialAndDropped() throws Exception {
+        addResponses(9);
+        em.flush();
+        em.clear();
+
+        SurveyOverviewResponseDTO overview = statisticsService.getSurveyOverview(survey.getSurveyId());
+
+        assertThat(overview.getTotalResponses()).isEqualTo(9);
+        assertThat(overview.getCompletionStats().getCompleted()).isEqualTo(3);
+        assertThat(overview.getCompletionStats().getPartial()).isEqualTo(3);
+        assertThat(overview.getCompletionStats().getDropped()).isEqualTo(3);
+        assertThat(overview.getLastResponseAt()).isNotNull();
+    }
+
+    private long countOverviewStatements() throws Exception {
+        em.flush();
+        // Dữ liệu test được persist trực tiếp (không qua submitResponse) nên dựng lại rollup trước khi đo
+        surveyStatsRollupService.rebuild(survey);
+        em.flush();
+        em.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statisticsService.getSurveyOverview(survey.getSurveyId());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long countColdOverviewStatements() throws Exception {
+        em.flush();
+        em.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statisticsService.getSurveyOverview(survey.getSurveyId());
+        // Không nạp entity Answer nào trên đường tính tạm
+        assertThat(statistics.getEntityStatistics(Answer.class.getName()).getLoadCount()).isZero();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<Long> counters(QuestionStatsRollup row) {
+        return List.of(row.getResponseCount(), row.getAnswerCount(), row.getRatingCount(), row.getRatingSum(),
+                row.getRating1Count(), row.getRating2Count(), row.getRating3Count(), row.getRating4Count(),
+                row.getRating5Count(), row.getTrueCount(), row.getFalseCount());
+    }
+
+    /**
+     * Tạo response theo vòng: completed (trả lời câu required), partial (chỉ câu optional), dropped (không answer)
+     */
+    private void addResponses(int count) {
+        for (int i = 0; i < count; i++) {
+            Response response = new Response();
+            response.setSurvey(survey);
+            response.setDurationSeconds(60 + i);
+            // Trạng thái hoàn thành được lưu sẵn như khi submitResponse
+            response.setAnsweredRequiredCount(i % 3 == 0 ? 1 : 0);
+            response.setCompletionStatus(i % 3 == 0 ? CompletionStatusEnum.completed
+                    : i % 3 == 1 ? CompletionStatusEnum.partial : CompletionStatusEnum.dropped);
+            em.persist(response);
+
+            switch (i % 3) {
+                case 0 -> em.persist(newAnswer(response, requiredQuestion, String.valueOf(18 + i % 40)));
+                case 1 -> em.persist(newAnswer(response, optionalQuestion, "ok"));
+                default -> {
+                }
+            }
+        }
+    }
+
+    private Question newQuestion(String text, boolean required) {
+        return newQuestion(text, required, QuestionTypeEnum.open_ended);
+    }
+
+    private Question newQuestion(String text, boolean required, QuestionTypeEnum type) {
+        Question question = new Question();
+        question.setSurvey(survey);
+        question.setQuestionText(text);
+        question.setQuestionType(type);
+        question.setIsRequired(required);
+        return em.persist(question);
+    }
+
+    private Option newOption(Question question, String text) {
+        Option option = new Option();
+        option.setQuestion(question);
+        option.setOptionText(text);
+        return em.persist(option);
+    }
+
+    private Answer newAnswer(Response response, Question question, String text) {
+        Answer answer = new Answer();
+        answer.setResponse(response);
+        answer.setQuestion(question);
+        answer.setAnswerText(text);
+        return answer;
+    }
+}
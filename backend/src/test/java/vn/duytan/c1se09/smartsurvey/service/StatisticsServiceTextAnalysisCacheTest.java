@@ -0,0 +1,197 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import vn.duytan.c1se09.smartsurvey.domain.Answer;
+import vn.duytan.c1se09.smartsurvey.domain.Question;
+import vn.duytan.c1se09.smartsurvey.domain.Response;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.User;
+import vn.duytan.c1se09.smartsurvey.domain.response.statistics.SurveyTextAnalysisResponseDTO;
+import vn.duytan.c1se09.smartsurvey.repository.AnswerRepository;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.ResponseRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.repository.UserRepository;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiAnalysisCache;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiEndpoint;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiFanoutExecutor;
+import vn.duytan.c1se09.smartsurvey.service.ai.AiServiceClient;
+import vn.duytan.c1se09.smartsurvey.util.constant.CompletionStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.QuestionTypeEnum;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra phân tích văn bản của survey (keywords / themes / summary) đi qua AiAnalysisCache:
+ * gọi lại khi không có câu trả lời mới thì không gọi dịch vụ AI.
+ * Dữ liệu được commit (không bọc transaction test) để các thread của AiFanoutExecutor nhìn thấy.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:textanalysis;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE,USER",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.stats-rollup.rebuild-on-read=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ StatisticsService.class, SurveyStatsRollupService.class, AnswerAnalyticsService.class,
+        PdfReportResources.class, AiAnalysisCache.class, AiFanoutExecutor.class, JacksonAutoConfiguration.class })
+class StatisticsServiceTextAnalysisCacheTest {
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SurveyRepository surveyRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private ResponseRepository responseRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @MockitoBean
+    private AuthService authService;
+
+    @MockitoBean
+    private SurveyPermissionService surveyPermissionService;
+
+    @MockitoBean
+    private SurveyViewSketchService surveyViewSketchService;
+
+    @MockitoBean
+    private AiServiceClient aiServiceClient;
+
+    private Survey survey;
+    private Question question;
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User();
+        owner.setFullName("Owner");
+        owner.setEmail("text-owner@test.local");
+        owner.setPasswordHash("x");
+        owner = userRepository.save(owner);
+
+        survey = new Survey();
+        survey.setUser(owner);
+        survey.setTitle("Text analysis");
+        survey.setStatus(SurveyStatusEnum.published);
+        survey = surveyRepository.save(survey);
+
+        question = new Question();
+        question.setSurvey(survey);
+        question.setQuestionText("Góp ý của bạn");
+        question.setQuestionType(QuestionTypeEnum.open_ended);
+        question.setIsRequired(false);
+        question = questionRepository.save(question);
+
+        addAnswer("Giao diện dễ dùng");
+        addAnswer("Cần thêm xuất báo cáo");
+
+        when(authService.getCurrentUser()).thenReturn(owner);
+        when(aiServiceClient.exchange(eq(AiEndpoint.ANALYSIS), anyString(), eq(HttpMethod.POST), isNull(),
+                any(ParameterizedTypeReference.class))).thenAnswer(invocation -> {
+                    String path = invocation.getArgument(1);
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("ok", true);
+                    if (path.startsWith("/ai/keywords/")) {
+                        body.put("keywords", List.of(Map.of("keyword", "báo cáo", "score", 0.42)));
+                    } else if (path.startsWith("/ai/themes/")) {
+                        body.put("themes", List.of());
+                    } else {
+                        body.put("summary", "Người dùng muốn thêm báo cáo");
+                    }
+                    return ResponseEntity.ok(body);
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        answerRepository.deleteAll();
+        responseRepository.deleteAll();
+        questionRepository.deleteAll();
+        surveyRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedAnalysisWithoutNewAnswersMakesNoAiCalls() throws Exception {
+        SurveyTextAnalysisResponseDTO first = statisticsService.getSurveyTextAnalysis(survey.getSurveyId());
+        verifyAnalysisCalls(3);
+        clearInvocations(aiServiceClient);
+
+        SurveyTextAnalysisResponseDTO second = statisticsService.getSurveyTextAnalysis(survey.getSurveyId());
+
+        verifyNoInteractions(aiServiceClient);
+        assertThat(second.getOpenEndedSummary().getKeyInsights())
+                .isEqualTo(first.getOpenEndedSummary().getKeyInsights())
+                .isEqualTo("Người dùng muốn thêm báo cáo");
+        assertThat(second.getOpenEndedSummary().getCommonKeywords()).hasSize(1);
+    }
+
+    @Test
+    void newAnswerInvalidatesCachedAnalysis() throws Exception {
+        statisticsService.getSurveyTextAnalysis(survey.getSurveyId());
+        clearInvocations(aiServiceClient);
+
+        addAnswer("Tốc độ tải trang chậm");
+        SurveyTextAnalysisResponseDTO analysis = statisticsService.getSurveyTextAnalysis(survey.getSurveyId());
+
+        verifyAnalysisCalls(3);
+        assertThat(analysis.getOpenEndedSummary().getTotalAnswers()).isEqualTo(3);
+    }
+
+    private void verifyAnalysisCalls(int count) {
+        verify(aiServiceClient, times(count)).exchange(eq(AiEndpoint.ANALYSIS), anyString(), eq(HttpMethod.POST),
+                isNull(), any(ParameterizedTypeReference.class));
+    }
+
+    private void addAnswer(String text) {
+        Response response = new Response();
+        response.setSurvey(survey);
+        response.setCompletionStatus(CompletionStatusEnum.completed);
+        response = responseRepository.save(response);
+
+        Answer answer = new Answer();
+        answer.setResponse(response);
+        answer.setQuestion(question);
+        answer.setAnswerText(text);
+        answerRepository.save(answer);
+    }
+}
@@ -0,0 +1,129 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.repository.OptionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.QuestionRepository;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyRepository;
+import vn.duytan.c1se09.smartsurvey.util.constant.SurveyStatusEnum;
+import vn.duytan.c1se09.smartsurvey.util.error.IdInvalidException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Trạng thái survey trong cache định nghĩa: không truy vấn DB trong thời hạn status-ttl-seconds,
+ * quá hạn thì chỉ đọc lại cột status và nạp lại định nghĩa khi trạng thái đã đổi trên instance khác
+ */
+@ExtendWith(MockitoExtension.class)
+class SurveyDefinitionCacheTest {
+
+    private static final Long SURVEY_ID = 7L;
+
+    @Mock
+    private SurveyRepository surveyRepository;
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @Mock
+    private OptionRepository optionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private SurveyDefinitionCache surveyDefinitionCache;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(surveyDefinitionCache, "maxEntries", 10);
+        ReflectionTestUtils.setField(surveyDefinitionCache, "ttlMinutes", 10L);
+        ReflectionTestUtils.setField(surveyDefinitionCache, "statusTtlSeconds", 5L);
+        when(questionRepository.findBySurveyOrderByDisplayOrderAsc(any())).thenReturn(List.of());
+        when(optionRepository.findBySurveyOrderByCreatedAt(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void freshStatusIsServedWithoutQueries() throws Exception {
+        when(surveyRepository.findById(SURVEY_ID)).thenReturn(Optional.of(survey(SurveyStatusEnum.published)));
+
+        SurveyDefinitionCache.SurveyDefinition first = surveyDefinitionCache.get(SURVEY_ID);
+        for (int i = 0; i < 100; i++) {
+            assertThat(surveyDefinitionCache.get(SURVEY_ID)).isSameAs(first);
+        }
+
+        verify(surveyRepository, times(1)).findById(SURVEY_ID);
+        verify(surveyRepository, never()).findStatusById(any());
+    }
+
+    @Test
+    void staleStatusIsConfirmedOnceWithSingleColumnQuery() throws Exception {
+        when(surveyRepository.findById(SURVEY_ID)).thenReturn(Optional.of(survey(SurveyStatusEnum.published)));
+        when(surveyRepository.findStatusById(SURVEY_ID)).thenReturn(Optional.of(SurveyStatusEnum.published));
+
+        SurveyDefinitionCache.SurveyDefinition first = surveyDefinitionCache.get(SURVEY_ID);
+        expireStatus(first);
+        for (int i = 0; i < 100; i++) {
+            assertThat(surveyDefinitionCache.get(SURVEY_ID)).isSameAs(first);
+        }
+
+        verify(surveyRepository, times(1)).findStatusById(SURVEY_ID);
+        verify(surveyRepository, times(1)).findById(SURVEY_ID);
+    }
+
+    @Test
+    void statusChangedOnAnotherInstanceReloadsDefinition() throws Exception {
+        when(surveyRepository.findById(SURVEY_ID)).thenReturn(
+                Optional.of(survey(SurveyStatusEnum.published)), Optional.of(survey(SurveyStatusEnum.archived)));
+        when(surveyRepository.findStatusById(SURVEY_ID)).thenReturn(Optional.of(SurveyStatusEnum.archived));
+
+        SurveyDefinitionCache.SurveyDefinition first = surveyDefinitionCache.get(SURVEY_ID);
+        expireStatus(first);
+        SurveyDefinitionCache.SurveyDefinition reloaded = surveyDefinitionCache.get(SURVEY_ID);
+
+        assertThat(reloaded).isNotSameAs(first);
+        assertThat(reloaded.getSurvey().getStatus()).isEqualTo(SurveyStatusEnum.archived);
+        assertThat(surveyDefinitionCache.get(SURVEY_ID)).isSameAs(reloaded);
+    }
+
+    @Test
+    void surveyDeletedOnAnotherInstanceIsNotFound() throws Exception {
+        when(surveyRepository.findById(SURVEY_ID)).thenReturn(
+                Optional.of(survey(SurveyStatusEnum.published)), Optional.empty());
+        when(surveyRepository.findStatusById(SURVEY_ID)).thenReturn(Optional.empty());
+
+        expireStatus(surveyDefinitionCache.get(SURVEY_ID));
+
+        assertThatThrownBy(() -> surveyDefinitionCache.get(SURVEY_ID))
+                .isInstanceOf(IdInvalidException.class)
+                .hasMessage("Không tìm thấy khảo sát");
+    }
+
+    private static void expireStatus(SurveyDefinitionCache.SurveyDefinition definition) {
+        ReflectionTestUtils.setField(definition, "statusCheckedAtMillis", System.currentTimeMillis() - 6000);
+    }
+
+    private static Survey survey(SurveyStatusEnum status) {
+        Survey survey = new Survey();
+        survey.setSurveyId(SURVEY_ID);
+        survey.setTitle("Khảo sát");
+        survey.setStatus(status);
+        return survey;
+    }
+}
@@ -0,0 +1,125 @@
+package vn.duytan.c1se09.smartsurvey.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import vn.duytan.c1se09.smartsurvey.domain.Survey;
+import vn.duytan.c1se09.smartsurvey.domain.SurveyView;
+import vn.duytan.c1se09.smartsurvey.repository.SurveyViewBatchRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Ghi lượt xem và cập nhật tổng hợp theo ngày (survey_view_daily) phải cùng thành công hoặc cùng rollback,
+ * để view_count không lệch với survey_views khi cập nhật sketch lỗi
+ */
+@ExtendWith(MockitoExtension.class)
+class SurveyViewBufferTest {
+
+    @Mock
+    private SurveyViewBatchRepository surveyViewBatchRepository;
+
+    @Mock
+    private SurveyViewSketchService surveyViewSketchService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SurveyViewBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new SurveyViewBuffer(surveyViewBatchRepository, surveyViewSketchService, transactionManager,
+                meterRegistry);
+        ReflectionTestUtils.setField(buffer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(buffer, "batchSize", 10);
+        buffer.start();
+    }
+
+    @Test
+    void insertAndSketchUpdateCommitTogether() {
+        buffer.offer(view("1.1.1.1"));
+        buffer.offer(view("2.2.2.2"));
+
+        buffer.stop();
+
+        InOrder order = inOrder(transactionManager, surveyViewBatchRepository, surveyViewSketchService);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(surveyViewBatchRepository).insertAll(anyList());
+        order.verify(surveyViewSketchService).record(anyList());
+        order.verify(transactionManager).commit(any());
+        assertThat(counter("survey.views.flushed")).isEqualTo(2);
+    }
+
+    @Test
+    void failedSketchUpdateRollsBackInsertAndRetriesPerView() {
+        SurveyView first = view("1.1.1.1");
+        SurveyView second = view("2.2.2.2");
+        // Lô lỗi khi cập nhật tổng hợp; ghi lại từng view thì thành công
+        doThrow(new IllegalStateException("Deadlock found when trying to get lock"))
+                .doNothing()
+                .when(surveyViewSketchService).record(anyList());
+        buffer.offer(first);
+        buffer.offer(second);
+
+        buffer.stop();
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(2)).commit(any());
+        verify(surveyViewBatchRepository).insertAll(List.of(first));
+        verify(surveyViewBatchRepository).insertAll(List.of(second));
+        verify(surveyViewSketchService).record(List.of(first));
+        verify(surveyViewSketchService).record(List.of(second));
+        assertThat(counter("survey.views.flushed")).isEqualTo(2);
+        assertThat(meterRegistry.get("survey.views.dropped").tag("reason", "write_failed").counter().count())
+                .isZero();
+    }
+
+    @Test
+    void viewIsNotKeptWhenItsSketchUpdateKeepsFailing() {
+        doThrow(new IllegalStateException("Lock wait timeout exceeded"))
+                .when(surveyViewSketchService).record(anyList());
+        buffer.offer(view("1.1.1.1"));
+
+        buffer.stop();
+
+        // Lô và lần ghi lại đều rollback: không có view nào nằm trong survey_views mà thiếu trong view_count
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertThat(counter("survey.views.flushed")).isZero();
+        assertThat(meterRegistry.get("survey.views.dropped").tag("reason", "write_failed").counter().count())
+                .isEqualTo(1);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private static SurveyView view(String ipAddress) {
+        Survey survey = new Survey();
+        survey.setSurveyId(1L);
+        SurveyView view = new SurveyView();
+        view.setSurvey(survey);
+        view.setIpAddress(ipAddress);
+        view.setViewedAt(LocalDateTime.of(2025, 1, 1, 9, 0));
+        return view;
+    }
+}
@@ -0,0 +1,142 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra AiFanoutExecutor với upstream treo: read timeout của endpoint (10 giây) dài hơn hạn chót của lượt gọi,
+ * nhưng mỗi lời gọi bị giới hạn theo hạn chót nên permit bulkhead được trả lại đúng hạn
+ */
+class AiFanoutExecutorTest {
+
+    private static final long FANOUT_TIMEOUT_MS = 400;
+    private static final int MAX_CONCURRENT = 3;
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private AiServiceClient client;
+    private AiFanoutExecutor fanoutExecutor;
+    private final AtomicInteger stalledHits = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/health", exchange -> respond(exchange, "ok"));
+        server.createContext("/stalled", exchange -> {
+            stalledHits.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "late");
+        });
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        meterRegistry = new SimpleMeterRegistry();
+        client = new AiServiceClient(
+                new AiServiceClient.PoolSettings(10, 10),
+                new AiServiceClient.BreakerSettings(10, Duration.ofMinutes(1)),
+                Map.of(AiEndpoint.ANALYSIS, new AiServiceClient.EndpointSettings(
+                        baseUrl, Duration.ofSeconds(1), Duration.ofSeconds(10), MAX_CONCURRENT)),
+                meterRegistry);
+
+        fanoutExecutor = new AiFanoutExecutor();
+        ReflectionTestUtils.setField(fanoutExecutor, "fanoutThreads", MAX_CONCURRENT);
+        ReflectionTestUtils.setField(fanoutExecutor, "fanoutTimeoutMs", FANOUT_TIMEOUT_MS);
+        fanoutExecutor.init();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        release.countDown();
+        fanoutExecutor.shutdown();
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void stalledUpstreamReleasesBulkheadPermitsByTheDeadline() throws Exception {
+        Map<String, Supplier<String>> calls = new LinkedHashMap<>();
+        for (String kind : new String[] { "keywords", "themes", "summary" }) {
+            calls.put(kind, () -> client.getForEntity(AiEndpoint.ANALYSIS, "/stalled", String.class).getBody());
+        }
+
+        long start = System.nanoTime();
+        AiFanoutExecutor.Results<String, String> results = fanoutExecutor.invokeAll(calls);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(results.allFailed()).isTrue();
+        assertThat(results.errors()).containsOnlyKeys("keywords", "themes", "summary");
+        assertThat(stalledHits.get()).isEqualTo(MAX_CONCURRENT);
+        assertThat(elapsedMs).isLessThan(FANOUT_TIMEOUT_MS + 1000);
+
+        // Read timeout của từng lời gọi kết thúc cùng lúc với hạn chót, chỉ chờ thêm độ trễ của thread
+        long grace = System.currentTimeMillis() + 500;
+        while (availablePermits() < MAX_CONCURRENT && System.currentTimeMillis() < grace) {
+            Thread.sleep(10);
+        }
+        assertThat(availablePermits()).isEqualTo(MAX_CONCURRENT);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(FANOUT_TIMEOUT_MS + 1000);
+
+        // Upstream vẫn treo nhưng endpoint đã nhận lời gọi mới ngay
+        assertThat(client.getForEntity(AiEndpoint.ANALYSIS, "/health", String.class).getBody()).isEqualTo("ok");
+    }
+
+    @Test
+    void callOutsideFanoutKeepsEndpointReadTimeout() throws Exception {
+        Thread caller = new Thread(() -> {
+            try {
+                client.getForEntity(AiEndpoint.ANALYSIS, "/stalled", String.class);
+            } catch (RuntimeException ignored) {
+                // kết thúc khi server được giải phóng
+            }
+        });
+        caller.start();
+        caller.join(FANOUT_TIMEOUT_MS * 2);
+
+        assertThat(caller.isAlive()).isTrue();
+        assertThat(availablePermits()).isEqualTo(MAX_CONCURRENT - 1);
+
+        release.countDown();
+        caller.join(5000);
+        assertThat(availablePermits()).isEqualTo(MAX_CONCURRENT);
+    }
+
+    private double availablePermits() {
+        return meterRegistry.get("ai.client.bulkhead.available").tag("endpoint", "analysis").gauge().value();
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        } catch (IOException ignored) {
+            // client đã đóng kết nối do timeout
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package vn.duytan.c1se09.smartsurvey.service.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import vn.duytan.c1se09.smartsurvey.util.error.AiServiceUnavailableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra AiServiceClient với một HTTP server giả: timeout mở circuit, bulkhead từ chối khi đầy
+ */
+class AiServiceClientTest {
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private AiServiceClient client;
+    private final AtomicInteger slowHits = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/health", exchange -> respond(exchange, "ok"));
+        server.createContext("/slow", exchange -> {
+            slowHits.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "late");
+        });
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        meterRegistry = new SimpleMeterRegistry();
+        client = new AiServiceClient(
+                new AiServiceClient.PoolSettings(10, 10),
+                new AiServiceClient.BreakerSettings(2, Duration.ofMinutes(1)),
+                Map.of(
+                        AiEndpoint.SENTIMENT,
+                        new AiServiceClient.EndpointSettings(baseUrl, Duration.ofSeconds(1), Duration.ofMillis(200), 5),
+                        AiEndpoint.ANALYSIS,
+                        new AiServiceClient.EndpointSettings(baseUrl, Duration.ofSeconds(1), Duration.ofSeconds(5), 1)),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        release.countDown();
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void successfulCallIsTimed() {
+        ResponseEntity<String> response = client.getForEntity(AiEndpoint.SENTIMENT, "/health", String.class);
+
+        assertThat(response.getBody()).isEqualTo("ok");
+        assertThat(meterRegistry.get("ai.client.requests")
+                .tag("endpoint", "sentiment").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void readTimeoutsOpenCircuitAndRejectWithoutCallingService() {
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.getForEntity(AiEndpoint.SENTIMENT, "/slow", String.class))
+                    .isNotInstanceOf(AiServiceUnavailableException.class);
+        }
+        assertThat(client.circuitState(AiEndpoint.SENTIMENT)).isEqualTo(AiCircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> client.getForEntity(AiEndpoint.SENTIMENT, "/slow", String.class))
+                .isInstanceOf(AiServiceUnavailableException.class);
+        assertThat(slowHits.get()).isEqualTo(2);
+        // Endpoint khác không bị ảnh hưởng
+        assertThat(client.circuitState(AiEndpoint.ANALYSIS)).isEqualTo(AiCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void bulkheadRejectsWhenEndpointIsSaturated() throws Exception {
+        CompletableFuture<ResponseEntity<String>> inFlight = CompletableFuture
+                .supplyAsync(() -> client.getForEntity(AiEndpoint.ANALYSIS, "/slow", String.class));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (slowHits.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> client.getForEntity(AiEndpoint.ANALYSIS, "/health", String.class))
+                .isInstanceOf(AiServiceUnavailableException.class);
+
+        release.countDown();
+        assertThat(inFlight.get(5, TimeUnit.SECONDS).getBody()).isEqualTo("late");
+        assertThat(client.getForEntity(AiEndpoint.ANALYSIS, "/health", String.class).getBody()).isEqualTo("ok");
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        } catch (IOException ignored) {
+            // client đã đóng kết nối do timeout
+        }
+    }
+}
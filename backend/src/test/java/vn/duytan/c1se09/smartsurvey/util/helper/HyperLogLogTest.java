@@ -0,0 +1,116 @@
+package vn.duytan.c1se09.smartsurvey.util.helper;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra HyperLogLog: sai số ước lượng, gộp sketch, hạ precision và serialize
+ */
+class HyperLogLogTest {
+
+    private static final int PRECISION = 12;
+
+    @Test
+    void precisionForErrorMatchesStandardError() {
+        assertThat(HyperLogLog.precisionForError(0.02)).isEqualTo(12);
+        assertThat(HyperLogLog.precisionForError(0.5)).isEqualTo(HyperLogLog.MIN_PRECISION);
+        assertThat(HyperLogLog.precisionForError(0.0001)).isEqualTo(HyperLogLog.MAX_PRECISION);
+        assertThatThrownBy(() -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void estimateStaysWithinErrorBound() {
+        // Sai số chuẩn ≈ 1.04 / sqrt(4096) ≈ 1.6%; cho phép 3 lần sai số chuẩn
+        double bound = 3 * 1.04 / Math.sqrt(1 << PRECISION);
+        for (int n : new int[] { 100, 1_000, 10_000, 100_000 }) {
+            HyperLogLog sketch = sketchOf(PRECISION, 0, n);
+            assertThat((double) sketch.estimate()).as("n = %d", n).isCloseTo(n, withinRelative(n, bound));
+        }
+    }
+
+    @Test
+    void duplicatesDoNotChangeEstimate() {
+        HyperLogLog sketch = sketchOf(PRECISION, 0, 5_000);
+        long before = sketch.estimate();
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add(ip(i));
+        }
+        sketch.add(null);
+
+        assertThat(sketch.estimate()).isEqualTo(before);
+    }
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog(PRECISION).estimate()).isZero();
+    }
+
+    @Test
+    void mergeEstimatesUnion() {
+        // [0, 30000) ∪ [20000, 50000) = 50000 phần tử phân biệt
+        HyperLogLog left = sketchOf(PRECISION, 0, 30_000);
+        HyperLogLog right = sketchOf(PRECISION, 20_000, 50_000);
+
+        HyperLogLog merged = left.merge(right);
+
+        assertThat(merged.estimate()).isEqualTo(sketchOf(PRECISION, 0, 50_000).estimate());
+        double bound = 3 * 1.04 / Math.sqrt(1 << PRECISION);
+        assertThat((double) merged.estimate()).isCloseTo(50_000, withinRelative(50_000, bound));
+    }
+
+    @Test
+    void reduceToMatchesSketchBuiltAtLowerPrecision() {
+        HyperLogLog fine = sketchOf(14, 0, 20_000);
+
+        HyperLogLog reduced = fine.reduceTo(10);
+
+        assertThat(reduced.getPrecision()).isEqualTo(10);
+        assertThat(reduced.toBytes()).isEqualTo(sketchOf(10, 0, 20_000).toBytes());
+        assertThat(fine.reduceTo(14)).isSameAs(fine);
+    }
+
+    @Test
+    void mergeWithDifferentPrecisionUsesLowerPrecision() {
+        HyperLogLog fine = sketchOf(14, 0, 10_000);
+        HyperLogLog coarse = sketchOf(10, 5_000, 15_000);
+
+        HyperLogLog merged = fine.merge(coarse);
+
+        assertThat(merged.getPrecision()).isEqualTo(10);
+        assertThat(merged.toBytes()).isEqualTo(sketchOf(10, 0, 15_000).toBytes());
+    }
+
+    @Test
+    void bytesRoundTripKeepsRegisters() {
+        HyperLogLog sketch = sketchOf(PRECISION, 0, 7_500);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertThat(restored.getPrecision()).isEqualTo(PRECISION);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+        assertThat(restored.toBytes()).isEqualTo(sketch.toBytes());
+
+        HyperLogLog empty = HyperLogLog.fromBytes(new HyperLogLog(PRECISION).toBytes());
+        assertThat(empty.estimate()).isZero();
+    }
+
+    private static HyperLogLog sketchOf(int precision, int fromInclusive, int toExclusive) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            sketch.add(ip(i));
+        }
+        return sketch;
+    }
+
+    private static String ip(int i) {
+        return "10." + ((i >>> 16) & 0xff) + "." + ((i >>> 8) & 0xff) + "." + (i & 0xff);
+    }
+
+    private static Offset<Double> withinRelative(double expected, double bound) {
+        return Offset.offset(expected * bound);
+    }
+}